@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.aws;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.AWSSessionCredentials;
+import com.amazonaws.services.securitytoken.model.GetCallerIdentityRequest;
+import com.amazonaws.services.securitytoken.model.GetCallerIdentityResult;
+
+/**
+ * Resolves the caller identity for a set of credentials once per process.
+ * The identity behind a set of credentials cannot change, so every caller
+ * after the first is answered without an STS round trip.
+ */
+public class AccountIdentity {
+
+    private static final AccountIdentity INSTANCE = new AccountIdentity(AwsClientRegistry.getInstance());
+
+    private final ConcurrentMap<String, GetCallerIdentityResult> identities = new ConcurrentHashMap<>();
+    private final AwsClientRegistry clients;
+
+    AccountIdentity(AwsClientRegistry clients) {
+        this.clients = clients;
+    }
+
+    public static AccountIdentity getInstance() {
+        return INSTANCE;
+    }
+
+    public String getAccountId(AWSCredentials credentials) {
+        return getCallerIdentity(credentials).getAccount();
+    }
+
+    public String getCallerArn(AWSCredentials credentials) {
+        return getCallerIdentity(credentials).getArn();
+    }
+
+    public GetCallerIdentityResult getCallerIdentity(AWSCredentials credentials) {
+        return identities.computeIfAbsent(cacheKey(credentials),
+            key -> clients.sts(credentials, null).getCallerIdentity(new GetCallerIdentityRequest()));
+    }
+
+    private static String cacheKey(AWSCredentials credentials) {
+        String sessionToken = credentials instanceof AWSSessionCredentials
+            ? ((AWSSessionCredentials) credentials).getSessionToken() : "";
+        return credentials.getAWSAccessKeyId() + ":" + sessionToken;
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.aws;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import com.amazonaws.AmazonWebServiceClient;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.AWSSessionCredentials;
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.regions.Regions;
+import com.amazonaws.services.applicationautoscaling.AWSApplicationAutoScaling;
+import com.amazonaws.services.applicationautoscaling.AWSApplicationAutoScalingClientBuilder;
+import com.amazonaws.services.cloudwatch.AmazonCloudWatch;
+import com.amazonaws.services.cloudwatch.AmazonCloudWatchClientBuilder;
+import com.amazonaws.services.cloudwatchevents.AmazonCloudWatchEvents;
+import com.amazonaws.services.cloudwatchevents.AmazonCloudWatchEventsClientBuilder;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import com.amazonaws.services.ec2.AmazonEC2;
+import com.amazonaws.services.ec2.AmazonEC2ClientBuilder;
+import com.amazonaws.services.ecs.AmazonECS;
+import com.amazonaws.services.ecs.AmazonECSClientBuilder;
+import com.amazonaws.services.identitymanagement.AmazonIdentityManagement;
+import com.amazonaws.services.identitymanagement.AmazonIdentityManagementClientBuilder;
+import com.amazonaws.services.kinesis.AmazonKinesis;
+import com.amazonaws.services.kinesis.AmazonKinesisClientBuilder;
+import com.amazonaws.services.kms.AWSKMS;
+import com.amazonaws.services.kms.AWSKMSClientBuilder;
+import com.amazonaws.services.lambda.AWSLambda;
+import com.amazonaws.services.lambda.AWSLambdaClientBuilder;
+import com.amazonaws.services.rds.AmazonRDS;
+import com.amazonaws.services.rds.AmazonRDSClientBuilder;
+import com.amazonaws.services.resourcegroupstaggingapi.AWSResourceGroupsTaggingAPI;
+import com.amazonaws.services.resourcegroupstaggingapi.AWSResourceGroupsTaggingAPIClientBuilder;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.secretsmanager.AWSSecretsManager;
+import com.amazonaws.services.secretsmanager.AWSSecretsManagerClientBuilder;
+import com.amazonaws.services.securitytoken.AWSSecurityTokenService;
+import com.amazonaws.services.securitytoken.AWSSecurityTokenServiceClientBuilder;
+import com.amazonaws.services.sns.AmazonSNS;
+import com.amazonaws.services.sns.AmazonSNSClientBuilder;
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.AmazonSQSClientBuilder;
+import com.lonewolfworks.wolke.aws.credentials.CredentialsHandler;
+
+/**
+ * Process-wide cache of AWS SDK clients keyed by (service, region, credentials).
+ * Clients are built on first use with one shared {@link ClientConfiguration},
+ * so a push only pays for the services it touches and nested or repeated
+ * pushes reuse warm connection pools. {@link #close()} releases the pools once
+ * the process is done with them.
+ */
+public class AwsClientRegistry implements AutoCloseable {
+
+    private static final AwsClientRegistry INSTANCE = new AwsClientRegistry(CredentialsHandler.getConfiguration());
+
+    // Lambda calls (code uploads, synchronous broker invocations) can run for minutes
+    private static final int LAMBDA_TIMEOUT_MS = 300000;
+
+    private final ConcurrentMap<ClientKey, Object> clients = new ConcurrentHashMap<>();
+    private final ClientConfiguration clientConfiguration;
+    private final ClientConfiguration lambdaClientConfiguration;
+
+    AwsClientRegistry(ClientConfiguration clientConfiguration) {
+        this.clientConfiguration = clientConfiguration;
+        this.lambdaClientConfiguration = new ClientConfiguration(clientConfiguration)
+            .withClientExecutionTimeout(LAMBDA_TIMEOUT_MS)
+            .withSocketTimeout(LAMBDA_TIMEOUT_MS);
+    }
+
+    public static AwsClientRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    public AmazonIdentityManagement iam(AWSCredentials credentials, Regions region) {
+        return client(AmazonIdentityManagement.class, credentials, region, AmazonIdentityManagementClientBuilder::standard);
+    }
+
+    public AmazonECS ecs(AWSCredentials credentials, Regions region) {
+        return client(AmazonECS.class, credentials, region, AmazonECSClientBuilder::standard);
+    }
+
+    public AmazonEC2 ec2(AWSCredentials credentials, Regions region) {
+        return client(AmazonEC2.class, credentials, region, AmazonEC2ClientBuilder::standard);
+    }
+
+    public com.amazonaws.services.elasticloadbalancing.AmazonElasticLoadBalancing elb(AWSCredentials credentials,
+                                                                                      Regions region) {
+        return client(com.amazonaws.services.elasticloadbalancing.AmazonElasticLoadBalancing.class, credentials, region,
+            com.amazonaws.services.elasticloadbalancing.AmazonElasticLoadBalancingClientBuilder::standard);
+    }
+
+    public com.amazonaws.services.elasticloadbalancingv2.AmazonElasticLoadBalancing elbV2(AWSCredentials credentials,
+                                                                                          Regions region) {
+        return client(com.amazonaws.services.elasticloadbalancingv2.AmazonElasticLoadBalancing.class, credentials, region,
+            com.amazonaws.services.elasticloadbalancingv2.AmazonElasticLoadBalancingClientBuilder::standard);
+    }
+
+    public AmazonS3 s3(AWSCredentials credentials, Regions region) {
+        return client(AmazonS3.class, credentials, region, AmazonS3ClientBuilder::standard);
+    }
+
+    public AmazonKinesis kinesis(AWSCredentials credentials, Regions region) {
+        return client(AmazonKinesis.class, credentials, region, AmazonKinesisClientBuilder::standard);
+    }
+
+    public AWSResourceGroupsTaggingAPI resourceTagging(AWSCredentials credentials, Regions region) {
+        return client(AWSResourceGroupsTaggingAPI.class, credentials, region,
+            AWSResourceGroupsTaggingAPIClientBuilder::standard);
+    }
+
+    public AmazonRDS rds(AWSCredentials credentials, Regions region) {
+        return client(AmazonRDS.class, credentials, region, AmazonRDSClientBuilder::standard);
+    }
+
+    public AWSKMS kms(AWSCredentials credentials, Regions region) {
+        return client(AWSKMS.class, credentials, region, AWSKMSClientBuilder::standard);
+    }
+
+    public AmazonSQS sqs(AWSCredentials credentials, Regions region) {
+        return client(AmazonSQS.class, credentials, region, AmazonSQSClientBuilder::standard);
+    }
+
+    public AmazonSNS sns(AWSCredentials credentials, Regions region) {
+        return client(AmazonSNS.class, credentials, region, AmazonSNSClientBuilder::standard);
+    }
+
+    public AmazonDynamoDB dynamoDb(AWSCredentials credentials, Regions region) {
+        return client(AmazonDynamoDB.class, credentials, region, AmazonDynamoDBClientBuilder::standard);
+    }
+
+    public AWSLambda lambda(AWSCredentials credentials, Regions region) {
+        return client(AWSLambda.class, credentials, region, AWSLambdaClientBuilder::standard, lambdaClientConfiguration);
+    }
+
+    public AmazonCloudWatch cloudWatch(AWSCredentials credentials, Regions region) {
+        return client(AmazonCloudWatch.class, credentials, region, AmazonCloudWatchClientBuilder::standard);
+    }
+
+    public AmazonCloudWatchEvents cloudWatchEvents(AWSCredentials credentials, Regions region) {
+        return client(AmazonCloudWatchEvents.class, credentials, region, AmazonCloudWatchEventsClientBuilder::standard);
+    }
+
+    public AWSSecretsManager secretsManager(AWSCredentials credentials, Regions region) {
+        return client(AWSSecretsManager.class, credentials, region, AWSSecretsManagerClientBuilder::standard);
+    }
+
+    public AWSApplicationAutoScaling applicationAutoScaling(AWSCredentials credentials, Regions region) {
+        return client(AWSApplicationAutoScaling.class, credentials, region,
+            AWSApplicationAutoScalingClientBuilder::standard);
+    }
+
+    /**
+     * @param region may be null, in which case the SDK default region chain applies
+     */
+    public AWSSecurityTokenService sts(AWSCredentials credentials, Regions region) {
+        return client(AWSSecurityTokenService.class, credentials, region, AWSSecurityTokenServiceClientBuilder::standard);
+    }
+
+    /**
+     * Shuts down every client built so far. Clients asked for afterwards are built afresh.
+     */
+    @Override
+    public void close() {
+        for (ClientKey key : clients.keySet()) {
+            Object client = clients.remove(key);
+            if (client instanceof AmazonWebServiceClient) {
+                ((AmazonWebServiceClient) client).shutdown();
+            }
+        }
+    }
+
+    private <T> T client(Class<T> type, AWSCredentials credentials, Regions region,
+                         Supplier<? extends AwsClientBuilder<?, T>> builder) {
+        return client(type, credentials, region, builder, clientConfiguration);
+    }
+
+    private <T> T client(Class<T> type, AWSCredentials credentials, Regions region,
+                         Supplier<? extends AwsClientBuilder<?, T>> builder, ClientConfiguration configuration) {
+        ClientKey key = new ClientKey(type, region, credentials);
+        return type.cast(clients.computeIfAbsent(key, k -> {
+            AwsClientBuilder<?, T> clientBuilder = builder.get();
+            clientBuilder.setCredentials(new AWSStaticCredentialsProvider(credentials));
+            clientBuilder.setClientConfiguration(configuration);
+            if (region != null) {
+                clientBuilder.setRegion(region.getName());
+            }
+            return clientBuilder.build();
+        }));
+    }
+
+    private static final class ClientKey {
+        private final Class<?> service;
+        private final Regions region;
+        private final String accessKeyId;
+        private final String secretKey;
+        private final String sessionToken;
+
+        ClientKey(Class<?> service, Regions region, AWSCredentials credentials) {
+            this.service = service;
+            this.region = region;
+            this.accessKeyId = credentials.getAWSAccessKeyId();
+            this.secretKey = credentials.getAWSSecretKey();
+            this.sessionToken = credentials instanceof AWSSessionCredentials
+                ? ((AWSSessionCredentials) credentials).getSessionToken() : null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ClientKey that = (ClientKey) o;
+            return service.equals(that.service)
+                && region == that.region
+                && Objects.equals(accessKeyId, that.accessKeyId)
+                && Objects.equals(secretKey, that.secretKey)
+                && Objects.equals(sessionToken, that.sessionToken);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(service, region, accessKeyId, secretKey, sessionToken);
+        }
+    }
+}
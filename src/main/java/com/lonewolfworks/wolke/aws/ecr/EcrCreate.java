@@ -58,6 +58,15 @@ public class EcrCreate {
     }
 
     public String createRepo(String name) {
+        return createRepo(name, null);
+    }
+
+    /**
+     * @param lifecyclePolicy retention to apply; when null, the configuration bucket's
+     *                        ecr-lifecycle-policy.json is used, falling back to the defaults
+     *                        for repositories that have no lifecycle policy yet
+     */
+    public String createRepo(String name, EcrLifecyclePolicy lifecyclePolicy) {
 
         CreateRepositoryRequest req = new CreateRepositoryRequest();
         req.setRepositoryName(name);
@@ -92,11 +101,17 @@ public class EcrCreate {
         String result = repo.getRegistryId() + ".dkr.ecr." + region.getName() + ".amazonaws.com/" + name;
 
         try {
-            EcrTrim trimmer = new EcrTrim(buildLogger, sessionCredentials, config, region);
-            trimmer.trimRepo(name);
+            EcrLifecyclePolicyBroker broker = new EcrLifecyclePolicyBroker(client, buildLogger);
+            String policyText = lifecyclePolicy != null ? lifecyclePolicy.toPolicyText()
+                : ConfigurationUtil.getECRLifecyclePolicyAsString(sessionCredentials, buildLogger, null, this.region);
+            if (policyText != null) {
+                broker.brokerPolicy(repo.getRegistryId(), repo.getRepositoryName(), policyText);
+            } else {
+                broker.brokerDefaultPolicy(repo.getRegistryId(), repo.getRepositoryName(), new EcrLifecyclePolicy().toPolicyText());
+            }
         } catch (Exception e) {
-            LOGGER.debug("Error trimming repo: " + name, e);
-            buildLogger.addLogEntry("Error trimming repo: " + e.getMessage());
+            LOGGER.debug("Error setting lifecycle policy on repo: " + name, e);
+            buildLogger.addLogEntry("Error setting lifecycle policy on repo: " + e.getMessage());
         }
         return result;
 
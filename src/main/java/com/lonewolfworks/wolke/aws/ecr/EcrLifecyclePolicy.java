@@ -0,0 +1,139 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.aws.ecr;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.lonewolfworks.wolke.aws.AwsExecException;
+import com.lonewolfworks.wolke.util.MapperUtil;
+
+/**
+ * Declarative image retention, rendered as an ECR lifecycle policy so ECR
+ * expires images server-side. Untagged images expire first, then each tag
+ * prefix keeps its own newest images, then the repository as a whole keeps
+ * the newest {@link #getKeepImages()}.
+ */
+public class EcrLifecyclePolicy {
+
+    public static final int DEFAULT_KEEP_IMAGES = 750;
+    public static final int DEFAULT_EXPIRE_UNTAGGED_DAYS = 7;
+
+    private Integer keepImages = DEFAULT_KEEP_IMAGES;
+    private Integer expireUntaggedDays = DEFAULT_EXPIRE_UNTAGGED_DAYS;
+    private Map<String, Integer> keepTagPrefixes = new LinkedHashMap<>();
+
+    public Integer getKeepImages() {
+        return keepImages;
+    }
+
+    public void setKeepImages(Integer keepImages) {
+        this.keepImages = keepImages;
+    }
+
+    public Integer getExpireUntaggedDays() {
+        return expireUntaggedDays;
+    }
+
+    public void setExpireUntaggedDays(Integer expireUntaggedDays) {
+        this.expireUntaggedDays = expireUntaggedDays;
+    }
+
+    public Map<String, Integer> getKeepTagPrefixes() {
+        return keepTagPrefixes;
+    }
+
+    public void setKeepTagPrefixes(Map<String, Integer> keepTagPrefixes) {
+        this.keepTagPrefixes = keepTagPrefixes;
+    }
+
+    public EcrLifecyclePolicy withKeepImages(final Integer keepImages) {
+        this.keepImages = keepImages;
+        return this;
+    }
+
+    public EcrLifecyclePolicy withExpireUntaggedDays(final Integer expireUntaggedDays) {
+        this.expireUntaggedDays = expireUntaggedDays;
+        return this;
+    }
+
+    public EcrLifecyclePolicy withKeepTagPrefixes(final Map<String, Integer> keepTagPrefixes) {
+        this.keepTagPrefixes = keepTagPrefixes;
+        return this;
+    }
+
+    /**
+     * @return the policy text accepted by PutLifecyclePolicy
+     */
+    public String toPolicyText() {
+        List<Map<String, Object>> rules = new ArrayList<>();
+        if (expireUntaggedDays != null) {
+            Map<String, Object> selection = new LinkedHashMap<>();
+            selection.put("tagStatus", "untagged");
+            selection.put("countType", "sinceImagePushed");
+            selection.put("countUnit", "days");
+            selection.put("countNumber", expireUntaggedDays);
+            rules.add(rule(rules.size() + 1, "Expire untagged images after " + expireUntaggedDays + " days", selection));
+        }
+        if (keepTagPrefixes != null) {
+            for (Map.Entry<String, Integer> prefix : keepTagPrefixes.entrySet()) {
+                Map<String, Object> selection = new LinkedHashMap<>();
+                selection.put("tagStatus", "tagged");
+                selection.put("tagPrefixList", Collections.singletonList(prefix.getKey()));
+                selection.put("countType", "imageCountMoreThan");
+                selection.put("countNumber", prefix.getValue());
+                rules.add(rule(rules.size() + 1,
+                    "Keep the newest " + prefix.getValue() + " images tagged " + prefix.getKey() + "*", selection));
+            }
+        }
+        // an "any" rule must have the lowest priority
+        if (keepImages != null) {
+            Map<String, Object> selection = new LinkedHashMap<>();
+            selection.put("tagStatus", "any");
+            selection.put("countType", "imageCountMoreThan");
+            selection.put("countNumber", keepImages);
+            rules.add(rule(rules.size() + 1, "Keep the newest " + keepImages + " images", selection));
+        }
+
+        try {
+            return MapperUtil.jsonWriter().writeValueAsString(Collections.singletonMap("rules", rules));
+        } catch (JsonProcessingException ex) {
+            throw new AwsExecException(ex);
+        }
+    }
+
+    private static Map<String, Object> rule(int priority, String description, Map<String, Object> selection) {
+        Map<String, Object> rule = new LinkedHashMap<>();
+        rule.put("rulePriority", priority);
+        rule.put("description", description);
+        rule.put("selection", selection);
+        rule.put("action", Collections.singletonMap("type", "expire"));
+        return rule;
+    }
+
+    @Override
+    public String toString() {
+        return "EcrLifecyclePolicy{" +
+            "keepImages=" + keepImages +
+            ", expireUntaggedDays=" + expireUntaggedDays +
+            ", keepTagPrefixes=" + keepTagPrefixes +
+            '}';
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.aws.ecr;
+
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.services.ecr.AmazonECR;
+import com.amazonaws.services.ecr.model.GetLifecyclePolicyRequest;
+import com.amazonaws.services.ecr.model.LifecyclePolicyNotFoundException;
+import com.amazonaws.services.ecr.model.PutLifecyclePolicyRequest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.lonewolfworks.wolke.logging.HermanLogger;
+import com.lonewolfworks.wolke.util.MapperUtil;
+
+/**
+ * Keeps a repository's lifecycle policy in line with the desired one, writing
+ * it only when it differs from what ECR already has. The built-in default is
+ * only written to repositories without a policy.
+ */
+public class EcrLifecyclePolicyBroker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EcrLifecyclePolicyBroker.class);
+
+    private final AmazonECR client;
+    private final HermanLogger buildLogger;
+
+    public EcrLifecyclePolicyBroker(AmazonECR client, HermanLogger buildLogger) {
+        this.client = client;
+        this.buildLogger = buildLogger;
+    }
+
+    /**
+     * Applies a policy that was asked for, replacing whatever the repository has.
+     */
+    public void brokerPolicy(String registryId, String repositoryName, String policyText) {
+        String current = currentPolicy(registryId, repositoryName);
+        if (samePolicy(current, policyText)) {
+            buildLogger.addLogEntry("... Lifecycle policy unchanged");
+            return;
+        }
+        putPolicy(registryId, repositoryName, policyText);
+    }
+
+    /**
+     * Applies the default policy only to a repository that has none, so policies
+     * managed by hand are left alone.
+     */
+    public void brokerDefaultPolicy(String registryId, String repositoryName, String policyText) {
+        if (currentPolicy(registryId, repositoryName) != null) {
+            buildLogger.addLogEntry("... Keeping the repository's existing lifecycle policy");
+            return;
+        }
+        putPolicy(registryId, repositoryName, policyText);
+    }
+
+    private String currentPolicy(String registryId, String repositoryName) {
+        try {
+            return client.getLifecyclePolicy(new GetLifecyclePolicyRequest()
+                .withRegistryId(registryId)
+                .withRepositoryName(repositoryName)).getLifecyclePolicyText();
+        } catch (LifecyclePolicyNotFoundException ex) {
+            LOGGER.debug("No lifecycle policy on " + repositoryName, ex);
+            return null;
+        }
+    }
+
+    private void putPolicy(String registryId, String repositoryName, String policyText) {
+        buildLogger.addLogEntry("... Updating lifecycle policy: " + policyText);
+        client.putLifecyclePolicy(new PutLifecyclePolicyRequest()
+            .withRegistryId(registryId)
+            .withRepositoryName(repositoryName)
+            .withLifecyclePolicyText(policyText));
+    }
+
+    static boolean samePolicy(String current, String desired) {
+        if (current == null) {
+            return false;
+        }
+        try {
+            JsonNode currentTree = MapperUtil.jsonReader(JsonNode.class).readTree(current);
+            JsonNode desiredTree = MapperUtil.jsonReader(JsonNode.class).readTree(desired);
+            return currentTree.equals(desiredTree);
+        } catch (IOException ex) {
+            LOGGER.debug("Unable to compare lifecycle policies", ex);
+            return false;
+        }
+    }
+}
@@ -27,73 +27,107 @@ import com.amazonaws.services.ecr.model.DescribeImagesRequest;
 import com.amazonaws.services.ecr.model.DescribeImagesResult;
 import com.amazonaws.services.ecr.model.ImageDetail;
 import com.amazonaws.services.ecr.model.ImageIdentifier;
+import com.lonewolfworks.wolke.aws.AwsExecException;
 import com.lonewolfworks.wolke.logging.HermanLogger;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Manual fallback for repositories without a lifecycle policy: keeps the
+ * newest images and deletes the rest, tagged or not. Pages are streamed
+ * through a heap holding only the images kept so far, and anything pushed
+ * out of it is deleted by digest in parallel batches of 100 until the
+ * repository is caught up.
+ */
 public class EcrTrim {
+    static final int DEFAULT_KEEP_IMAGES = EcrLifecyclePolicy.DEFAULT_KEEP_IMAGES;
+    private static final int BATCH_SIZE = 100;
+    private static final int DELETE_PARALLELISM = 4;
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
     private HermanLogger buildLogger;
     private AmazonECR client;
+    private int keepImages;
 
     public EcrTrim(HermanLogger buildLogger, AWSCredentials sessionCredentials, ClientConfiguration config,
         Regions region) {
+        this(buildLogger, AmazonECRClientBuilder.standard().withCredentials(new AWSStaticCredentialsProvider(sessionCredentials))
+            .withClientConfiguration(config).withRegion(region).build(), DEFAULT_KEEP_IMAGES);
+    }
+
+    EcrTrim(HermanLogger buildLogger, AmazonECR client, int keepImages) {
         this.buildLogger = buildLogger;
-        client = AmazonECRClientBuilder.standard().withCredentials(new AWSStaticCredentialsProvider(sessionCredentials))
-            .withClientConfiguration(config).withRegion(region).build();
+        this.client = client;
+        this.keepImages = keepImages;
     }
 
     public void trimRepo(String name) {
-        DescribeImagesRequest request = new DescribeImagesRequest().withRepositoryName(name);
-        DescribeImagesResult result = client.describeImages(request);
-        List<ImageDetail> images = new ArrayList<>();
+        // oldest kept image at the head, so it is the first pushed out
+        PriorityQueue<ImageDetail> kept = new PriorityQueue<>(Comparator.comparing(ImageDetail::getImagePushedAt));
+        List<ImageIdentifier> batch = new ArrayList<>();
+        List<Future<Integer>> deletes = new ArrayList<>();
 
-        images.addAll(result.getImageDetails());
-        String nextToken = result.getNextToken();
-        while (nextToken != null) {
-            request = new DescribeImagesRequest().withRepositoryName(name).withNextToken(nextToken);
-            result = client.describeImages(request);
-            images.addAll(result.getImageDetails());
-            nextToken = result.getNextToken();
-        }
-        Collections.sort(images, new ImageDateComparator());
-        Collections.reverse(images);
-
-        // Keep newest 750 images - 1000 cap
-        List<ImageIdentifier> toDelete = new ArrayList<>();
-        for (int i = 750; i < images.size(); i++) {
-            ImageDetail deleteMe = images.get(i);
-            if (deleteMe.getImageTags() != null && !deleteMe.getImageTags().isEmpty()) {
-                toDelete.add(new ImageIdentifier().withImageDigest(deleteMe.getImageDigest())
-                    .withImageTag(deleteMe.getImageTags().get(0)));
+        ExecutorService pool = Executors.newFixedThreadPool(DELETE_PARALLELISM, r -> {
+            Thread thread = new Thread(r, "ecr-trim-" + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            String nextToken = null;
+            do {
+                DescribeImagesResult result = client.describeImages(new DescribeImagesRequest()
+                    .withRepositoryName(name).withNextToken(nextToken));
+                for (ImageDetail image : result.getImageDetails()) {
+                    kept.add(image);
+                    if (kept.size() > keepImages) {
+                        ImageDetail deleteMe = kept.poll();
+                        buildLogger.addLogEntry("DELETING: " + describe(deleteMe));
+                        batch.add(new ImageIdentifier().withImageDigest(deleteMe.getImageDigest()));
+                        if (batch.size() == BATCH_SIZE) {
+                            deletes.add(submitDelete(pool, name, batch));
+                            batch = new ArrayList<>();
+                        }
+                    }
+                }
+                nextToken = result.getNextToken();
+            } while (nextToken != null);
+            if (!batch.isEmpty()) {
+                deletes.add(submitDelete(pool, name, batch));
             }
-        }
-        // if over 100, delete oldest 100 in this batch
-        Collections.reverse(toDelete);
-        if (toDelete.size() > 100) {
-            toDelete = toDelete.subList(0, 99);
-        }
 
-        for (ImageIdentifier detail : toDelete) {
-            buildLogger.addLogEntry("DELETING: " + detail.getImageTag());
-        }
-        if (!toDelete.isEmpty()) {
-            BatchDeleteImageRequest delReq = new BatchDeleteImageRequest().withRepositoryName(name)
-                .withImageIds(toDelete);
-            BatchDeleteImageResult res = client.batchDeleteImage(delReq);
-            buildLogger.addLogEntry("DELETE called with " + res.getFailures().size() + " failed images.");
+            int failures = 0;
+            for (Future<Integer> delete : deletes) {
+                failures += delete.get();
+            }
+            buildLogger.addLogEntry("DELETE called in " + deletes.size() + " batches with " + failures + " failed images.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AwsExecException(e);
+        } catch (ExecutionException e) {
+            throw new AwsExecException("Error trimming repo " + name, e);
+        } finally {
+            pool.shutdownNow();
         }
-
     }
 
-    private class ImageDateComparator implements Comparator<ImageDetail> {
-
-        @Override
-        public int compare(ImageDetail o1, ImageDetail o2) {
-            return o1.getImagePushedAt().compareTo(o2.getImagePushedAt());
-        }
+    private Future<Integer> submitDelete(ExecutorService pool, String name, List<ImageIdentifier> imageIds) {
+        return pool.submit(() -> {
+            BatchDeleteImageResult res = client.batchDeleteImage(new BatchDeleteImageRequest().withRepositoryName(name)
+                .withImageIds(imageIds));
+            return res.getFailures().size();
+        });
+    }
 
+    private static String describe(ImageDetail image) {
+        return image.getImageTags() == null || image.getImageTags().isEmpty()
+            ? image.getImageDigest() : String.join(",", image.getImageTags());
     }
 }
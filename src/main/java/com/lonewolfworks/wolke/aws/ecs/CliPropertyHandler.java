@@ -28,7 +28,6 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class CliPropertyHandler implements PropertyHandler {
@@ -36,6 +35,7 @@ public class CliPropertyHandler implements PropertyHandler {
     static final Pattern PROPERTY_PATTERN = Pattern.compile("\\$\\{([a-zA-Z0-9\\.\\_\\-]+)\\}");
     private static final Logger LOGGER = LoggerFactory.getLogger(CliPropertyHandler.class);
     private Properties props = new Properties();
+    private Properties envProps;
 
 
     private Set<String> propertyKeysUsed = new HashSet<>();
@@ -73,31 +73,13 @@ public class CliPropertyHandler implements PropertyHandler {
     public String mapInProperties(String template) {
         importPropFiles();
 
-        Set<String> propertiesToMatch = getPropertiesToMatch(template);
-        String result = template;
-        for (String prop : propertiesToMatch) {
-            String token = prop.replace("${", "");
-            token = token.replace("}", "");
-            Pattern groupPattern = Pattern.compile("\\$\\{(" + token + ")\\}");
-            Matcher matcher = groupPattern.matcher(result);
+        return PropertyTemplate.compile(template).render(token -> {
             String value = lookupVariable(token);
             if (value == null) {
                 throw new AwsExecException("Missing property set for " + token);
             }
-            result = matcher.replaceAll(value);
-        }
-        return result;
-
-    }
-
-    Set<String> getPropertiesToMatch(String template) {
-        Set<String> propertiesToMatch = new HashSet<>();
-        Matcher propMatcher = PROPERTY_PATTERN.matcher(template);
-        while (propMatcher.find()) {
-            String propVal = propMatcher.group();
-            propertiesToMatch.add(propVal);
-        }
-        return propertiesToMatch;
+            return value;
+        });
     }
 
     /*
@@ -131,21 +113,41 @@ public class CliPropertyHandler implements PropertyHandler {
         return this.customVariables.getOrDefault(key, null);
     }
 
-    private void importPropFiles() {
-        FileUtil util = new FileUtil(this.rootDirectory, this.hermanLogger);
-        String envProps = util.findFile(this.environmentName + ".properties", true);
-
-        if (props != null && envProps != null) {
-            try {
-                InputStream propStream = new ByteArrayInputStream(envProps.getBytes());
-                props.load(propStream);
-            } catch (IOException e) {
-                LOGGER.debug("Error loading properties file: " + this.environmentName, e);
-                this.hermanLogger.addLogEntry("Error loading " + this.environmentName + ".properties: " + e.getMessage());
+    /**
+     * A handler with its own added properties that reuses the environment property
+     * file this handler already read, e.g. one per region of a multi-region push.
+     */
+    public CliPropertyHandler copy(HermanLogger logger) {
+        importPropFiles();
+        CliPropertyHandler copy = new CliPropertyHandler(logger, environmentName, rootDirectory, customVariables);
+        copy.envProps = envProps;
+        copy.props.putAll(props);
+        return copy;
+    }
+
+    /**
+     * Environment properties take precedence over added properties on every
+     * mapping, so they are re-applied each time; the file itself is read once.
+     */
+    private synchronized void importPropFiles() {
+        if (envProps == null) {
+            envProps = new Properties();
+            FileUtil util = new FileUtil(this.rootDirectory, this.hermanLogger);
+            String envPropsFile = util.findFile(this.environmentName + ".properties", true);
+
+            if (envPropsFile != null) {
+                try {
+                    InputStream propStream = new ByteArrayInputStream(envPropsFile.getBytes());
+                    envProps.load(propStream);
+                } catch (IOException e) {
+                    LOGGER.debug("Error loading properties file: " + this.environmentName, e);
+                    this.hermanLogger.addLogEntry("Error loading " + this.environmentName + ".properties: " + e.getMessage());
+                }
+            } else {
+                hermanLogger.addErrorLogEntry("No property file was loaded - we looked for " + this.environmentName + ".properties");
             }
-        } else {
-            hermanLogger.addErrorLogEntry("No property file was loaded - we looked for " + this.environmentName + ".properties");
         }
+        props.putAll(envProps);
     }
 
     public Set<String> getPropertyKeysUsed() {
@@ -15,6 +15,7 @@
  */
 package com.lonewolfworks.wolke.aws.ecs;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -91,21 +92,24 @@ public class EcsDefaultEnvInjection {
     		}
         }
     	
+    	List<Secret> rdsSecrets = new ArrayList<>();
+    	List<String> paths = new ArrayList<>();
     	for (ContainerDefinition def : definition.getContainerDefinitions()) {
     		for(Secret sec : def.getSecrets()) {
-    			System.out.println("RDS SEC"+sec);
     			if(sec.getValueFrom().startsWith("rdsbroker:")) {
     				//rdsbroker:appUsername
     				String rdsKey = sec.getValueFrom().split(":")[1];
-    				String path = rds.getSecretPathPrefix();
-    				//TODO should already be set...just broker arn?
-    				String arn = broker.brokerSecretsManagerShell(path+"/"+rdsKey, definition.getAppName());
-            		sec.setValueFrom(arn);
+    				rdsSecrets.add(sec);
+    				paths.add(rds.getSecretPathPrefix()+"/"+rdsKey);
     			}
     		}
         }
     	
-    	
+    	// paths the RDS broker just wrote are served from the broker's ARN cache
+    	Map<String, String> arns = broker.brokerSecretsManagerShells(paths, definition.getAppName());
+    	for (int i = 0; i < rdsSecrets.size(); i++) {
+    		rdsSecrets.get(i).setValueFrom(arns.get(paths.get(i)));
+    	}
     }
 
     public void injectAuth0(EcsPushDefinition definition, Auth0Configuration auth0Configuration) {
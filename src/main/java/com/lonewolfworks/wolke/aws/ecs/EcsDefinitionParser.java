@@ -15,10 +15,6 @@
  */
 package com.lonewolfworks.wolke.aws.ecs;
 
-import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
-import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
-import com.amazonaws.services.dynamodbv2.model.Projection;
-import com.amazonaws.services.dynamodbv2.model.StreamSpecification;
 import com.amazonaws.services.ecs.model.ContainerDefinition;
 import com.amazonaws.services.ecs.model.LogConfiguration;
 import com.amazonaws.services.ecs.model.LogDriver;
@@ -35,13 +31,17 @@ import com.amazonaws.services.ecs.model.UlimitName;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.lonewolfworks.wolke.aws.AwsExecException;
-import com.lonewolfworks.wolke.aws.ecs.broker.dynamodb.DynamoDBMixIns;
+import com.lonewolfworks.wolke.util.MapperUtil;
 import java.util.List;
 
 public class EcsDefinitionParser {
 
+    private static final ObjectReader JSON_READER = definitionMapper(new ObjectMapper()).readerFor(EcsPushDefinition.class);
+    private static final ObjectReader YAML_READER = definitionMapper(new ObjectMapper(new YAMLFactory())).readerFor(EcsPushDefinition.class);
+
     private PropertyHandler handler;
 
     public EcsDefinitionParser(PropertyHandler handler) {
@@ -49,28 +49,11 @@ public class EcsDefinitionParser {
     }
 
     public EcsPushDefinition parse(String template, boolean isJson) {
-
-        ObjectMapper mapper = null;
-        if (isJson) {
-            mapper = new ObjectMapper();
-        } else {
-            mapper = new ObjectMapper(new YAMLFactory());
-        }
-
-        mapper.addMixIn(PortMapping.class, IgnoreTransportSetValueObjMixIn.class);
-        mapper.addMixIn(Ulimit.class, IgnoreUlimitObjMixIn.class);
-        mapper.addMixIn(PlacementConstraint.class, IgnorePlacementConstraint.class);
-        mapper.addMixIn(LogConfiguration.class, IgnoreLogConfigLogDriver.class);
-        mapper.addMixIn(PlacementStrategy.class, IgnorePlaceStrategyType.class);
-        mapper.addMixIn(TaskDefinitionPlacementConstraint.class, IgnoreTaskPlacementConstraint.class);
-        mapper.addMixIn(KeySchemaElement.class, DynamoDBMixIns.class);
-        mapper.addMixIn(StreamSpecification.class, DynamoDBMixIns.class);
-        mapper.addMixIn(AttributeDefinition.class, DynamoDBMixIns.class);
-        mapper.addMixIn(Projection.class, DynamoDBMixIns.class);
+        ObjectReader reader = isJson ? JSON_READER : YAML_READER;
 
         EcsPushDefinition ecsPushDefinition;
         try {
-            ecsPushDefinition = mapper.readValue(handler.mapInProperties(template), EcsPushDefinition.class);
+            ecsPushDefinition = reader.readValue(handler.mapInProperties(template));
         } catch (Exception e) {
             throw new AwsExecException(e);
         }
@@ -80,6 +63,16 @@ public class EcsDefinitionParser {
     }
 
 
+    static ObjectMapper definitionMapper(ObjectMapper mapper) {
+        mapper.addMixIn(PortMapping.class, IgnoreTransportSetValueObjMixIn.class);
+        mapper.addMixIn(Ulimit.class, IgnoreUlimitObjMixIn.class);
+        mapper.addMixIn(PlacementConstraint.class, IgnorePlacementConstraint.class);
+        mapper.addMixIn(LogConfiguration.class, IgnoreLogConfigLogDriver.class);
+        mapper.addMixIn(PlacementStrategy.class, IgnorePlaceStrategyType.class);
+        mapper.addMixIn(TaskDefinitionPlacementConstraint.class, IgnoreTaskPlacementConstraint.class);
+        return MapperUtil.withDynamoDBMixIns(mapper);
+    }
+
     private void patchJsonLogDefintionParseError(List<ContainerDefinition> containers) {
         for (ContainerDefinition container : containers) {
             if (container.getLogConfiguration() != null) {
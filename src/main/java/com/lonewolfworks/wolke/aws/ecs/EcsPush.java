@@ -15,45 +15,40 @@
  */
 package com.lonewolfworks.wolke.aws.ecs;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Date;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import org.apache.commons.lang3.StringUtils;
 
-import com.amazonaws.ClientConfiguration;
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
-import com.amazonaws.services.cloudwatch.AmazonCloudWatch;
-import com.amazonaws.services.cloudwatch.AmazonCloudWatchClientBuilder;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
 import com.amazonaws.services.ec2.AmazonEC2;
-import com.amazonaws.services.ec2.AmazonEC2ClientBuilder;
 import com.amazonaws.services.ecs.AmazonECS;
-import com.amazonaws.services.ecs.AmazonECSClientBuilder;
 import com.amazonaws.services.ecs.model.AssignPublicIp;
 import com.amazonaws.services.ecs.model.AwsVpcConfiguration;
 import com.amazonaws.services.ecs.model.Container;
 import com.amazonaws.services.ecs.model.ContainerDefinition;
 import com.amazonaws.services.ecs.model.CreateServiceRequest;
 import com.amazonaws.services.ecs.model.CreateServiceResult;
-import com.amazonaws.services.ecs.model.DeregisterTaskDefinitionRequest;
 import com.amazonaws.services.ecs.model.DescribeServicesRequest;
 import com.amazonaws.services.ecs.model.DescribeServicesResult;
 import com.amazonaws.services.ecs.model.DescribeTaskDefinitionRequest;
 import com.amazonaws.services.ecs.model.DescribeTasksRequest;
 import com.amazonaws.services.ecs.model.Failure;
-import com.amazonaws.services.ecs.model.ListTaskDefinitionsRequest;
-import com.amazonaws.services.ecs.model.ListTaskDefinitionsResult;
 import com.amazonaws.services.ecs.model.LoadBalancer;
 import com.amazonaws.services.ecs.model.NetworkConfiguration;
 import com.amazonaws.services.ecs.model.RegisterTaskDefinitionRequest;
@@ -62,7 +57,6 @@ import com.amazonaws.services.ecs.model.RunTaskRequest;
 import com.amazonaws.services.ecs.model.RunTaskResult;
 import com.amazonaws.services.ecs.model.Secret;
 import com.amazonaws.services.ecs.model.Service;
-import com.amazonaws.services.ecs.model.ServiceEvent;
 import com.amazonaws.services.ecs.model.StopTaskRequest;
 import com.amazonaws.services.ecs.model.TagResourceRequest;
 import com.amazonaws.services.ecs.model.Task;
@@ -70,27 +64,23 @@ import com.amazonaws.services.ecs.model.TaskDefinition;
 import com.amazonaws.services.ecs.model.TaskDefinitionPlacementConstraint;
 import com.amazonaws.services.ecs.model.TaskDefinitionPlacementConstraintType;
 import com.amazonaws.services.ecs.model.UpdateServiceRequest;
+import com.amazonaws.services.ecs.model.UpdateServiceResult;
 import com.amazonaws.services.identitymanagement.AmazonIdentityManagement;
-import com.amazonaws.services.identitymanagement.AmazonIdentityManagementClientBuilder;
 import com.amazonaws.services.identitymanagement.model.Role;
 import com.amazonaws.services.kinesis.AmazonKinesis;
-import com.amazonaws.services.kinesis.AmazonKinesisClientBuilder;
 import com.amazonaws.services.kms.AWSKMS;
-import com.amazonaws.services.kms.AWSKMSClientBuilder;
 import com.amazonaws.services.lambda.AWSLambda;
-import com.amazonaws.services.lambda.AWSLambdaClientBuilder;
 import com.amazonaws.services.rds.AmazonRDS;
-import com.amazonaws.services.rds.AmazonRDSClientBuilder;
+import com.amazonaws.services.resourcegroupstaggingapi.AWSResourceGroupsTaggingAPI;
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.amazonaws.services.secretsmanager.AWSSecretsManager;
-import com.amazonaws.services.secretsmanager.AWSSecretsManagerClientBuilder;
 import com.amazonaws.services.sns.AmazonSNS;
-import com.amazonaws.services.sns.AmazonSNSClientBuilder;
 import com.amazonaws.services.sqs.AmazonSQS;
-import com.amazonaws.services.sqs.AmazonSQSClientBuilder;
 import com.amazonaws.util.IOUtils;
+import com.lonewolfworks.wolke.aws.AccountIdentity;
+import com.lonewolfworks.wolke.aws.AwsClientRegistry;
 import com.lonewolfworks.wolke.aws.AwsExecException;
+import com.lonewolfworks.wolke.aws.ecs.broker.BrokerExecutionGraph;
 import com.lonewolfworks.wolke.aws.ecs.broker.auth0.Auth0Broker;
 import com.lonewolfworks.wolke.aws.ecs.broker.auth0.Auth0BrokerConfiguration;
 import com.lonewolfworks.wolke.aws.ecs.broker.auth0.Auth0Configuration;
@@ -100,7 +90,6 @@ import com.lonewolfworks.wolke.aws.ecs.broker.ddoswaf.DdosWafHandler;
 import com.lonewolfworks.wolke.aws.ecs.broker.dynamodb.DynamoDBBroker;
 import com.lonewolfworks.wolke.aws.ecs.broker.iam.IAMBroker;
 import com.lonewolfworks.wolke.aws.ecs.broker.kinesis.KinesisBroker;
-import com.lonewolfworks.wolke.aws.ecs.broker.kinesis.KinesisStream;
 import com.lonewolfworks.wolke.aws.ecs.broker.kms.KmsBroker;
 import com.lonewolfworks.wolke.aws.ecs.broker.rds.EcsPushFactory;
 import com.lonewolfworks.wolke.aws.ecs.broker.rds.RdsBroker;
@@ -113,8 +102,12 @@ import com.lonewolfworks.wolke.aws.ecs.broker.sns.SnsBroker;
 import com.lonewolfworks.wolke.aws.ecs.broker.sns.SnsTopic;
 import com.lonewolfworks.wolke.aws.ecs.broker.sqs.SqsBroker;
 import com.lonewolfworks.wolke.aws.ecs.broker.sqs.SqsQueue;
+import com.lonewolfworks.wolke.aws.ecs.cluster.ClusterMetadataStore;
 import com.lonewolfworks.wolke.aws.ecs.cluster.EcsClusterIntrospector;
 import com.lonewolfworks.wolke.aws.ecs.cluster.EcsClusterMetadata;
+import com.lonewolfworks.wolke.aws.ecs.cluster.EcsClusterMetadataCache;
+import com.lonewolfworks.wolke.aws.ecs.cluster.LocalFileClusterMetadataStore;
+import com.lonewolfworks.wolke.aws.ecs.cluster.S3ClusterMetadataStore;
 import com.lonewolfworks.wolke.aws.ecs.loadbalancing.CertHandler;
 import com.lonewolfworks.wolke.aws.ecs.loadbalancing.DnsRegistrar;
 import com.lonewolfworks.wolke.aws.ecs.loadbalancing.EcsLoadBalancerHandler;
@@ -122,6 +115,11 @@ import com.lonewolfworks.wolke.aws.ecs.loadbalancing.EcsLoadBalancerV2Handler;
 import com.lonewolfworks.wolke.aws.ecs.loadbalancing.ElbOrAlbDecider;
 import com.lonewolfworks.wolke.aws.ecs.loadbalancing.ServicePurger;
 import com.lonewolfworks.wolke.aws.ecs.logging.LoggingService;
+import com.lonewolfworks.wolke.aws.ecs.service.ServiceDeploymentMonitor;
+import com.lonewolfworks.wolke.aws.ecs.state.DeployStateStore;
+import com.lonewolfworks.wolke.aws.ecs.state.DeployStateTracker;
+import com.lonewolfworks.wolke.aws.ecs.state.DynamoDBDeployStateStore;
+import com.lonewolfworks.wolke.aws.ecs.state.S3DeployStateStore;
 import com.lonewolfworks.wolke.aws.tags.HermanTag;
 import com.lonewolfworks.wolke.aws.tags.TagUtil;
 import com.lonewolfworks.wolke.logging.HermanLogger;
@@ -133,27 +131,30 @@ public class EcsPush {
     private static final String INTERRUPTED_WHILE_POLLING = "Interrupted while polling";
     private static final int POLLING_INTERVAL_MS = 10000;
     private static final Integer DEFAULT_GRACE_PERIOD = 600;
+    private static final int BROKER_PARALLELISM = 4;
+
+    private static final String KMS = "kms";
+    private static final String SECRETS_MANAGER = "secretsmanager";
+    private static final String SQS = "sqs";
+    private static final String SNS = "sns";
+    private static final String S3 = "s3";
+    private static final String KINESIS = "kinesis";
+    private static final String RDS = "rds";
+    private static final String DYNAMODB = "dynamodb";
+    private static final String AUTH0 = "auth0";
 
     private HermanLogger logger;
     private EcsPushContext pushContext;
     private PropertyHandler bambooPropertyHandler;
     private ECSPushTaskProperties taskProperties;
-    private AmazonIdentityManagement iamClient;
+    private AwsClientRegistry clients;
     private AmazonECS ecsClient;
-    private AmazonEC2 ec2Client;
-    private com.amazonaws.services.elasticloadbalancing.AmazonElasticLoadBalancing elbClient;
-    private com.amazonaws.services.elasticloadbalancingv2.AmazonElasticLoadBalancing elbV2Client;
-    private AmazonS3 s3Client;
-    private AmazonKinesis kinesisClient;
-    private AmazonRDS rdsClient;
-    private AWSKMS kmsClient;
-    private AmazonSQS sqsClient;
-    private AmazonSNS snsClient;
-    private AmazonDynamoDB dynamoDbClient;
-    private AWSLambda lambdaClient;
-    private AmazonCloudWatch cloudWatchClient;
-    private AWSSecretsManager secretsManagerClient;
     private FileUtil fileUtil;
+    // where the service stood before this push, for rolling back once it succeeded
+    private String rollbackCluster;
+    private String rollbackService;
+    private String rollbackTaskDefinitionArn;
+    private DeployStateTracker deployState;
 
     public EcsPush(EcsPushContext context) {
         this.logger = context.getLogger();
@@ -161,67 +162,8 @@ public class EcsPush {
         this.taskProperties = context.getTaskProperties();
         this.pushContext = context;
 
-        this.iamClient = AmazonIdentityManagementClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(context.getSessionCredentials()))
-                .withClientConfiguration(context.getAwsClientConfig()).withRegion(context.getRegion()).build();
-
-        this.ecsClient = AmazonECSClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(context.getSessionCredentials()))
-                .withClientConfiguration(context.getAwsClientConfig()).withRegion(context.getRegion()).build();
-
-        this.ec2Client = AmazonEC2ClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(context.getSessionCredentials()))
-                .withClientConfiguration(context.getAwsClientConfig()).withRegion(context.getRegion()).build();
-
-        this.elbClient = com.amazonaws.services.elasticloadbalancing.AmazonElasticLoadBalancingClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(context.getSessionCredentials()))
-                .withClientConfiguration(context.getAwsClientConfig()).withRegion(context.getRegion()).build();
-
-        this.elbV2Client = com.amazonaws.services.elasticloadbalancingv2.AmazonElasticLoadBalancingClientBuilder
-                .standard().withCredentials(new AWSStaticCredentialsProvider(context.getSessionCredentials()))
-                .withClientConfiguration(context.getAwsClientConfig()).withRegion(context.getRegion()).build();
-
-        this.s3Client = AmazonS3ClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(context.getSessionCredentials()))
-                .withClientConfiguration(context.getAwsClientConfig()).withRegion(context.getRegion()).build();
-
-        this.kinesisClient = AmazonKinesisClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(context.getSessionCredentials()))
-                .withClientConfiguration(context.getAwsClientConfig()).withRegion(context.getRegion()).build();
-
-        this.rdsClient = AmazonRDSClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(context.getSessionCredentials()))
-                .withClientConfiguration(context.getAwsClientConfig()).withRegion(context.getRegion()).build();
-
-        this.kmsClient = AWSKMSClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(context.getSessionCredentials()))
-                .withClientConfiguration(context.getAwsClientConfig()).withRegion(context.getRegion()).build();
-
-        this.sqsClient = AmazonSQSClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(context.getSessionCredentials()))
-                .withClientConfiguration(context.getAwsClientConfig()).withRegion(context.getRegion()).build();
-
-        this.snsClient = AmazonSNSClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(context.getSessionCredentials()))
-                .withClientConfiguration(context.getAwsClientConfig()).withRegion(context.getRegion()).build();
-
-        this.dynamoDbClient = AmazonDynamoDBClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(context.getSessionCredentials()))
-                .withClientConfiguration(context.getAwsClientConfig()).withRegion(context.getRegion()).build();
-
-        this.lambdaClient = AWSLambdaClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(context.getSessionCredentials()))
-                .withClientConfiguration(
-                        new ClientConfiguration().withClientExecutionTimeout(300000).withSocketTimeout(300000))
-                .withRegion(context.getRegion()).build();
-
-        this.cloudWatchClient = AmazonCloudWatchClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(pushContext.getSessionCredentials()))
-                .withClientConfiguration(pushContext.getAwsClientConfig()).withRegion(pushContext.getRegion()).build();
-
-        this.secretsManagerClient = AWSSecretsManagerClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(pushContext.getSessionCredentials()))
-                .withClientConfiguration(pushContext.getAwsClientConfig()).withRegion(pushContext.getRegion()).build();
+        this.clients = AwsClientRegistry.getInstance();
+        this.ecsClient = clients.ecs(context.getSessionCredentials(), context.getRegion());
 
         this.fileUtil = new FileUtil(pushContext.getRootPath(), logger);
     }
@@ -243,12 +185,17 @@ public class EcsPush {
         }
 
         definition.setTaskPlacementConstraints(placementConstraints);
+        prefetchPolicyFiles(definition);
 
         logger.addLogEntry(definition.toString());
 //        logInvocationInCloudWatch(definition);
 
-        EcsClusterIntrospector clusterIntrospector = new EcsClusterIntrospector(ecsClient, ec2Client, rdsClient, logger);
-        EcsClusterMetadata clusterMetadata = clusterIntrospector.introspect(definition.getCluster(), pushContext.getRegion());
+        EcsClusterIntrospector clusterIntrospector = new EcsClusterIntrospector(ecsClient, ec2Client(), rdsClient(), logger);
+        String clusterCacheKey = EcsClusterMetadataCache.key(
+            AccountIdentity.getInstance().getAccountId(pushContext.getSessionCredentials()),
+            pushContext.getRegion(), definition.getCluster());
+        EcsClusterMetadata clusterMetadata = clusterMetadataCache().get(clusterCacheKey,
+            () -> clusterIntrospector.introspect(definition.getCluster(), pushContext.getRegion()));
         clusterMetadata.setPublicSubnets(taskProperties.getPublicExternalSubnets());
         clusterMetadata.setElbSubnets(taskProperties.getPublicInternalSubnets());
         clusterMetadata.setPrivateSubnets(taskProperties.getPrivateSubnets());
@@ -256,6 +203,7 @@ public class EcsPush {
         
         TaskDefinition versionForRollback = getCurrentTaskDef(definition.getAppName(), ecsClient,
         		clusterMetadata.getClusterId());
+        deployState = deployStateTracker(definition);
 
         LoggingService loggingService = new LoggingService(logger).withSplunkInstanceValues(clusterMetadata.getSplunkUrl(), taskProperties);
 
@@ -278,10 +226,10 @@ public class EcsPush {
         Role appRole;
         if (definition.getIamRole() == null || definition.getAppName().equals(definition.getIamRole())) {
             logger.addLogEntry("Brokering role with policy " + customIamPolicyFileName);
-            appRole = iamBroker.brokerAppRole(iamClient, definition, customIamPolicy, rolePath, "", TagUtil.hermanToIamTags(tags), bambooPropertyHandler, pushContext.getSessionCredentials());
+            appRole = iamBroker.brokerAppRole(iamClient(), definition, customIamPolicy, rolePath, "", TagUtil.hermanToIamTags(tags), bambooPropertyHandler, pushContext.getSessionCredentials());
         } else {
             logger.addLogEntry("Using existing role: " + definition.getIamRole());
-            appRole = iamBroker.getRole(iamClient, definition.getIamRole());
+            appRole = iamBroker.getRole(iamClient(), definition.getIamRole());
         }
 
         if (definition.getIamOptOut() == null) {
@@ -306,13 +254,17 @@ public class EcsPush {
         	if(definition.getAppName().endsWith("-rdsbroker")) {
         		definition.setAppName(origAppName.replace("-rdsbroker", ""));
         	}
-        	Role execRole = iamBroker.brokerAppRole(iamClient, definition, taskExecRoleBody, rolePath, "-taskexec", TagUtil.hermanToIamTags(tags), bambooPropertyHandler, pushContext.getSessionCredentials());
+        	Role execRole = iamBroker.brokerAppRole(iamClient(), definition, taskExecRoleBody, rolePath, "-taskexec", TagUtil.hermanToIamTags(tags), bambooPropertyHandler, pushContext.getSessionCredentials());
         	execRoleArn = execRole.getArn();
         	logger.addLogEntry("Exec Role arn:"+execRoleArn);
         }
         //reset
         definition.setAppName(origAppName);
-        
+
+        // broker policies may name the new roles as principals
+        if (iamBroker.getPropagationTracker().hasCreatedRoles()) {
+            iamBroker.getPropagationTracker().awaitPropagation(iamClient());
+        }
         brokerServicesPrePush(definition, versionForRollback, injectMagic, clusterMetadata, appRole, tags);
         
         //rerun to fill in secrets
@@ -323,7 +275,7 @@ public class EcsPush {
         	if(definition.getAppName().endsWith("-rdsbroker")) {
         		definition.setAppName(origAppName.replace("-rdsbroker", ""));
         	}
-        	Role execRole = iamBroker.brokerAppRole(iamClient, definition, taskExecRoleBody, rolePath, "-taskexec", TagUtil.hermanToIamTags(tags), bambooPropertyHandler, pushContext.getSessionCredentials());
+        	Role execRole = iamBroker.brokerAppRole(iamClient(), definition, taskExecRoleBody, rolePath, "-taskexec", TagUtil.hermanToIamTags(tags), bambooPropertyHandler, pushContext.getSessionCredentials());
         	execRoleArn = execRole.getArn();
         	logger.addLogEntry("Exec Role arn:"+execRoleArn);
         }
@@ -335,51 +287,100 @@ public class EcsPush {
         LoadBalancer bal = null;
         TaskType type = portHandler.getTaskType(definition);
         if (Objects.equals(type, TaskType.WEB)) {
-            ElbOrAlbDecider decider = new ElbOrAlbDecider(elbClient, logger);
+            ElbOrAlbDecider decider = new ElbOrAlbDecider(elbClient(), logger);
             boolean useAlb = decider.shouldUseAlb(definition.getAppName(), definition);
 
-            DnsRegistrar dnsRegistrar = new DnsRegistrar(lambdaClient, logger, taskProperties.getDnsBrokerLambda());
+            DnsRegistrar dnsRegistrar = new DnsRegistrar(lambdaClient(), logger, taskProperties.getDnsBrokerLambda());
             CertHandler certHandler = new CertHandler(logger, taskProperties.getSslCertificates());
-            DdosWafHandler ddosWafHandler = new DdosWafHandler(taskProperties, definition, logger, lambdaClient,
+            DdosWafHandler ddosWafHandler = new DdosWafHandler(taskProperties, definition, logger, lambdaClient(),
                     bambooPropertyHandler, fileUtil);
             if (useAlb) {
-                EcsLoadBalancerV2Handler loadBalancerV2Handler = new EcsLoadBalancerV2Handler(elbV2Client, certHandler,
+                EcsLoadBalancerV2Handler loadBalancerV2Handler = new EcsLoadBalancerV2Handler(elbV2Client(), certHandler,
                         dnsRegistrar, logger, taskProperties, ddosWafHandler);
                 bal = loadBalancerV2Handler.createLoadBalancer(clusterMetadata, definition);
             } else {
-                EcsLoadBalancerHandler loadBalancerHandler = new EcsLoadBalancerHandler(elbClient, certHandler,
+                EcsLoadBalancerHandler loadBalancerHandler = new EcsLoadBalancerHandler(elbClient(), certHandler,
                         dnsRegistrar, logger, taskProperties);
                 bal = loadBalancerHandler.createLoadBalancer(clusterMetadata, definition);
             }
         }
 
 
+        iamBroker.getPropagationTracker().awaitPropagation(iamClient());
         RegisterTaskDefinitionResult taskResult = registerTask(definition, definition.getAppName(), ecsClient,
-                clusterMetadata.getClusterId(), execRoleArn, tags);
+                execRoleArn, tags, versionForRollback);
 
         logger.addLogEntry("Task role: " + definition.getTaskRoleArn());
 
         loggingService.provideSplunkLog(taskResult);
 
-        if (type.equals(TaskType.WEB) || type.equals(TaskType.DAEMON)) {
-            ServicePurger purger = new ServicePurger(ecsClient, logger);
-            purger.purgeOtherClusters(definition.getCluster(), definition.getAppName());
-            deployService(ecsClient, clusterMetadata, definition, bal, taskResult.getTaskDefinition(),
-                    versionForRollback, tags);
+        CompletableFuture<Integer> revisionCleanup = startRevisionCleanup(definition.getAppName(), versionForRollback,
+                taskResult.getTaskDefinition());
+        try {
+            if (type.equals(TaskType.WEB) || type.equals(TaskType.DAEMON)) {
+                // moving off another cluster overlaps with the deployment here
+                CompletableFuture<Void> purge = startPurgeOtherClusters(definition);
+                boolean deployed = false;
+                try {
+                    deployService(ecsClient, clusterMetadata, definition, bal, taskResult.getTaskDefinition(),
+                            versionForRollback, tags);
+                    recordRollbackPoint(clusterMetadata.getClusterId(), definition.getAppName(), versionForRollback,
+                            taskResult.getTaskDefinition());
+                    deployed = true;
+                } finally {
+                    // a failed deploy still waits, so a drain in progress is not cut off when the JVM exits
+                    awaitPurgeOtherClusters(purge, deployed);
+                }
 
-            // only post-push for services, not task
-            brokerServicesPostPush(definition, clusterMetadata);
+                // only post-push for services, not task
+                brokerServicesPostPush(definition, clusterMetadata);
 
-            loggingService.provideSplunkLog(taskResult);
-            provideConsoleLink(loggingService, taskResult, clusterMetadata.getClusterId());
+                loggingService.provideSplunkLog(taskResult);
+                provideConsoleLink(loggingService, taskResult, clusterMetadata.getClusterId());
 
-        } else if (Objects.equals(type, TaskType.TASK)) {
-            runTask(clusterMetadata, ecsClient, taskResult.getTaskDefinition(), definition.getContainerDefinitions());
+            } else if (Objects.equals(type, TaskType.TASK)) {
+                runTask(clusterMetadata, ecsClient, taskResult.getTaskDefinition(), definition.getContainerDefinitions());
+            }
+        } finally {
+            awaitRevisionCleanup(revisionCleanup);
         }
+        deployState.save();
 
 //        logResultInCloudWatch(definition);
     }
 
+    /**
+     * Returns the service to the revision it ran before this push, e.g. when the
+     * same deploy failed in another region.
+     *
+     * @return false when the push changed nothing that can be rolled back
+     */
+    public boolean rollBack() {
+        if (rollbackTaskDefinitionArn == null) {
+            return false;
+        }
+        logger.addLogEntry("Rolling back " + rollbackService + " to " + rollbackTaskDefinitionArn);
+        UpdateServiceResult result = ecsClient.updateService(new UpdateServiceRequest()
+                .withCluster(rollbackCluster)
+                .withService(rollbackService)
+                .withTaskDefinition(rollbackTaskDefinitionArn));
+        boolean stable = new ServiceDeploymentMonitor(ecsClient, logger).waitForDeployment(rollbackCluster,
+                rollbackService, ServiceDeploymentMonitor.primaryDeploymentId(result.getService()), pushContext.getTimeout());
+        if (!stable) {
+            throw new AwsExecException("Rollback of " + rollbackService + " never stabilized");
+        }
+        rollbackTaskDefinitionArn = null;
+        return true;
+    }
+
+    private void recordRollbackPoint(String cluster, String service, TaskDefinition priorDef, TaskDefinition deployed) {
+        if (priorDef != null && !Objects.equals(priorDef.getTaskDefinitionArn(), deployed.getTaskDefinitionArn())) {
+            rollbackCluster = cluster;
+            rollbackService = service;
+            rollbackTaskDefinitionArn = priorDef.getTaskDefinitionArn();
+        }
+    }
+
     private void provideConsoleLink(LoggingService loggingService, RegisterTaskDefinitionResult task, String cluster) {
         String family = task.getTaskDefinition().getFamily();
         String region = pushContext.getRegion().getName();
@@ -456,40 +457,58 @@ public class EcsPush {
     }
 
     private RegisterTaskDefinitionResult registerTask(EcsPushDefinition definition, String appName, AmazonECS ecsClient,
-                                                      String clusterId, String executionRoleArn, List<HermanTag> tags) {
-        
-        RegisterTaskDefinitionResult taskResult = ecsClient.registerTaskDefinition(new RegisterTaskDefinitionRequest()
+                                                      String executionRoleArn, List<HermanTag> tags,
+                                                      TaskDefinition currentTaskDef) {
+
+        RegisterTaskDefinitionRequest registerRequest = new RegisterTaskDefinitionRequest()
                 .withFamily(appName).withContainerDefinitions(definition.getContainerDefinitions())
                 .withVolumes(definition.getVolumes()).withPlacementConstraints(definition.getTaskPlacementConstraints())
                 .withNetworkMode(definition.getNetworkMode()).withTaskRoleArn(definition.getTaskRoleArn())
                 .withMemory(definition.getTaskMemory())
                 .withTags(TagUtil.hermanToEcsTags(tags))
-                .withExecutionRoleArn(executionRoleArn)
-        		);
-        logger.addLogEntry("Registered new task: " + taskResult.getTaskDefinition().getTaskDefinitionArn());
+                .withExecutionRoleArn(executionRoleArn);
 
-        DescribeServicesResult serviceResult = ecsClient
-                .describeServices(new DescribeServicesRequest().withCluster(clusterId).withServices(appName));
-        if (!serviceResult.getServices().isEmpty()) {
-            String taskDef = serviceResult.getServices().get(0).getTaskDefinition();
-            String currentTaskArn = ecsClient
-                    .describeTaskDefinition(new DescribeTaskDefinitionRequest().withTaskDefinition(taskDef))
-                    .getTaskDefinition().getTaskDefinitionArn();
-
-            ListTaskDefinitionsResult taskListResult = ecsClient.listTaskDefinitions(
-                    new ListTaskDefinitionsRequest().withFamilyPrefix(appName).withStatus("ACTIVE"));
-            for (String arn : taskListResult.getTaskDefinitionArns()) {
-                if (!Objects.equals(taskResult.getTaskDefinition().getTaskDefinitionArn(), arn)
-                        && !Objects.equals(currentTaskArn, arn)) {
-                    logger.addLogEntry("Deregistering prior task: " + arn);
-                    ecsClient.deregisterTaskDefinition(new DeregisterTaskDefinitionRequest().withTaskDefinition(arn));
-                }
-            }
+        if (currentTaskDef != null && !pushContext.isForceNewDeployment()
+                && TaskDefinitionFingerprint.of(registerRequest).equals(TaskDefinitionFingerprint.of(currentTaskDef))) {
+            logger.addLogEntry("Task definition unchanged, reusing " + currentTaskDef.getTaskDefinitionArn());
+            return new RegisterTaskDefinitionResult().withTaskDefinition(currentTaskDef);
         }
 
+        RegisterTaskDefinitionResult taskResult = ecsClient.registerTaskDefinition(registerRequest);
+        logger.addLogEntry("Registered new task: " + taskResult.getTaskDefinition().getTaskDefinitionArn());
+
         return taskResult;
     }
 
+    /**
+     * Deregisters old revisions of a service's family in the background while the
+     * service stabilizes, keeping the revision being rolled back to.
+     */
+    private CompletableFuture<Integer> startRevisionCleanup(String family, TaskDefinition currentTaskDef,
+                                                            TaskDefinition newTaskDef) {
+        if (currentTaskDef == null) {
+            return CompletableFuture.completedFuture(0);
+        }
+        TaskDefinitionGarbageCollector collector = new TaskDefinitionGarbageCollector(ecsClient, logger,
+                pushContext.getTaskDefinitionRetention());
+        return collector.collectInBackground(family,
+                Arrays.asList(currentTaskDef.getTaskDefinitionArn(), newTaskDef.getTaskDefinitionArn()));
+    }
+
+    private void awaitRevisionCleanup(CompletableFuture<Integer> revisionCleanup) {
+        try {
+            Integer deregistered = revisionCleanup.get();
+            if (deregistered > 0) {
+                logger.addLogEntry("Deregistered " + deregistered + " prior task definition revisions");
+            }
+        } catch (ExecutionException e) {
+            logger.addErrorLogEntry("Unable to clean up prior task definition revisions", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AwsExecException(INTERRUPTED_WHILE_POLLING);
+        }
+    }
+
     private TaskDefinition registerPriorTaskDefinitionWithUpdatedContainerEnvConfig(EcsPushDefinition ecsPushDefinition,
                                                                                     TaskDefinition priorTaskDef, AmazonECS ecsClient) {
         RdsInstance currentRdsInstanceDefinition = ecsPushDefinition.getDatabase();
@@ -534,11 +553,14 @@ public class EcsPush {
 
         boolean serviceExists = false;
         String serviceArn = null;
+        String deploymentId = null;
+        Service existingService = null;
         for (Service service : serviceSearch.getServices()) {
             if (!Objects.equals(service.getStatus(), "INACTIVE")) {
                 logger.addLogEntry("Service found: " + service.getServiceName() + " : " + service.getStatus());
                 serviceExists = true;
                 serviceArn = service.getServiceArn();
+                existingService = service;
             }
         }
 
@@ -593,9 +615,9 @@ public class EcsPush {
             logger.addLogEntry("request is: " + cr.toString());
             CreateServiceResult csr = ecsClient.createService(cr);
             serviceArn = csr.getService().getServiceArn();
+            deploymentId = ServiceDeploymentMonitor.primaryDeploymentId(csr.getService());
 
         } else {
-            logger.addLogEntry("UPDATE SERVICE");
             UpdateServiceRequest updateRequest = new UpdateServiceRequest().withCluster(clusterMetadata.getClusterId())
                     .withDesiredCount(definition.getService().getInstanceCount())
                     .withDeploymentConfiguration(definition.getService().getDeploymentConfiguration())
@@ -608,12 +630,26 @@ public class EcsPush {
             if (networkConfiguration != null) {
                 updateRequest.withNetworkConfiguration(networkConfiguration);
             }
-            ecsClient.updateService(updateRequest);
+            if (isAlreadyDeployed(existingService, taskDefinition, updateRequest)) {
+                logger.addLogEntry("Service is stable on " + taskDefinition.getTaskDefinitionArn()
+                        + " with the same settings - skipping rollout");
+                ecsClient.tagResource(new TagResourceRequest().withResourceArn(serviceArn).withTags(TagUtil.hermanToEcsTags(tags)));
+                return serviceArn;
+            }
+
+            logger.addLogEntry("UPDATE SERVICE");
+            // a reused revision starts no deployment by itself, so a re-pushed mutable tag would never be pulled
+            updateRequest.withForceNewDeployment(pushContext.isForceNewDeployment()
+                    || Objects.equals(existingService.getTaskDefinition(), taskDefinition.getTaskDefinitionArn())
+                    && hasMutableImage(taskDefinition));
+            UpdateServiceResult usr = ecsClient.updateService(updateRequest);
+            deploymentId = ServiceDeploymentMonitor.primaryDeploymentId(usr.getService());
             ecsClient.tagResource(new TagResourceRequest().withResourceArn(serviceArn).withTags(TagUtil.hermanToEcsTags(tags)));
         }
 
-        waitForRequestInitialization(appName, ecsClient, clusterMetadata);
-        boolean deploySuccessful = waitForDeployment(appName, ecsClient, clusterMetadata);
+        ServiceDeploymentMonitor deploymentMonitor = new ServiceDeploymentMonitor(ecsClient, logger);
+        boolean deploySuccessful = deploymentMonitor.waitForDeployment(clusterMetadata.getClusterId(), appName,
+                deploymentId, pushContext.getTimeout());
 
         if (!deploySuccessful) {
             if (priorDef != null) {
@@ -633,10 +669,10 @@ public class EcsPush {
                     updateRequest.withHealthCheckGracePeriodSeconds(gracePeriod);
                 }
 
-                ecsClient.updateService(updateRequest);
+                UpdateServiceResult rollbackResult = ecsClient.updateService(updateRequest);
 
-                waitForRequestInitialization(appName, ecsClient, clusterMetadata);
-                boolean rollbackSuccessful = waitForDeployment(appName, ecsClient, clusterMetadata);
+                boolean rollbackSuccessful = deploymentMonitor.waitForDeployment(clusterMetadata.getClusterId(), appName,
+                        ServiceDeploymentMonitor.primaryDeploymentId(rollbackResult.getService()), pushContext.getTimeout());
 
                 if (!rollbackSuccessful) {
                     setUnsuccessfulServiceToZero(appName, ecsClient, clusterMetadata);
@@ -657,39 +693,35 @@ public class EcsPush {
         return serviceArn;
     }
 
-    private boolean waitForDeployment(String appName, AmazonECS ecsClient, EcsClusterMetadata clusterMetadata) {
-        String lastEventId = "";
-        int timeoutCount = this.pushContext.getTimeout() * 6;
-
-        while (timeoutCount > 0) {
-            DescribeServicesResult servicesResult = ecsClient.describeServices(
-                    new DescribeServicesRequest().withCluster(clusterMetadata.getClusterId()).withServices(appName));
-            Service service = servicesResult.getServices().get(0);
-            ServiceEvent lastEvent = service.getEvents().get(0);
-
-            logger.addLogEntry("Status:" + service.getStatus() + "  Desired:" + service.getDesiredCount() + "  Pending:"
-                    + service.getPendingCount() + "  Running:" + service.getRunningCount());
+    /**
+     * True when the service already runs this revision in a single, fully running
+     * deployment with every setting the update would send. Images on a mutable tag
+     * always roll out, since the tag may point at a new image.
+     */
+    private boolean isAlreadyDeployed(Service service, TaskDefinition taskDefinition, UpdateServiceRequest updateRequest) {
+        if (pushContext.isForceNewDeployment()
+                || service.getDeployments().size() != 1
+                || !Objects.equals(service.getRunningCount(), service.getDesiredCount())
+                || hasMutableImage(taskDefinition)) {
+            return false;
+        }
+        return ServiceUpdateFingerprint.of(updateRequest).equals(ServiceUpdateFingerprint.of(service, updateRequest));
+    }
 
-            if (!Objects.equals(lastEvent.getId(), lastEventId)) {
-                logger.addLogEntry(lastEvent.getMessage());
-                lastEventId = lastEvent.getId();
-            }
+    private static boolean hasMutableImage(TaskDefinition taskDefinition) {
+        return taskDefinition.getContainerDefinitions().stream().anyMatch(container -> isMutableImage(container.getImage()));
+    }
 
-            ServiceEvent latest = service.getEvents().get(0);
-            if (Objects.equals(service.getDesiredCount(), service.getRunningCount())
-                    && latest.getMessage().contains("has reached a steady state")) {
-                logger.addLogEntry("App has stabilized");
-                return true;
-            }
-            try {
-                Thread.sleep(POLLING_INTERVAL_MS);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new AwsExecException(INTERRUPTED_WHILE_POLLING);
-            }
-            timeoutCount--;
+    /**
+     * Digest references never change; an image without a tag, or tagged latest, is
+     * re-pushed by design.
+     */
+    private static boolean isMutableImage(String image) {
+        if (image == null || image.contains("@sha256:")) {
+            return false;
         }
-        return false;
+        int tagStart = image.lastIndexOf(':');
+        return tagStart <= image.lastIndexOf('/') || "latest".equals(image.substring(tagStart + 1));
     }
 
     private void setUnsuccessfulServiceToZero(String appName, AmazonECS ecsClient, EcsClusterMetadata clusterMetadata) {
@@ -698,36 +730,6 @@ public class EcsPush {
                 .withDesiredCount(0).withService(appName));
     }
 
-    private void waitForRequestInitialization(String appName, AmazonECS ecsClient, EcsClusterMetadata clusterMetadata) {
-        int timeoutCount = this.pushContext.getTimeout() * 6;
-
-        while (timeoutCount > 0) {
-            try {
-                Thread.sleep(POLLING_INTERVAL_MS);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new AwsExecException(INTERRUPTED_WHILE_POLLING);
-            }
-            DescribeServicesResult servicesResult = ecsClient.describeServices(
-                    new DescribeServicesRequest().withCluster(clusterMetadata.getClusterId()).withServices(appName));
-            Service service = servicesResult.getServices().get(0);
-            if (service != null && !service.getEvents().isEmpty()) {
-                ServiceEvent lastEvent = service.getEvents().get(0);
-                if (lastEvent != null) {
-                    Date lastEventDate = lastEvent.getCreatedAt();
-                    if (new Date().getTime() - lastEventDate.getTime() > 60000) {
-                        logger.addLogEntry("Waiting for start...");
-                    } else {
-                        return;
-                    }
-                }
-            }
-            timeoutCount--;
-        }
-        setUnsuccessfulServiceToZero(appName, ecsClient, clusterMetadata);
-        throw new AwsExecException("AWS never initiated the deployment");
-    }
-
     private void waitForTaskCompletion(AmazonECS client, String taskName, String clusterName,
                                        List<ContainerDefinition> definitions) {
 
@@ -792,15 +794,54 @@ public class EcsPush {
 
     private void brokerServicesPrePush(EcsPushDefinition definition, TaskDefinition versionForRollback, EcsDefaultEnvInjection injectMagic,
                                        EcsClusterMetadata clusterMetadata, Role appRole, List<HermanTag> tags) {
-        String applicationKeyId = brokerKms(definition, clusterMetadata, tags);
-        brokerSecretsManager(definition, clusterMetadata, applicationKeyId, tags);
-        brokerSqs(definition);
-        brokerSns(definition);
-        brokerS3(definition, clusterMetadata, applicationKeyId);
-        brokerKinesisStream(definition);
-        brokerRds(definition, injectMagic, clusterMetadata, applicationKeyId, appRole, tags);
-        brokerDynamoDB(definition);
-        brokerAuth0(definition, injectMagic, clusterMetadata, applicationKeyId);
+        BrokerExecutionGraph graph = new BrokerExecutionGraph(logger, BROKER_PARALLELISM);
+        graph.addBroker(KMS, upstream -> brokerKms(definition, clusterMetadata, tags));
+        graph.addBroker(SECRETS_MANAGER, upstream -> {
+            brokerSecretsManager(definition, clusterMetadata, (String) upstream.get(KMS), tags);
+            return null;
+        }, KMS);
+        graph.addBroker(SQS, upstream -> {
+            deployState.broker(SQS, () -> brokerSqs(definition), definition.getAppName(), definition.getQueues(),
+                    renderedPolicies(definition.getQueues(), SqsQueue::getPolicyName), definition.getTags());
+            return null;
+        });
+        graph.addBroker(SNS, upstream -> {
+            deployState.broker(SNS, () -> brokerSns(definition), definition.getAppName(), definition.getTopics(),
+                    renderedPolicies(definition.getTopics(), SnsTopic::getPolicyName));
+            return null;
+        });
+        graph.addBroker(S3, upstream -> {
+            String kmsKeyId = (String) upstream.get(KMS);
+            deployState.broker(S3, () -> brokerS3(definition, clusterMetadata, kmsKeyId), definition.getAppName(),
+                    definition.getBuckets(), renderedPolicies(definition.getBuckets(), S3Bucket::getPolicyName), kmsKeyId,
+                    clusterMetadata.getClusterId(), clusterMetadata.getNewrelicSbuTag(), clusterMetadata.getNewrelicOrgTag(),
+                    definition.getTags(), taskProperties);
+            return null;
+        }, KMS);
+        graph.addBroker(KINESIS, upstream -> {
+            deployState.broker(KINESIS, () -> brokerKinesisStream(definition), definition.getAppName(),
+                    definition.getStreams(), taskProperties);
+            return null;
+        });
+        // The RDS credential broker runs a nested push that rewrites shared properties (app.iam,
+        // classpathTemplate), so it waits for every broker that renders policies from them. It also
+        // injects container secrets and environment, so it runs after the secrets broker edits them.
+        graph.addBroker(RDS, upstream -> {
+            brokerRds(definition, injectMagic, clusterMetadata, (String) upstream.get(KMS), appRole, tags);
+            return null;
+        }, KMS, SECRETS_MANAGER, SQS, SNS, S3);
+        graph.addBroker(DYNAMODB, upstream -> {
+            deployState.broker(DYNAMODB, () -> brokerDynamoDB(definition), definition.getAppName(),
+                    definition.getDynamoDBTables());
+            return null;
+        });
+        // Auth0 appends container environment entries, which the secrets broker and RDS injection
+        // also edit, so the three never run at the same time
+        graph.addBroker(AUTH0, upstream -> {
+            brokerAuth0(definition, injectMagic, clusterMetadata, (String) upstream.get(KMS));
+            return null;
+        }, KMS, SECRETS_MANAGER, RDS);
+        graph.execute();
     }
 
     private void brokerAuth0(EcsPushDefinition definition, EcsDefaultEnvInjection injectMagic,
@@ -810,10 +851,10 @@ public class EcsPush {
             Auth0BrokerConfiguration auth0BrokerConfiguration = new Auth0BrokerConfiguration()
                     .withBrokerProperties(taskProperties.getAuth0());
             Auth0CreateContext auth0CreateContext = new Auth0CreateContext().fromECSPushContext(pushContext,
-                    lambdaClient, auth0BrokerConfiguration);
+                    lambdaClient(), auth0BrokerConfiguration);
             Auth0Broker auth0Broker = new Auth0Broker(auth0CreateContext);
             Auth0Configuration auth0Configuration = auth0Broker.brokerAuth0ApplicationDeploymentFromEcsPush(definition,
-                    kmsClient, applicationKeyId);
+                    kmsClient(), applicationKeyId);
 
             if (auth0Configuration != null) {
                 logger.addLogEntry("Injecting Auth0 Configuration values as environment variables");
@@ -825,30 +866,38 @@ public class EcsPush {
     private void brokerSecretsManager(EcsPushDefinition definition, EcsClusterMetadata clusterMetadata,
                                       String kmsKeyId, List<HermanTag> tags) {
         
-    	Map<String, String> brokered = new HashMap();
+    	List<Secret> brokeredSecrets = new ArrayList<>();
+    	List<String> paths = new ArrayList<>();
     	for(ContainerDefinition def : definition.getContainerDefinitions()) {
     		for(Secret sec : def.getSecrets()) {
     			if(sec.getValueFrom().startsWith("secretsbroker:")) {
-    				String path = sec.getValueFrom().replace("secretsbroker:", "");
-    				String params = "";
-    				if(path.contains(":")) {
-    			    	params = path.substring(path.indexOf(":"), path.length());
-    			    	path = path.substring(0, path.indexOf(":"));
-    				}
-    				if(!brokered.containsKey(path)) {
-    					SecretsManagerBroker broker = new SecretsManagerBroker(logger, secretsManagerClient, kmsKeyId, TagUtil.hermanToSecretsManagerTags(tags));
-                		String arn = broker.brokerSecretsManagerShell(path, definition.getAppName());
-                		sec.setValueFrom(arn+params);
-                		brokered.put(path, arn);
-                	} else {
-                		sec.setValueFrom(brokered.get(path)+params);
-                	}
+    				brokeredSecrets.add(sec);
+    				paths.add(secretPath(sec));
     			}
     		}
     	}
+    	if(paths.isEmpty()) {
+    		return;
+    	}
+
+    	SecretsManagerBroker broker = new SecretsManagerBroker(logger, secretsManagerClient(), kmsKeyId, TagUtil.hermanToSecretsManagerTags(tags));
+    	Map<String, String> brokered = broker.brokerSecretsManagerShells(paths, definition.getAppName());
+    	for(Secret sec : brokeredSecrets) {
+    		String path = secretPath(sec);
+    		String params = sec.getValueFrom().substring("secretsbroker:".length() + path.length());
+    		sec.setValueFrom(brokered.get(path)+params);
+    	}
 
     }
 
+    private String secretPath(Secret sec) {
+    	String path = sec.getValueFrom().replace("secretsbroker:", "");
+    	if(path.contains(":")) {
+    		path = path.substring(0, path.indexOf(":"));
+    	}
+    	return path;
+    }
+
     private String brokerKms(EcsPushDefinition definition, EcsClusterMetadata clusterMetadata, List<HermanTag> tags) {
         KmsBroker broker = new KmsBroker(logger, bambooPropertyHandler, fileUtil, taskProperties,
                 this.pushContext.getSessionCredentials(), this.pushContext.getCustomConfigurationBucket(),
@@ -856,9 +905,15 @@ public class EcsPush {
 
         String applicationKeyId = "";
         if (broker.isActive(definition)) {
-            applicationKeyId = broker.brokerKey(kmsClient, definition, TagUtil.hermanToKmsTags(tags));
+            // downstream brokers need the key id, so only the key's settings can be skipped
+            List<com.amazonaws.services.kms.model.Tag> kmsTags = TagUtil.hermanToKmsTags(tags);
+            String keyId = broker.resolveKey(kmsClient(), definition, kmsTags);
+            String policy = broker.renderedPolicy();
+            deployState.broker(KMS, () -> broker.applyKeySettings(kmsClient(), keyId, policy, kmsTags), keyId, policy,
+                    tags);
+            applicationKeyId = keyId;
         } else {
-            broker.deleteKey(kmsClient, definition);
+            broker.deleteKey(kmsClient(), definition);
         }
         return applicationKeyId;
     }
@@ -866,9 +921,9 @@ public class EcsPush {
     private void brokerRds(EcsPushDefinition definition, EcsDefaultEnvInjection injectMagic,
                            EcsClusterMetadata clusterMetadata, String applicationKeyId, Role appRole, List<HermanTag> tags) {
         
-    	SecretsManagerBroker broker = new SecretsManagerBroker(logger, secretsManagerClient, applicationKeyId, TagUtil.hermanToSecretsManagerTags(tags));
+    	SecretsManagerBroker broker = new SecretsManagerBroker(logger, secretsManagerClient(), applicationKeyId, TagUtil.hermanToSecretsManagerTags(tags));
     	
-        RdsBroker rdsBroker = new RdsBroker(pushContext, rdsClient, broker, definition, clusterMetadata,
+        RdsBroker rdsBroker = new RdsBroker(pushContext, rdsClient(), broker, definition, clusterMetadata,
                 new EcsPushFactory(), fileUtil, appRole.getRoleName());
         
         if (definition.getDatabase() != null) {
@@ -881,15 +936,42 @@ public class EcsPush {
         }
     }
 
+    private void prefetchPolicyFiles(EcsPushDefinition definition) {
+        List<String> policyFiles = new ArrayList<>();
+        policyFiles.add(Optional.ofNullable(definition.getIamPolicy()).orElse("iam-policy.json"));
+        policyFiles.add(KmsBroker.KMS_POLICY_JSON);
+        Optional.ofNullable(definition.getQueues()).ifPresent(queues -> queues.forEach(q -> policyFiles.add(q.getPolicyName())));
+        Optional.ofNullable(definition.getTopics()).ifPresent(topics -> topics.forEach(t -> policyFiles.add(t.getPolicyName())));
+        Optional.ofNullable(definition.getBuckets()).ifPresent(buckets -> buckets.forEach(b -> policyFiles.add(b.getPolicyName())));
+        fileUtil.prefetch(policyFiles.toArray(new String[0]));
+    }
+
+    /**
+     * Policies as the brokers will apply them, so a changed property value counts as a change.
+     */
+    private <T> Map<String, String> renderedPolicies(List<T> resources, Function<T, String> policyName) {
+        Map<String, String> policies = new TreeMap<>();
+        if (resources != null) {
+            for (T resource : resources) {
+                String name = policyName.apply(resource);
+                if (name != null) {
+                    String policy = fileUtil.findFile(name, false);
+                    policies.put(name, policy == null ? null : bambooPropertyHandler.mapInProperties(policy));
+                }
+            }
+        }
+        return policies;
+    }
+
     private void brokerSqs(EcsPushDefinition definition) {
         SqsBroker sqsBroker = new SqsBroker(logger, bambooPropertyHandler);
         if (definition.getQueues() != null) {
             for (SqsQueue queue : definition.getQueues()) {
                 if (queue.getPolicyName() != null) {
                     String policy = fileUtil.findFile(queue.getPolicyName(), false);
-                    sqsBroker.brokerQueue(sqsClient, queue, policy, definition.getTags());
+                    sqsBroker.brokerQueue(sqsClient(), queue, policy, definition.getTags());
                 } else {
-                    sqsBroker.brokerQueue(sqsClient, queue, null, definition.getTags());
+                    sqsBroker.brokerQueue(sqsClient(), queue, null, definition.getTags());
                 }
             }
         }
@@ -901,9 +983,9 @@ public class EcsPush {
             for (SnsTopic topic : definition.getTopics()) {
                 if (topic.getPolicyName() != null) {
                     String policy = fileUtil.findFile(topic.getPolicyName(), false);
-                    snsBroker.brokerTopic(snsClient, topic, policy);
+                    snsBroker.brokerTopic(snsClient(), topic, policy);
                 } else {
-                    snsBroker.brokerTopic(snsClient, topic, null);
+                    snsBroker.brokerTopic(snsClient(), topic, null);
                 }
             }
         }
@@ -916,10 +998,10 @@ public class EcsPush {
             for (S3Bucket bucket : definition.getBuckets()) {
                 if (bucket.getPolicyName() != null) {
                     String policy = fileUtil.findFile(bucket.getPolicyName(), false);
-                    s3Broker.brokerBucketFromEcsPush(s3Client, kmsClient, bucket, policy, kmsKeyId, clusterMetadata,
+                    s3Broker.brokerBucketFromEcsPush(s3Client(), kmsClient(), bucket, policy, kmsKeyId, clusterMetadata,
                             definition);
                 } else {
-                    s3Broker.brokerBucketFromEcsPush(s3Client, kmsClient, bucket, null, kmsKeyId, clusterMetadata,
+                    s3Broker.brokerBucketFromEcsPush(s3Client(), kmsClient(), bucket, null, kmsKeyId, clusterMetadata,
                             definition);
                 }
             }
@@ -927,16 +1009,15 @@ public class EcsPush {
     }
 
     private void brokerKinesisStream(EcsPushDefinition definition) {
-        KinesisBroker kinesisBroker = new KinesisBroker(logger, kinesisClient, definition, taskProperties);
+        KinesisBroker kinesisBroker = new KinesisBroker(logger, kinesisClient(), resourceTaggingClient(), definition,
+                taskProperties);
 
         // delete any streams tied to this app that are no longer specified in the
         // PushDefinition
         kinesisBroker.checkStreamsToBeDeleted();
 
         if (definition.getStreams() != null) {
-            for (KinesisStream stream : definition.getStreams()) {
-                kinesisBroker.brokerStream(stream);
-            }
+            kinesisBroker.brokerStreams(definition.getStreams());
         }
     }
 
@@ -944,7 +1025,7 @@ public class EcsPush {
         DynamoDBBroker dynamoDBBroker = new DynamoDBBroker(logger, definition);
 
         if (definition.getDynamoDBTables() != null) {
-            dynamoDBBroker.createDynamoDBTables(dynamoDbClient);
+            dynamoDBBroker.createDynamoDBTables(dynamoDbClient());
         }
     }
 
@@ -1016,4 +1097,123 @@ public class EcsPush {
     	String path = sec.substring(0, sec.indexOf(":"));
         System.out.println(path + " --- " + param);
     }
+
+    private ClusterMetadataStore clusterCacheStore() {
+        if (pushContext.getClusterCacheBucket() != null) {
+            return new S3ClusterMetadataStore(s3Client(), pushContext.getClusterCacheBucket());
+        } else if (pushContext.getClusterCacheDirectory() != null) {
+            return new LocalFileClusterMetadataStore(new File(pushContext.getClusterCacheDirectory(), "cluster-metadata"));
+        }
+        return null;
+    }
+
+    /**
+     * Brokers are only skipped against a store every build agent shares; a local file would miss
+     * changes made by pushes from other agents, so without one every broker runs.
+     */
+    private DeployStateTracker deployStateTracker(EcsPushDefinition definition) {
+        DeployStateStore store = null;
+        if (pushContext.getDeployStateTable() != null) {
+            store = new DynamoDBDeployStateStore(dynamoDbClient(), pushContext.getDeployStateTable());
+        } else if (pushContext.getDeployStateBucket() != null) {
+            store = new S3DeployStateStore(s3Client(), pushContext.getDeployStateBucket());
+        }
+        String key = DeployStateTracker.key(
+            AccountIdentity.getInstance().getAccountId(pushContext.getSessionCredentials()),
+            pushContext.getRegion(), pushContext.getEnvName(), definition.getAppName());
+        return new DeployStateTracker(store, key, TimeUnit.SECONDS.toMillis(pushContext.getReconcileIntervalSeconds()),
+            pushContext.isFullReconcile(), logger);
+    }
+
+    private EcsClusterMetadataCache clusterMetadataCache() {
+        return new EcsClusterMetadataCache(clusterCacheStore(), TimeUnit.SECONDS.toMillis(pushContext.getClusterCacheTtlSeconds()),
+            pushContext.isRefreshClusterCache(), logger)
+            .withSharedResults(pushContext.getSharedClusterMetadata());
+    }
+
+    private CompletableFuture<Void> startPurgeOtherClusters(EcsPushDefinition definition) {
+        ServicePurger purger = new ServicePurger(ecsClient, logger);
+        // a per-agent cache directory misses pushes made from other agents, so hints need the shared bucket
+        if (!pushContext.isRefreshClusterCache() && pushContext.getClusterCacheBucket() != null) {
+            String accountId = AccountIdentity.getInstance().getAccountId(pushContext.getSessionCredentials());
+            purger.withLocationHints(clusterCacheStore(), accountId + "/" + pushContext.getRegion().getName() + "/apps/",
+                TimeUnit.SECONDS.toMillis(pushContext.getClusterCacheTtlSeconds()));
+        }
+        return purger.purgeOtherClustersInBackground(definition.getCluster(), definition.getAppName());
+    }
+
+    /**
+     * @param propagate whether a purge failure fails the push; false when the deploy has already failed
+     */
+    private void awaitPurgeOtherClusters(CompletableFuture<Void> purge, boolean propagate) {
+        try {
+            purge.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (propagate) {
+                throw new AwsExecException(e);
+            }
+        } catch (ExecutionException e) {
+            if (propagate) {
+                throw new AwsExecException("Unable to remove the app from other clusters", e);
+            }
+            logger.addErrorLogEntry("Unable to remove the app from other clusters", e);
+        }
+    }
+
+    private AmazonIdentityManagement iamClient() {
+        return clients.iam(pushContext.getSessionCredentials(), pushContext.getRegion());
+    }
+
+    private AmazonEC2 ec2Client() {
+        return clients.ec2(pushContext.getSessionCredentials(), pushContext.getRegion());
+    }
+
+    private com.amazonaws.services.elasticloadbalancing.AmazonElasticLoadBalancing elbClient() {
+        return clients.elb(pushContext.getSessionCredentials(), pushContext.getRegion());
+    }
+
+    private com.amazonaws.services.elasticloadbalancingv2.AmazonElasticLoadBalancing elbV2Client() {
+        return clients.elbV2(pushContext.getSessionCredentials(), pushContext.getRegion());
+    }
+
+    private AmazonS3 s3Client() {
+        return clients.s3(pushContext.getSessionCredentials(), pushContext.getRegion());
+    }
+
+    private AmazonKinesis kinesisClient() {
+        return clients.kinesis(pushContext.getSessionCredentials(), pushContext.getRegion());
+    }
+
+    private AWSResourceGroupsTaggingAPI resourceTaggingClient() {
+        return clients.resourceTagging(pushContext.getSessionCredentials(), pushContext.getRegion());
+    }
+
+    private AmazonRDS rdsClient() {
+        return clients.rds(pushContext.getSessionCredentials(), pushContext.getRegion());
+    }
+
+    private AWSKMS kmsClient() {
+        return clients.kms(pushContext.getSessionCredentials(), pushContext.getRegion());
+    }
+
+    private AmazonSQS sqsClient() {
+        return clients.sqs(pushContext.getSessionCredentials(), pushContext.getRegion());
+    }
+
+    private AmazonSNS snsClient() {
+        return clients.sns(pushContext.getSessionCredentials(), pushContext.getRegion());
+    }
+
+    private AmazonDynamoDB dynamoDbClient() {
+        return clients.dynamoDb(pushContext.getSessionCredentials(), pushContext.getRegion());
+    }
+
+    private AWSLambda lambdaClient() {
+        return clients.lambda(pushContext.getSessionCredentials(), pushContext.getRegion());
+    }
+
+    private AWSSecretsManager secretsManagerClient() {
+        return clients.secretsManager(pushContext.getSessionCredentials(), pushContext.getRegion());
+    }
 }
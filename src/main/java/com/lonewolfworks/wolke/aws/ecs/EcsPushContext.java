@@ -15,7 +15,8 @@
  */
 package com.lonewolfworks.wolke.aws.ecs;
 
-import com.amazonaws.ClientConfiguration;
+import java.util.Map;
+
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.regions.Regions;
 import com.lonewolfworks.wolke.logging.HermanLogger;
@@ -27,12 +28,22 @@ public class EcsPushContext {
     private PropertyHandler propertyHandler;
     private String envName;
     private AWSCredentials sessionCredentials;
-    private ClientConfiguration awsClientConfig;
     private Regions region;
     private int timeout;
     private String rootPath;
     private ECSPushTaskProperties taskProperties;
     private String customConfigurationBucket;
+    private boolean forceNewDeployment;
+    private int taskDefinitionRetention = 1;
+    private String clusterCacheDirectory;
+    private String clusterCacheBucket;
+    private long clusterCacheTtlSeconds;
+    private boolean refreshClusterCache;
+    private Map<String, String> sharedClusterMetadata;
+    private String deployStateBucket;
+    private String deployStateTable;
+    private long reconcileIntervalSeconds;
+    private boolean fullReconcile;
 
     public HermanLogger getLogger() {
         return logger;
@@ -66,14 +77,6 @@ public class EcsPushContext {
         this.sessionCredentials = sessionCredentials;
     }
 
-    public ClientConfiguration getAwsClientConfig() {
-        return awsClientConfig;
-    }
-
-    public void setAwsClientConfig(ClientConfiguration awsClientConfig) {
-        this.awsClientConfig = awsClientConfig;
-    }
-
     public Regions getRegion() {
         return region;
     }
@@ -114,6 +117,94 @@ public class EcsPushContext {
         this.customConfigurationBucket = customConfigurationBucket;
     }
 
+    public boolean isForceNewDeployment() {
+        return forceNewDeployment;
+    }
+
+    public void setForceNewDeployment(boolean forceNewDeployment) {
+        this.forceNewDeployment = forceNewDeployment;
+    }
+
+    public int getTaskDefinitionRetention() {
+        return taskDefinitionRetention;
+    }
+
+    public void setTaskDefinitionRetention(int taskDefinitionRetention) {
+        this.taskDefinitionRetention = taskDefinitionRetention;
+    }
+
+    public String getClusterCacheDirectory() {
+        return clusterCacheDirectory;
+    }
+
+    public void setClusterCacheDirectory(String clusterCacheDirectory) {
+        this.clusterCacheDirectory = clusterCacheDirectory;
+    }
+
+    public String getClusterCacheBucket() {
+        return clusterCacheBucket;
+    }
+
+    public void setClusterCacheBucket(String clusterCacheBucket) {
+        this.clusterCacheBucket = clusterCacheBucket;
+    }
+
+    public long getClusterCacheTtlSeconds() {
+        return clusterCacheTtlSeconds;
+    }
+
+    public void setClusterCacheTtlSeconds(long clusterCacheTtlSeconds) {
+        this.clusterCacheTtlSeconds = clusterCacheTtlSeconds;
+    }
+
+    public boolean isRefreshClusterCache() {
+        return refreshClusterCache;
+    }
+
+    public void setRefreshClusterCache(boolean refreshClusterCache) {
+        this.refreshClusterCache = refreshClusterCache;
+    }
+
+    public Map<String, String> getSharedClusterMetadata() {
+        return sharedClusterMetadata;
+    }
+
+    public void setSharedClusterMetadata(Map<String, String> sharedClusterMetadata) {
+        this.sharedClusterMetadata = sharedClusterMetadata;
+    }
+
+    public String getDeployStateBucket() {
+        return deployStateBucket;
+    }
+
+    public void setDeployStateBucket(String deployStateBucket) {
+        this.deployStateBucket = deployStateBucket;
+    }
+
+    public String getDeployStateTable() {
+        return deployStateTable;
+    }
+
+    public void setDeployStateTable(String deployStateTable) {
+        this.deployStateTable = deployStateTable;
+    }
+
+    public long getReconcileIntervalSeconds() {
+        return reconcileIntervalSeconds;
+    }
+
+    public void setReconcileIntervalSeconds(long reconcileIntervalSeconds) {
+        this.reconcileIntervalSeconds = reconcileIntervalSeconds;
+    }
+
+    public boolean isFullReconcile() {
+        return fullReconcile;
+    }
+
+    public void setFullReconcile(boolean fullReconcile) {
+        this.fullReconcile = fullReconcile;
+    }
+
     public EcsPushContext withLogger(final HermanLogger logger) {
         this.logger = logger;
         return this;
@@ -134,11 +225,6 @@ public class EcsPushContext {
         return this;
     }
 
-    public EcsPushContext withAwsClientConfig(final ClientConfiguration awsClientConfig) {
-        this.awsClientConfig = awsClientConfig;
-        return this;
-    }
-
     public EcsPushContext withRegion(final Regions region) {
         this.region = region;
         return this;
@@ -164,18 +250,82 @@ public class EcsPushContext {
         return this;
     }
 
+    public EcsPushContext withForceNewDeployment(final boolean forceNewDeployment) {
+        this.forceNewDeployment = forceNewDeployment;
+        return this;
+    }
+
+    public EcsPushContext withTaskDefinitionRetention(final int taskDefinitionRetention) {
+        this.taskDefinitionRetention = taskDefinitionRetention;
+        return this;
+    }
+
+    public EcsPushContext withClusterCacheDirectory(final String clusterCacheDirectory) {
+        this.clusterCacheDirectory = clusterCacheDirectory;
+        return this;
+    }
+
+    public EcsPushContext withClusterCacheBucket(final String clusterCacheBucket) {
+        this.clusterCacheBucket = clusterCacheBucket;
+        return this;
+    }
+
+    public EcsPushContext withClusterCacheTtlSeconds(final long clusterCacheTtlSeconds) {
+        this.clusterCacheTtlSeconds = clusterCacheTtlSeconds;
+        return this;
+    }
+
+    public EcsPushContext withRefreshClusterCache(final boolean refreshClusterCache) {
+        this.refreshClusterCache = refreshClusterCache;
+        return this;
+    }
+
+    public EcsPushContext withSharedClusterMetadata(final Map<String, String> sharedClusterMetadata) {
+        this.sharedClusterMetadata = sharedClusterMetadata;
+        return this;
+    }
+
+    public EcsPushContext withDeployStateBucket(final String deployStateBucket) {
+        this.deployStateBucket = deployStateBucket;
+        return this;
+    }
+
+    public EcsPushContext withDeployStateTable(final String deployStateTable) {
+        this.deployStateTable = deployStateTable;
+        return this;
+    }
+
+    public EcsPushContext withReconcileIntervalSeconds(final long reconcileIntervalSeconds) {
+        this.reconcileIntervalSeconds = reconcileIntervalSeconds;
+        return this;
+    }
+
+    public EcsPushContext withFullReconcile(final boolean fullReconcile) {
+        this.fullReconcile = fullReconcile;
+        return this;
+    }
+
     @Override
     public String toString() {
         return "EcsPushContext{" +
             "logger=" + logger +
             ", propertyHandler=" + propertyHandler +
             ", envName='" + envName + '\'' +
-            ", awsClientConfig=" + awsClientConfig +
             ", region=" + region +
             ", timeout=" + timeout +
             ", rootPath='" + rootPath + '\'' +
             ", taskProperties=" + taskProperties +
             ", customConfigurationBucket='" + customConfigurationBucket + '\'' +
+            ", forceNewDeployment=" + forceNewDeployment +
+            ", taskDefinitionRetention=" + taskDefinitionRetention +
+            ", clusterCacheDirectory=" + clusterCacheDirectory +
+            ", clusterCacheBucket=" + clusterCacheBucket +
+            ", clusterCacheTtlSeconds=" + clusterCacheTtlSeconds +
+            ", refreshClusterCache=" + refreshClusterCache +
+            ", deployStateBucket=" + deployStateBucket +
+            ", deployStateTable=" + deployStateTable +
+            ", reconcileIntervalSeconds=" + reconcileIntervalSeconds +
+            ", fullReconcile=" + fullReconcile +
             '}';
     }
 }
\ No newline at end of file
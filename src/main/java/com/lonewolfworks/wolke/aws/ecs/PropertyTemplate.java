@@ -0,0 +1,160 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.aws.ecs;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+
+/**
+ * A template split once into literal and ${property} segments, so rendering is
+ * a single pass into one pre-sized buffer. Compiled templates are cached by
+ * content since a push renders the same policies and manifests repeatedly.
+ */
+public final class PropertyTemplate {
+
+    private static final int MAX_CACHED_TEMPLATES = 256;
+    // the legacy per-property pattern captured only the property name
+    private static final int GROUP_COUNT = 1;
+    private static final ConcurrentMap<String, PropertyTemplate> CACHE = new ConcurrentHashMap<>();
+
+    private final String template;
+    // literal text between placeholders; always one more entry than variables
+    private final List<String> literals;
+    private final List<String> variables;
+    private final Set<String> distinctVariables;
+    private final int literalLength;
+
+    private PropertyTemplate(String template) {
+        this.template = template;
+        this.literals = new ArrayList<>();
+        this.variables = new ArrayList<>();
+
+        int literalChars = 0;
+        int last = 0;
+        Matcher matcher = CliPropertyHandler.PROPERTY_PATTERN.matcher(template);
+        while (matcher.find()) {
+            literals.add(template.substring(last, matcher.start()));
+            literalChars += matcher.start() - last;
+            variables.add(matcher.group(1));
+            last = matcher.end();
+        }
+        literals.add(template.substring(last));
+        literalChars += template.length() - last;
+
+        this.literalLength = literalChars;
+        this.distinctVariables = new LinkedHashSet<>(variables);
+    }
+
+    public static PropertyTemplate compile(String template) {
+        PropertyTemplate compiled = CACHE.get(template);
+        if (compiled == null) {
+            if (CACHE.size() >= MAX_CACHED_TEMPLATES) {
+                CACHE.clear();
+            }
+            compiled = CACHE.computeIfAbsent(template, PropertyTemplate::new);
+        }
+        return compiled;
+    }
+
+    /**
+     * @param lookup resolves each distinct property once, in order of first appearance
+     */
+    public String render(Function<String, String> lookup) {
+        if (variables.isEmpty()) {
+            return template;
+        }
+
+        Map<String, String> values = new HashMap<>();
+        for (String variable : distinctVariables) {
+            values.put(variable, expandReplacement(variable, lookup.apply(variable)));
+        }
+
+        int length = literalLength;
+        for (String variable : variables) {
+            length += values.get(variable).length();
+        }
+        StringBuilder result = new StringBuilder(length);
+        for (int i = 0; i < variables.size(); i++) {
+            result.append(literals.get(i)).append(values.get(variables.get(i)));
+        }
+        result.append(literals.get(variables.size()));
+        return result.toString();
+    }
+
+    public Set<String> getVariables() {
+        return distinctVariables;
+    }
+
+    /**
+     * Substitution has always gone through {@link Matcher#replaceAll(String)}, where
+     * a backslash escapes the next character and $0/$1 refer to the placeholder and
+     * property name. Those rules are applied here once per value so rendered output
+     * is unchanged.
+     */
+    static String expandReplacement(String variable, String value) {
+        if (value.indexOf('\\') < 0 && value.indexOf('$') < 0) {
+            return value;
+        }
+
+        StringBuilder result = new StringBuilder(value.length());
+        int i = 0;
+        while (i < value.length()) {
+            char c = value.charAt(i);
+            if (c == '\\') {
+                i++;
+                if (i == value.length()) {
+                    throw new IllegalArgumentException("character to be escaped is missing");
+                }
+                result.append(value.charAt(i++));
+            } else if (c == '$') {
+                i++;
+                if (i == value.length()) {
+                    throw new IllegalArgumentException("Illegal group reference: group index is missing");
+                }
+                char next = value.charAt(i);
+                if (next == '{') {
+                    throw new IllegalArgumentException("No group with name " + value.substring(i));
+                } else if (!Character.isDigit(next)) {
+                    throw new IllegalArgumentException("Illegal group reference");
+                }
+                // Same greedy rule as Matcher: keep taking digits while the reference stays a valid group
+                int group = next - '0';
+                if (group > GROUP_COUNT) {
+                    throw new IndexOutOfBoundsException("No group " + group);
+                }
+                i++;
+                while (i < value.length() && Character.isDigit(value.charAt(i))
+                    && group * 10 + (value.charAt(i) - '0') <= GROUP_COUNT) {
+                    group = group * 10 + (value.charAt(i) - '0');
+                    i++;
+                }
+                result.append(group == 0 ? "${" + variable + "}" : variable);
+            } else {
+                result.append(c);
+                i++;
+            }
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.aws.ecs;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.services.ecs.model.Service;
+import com.amazonaws.services.ecs.model.UpdateServiceRequest;
+import com.amazonaws.util.BinaryUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.lonewolfworks.wolke.aws.AwsExecException;
+import com.lonewolfworks.wolke.util.MapperUtil;
+
+/**
+ * Canonical hash of the settings an UpdateService call sends, so a push can tell
+ * whether the service already runs with every one of them. ECS keeps whatever a
+ * request leaves unset, so the service side only hashes the settings the request
+ * sends. Lists of plain strings (subnets, security groups) are compared as sets.
+ */
+public final class ServiceUpdateFingerprint {
+
+    private ServiceUpdateFingerprint() {
+        throw new IllegalAccessError("Utility class");
+    }
+
+    public static String of(UpdateServiceRequest request) {
+        return hash(sent(request));
+    }
+
+    public static String of(Service service, UpdateServiceRequest request) {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("taskDefinition", service.getTaskDefinition());
+        settings.put("desiredCount", service.getDesiredCount());
+        settings.put("deploymentConfiguration", service.getDeploymentConfiguration());
+        settings.put("healthCheckGracePeriodSeconds", service.getHealthCheckGracePeriodSeconds());
+        settings.put("networkConfiguration", service.getNetworkConfiguration());
+        settings.put("loadBalancers", service.getLoadBalancers());
+        settings.put("serviceRegistries", service.getServiceRegistries());
+        settings.put("placementConstraints", service.getPlacementConstraints());
+        settings.put("placementStrategy", service.getPlacementStrategy());
+        settings.put("capacityProviderStrategy", service.getCapacityProviderStrategy());
+        settings.put("platformVersion", service.getPlatformVersion());
+        settings.put("enableExecuteCommand", service.getEnableExecuteCommand());
+        settings.put("enableECSManagedTags", service.getEnableECSManagedTags());
+        settings.put("propagateTags", service.getPropagateTags());
+        return hash(canonicalize(project(tree(settings), sent(request))));
+    }
+
+    private static JsonNode sent(UpdateServiceRequest request) {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("taskDefinition", request.getTaskDefinition());
+        settings.put("desiredCount", request.getDesiredCount());
+        settings.put("deploymentConfiguration", request.getDeploymentConfiguration());
+        settings.put("healthCheckGracePeriodSeconds", request.getHealthCheckGracePeriodSeconds());
+        settings.put("networkConfiguration", request.getNetworkConfiguration());
+        settings.put("loadBalancers", request.getLoadBalancers());
+        settings.put("serviceRegistries", request.getServiceRegistries());
+        settings.put("placementConstraints", request.getPlacementConstraints());
+        settings.put("placementStrategy", request.getPlacementStrategy());
+        settings.put("capacityProviderStrategy", request.getCapacityProviderStrategy());
+        settings.put("platformVersion", request.getPlatformVersion());
+        settings.put("enableExecuteCommand", request.getEnableExecuteCommand());
+        settings.put("enableECSManagedTags", request.getEnableECSManagedTags());
+        settings.put("propagateTags", request.getPropagateTags());
+        return canonicalize(tree(settings));
+    }
+
+    private static JsonNode tree(Map<String, Object> settings) {
+        try {
+            return MapperUtil.jsonReader(JsonNode.class).readTree(MapperUtil.jsonWriter().writeValueAsString(settings));
+        } catch (JsonProcessingException e) {
+            throw new AwsExecException("Unable to fingerprint service settings", e);
+        }
+    }
+
+    /**
+     * Keeps only the object fields the request sends, at every level.
+     */
+    private static JsonNode project(JsonNode current, JsonNode sent) {
+        if (!sent.isObject() || !current.isObject()) {
+            return current;
+        }
+        ObjectNode result = JsonNodeFactory.instance.objectNode();
+        Iterator<String> names = sent.fieldNames();
+        while (names.hasNext()) {
+            String name = names.next();
+            JsonNode value = current.get(name);
+            result.set(name, value == null ? NullNode.getInstance() : project(value, sent.get(name)));
+        }
+        return result;
+    }
+
+    private static JsonNode canonicalize(JsonNode node) {
+        JsonNode canonical = TaskDefinitionFingerprint.canonicalize(node);
+        sortStringLists(canonical);
+        return canonical;
+    }
+
+    private static void sortStringLists(JsonNode node) {
+        if (node.isObject()) {
+            ObjectNode object = (ObjectNode) node;
+            List<String> names = new ArrayList<>();
+            object.fieldNames().forEachRemaining(names::add);
+            for (String name : names) {
+                JsonNode value = object.get(name);
+                if (value.isArray() && isStringList(value)) {
+                    List<String> values = new ArrayList<>();
+                    value.forEach(element -> values.add(element.asText()));
+                    values.sort(null);
+                    ArrayNode sorted = JsonNodeFactory.instance.arrayNode();
+                    values.forEach(sorted::add);
+                    object.set(name, sorted);
+                } else {
+                    sortStringLists(value);
+                }
+            }
+        } else if (node.isArray()) {
+            node.forEach(ServiceUpdateFingerprint::sortStringLists);
+        }
+    }
+
+    private static boolean isStringList(JsonNode array) {
+        for (JsonNode element : array) {
+            if (!element.isTextual()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String hash(JsonNode canonical) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return BinaryUtils.toHex(digest.digest(
+                MapperUtil.jsonWriter().writeValueAsString(canonical).getBytes(StandardCharsets.UTF_8)));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new AwsExecException("Unable to fingerprint service settings", e);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.aws.ecs;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+import com.amazonaws.services.ecs.model.ContainerDefinition;
+import com.amazonaws.services.ecs.model.RegisterTaskDefinitionRequest;
+import com.amazonaws.services.ecs.model.TaskDefinition;
+import com.amazonaws.services.ecs.model.TaskDefinitionPlacementConstraint;
+import com.amazonaws.services.ecs.model.Volume;
+import com.amazonaws.util.BinaryUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.lonewolfworks.wolke.aws.AwsExecException;
+import com.lonewolfworks.wolke.util.MapperUtil;
+
+/**
+ * Canonical hash of the parts of a task definition that we register, so a push
+ * can tell whether the service's current revision already matches. ECS fills in
+ * defaults when it stores a revision (essential, cpu 0, tcp, awsvpc host ports,
+ * empty lists), so those are folded away before hashing.
+ */
+public final class TaskDefinitionFingerprint {
+
+    private TaskDefinitionFingerprint() {
+        throw new IllegalAccessError("Utility class");
+    }
+
+    public static String of(RegisterTaskDefinitionRequest request) {
+        return fingerprint(request.getFamily(), request.getContainerDefinitions(), request.getVolumes(),
+            request.getPlacementConstraints(), request.getNetworkMode(), request.getTaskRoleArn(),
+            request.getExecutionRoleArn(), request.getMemory());
+    }
+
+    public static String of(TaskDefinition taskDefinition) {
+        return fingerprint(taskDefinition.getFamily(), taskDefinition.getContainerDefinitions(), taskDefinition.getVolumes(),
+            taskDefinition.getPlacementConstraints(), taskDefinition.getNetworkMode(), taskDefinition.getTaskRoleArn(),
+            taskDefinition.getExecutionRoleArn(), taskDefinition.getMemory());
+    }
+
+    private static String fingerprint(String family, List<ContainerDefinition> containers, List<Volume> volumes,
+                                      List<TaskDefinitionPlacementConstraint> placementConstraints, String networkMode,
+                                      String taskRoleArn, String executionRoleArn, String memory) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("family", family);
+        fields.put("containerDefinitions", containers);
+        fields.put("volumes", volumes);
+        fields.put("placementConstraints", placementConstraints);
+        fields.put("networkMode", networkMode);
+        fields.put("taskRoleArn", taskRoleArn);
+        fields.put("executionRoleArn", executionRoleArn);
+        fields.put("memory", memory);
+
+        try {
+            JsonNode tree = MapperUtil.jsonReader(JsonNode.class).readTree(MapperUtil.jsonWriter().writeValueAsString(fields));
+            JsonNode containerNodes = tree.get("containerDefinitions");
+            if (containerNodes != null) {
+                for (JsonNode container : containerNodes) {
+                    applyContainerDefaults((ObjectNode) container, "awsvpc".equals(networkMode));
+                }
+            }
+            String canonical = MapperUtil.jsonWriter().writeValueAsString(canonicalize(tree));
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return BinaryUtils.toHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new AwsExecException("Unable to fingerprint task definition", e);
+        }
+    }
+
+    private static void applyContainerDefaults(ObjectNode container, boolean awsvpc) {
+        removeIf(container, "essential", JsonNode::asBoolean);
+        removeIf(container, "cpu", node -> node.isNumber() && node.asInt() == 0);
+        JsonNode portMappings = container.get("portMappings");
+        if (portMappings != null) {
+            for (JsonNode mapping : portMappings) {
+                ObjectNode mappingNode = (ObjectNode) mapping;
+                removeIf(mappingNode, "protocol", node -> "tcp".equals(node.asText()));
+                if (awsvpc) {
+                    removeIf(mappingNode, "hostPort", node -> node.equals(mappingNode.get("containerPort")));
+                }
+            }
+        }
+        sortByName(container, "environment");
+        sortByName(container, "secrets");
+    }
+
+    private static void removeIf(ObjectNode node, String field, Predicate<JsonNode> test) {
+        JsonNode value = node.get(field);
+        if (value != null && !value.isNull() && test.test(value)) {
+            node.remove(field);
+        }
+    }
+
+    private static void sortByName(ObjectNode container, String field) {
+        JsonNode entries = container.get(field);
+        if (entries == null || !entries.isArray()) {
+            return;
+        }
+        List<JsonNode> sorted = new ArrayList<>();
+        entries.forEach(sorted::add);
+        sorted.sort((a, b) -> a.path("name").asText().compareTo(b.path("name").asText()));
+        container.set(field, JsonNodeFactory.instance.arrayNode().addAll(sorted));
+    }
+
+    /**
+     * Sorts object keys and drops nulls, empty arrays and empty objects, which
+     * ECS treats as absent.
+     */
+    static JsonNode canonicalize(JsonNode node) {
+        if (node.isObject()) {
+            Map<String, JsonNode> fields = new TreeMap<>();
+            Iterator<Map.Entry<String, JsonNode>> it = node.fields();
+            while (it.hasNext()) {
+                Map.Entry<String, JsonNode> field = it.next();
+                JsonNode value = canonicalize(field.getValue());
+                if (!isEmpty(value)) {
+                    fields.put(field.getKey(), value);
+                }
+            }
+            ObjectNode result = JsonNodeFactory.instance.objectNode();
+            fields.forEach(result::set);
+            return result;
+        }
+        if (node.isArray()) {
+            ArrayNode result = JsonNodeFactory.instance.arrayNode();
+            node.forEach(element -> result.add(canonicalize(element)));
+            return result;
+        }
+        return node;
+    }
+
+    private static boolean isEmpty(JsonNode node) {
+        return node.isNull() || (node.isContainerNode() && node.size() == 0);
+    }
+}
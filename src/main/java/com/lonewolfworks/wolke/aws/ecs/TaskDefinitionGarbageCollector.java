@@ -0,0 +1,283 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.aws.ecs;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.retry.RetryUtils;
+import com.amazonaws.services.ecs.AmazonECS;
+import com.amazonaws.services.ecs.model.Deployment;
+import com.amazonaws.services.ecs.model.DeregisterTaskDefinitionRequest;
+import com.amazonaws.services.ecs.model.DescribeServicesRequest;
+import com.amazonaws.services.ecs.model.DescribeTasksRequest;
+import com.amazonaws.services.ecs.model.ListClustersRequest;
+import com.amazonaws.services.ecs.model.ListClustersResult;
+import com.amazonaws.services.ecs.model.ListServicesRequest;
+import com.amazonaws.services.ecs.model.ListServicesResult;
+import com.amazonaws.services.ecs.model.ListTaskDefinitionFamiliesRequest;
+import com.amazonaws.services.ecs.model.ListTaskDefinitionFamiliesResult;
+import com.amazonaws.services.ecs.model.ListTaskDefinitionsRequest;
+import com.amazonaws.services.ecs.model.ListTaskDefinitionsResult;
+import com.amazonaws.services.ecs.model.ListTasksRequest;
+import com.amazonaws.services.ecs.model.ListTasksResult;
+import com.amazonaws.services.ecs.model.Service;
+import com.amazonaws.services.ecs.model.Task;
+import com.lonewolfworks.wolke.aws.AwsExecException;
+import com.lonewolfworks.wolke.logging.HermanLogger;
+import com.lonewolfworks.wolke.util.AdaptiveBackoff;
+
+/**
+ * Deregisters ACTIVE task definition revisions beyond a retention window. The
+ * newest {@code retain} revisions of a family are kept, along with any revision
+ * passed in as in use, and the rest are deregistered on a small worker pool.
+ */
+public class TaskDefinitionGarbageCollector {
+
+    public static final int DEFAULT_PARALLELISM = 4;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final int DESCRIBE_SERVICES_BATCH = 10;
+    private static final int DESCRIBE_TASKS_BATCH = 100;
+    private static final String ACTIVE = "ACTIVE";
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private final AmazonECS ecsClient;
+    private final HermanLogger logger;
+    private final int retain;
+    private final int parallelism;
+    private boolean dryRun;
+
+    public TaskDefinitionGarbageCollector(AmazonECS ecsClient, HermanLogger logger, int retain) {
+        this(ecsClient, logger, retain, DEFAULT_PARALLELISM);
+    }
+
+    public TaskDefinitionGarbageCollector(AmazonECS ecsClient, HermanLogger logger, int retain, int parallelism) {
+        this.ecsClient = ecsClient;
+        this.logger = logger;
+        this.retain = Math.max(0, retain);
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public TaskDefinitionGarbageCollector withDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+        return this;
+    }
+
+    /**
+     * @return the number of revisions deregistered
+     */
+    public int collect(String family, Collection<String> inUseArns) {
+        return deregisterAll(staleRevisions(family, inUseArns));
+    }
+
+    /**
+     * Runs {@link #collect} on a background thread, e.g. while a service stabilizes.
+     */
+    public CompletableFuture<Integer> collectInBackground(String family, Collection<String> inUseArns) {
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "taskdef-gc-" + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletableFuture<Integer> result = CompletableFuture.supplyAsync(() -> collect(family, inUseArns), executor);
+        result.whenComplete((count, error) -> executor.shutdown());
+        return result;
+    }
+
+    /**
+     * Collects every given family, or every ACTIVE family in the account when none
+     * are given. Revisions used by any service deployment or running task in any
+     * cluster are kept.
+     */
+    public int sweep(Collection<String> families) {
+        Set<String> inUse = findRevisionsInUse();
+        logger.addLogEntry("Found " + inUse.size() + " task definition revisions in use");
+
+        Collection<String> toSweep = families == null || families.isEmpty() ? listFamilies() : families;
+        int deregistered = 0;
+        for (String family : toSweep) {
+            deregistered += collect(family, inUse);
+        }
+        logger.addLogEntry("Deregistered " + deregistered + " task definition revisions across " + toSweep.size() + " families");
+        return deregistered;
+    }
+
+    /**
+     * ACTIVE revisions of the family, newest first, minus the retained ones.
+     */
+    List<String> staleRevisions(String family, Collection<String> inUseArns) {
+        List<String> stale = new ArrayList<>();
+        int kept = 0;
+        String nextToken = null;
+        do {
+            ListTaskDefinitionsResult page = ecsClient.listTaskDefinitions(new ListTaskDefinitionsRequest()
+                .withFamilyPrefix(family).withStatus(ACTIVE).withSort("DESC").withNextToken(nextToken));
+            for (String arn : page.getTaskDefinitionArns()) {
+                // familyPrefix also matches longer family names
+                if (!family.equals(familyOf(arn))) {
+                    continue;
+                }
+                if (kept < retain) {
+                    kept++;
+                } else if (inUseArns == null || !inUseArns.contains(arn)) {
+                    stale.add(arn);
+                }
+            }
+            nextToken = page.getNextToken();
+        } while (nextToken != null);
+        return stale;
+    }
+
+    static String familyOf(String taskDefinitionArn) {
+        String name = taskDefinitionArn.substring(taskDefinitionArn.lastIndexOf('/') + 1);
+        int revision = name.lastIndexOf(':');
+        return revision < 0 ? name : name.substring(0, revision);
+    }
+
+    private int deregisterAll(List<String> arns) {
+        if (arns.isEmpty()) {
+            return 0;
+        }
+        if (dryRun) {
+            arns.forEach(arn -> logger.addLogEntry("Would deregister prior task: " + arn));
+            return 0;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, arns.size()), r -> {
+            Thread thread = new Thread(r, "taskdef-gc-" + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (String arn : arns) {
+                results.add(executor.submit(() -> deregister(arn)));
+            }
+            int deregistered = 0;
+            for (Future<Boolean> result : results) {
+                if (Boolean.TRUE.equals(result.get())) {
+                    deregistered++;
+                }
+            }
+            return deregistered;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AwsExecException(e);
+        } catch (ExecutionException e) {
+            throw new AwsExecException("Task definition cleanup failed", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private boolean deregister(String arn) throws InterruptedException {
+        AdaptiveBackoff backoff = new AdaptiveBackoff(500, 8000, 2, 0.5);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                ecsClient.deregisterTaskDefinition(new DeregisterTaskDefinitionRequest().withTaskDefinition(arn));
+                logger.addLogEntry("Deregistered prior task: " + arn);
+                return true;
+            } catch (AmazonServiceException e) {
+                if (!RetryUtils.isThrottlingException(e) || attempt == MAX_ATTEMPTS) {
+                    logger.addErrorLogEntry("Unable to deregister " + arn + ": " + e.getErrorMessage());
+                    return false;
+                }
+                Thread.sleep(backoff.nextDelayMillis());
+            }
+        }
+    }
+
+    private List<String> listFamilies() {
+        List<String> families = new ArrayList<>();
+        String nextToken = null;
+        do {
+            ListTaskDefinitionFamiliesResult page = ecsClient.listTaskDefinitionFamilies(
+                new ListTaskDefinitionFamiliesRequest().withStatus(ACTIVE).withNextToken(nextToken));
+            families.addAll(page.getFamilies());
+            nextToken = page.getNextToken();
+        } while (nextToken != null);
+        return families;
+    }
+
+    private Set<String> findRevisionsInUse() {
+        Set<String> inUse = new HashSet<>();
+        for (String cluster : listClusters()) {
+            List<String> services = listServices(cluster);
+            for (int i = 0; i < services.size(); i += DESCRIBE_SERVICES_BATCH) {
+                List<String> batch = services.subList(i, Math.min(i + DESCRIBE_SERVICES_BATCH, services.size()));
+                for (Service service : ecsClient.describeServices(
+                    new DescribeServicesRequest().withCluster(cluster).withServices(batch)).getServices()) {
+                    inUse.add(service.getTaskDefinition());
+                    for (Deployment deployment : service.getDeployments()) {
+                        inUse.add(deployment.getTaskDefinition());
+                    }
+                }
+            }
+            List<String> tasks = listTasks(cluster);
+            for (int i = 0; i < tasks.size(); i += DESCRIBE_TASKS_BATCH) {
+                List<String> batch = tasks.subList(i, Math.min(i + DESCRIBE_TASKS_BATCH, tasks.size()));
+                for (Task task : ecsClient.describeTasks(
+                    new DescribeTasksRequest().withCluster(cluster).withTasks(batch)).getTasks()) {
+                    inUse.add(task.getTaskDefinitionArn());
+                }
+            }
+        }
+        return inUse;
+    }
+
+    private List<String> listClusters() {
+        List<String> clusters = new ArrayList<>();
+        String nextToken = null;
+        do {
+            ListClustersResult page = ecsClient.listClusters(new ListClustersRequest().withNextToken(nextToken));
+            clusters.addAll(page.getClusterArns());
+            nextToken = page.getNextToken();
+        } while (nextToken != null);
+        return clusters;
+    }
+
+    private List<String> listServices(String cluster) {
+        List<String> services = new ArrayList<>();
+        String nextToken = null;
+        do {
+            ListServicesResult page = ecsClient.listServices(new ListServicesRequest().withCluster(cluster).withNextToken(nextToken));
+            services.addAll(page.getServiceArns());
+            nextToken = page.getNextToken();
+        } while (nextToken != null);
+        return services;
+    }
+
+    private List<String> listTasks(String cluster) {
+        List<String> tasks = new ArrayList<>();
+        String nextToken = null;
+        do {
+            ListTasksResult page = ecsClient.listTasks(new ListTasksRequest().withCluster(cluster).withNextToken(nextToken));
+            tasks.addAll(page.getTaskArns());
+            nextToken = page.getNextToken();
+        } while (nextToken != null);
+        return tasks;
+    }
+}
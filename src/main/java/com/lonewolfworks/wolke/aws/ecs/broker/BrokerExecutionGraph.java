@@ -0,0 +1,226 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.aws.ecs.broker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.lonewolfworks.wolke.aws.AwsExecException;
+import com.lonewolfworks.wolke.logging.HermanLogger;
+
+/**
+ * Runs a set of brokers as a dependency graph. Each broker declares the brokers
+ * it needs results from; brokers with no outstanding dependencies run
+ * concurrently on a bounded pool. The first failure cancels every running
+ * sibling and is rethrown to the caller.
+ */
+public class BrokerExecutionGraph {
+
+    @FunctionalInterface
+    public interface BrokerStep {
+
+        /**
+         * @param upstream results of the completed brokers, keyed by broker name
+         * @return this broker's result, made available to dependent brokers
+         */
+        Object broker(Map<String, Object> upstream) throws Exception;
+    }
+
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+    private final HermanLogger logger;
+    private final int parallelism;
+
+    public BrokerExecutionGraph(HermanLogger logger, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.logger = logger;
+        this.parallelism = parallelism;
+    }
+
+    public BrokerExecutionGraph addBroker(String name, BrokerStep step, String... dependsOn) {
+        if (nodes.containsKey(name)) {
+            throw new AwsExecException("Broker " + name + " registered twice");
+        }
+        nodes.put(name, new Node(name, step, dependsOn));
+        return this;
+    }
+
+    /**
+     * Executes every registered broker and returns their results keyed by name.
+     */
+    public Map<String, Object> execute() {
+        validate();
+
+        Map<String, Object> results = new HashMap<>();
+        if (nodes.isEmpty()) {
+            return results;
+        }
+
+        int poolId = POOL_COUNTER.incrementAndGet();
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, nodes.size()), r -> {
+            Thread thread = new Thread(r, "broker-graph-" + poolId + "-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletionService<Completed> completionService = new ExecutorCompletionService<>(executor);
+        Map<String, Future<Completed>> running = new HashMap<>();
+        Set<String> pending = new HashSet<>(nodes.keySet());
+
+        try {
+            submitReady(pending, results, running, completionService);
+            while (!running.isEmpty()) {
+                Future<Completed> done = completionService.take();
+                Completed completed;
+                try {
+                    completed = done.get();
+                } catch (ExecutionException e) {
+                    throw failure(e.getCause());
+                }
+                running.remove(completed.name);
+                results.put(completed.name, completed.result);
+                submitReady(pending, results, running, completionService);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AwsExecException("Interrupted while brokering services", e);
+        } finally {
+            for (Future<Completed> future : running.values()) {
+                future.cancel(true);
+            }
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    private void submitReady(Set<String> pending, Map<String, Object> results,
+                             Map<String, Future<Completed>> running, CompletionService<Completed> completionService) {
+        List<String> ready = new ArrayList<>();
+        for (String name : pending) {
+            if (results.keySet().containsAll(nodes.get(name).dependsOn)) {
+                ready.add(name);
+            }
+        }
+        for (String name : ready) {
+            pending.remove(name);
+            Node node = nodes.get(name);
+            Map<String, Object> upstream = Collections.unmodifiableMap(new HashMap<>(results));
+            running.put(name, completionService.submit(() -> {
+                try {
+                    return new Completed(name, node.step.broker(upstream));
+                } catch (Exception e) {
+                    throw new BrokerFailure(name, e);
+                }
+            }));
+        }
+    }
+
+    private RuntimeException failure(Throwable cause) {
+        String brokerName = "unknown";
+        Throwable rootCause = cause;
+        if (cause instanceof BrokerFailure) {
+            brokerName = ((BrokerFailure) cause).brokerName;
+            rootCause = cause.getCause();
+        }
+        logger.addErrorLogEntry("Broker " + brokerName + " failed, cancelling remaining brokers");
+
+        if (rootCause instanceof RuntimeException) {
+            return (RuntimeException) rootCause;
+        } else if (rootCause instanceof Error) {
+            throw (Error) rootCause;
+        }
+        return new AwsExecException("Broker " + brokerName + " failed", (Exception) rootCause);
+    }
+
+    private void validate() {
+        for (Node node : nodes.values()) {
+            for (String dependency : node.dependsOn) {
+                if (!nodes.containsKey(dependency)) {
+                    throw new AwsExecException("Broker " + node.name + " depends on unknown broker " + dependency);
+                }
+            }
+        }
+
+        // Kahn's algorithm - anything left unresolved sits on a cycle
+        Set<String> resolved = new HashSet<>();
+        boolean progress = true;
+        while (progress) {
+            progress = false;
+            for (Node node : nodes.values()) {
+                if (!resolved.contains(node.name) && resolved.containsAll(node.dependsOn)) {
+                    resolved.add(node.name);
+                    progress = true;
+                }
+            }
+        }
+        if (resolved.size() != nodes.size()) {
+            Set<String> cyclic = new HashSet<>(nodes.keySet());
+            cyclic.removeAll(resolved);
+            throw new AwsExecException("Broker dependency cycle between " + cyclic);
+        }
+    }
+
+    private static class Node {
+        private final String name;
+        private final BrokerStep step;
+        private final Set<String> dependsOn;
+
+        Node(String name, BrokerStep step, String... dependsOn) {
+            this.name = name;
+            this.step = step;
+            this.dependsOn = new HashSet<>(Arrays.asList(dependsOn));
+        }
+    }
+
+    private static class Completed {
+        private final String name;
+        private final Object result;
+
+        Completed(String name, Object result) {
+            this.name = name;
+            this.result = result;
+        }
+    }
+
+    private static class BrokerFailure extends Exception {
+
+        private static final long serialVersionUID = 4117023744164823504L;
+
+        private final String brokerName;
+
+        BrokerFailure(String brokerName, Exception cause) {
+            super(cause);
+            this.brokerName = brokerName;
+        }
+    }
+}
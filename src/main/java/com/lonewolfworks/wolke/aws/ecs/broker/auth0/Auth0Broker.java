@@ -23,13 +23,13 @@ import com.amazonaws.services.lambda.model.InvokeRequest;
 import com.amazonaws.services.lambda.model.InvokeResult;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.lonewolfworks.wolke.aws.ecs.EcsPushDefinition;
 import com.lonewolfworks.wolke.aws.ecs.PropertyHandler;
 import com.lonewolfworks.wolke.aws.ecs.broker.domain.HermanBrokerStatus;
 import com.lonewolfworks.wolke.aws.ecs.logging.LoggingService;
 import com.lonewolfworks.wolke.logging.HermanLogger;
 import com.lonewolfworks.wolke.util.FileUtil;
+import com.lonewolfworks.wolke.util.MapperUtil;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.util.Assert;
 
@@ -68,7 +68,7 @@ public class Auth0Broker {
         String payload;
         try {
             Auth0BrokerRequest auth0BrokerRequest = getAuth0BrokerRequest(auth0Configuration);
-            payload = new ObjectMapper().writeValueAsString(auth0BrokerRequest);
+            payload = MapperUtil.jsonWriter().writeValueAsString(auth0BrokerRequest);
         } catch (Exception ex) {
             throw new RuntimeException("Error getting Auth0 Broker payload", ex);
         }
@@ -86,7 +86,7 @@ public class Auth0Broker {
 
             Auth0BrokerResponse response;
             try {
-                response = new ObjectMapper().readValue(auth0BrokerResponseJson, Auth0BrokerResponse.class);
+                response = MapperUtil.jsonReader(Auth0BrokerResponse.class).readValue(auth0BrokerResponseJson);
             } catch (Exception e) {
                 throw new RuntimeException("Unable to parse Auth0 broker response from: " + auth0BrokerResponseJson, e);
             }
@@ -138,13 +138,13 @@ public class Auth0Broker {
         Auth0ConfigurationRequest auth0ConfigurationRequest;
         if (auth0ConfigurationDefinition != null) {
             String client = bambooPropertyHandler.mapInProperties(fileUtil.findFile(auth0ConfigurationDefinition.getClient(), false));
-            Auth0Client auth0Client = new ObjectMapper().readValue(client, Auth0Client.class);
+            Auth0Client auth0Client = MapperUtil.jsonReader(Auth0Client.class).readValue(client);
 
             List<Auth0ClientGrants> auth0ClientGrants = null;
             if (StringUtils.isNotBlank(auth0ConfigurationDefinition.getClientGrants())) {
                 String clientGrants = bambooPropertyHandler.mapInProperties(fileUtil.findFile(auth0ConfigurationDefinition.getClientGrants(), true));
-                auth0ClientGrants = new ObjectMapper().readValue(clientGrants, new TypeReference<List<Auth0ClientGrants>>() {
-                });
+                auth0ClientGrants = MapperUtil.jsonReader(new TypeReference<List<Auth0ClientGrants>>() {
+                }).readValue(clientGrants);
             }
 
             auth0ConfigurationRequest = new Auth0ConfigurationRequest()
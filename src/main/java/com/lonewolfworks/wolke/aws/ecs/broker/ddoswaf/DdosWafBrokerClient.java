@@ -22,8 +22,8 @@ import com.amazonaws.services.lambda.model.InvocationType;
 import com.amazonaws.services.lambda.model.InvokeRequest;
 import com.amazonaws.services.lambda.model.InvokeResult;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.lonewolfworks.wolke.logging.HermanLogger;
+import com.lonewolfworks.wolke.util.MapperUtil;
 import java.nio.charset.Charset;
 import java.util.List;
 import org.apache.commons.lang3.StringUtils;
@@ -47,7 +47,7 @@ public class DdosWafBrokerClient {
                 .withAppName(appName)
                 .withElbResourceArn(elbArn)
                 .withWafConfiguration(brokerConfiguration.getWafConfiguration());
-            payload = new ObjectMapper().writeValueAsString(request);
+            payload = MapperUtil.jsonWriter().writeValueAsString(request);
         } catch (Exception ex) {
             throw new RuntimeException("Error getting DDoS / WAF Broker payload", ex);
         }
@@ -65,8 +65,7 @@ public class DdosWafBrokerClient {
             String brokerUpdatesJson = new String(invokeResult.getPayload().array(), Charset.forName("UTF-8"));
             List<String> updates;
             try {
-                updates = new ObjectMapper()
-                    .readValue(brokerUpdatesJson, new TypeReference<List<String>>() {});
+                updates = MapperUtil.jsonReader(new TypeReference<List<String>>() {}).readValue(brokerUpdatesJson);
             } catch (Exception e) {
                 throw new RuntimeException("Unable to parse broker updates from: " + brokerUpdatesJson, e);
             }
@@ -16,14 +16,13 @@
 package com.lonewolfworks.wolke.aws.ecs.broker.ddoswaf;
 
 import com.amazonaws.services.lambda.AWSLambda;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.lonewolfworks.wolke.aws.AwsExecException;
 import com.lonewolfworks.wolke.aws.ecs.EcsPushDefinition;
 import com.lonewolfworks.wolke.aws.ecs.PropertyHandler;
 import com.lonewolfworks.wolke.logging.HermanLogger;
 import com.lonewolfworks.wolke.task.ecs.ECSPushTaskProperties;
 import com.lonewolfworks.wolke.util.FileUtil;
+import com.lonewolfworks.wolke.util.MapperUtil;
 import org.springframework.util.Assert;
 
 public class DdosWafHandler {
@@ -74,8 +73,7 @@ public class DdosWafHandler {
             try {
                 String wafConfigurationString = propertyHandler
                     .mapInProperties(fileUtil.findFile(definition.getWaf(), false));
-                ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
-                wafConfiguration = mapper.readValue(wafConfigurationString, WafConfiguration.class);
+                wafConfiguration = MapperUtil.yamlReader(WafConfiguration.class).readValue(wafConfigurationString);
             } catch (Exception e) {
                 throw new AwsExecException(e);
             }
@@ -17,8 +17,15 @@ package com.lonewolfworks.wolke.aws.ecs.broker.iam;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URLDecoder;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 import org.apache.commons.io.IOUtils;
@@ -27,7 +34,6 @@ import org.slf4j.LoggerFactory;
 
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.services.identitymanagement.AmazonIdentityManagement;
 import com.amazonaws.services.identitymanagement.model.CreateRoleRequest;
 import com.amazonaws.services.identitymanagement.model.DeleteRolePolicyRequest;
@@ -40,16 +46,19 @@ import com.amazonaws.services.identitymanagement.model.Role;
 import com.amazonaws.services.identitymanagement.model.Tag;
 import com.amazonaws.services.identitymanagement.model.TagRoleRequest;
 import com.amazonaws.services.identitymanagement.model.UpdateAssumeRolePolicyRequest;
-import com.amazonaws.services.securitytoken.AWSSecurityTokenService;
-import com.amazonaws.services.securitytoken.AWSSecurityTokenServiceClientBuilder;
-import com.amazonaws.services.securitytoken.model.GetCallerIdentityRequest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.lonewolfworks.wolke.aws.AccountIdentity;
 import com.lonewolfworks.wolke.aws.AwsExecException;
-import com.lonewolfworks.wolke.aws.credentials.CredentialsHandler;
 import com.lonewolfworks.wolke.aws.ecs.PropertyHandler;
 import com.lonewolfworks.wolke.aws.ecs.PushType;
 import com.lonewolfworks.wolke.aws.tags.HermanTag;
 import com.lonewolfworks.wolke.aws.tags.TagUtil;
 import com.lonewolfworks.wolke.logging.HermanLogger;
+import com.lonewolfworks.wolke.util.MapperUtil;
 
 public class IAMBroker {
 
@@ -59,9 +68,19 @@ public class IAMBroker {
     private static final String HERMAN_PERM_BOUNDARY_NAME = "lfg-iam-boundary-herman-otto-001";
     private static final String STANDARD_PERM_BOUNDARY_NAME = "lfg-iam-boundary-herman-standard-001";
     private HermanLogger buildLogger;
+    private IamPropagationTracker propagationTracker;
 
     public IAMBroker(HermanLogger buildLogger) {
+        this(buildLogger, new IamPropagationTracker(buildLogger));
+    }
+
+    public IAMBroker(HermanLogger buildLogger, IamPropagationTracker propagationTracker) {
         this.buildLogger = buildLogger;
+        this.propagationTracker = propagationTracker;
+    }
+
+    public IamPropagationTracker getPropagationTracker() {
+        return propagationTracker;
     }
 
         
@@ -116,52 +135,147 @@ public class IAMBroker {
                 createRoleRequest.withPermissionsBoundary(permissionBoundary);
             });
 
-            client.createRole(createRoleRequest);
+            role = client.createRole(createRoleRequest).getRole();
+            propagationTracker.recordCreated(roleName);
 
         } else {
             buildLogger.addLogEntry("... Using existing role: " + roleName);
+            int mutations = 0;
 
-            client.updateAssumeRolePolicy(new UpdateAssumeRolePolicyRequest().withRoleName(roleName).withPolicyDocument(assumePolicy));
-            client.tagRole(new TagRoleRequest().withRoleName(roleName).withTags(tags));
-            
-            determinePermissionBoundary(rolePath, roleName, sessionCredentials).ifPresent(permissionBoundary -> {
-                buildLogger.addLogEntry("... Adding Permission Boundary: " + permissionBoundary);
+            if (!samePolicy(role.getAssumeRolePolicyDocument(), assumePolicy)) {
+                buildLogger.addLogEntry("... Updating the assume role policy");
+                client.updateAssumeRolePolicy(new UpdateAssumeRolePolicyRequest().withRoleName(roleName).withPolicyDocument(assumePolicy));
+                propagationTracker.recordChanged(roleName);
+                mutations++;
+            }
+
+            List<Tag> changedTags = changedTags(role.getTags(), tags);
+            if (!changedTags.isEmpty()) {
+                buildLogger.addLogEntry("... Updating " + changedTags.size() + " role tag(s)");
+                client.tagRole(new TagRoleRequest().withRoleName(roleName).withTags(changedTags));
+                mutations++;
+            }
+
+            String currentBoundary = role.getPermissionsBoundary() == null ? null : role.getPermissionsBoundary().getPermissionsBoundaryArn();
+            Optional<String> permissionBoundary = determinePermissionBoundary(rolePath, roleName, sessionCredentials);
+            if (permissionBoundary.isPresent() && !permissionBoundary.get().equals(currentBoundary)) {
+                buildLogger.addLogEntry("... Adding Permission Boundary: " + permissionBoundary.get());
                 PutRolePermissionsBoundaryRequest boundaryRequest = new PutRolePermissionsBoundaryRequest()
-                        .withPermissionsBoundary(permissionBoundary)
+                        .withPermissionsBoundary(permissionBoundary.get())
                         .withRoleName(roleName);
                 client.putRolePermissionsBoundary(boundaryRequest);
-            });
+                propagationTracker.recordChanged(roleName);
+                mutations++;
+            }
+
+            if (mutations == 0) {
+                buildLogger.addLogEntry("... Role trust policy, tags and boundary unchanged");
+            }
         }
 
         if (rolePolicy != null) {
-            buildLogger.addLogEntry("... Updating the role policy");
             String fullPolicy = propertyHandler.mapInProperties(rolePolicy);
-            PutRolePolicyRequest putRolePolicyRequest = new PutRolePolicyRequest()
-                    .withPolicyName(roleName + POLICY_SUFFIX)
-                    .withRoleName(roleName).withPolicyDocument(fullPolicy);
-            client.putRolePolicy(putRolePolicyRequest);
+            if (!samePolicy(getRolePolicyDocument(client, roleName), fullPolicy)) {
+                buildLogger.addLogEntry("... Updating the role policy");
+                PutRolePolicyRequest putRolePolicyRequest = new PutRolePolicyRequest()
+                        .withPolicyName(roleName + POLICY_SUFFIX)
+                        .withRoleName(roleName).withPolicyDocument(fullPolicy);
+                client.putRolePolicy(putRolePolicyRequest);
+                propagationTracker.recordChanged(roleName);
+            } else {
+                buildLogger.addLogEntry("... Role policy unchanged");
+            }
         } else {
             try {
                 client.getRolePolicy(new GetRolePolicyRequest().withPolicyName(roleName + POLICY_SUFFIX).withRoleName(roleName+suffix));
                 client.deleteRolePolicy(new DeleteRolePolicyRequest().withPolicyName(roleName + POLICY_SUFFIX).withRoleName(roleName+suffix));
                 buildLogger.addLogEntry("... No policy specified. The role policy was deleted.");
+                propagationTracker.recordChanged(roleName);
             } catch (NoSuchEntityException e) {
                 LOGGER.debug("Role policy does not exist: " + roleName + POLICY_SUFFIX, e);
             }
         }
 
-        role = getRole(client, roleName);
-        try {
-            //Roles take a short bit to percolate in IAM, no real status
-            Thread.sleep(10000);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new AwsExecException(e);
-        }
         buildLogger.addLogEntry("... App role ARN: " + role.getArn());
         return role;
     }
 
+    private String getRolePolicyDocument(AmazonIdentityManagement client, String roleName) {
+        try {
+            return client.getRolePolicy(new GetRolePolicyRequest().withPolicyName(roleName + POLICY_SUFFIX).withRoleName(roleName))
+                .getPolicyDocument();
+        } catch (NoSuchEntityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Tags that are missing or carry a different value. Tags that exist only on
+     * the role are left alone, as they always have been.
+     */
+    static List<Tag> changedTags(List<Tag> current, List<Tag> desired) {
+        Map<String, String> currentValues = new HashMap<>();
+        if (current != null) {
+            for (Tag tag : current) {
+                currentValues.put(tag.getKey(), tag.getValue());
+            }
+        }
+        List<Tag> changed = new ArrayList<>();
+        if (desired != null) {
+            for (Tag tag : desired) {
+                if (!currentValues.containsKey(tag.getKey()) || !Objects.equals(currentValues.get(tag.getKey()), tag.getValue())) {
+                    changed.add(tag);
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * IAM returns policy documents URL-encoded and reformatted, so documents are
+     * compared as normalized JSON trees.
+     */
+    static boolean samePolicy(String currentEncoded, String desired) {
+        if (currentEncoded == null || desired == null) {
+            return currentEncoded == desired;
+        }
+        try {
+            String current = URLDecoder.decode(currentEncoded, StandardCharsets.UTF_8.name());
+            ObjectReader reader = MapperUtil.jsonReader(JsonNode.class);
+            return normalize(reader.readTree(current)).equals(normalize(reader.readTree(desired)));
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.debug("Unable to compare policy documents", e);
+            return false;
+        }
+    }
+
+    /**
+     * A single-element list means the same as its element, and the order of
+     * actions, resources and principals doesn't matter, so both are folded away.
+     * Object key order is already ignored by JsonNode equality.
+     */
+    private static JsonNode normalize(JsonNode node) {
+        if (node.isObject()) {
+            ObjectNode normalized = JsonNodeFactory.instance.objectNode();
+            node.fields().forEachRemaining(field -> normalized.set(field.getKey(), normalize(field.getValue())));
+            return normalized;
+        }
+        if (node.isArray()) {
+            List<JsonNode> elements = new ArrayList<>();
+            node.forEach(element -> elements.add(normalize(element)));
+            if (elements.size() == 1) {
+                return elements.get(0);
+            }
+            if (elements.stream().allMatch(JsonNode::isTextual)) {
+                elements.sort(Comparator.comparing(JsonNode::textValue));
+            }
+            ArrayNode normalized = JsonNodeFactory.instance.arrayNode();
+            normalized.addAll(elements);
+            return normalized;
+        }
+        return node;
+    }
+
     private Optional<String> determinePermissionBoundary(String rolePath, String appName, AWSCredentials sessionCredentials) {
         if (rolePath.contains("lfg-epay-portfolio")) {
             if (appName.contains("otto") || (appName.contains("herman") && !appName.contains("herman-test-task"))) {
@@ -175,10 +289,7 @@ public class IAMBroker {
     }
 
     private String buildPermissionBoundaryIam(AWSCredentials sessionCredentials, String boundaryName) {
-        AWSSecurityTokenService stsClient = AWSSecurityTokenServiceClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(sessionCredentials))
-                .withClientConfiguration(CredentialsHandler.getConfiguration()).build();
-        String account = stsClient.getCallerIdentity(new GetCallerIdentityRequest()).getAccount();
+        String account = AccountIdentity.getInstance().getAccountId(sessionCredentials);
 
         return "arn:aws:iam::" + account + ":policy/" + boundaryName;
     }
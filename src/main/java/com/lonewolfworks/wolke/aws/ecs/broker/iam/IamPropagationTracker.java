@@ -0,0 +1,142 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.aws.ecs.broker.iam;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.identitymanagement.AmazonIdentityManagement;
+import com.amazonaws.services.identitymanagement.model.GetRoleRequest;
+import com.lonewolfworks.wolke.aws.AwsExecException;
+import com.lonewolfworks.wolke.logging.HermanLogger;
+import com.lonewolfworks.wolke.util.AdaptiveBackoff;
+
+/**
+ * Remembers which roles were created or changed during a push so consumers can
+ * wait once for all of them, instead of every brokered role paying a fixed sleep.
+ * IAM has no propagation status, so readiness is every role being readable plus
+ * a settle window measured from the most recent change, which time spent on
+ * other brokers already counts towards.
+ */
+public class IamPropagationTracker {
+
+    private static final long SETTLE_MS = 10000;
+    private static final long INITIAL_PROBE_MS = 500;
+    private static final long MAX_PROBE_MS = 4000;
+    private static final long MAX_WAIT_MS = 60000;
+
+    private final HermanLogger logger;
+    private final long settleMillis;
+    // role name -> time of its last change
+    private final Map<String, Long> changedRoles = new LinkedHashMap<>();
+    private final Set<String> createdRoles = new LinkedHashSet<>();
+
+    public IamPropagationTracker(HermanLogger logger) {
+        this(logger, SETTLE_MS);
+    }
+
+    IamPropagationTracker(HermanLogger logger, long settleMillis) {
+        this.logger = logger;
+        this.settleMillis = settleMillis;
+    }
+
+    public synchronized void recordCreated(String roleName) {
+        createdRoles.add(roleName);
+        recordChanged(roleName);
+    }
+
+    public synchronized void recordChanged(String roleName) {
+        changedRoles.put(roleName, now());
+    }
+
+    public synchronized boolean hasPendingChanges() {
+        return !changedRoles.isEmpty();
+    }
+
+    /**
+     * New roles can't be used as policy principals (KMS, S3, SQS...) until they
+     * have propagated, while policy updates only matter to the role's consumer.
+     */
+    public synchronized boolean hasCreatedRoles() {
+        return !createdRoles.isEmpty();
+    }
+
+    /**
+     * Blocks until every role recorded since the last call is ready. Returns
+     * immediately when nothing changed.
+     */
+    public synchronized void awaitPropagation(AmazonIdentityManagement client) {
+        if (changedRoles.isEmpty()) {
+            return;
+        }
+        long deadline = now() + MAX_WAIT_MS;
+        AdaptiveBackoff backoff = new AdaptiveBackoff(INITIAL_PROBE_MS, MAX_PROBE_MS);
+
+        List<String> pending = new ArrayList<>(changedRoles.keySet());
+        while (true) {
+            pending.removeIf(roleName -> isVisible(client, roleName));
+            if (pending.isEmpty()) {
+                break;
+            }
+            if (now() >= deadline) {
+                throw new AwsExecException("IAM roles never became visible: " + pending);
+            }
+            logger.addLogEntry("... Waiting for IAM roles to become visible: " + pending);
+            sleep(Math.min(backoff.nextDelayMillis(), deadline - now()));
+        }
+
+        long lastChange = changedRoles.values().stream().mapToLong(Long::longValue).max().getAsLong();
+        long remaining = Math.min(lastChange + settleMillis, deadline) - now();
+        if (remaining > 0) {
+            logger.addLogEntry("... Waiting " + remaining + "ms for IAM changes to propagate: " + changedRoles.keySet());
+            sleep(remaining);
+        }
+        changedRoles.clear();
+        createdRoles.clear();
+    }
+
+    private boolean isVisible(AmazonIdentityManagement client, String roleName) {
+        try {
+            return client.getRole(new GetRoleRequest().withRoleName(roleName)).getRole() != null;
+        } catch (AmazonServiceException ase) {
+            if ("NoSuchEntity".equals(ase.getErrorCode())) {
+                return false;
+            }
+            throw ase;
+        }
+    }
+
+    long now() {
+        return System.currentTimeMillis();
+    }
+
+    void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AwsExecException(e);
+        }
+    }
+}
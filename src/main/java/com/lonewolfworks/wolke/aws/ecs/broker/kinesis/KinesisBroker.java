@@ -23,41 +23,61 @@ import com.amazonaws.services.kinesis.model.DeleteStreamRequest;
 import com.amazonaws.services.kinesis.model.DescribeStreamRequest;
 import com.amazonaws.services.kinesis.model.DescribeStreamResult;
 import com.amazonaws.services.kinesis.model.EncryptionType;
-import com.amazonaws.services.kinesis.model.ListStreamsRequest;
-import com.amazonaws.services.kinesis.model.ListStreamsResult;
-import com.amazonaws.services.kinesis.model.ListTagsForStreamRequest;
-import com.amazonaws.services.kinesis.model.ListTagsForStreamResult;
 import com.amazonaws.services.kinesis.model.ResourceNotFoundException;
 import com.amazonaws.services.kinesis.model.StartStreamEncryptionRequest;
 import com.amazonaws.services.kinesis.model.StreamDescription;
-import com.amazonaws.services.kinesis.model.Tag;
+import com.amazonaws.services.resourcegroupstaggingapi.AWSResourceGroupsTaggingAPI;
+import com.amazonaws.services.resourcegroupstaggingapi.model.GetResourcesRequest;
+import com.amazonaws.services.resourcegroupstaggingapi.model.GetResourcesResult;
+import com.amazonaws.services.resourcegroupstaggingapi.model.ResourceTagMapping;
+import com.amazonaws.services.resourcegroupstaggingapi.model.TagFilter;
+import com.lonewolfworks.wolke.aws.AwsExecException;
 import com.lonewolfworks.wolke.aws.tags.HermanTag;
 import com.lonewolfworks.wolke.aws.tags.TagUtil;
 import com.lonewolfworks.wolke.logging.HermanLogger;
 import com.lonewolfworks.wolke.task.common.CommonTaskProperties;
+import com.lonewolfworks.wolke.util.AdaptiveBackoff;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public class KinesisBroker {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(KinesisBroker.class);
+    // stream create and delete calls are limited to 5 per second per account
+    private static final int MAX_CONCURRENT_STREAMS = 4;
+    private static final String STREAM_ARN_MARKER = ":stream/";
 
     private HermanLogger buildLogger;
     private AmazonKinesis client;
+    private AWSResourceGroupsTaggingAPI taggingClient;
     private KinesisAppDefinition definition;
     private CommonTaskProperties taskProperties;
 
-    public KinesisBroker(HermanLogger buildLogger, AmazonKinesis client, KinesisAppDefinition definition, CommonTaskProperties taskProperties) {
+    public KinesisBroker(HermanLogger buildLogger, AmazonKinesis client, AWSResourceGroupsTaggingAPI taggingClient,
+                         KinesisAppDefinition definition, CommonTaskProperties taskProperties) {
         this.buildLogger = buildLogger;
         this.client = client;
+        this.taggingClient = taggingClient;
         this.definition = definition;
         this.taskProperties = taskProperties;
     }
 
+    public void brokerStreams(List<KinesisStream> streams) {
+        forEachConcurrently(streams, this::brokerStream);
+    }
+
     public void brokerStream(KinesisStream stream) {
         try {
             // Describe the Stream and check if it already exists
@@ -93,9 +113,10 @@ public class KinesisBroker {
                 tags.add(new HermanTag(this.taskProperties.getAppTagKey(), definition.getAppName()));
 
                 // Add tags to stream
+                Map<String, String> streamTags = TagUtil.hermanToMap(tags);
                 AddTagsToStreamRequest addTagsToStreamRequest = new AddTagsToStreamRequest()
                     .withStreamName(stream.getName())
-                    .withTags(TagUtil.hermanToMap(tags));
+                    .withTags(streamTags);
 
                 client.addTagsToStream(addTagsToStreamRequest);
 
@@ -123,6 +144,10 @@ public class KinesisBroker {
             DeleteStreamRequest deleteStreamRequest = new DeleteStreamRequest();
             deleteStreamRequest.setStreamName(streamName);
             client.deleteStream(deleteStreamRequest);
+            buildLogger.addLogEntry(String.format("Deleted Stream %s.", streamName));
+        } catch (ResourceNotFoundException e) {
+            // tag queries can list a stream for a while after it is deleted
+            LOGGER.debug("Stream already deleted: " + streamName, e);
         } catch (Exception e) {
             LOGGER.debug("Error deleting stream: " + streamName, e);
             buildLogger.addErrorLogEntry(String.format("Error deleting Stream %s.", streamName));
@@ -134,8 +159,10 @@ public class KinesisBroker {
 
         long startTime = System.currentTimeMillis();
         long endTime = startTime + TimeUnit.MINUTES.toMillis(10);
+        // new streams usually turn ACTIVE within a few seconds
+        AdaptiveBackoff backoff = new AdaptiveBackoff(TimeUnit.SECONDS.toMillis(2), TimeUnit.SECONDS.toMillis(20));
         while (System.currentTimeMillis() < endTime) {
-            Thread.sleep(TimeUnit.SECONDS.toMillis(20));
+            backoff.sleepUntilNext(endTime);
 
             try {
                 DescribeStreamRequest describeStreamRequest = new DescribeStreamRequest();
@@ -163,36 +190,69 @@ public class KinesisBroker {
     }
 
     public void checkStreamsToBeDeleted() {
-        ListStreamsRequest listStreamsRequest = new ListStreamsRequest();
-        ListStreamsResult listStreamsResult = client.listStreams(listStreamsRequest);
-        List<String> streamNames = listStreamsResult.getStreamNames();
-
-        for (String streamName : streamNames) {
-            ListTagsForStreamRequest listTagsForStreamRequest = new ListTagsForStreamRequest();
-            listTagsForStreamRequest.setStreamName(streamName);
-            ListTagsForStreamResult listTagsForStreamResult = client.listTagsForStream(listTagsForStreamRequest);
-            List<Tag> tags = listTagsForStreamResult.getTags();
-
-            for (Tag tag : tags) {
-                if (definition.getAppName().equals(tag.withKey(this.taskProperties.getAppTagKey()).getValue())) {
-                    if (definition.getStreams() != null) {
-                        List<KinesisStream> kinesisStreams = definition.getStreams();
-                        List<String> kinesisStreamNames = new ArrayList<>();
-                        for (KinesisStream ks : kinesisStreams) {
-                            kinesisStreamNames.add(ks.getName());
-                        }
-
-                        if (!kinesisStreamNames.contains(streamName)) {
-                            deleteStream(streamName);
-                            buildLogger.addLogEntry(String.format("Deleted Stream %s.", streamName));
-                        }
-                    } else {
-                        deleteStream(streamName);
-                        buildLogger.addLogEntry(String.format("Deleted Stream %s.", streamName));
-                    }
-                }
+        Set<String> declaredStreams = new HashSet<>();
+        if (definition.getStreams() != null) {
+            for (KinesisStream ks : definition.getStreams()) {
+                declaredStreams.add(ks.getName());
+            }
+        }
+
+        List<String> streamsToDelete = new ArrayList<>();
+        for (String streamName : streamsTaggedWithApp()) {
+            if (!declaredStreams.contains(streamName)) {
+                streamsToDelete.add(streamName);
+            }
+        }
+        forEachConcurrently(streamsToDelete, this::deleteStream);
+    }
+
+    /**
+     * Kinesis itself has no query by tag, so the app's streams are found through
+     * the Resource Groups Tagging API instead of reading every stream's tags.
+     */
+    private List<String> streamsTaggedWithApp() {
+        GetResourcesRequest request = new GetResourcesRequest()
+            .withResourceTypeFilters("kinesis:stream")
+            .withTagFilters(new TagFilter().withKey(this.taskProperties.getAppTagKey()).withValues(definition.getAppName()));
+        List<String> streamNames = new ArrayList<>();
+        GetResourcesResult page;
+        do {
+            page = taggingClient.getResources(request);
+            for (ResourceTagMapping resource : page.getResourceTagMappingList()) {
+                String arn = resource.getResourceARN();
+                streamNames.add(arn.substring(arn.indexOf(STREAM_ARN_MARKER) + STREAM_ARN_MARKER.length()));
             }
+            request.setPaginationToken(page.getPaginationToken());
+        } while (page.getPaginationToken() != null && !page.getPaginationToken().isEmpty());
+        return streamNames;
+    }
+
+    private <T> void forEachConcurrently(List<T> items, Consumer<T> action) {
+        if (items.size() <= 1) {
+            items.forEach(action);
+            return;
         }
 
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(MAX_CONCURRENT_STREAMS, items.size()), r -> {
+            Thread thread = new Thread(r, "kinesis-broker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (T item : items) {
+                results.add(executor.submit(() -> action.accept(item)));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AwsExecException(e);
+        } catch (ExecutionException e) {
+            throw new AwsExecException("Error brokering Kinesis streams", e);
+        } finally {
+            executor.shutdownNow();
+        }
     }
 }
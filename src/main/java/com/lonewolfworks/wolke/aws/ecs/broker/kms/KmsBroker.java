@@ -15,20 +15,14 @@
  */
 package com.lonewolfworks.wolke.aws.ecs.broker.kms;
 
-import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.ecs.model.ContainerDefinition;
 import com.amazonaws.services.ecs.model.Secret;
 import com.amazonaws.services.kms.AWSKMS;
-import com.amazonaws.services.kms.model.AWSKMSException;
-import com.amazonaws.services.kms.model.AliasListEntry;
 import com.amazonaws.services.kms.model.CancelKeyDeletionRequest;
 import com.amazonaws.services.kms.model.CreateAliasRequest;
 import com.amazonaws.services.kms.model.CreateKeyRequest;
@@ -40,17 +34,11 @@ import com.amazonaws.services.kms.model.EnableKeyRequest;
 import com.amazonaws.services.kms.model.EnableKeyRotationRequest;
 import com.amazonaws.services.kms.model.GetKeyRotationStatusRequest;
 import com.amazonaws.services.kms.model.GetKeyRotationStatusResult;
-import com.amazonaws.services.kms.model.KeyListEntry;
-import com.amazonaws.services.kms.model.ListAliasesRequest;
-import com.amazonaws.services.kms.model.ListAliasesResult;
-import com.amazonaws.services.kms.model.ListKeysRequest;
-import com.amazonaws.services.kms.model.ListKeysResult;
-import com.amazonaws.services.kms.model.ListResourceTagsRequest;
-import com.amazonaws.services.kms.model.ListResourceTagsResult;
 import com.amazonaws.services.kms.model.PutKeyPolicyRequest;
 import com.amazonaws.services.kms.model.ScheduleKeyDeletionRequest;
 import com.amazonaws.services.kms.model.Tag;
 import com.amazonaws.services.kms.model.TagResourceRequest;
+import com.lonewolfworks.wolke.aws.AwsClientRegistry;
 import com.lonewolfworks.wolke.aws.ecs.EcsPushDefinition;
 import com.lonewolfworks.wolke.aws.ecs.PropertyHandler;
 import com.lonewolfworks.wolke.logging.HermanLogger;
@@ -60,8 +48,6 @@ import com.lonewolfworks.wolke.util.FileUtil;
 
 public class KmsBroker {
 
-    private static final Logger LOGGER = LoggerFactory.getLogger(KmsBroker.class);
-
     public static final String KMS_POLICY_JSON = "kms-policy.json";
     private static final String PREFIX = "alias/wolke/";
     private HermanLogger hermanLogger;
@@ -101,6 +87,17 @@ public class KmsBroker {
     }
 
     public String brokerKey(AWSKMS client, KmsAppDefinition definition, List<Tag> tags) {
+        String keyId = resolveKey(client, definition, tags);
+        applyKeySettings(client, keyId, renderedPolicy(), tags);
+        return keyId;
+    }
+
+    /**
+     * Finds the app's key, restoring it from pending deletion or creating it when there is none.
+     *
+     * @return the key id
+     */
+    public String resolveKey(AWSKMS client, KmsAppDefinition definition, List<Tag> tags) {
         hermanLogger.addLogEntry("Brokering KMS key");
         String keyName = getKeyName(definition);
         String appKeyAlias = PREFIX + keyName;
@@ -120,20 +117,34 @@ public class KmsBroker {
                 .withTargetKeyId(key.getKeyMetadata().getArn());
             client.createAlias(aliasReq);
             keyId = key.getKeyMetadata().getKeyId();
+            index(client).recordAlias(appKeyAlias, keyId);
+            index(client).forgetTagged(this.taskProperties.getAppTagKey(), definition.getAppName());
         } else {
             DescribeKeyResult key = client.describeKey(new DescribeKeyRequest().withKeyId(keyId));
             if (key.getKeyMetadata().getDeletionDate() != null) {
                 hermanLogger.addLogEntry("... Revoking the delete!");
                 client.cancelKeyDeletion(new CancelKeyDeletionRequest().withKeyId(keyId));
                 client.enableKey(new EnableKeyRequest().withKeyId(keyId));
+                index(client).forgetTagged(this.taskProperties.getAppTagKey(), definition.getAppName());
             }
-
-            // update keys in case of cluster move
-            client.tagResource(new TagResourceRequest().withKeyId(keyId).withTags(tags));
         }
+        return keyId;
+    }
+
+    /**
+     * @return the key policy with properties mapped in, as {@link #applyKeySettings} would apply it
+     */
+    public String renderedPolicy() {
+        return handler.mapInProperties(getPolicy());
+    }
+
+    /**
+     * Tags the key, sets its policy and turns on rotation.
+     */
+    public void applyKeySettings(AWSKMS client, String keyId, String policy, List<Tag> tags) {
+        // update keys in case of cluster move
+        client.tagResource(new TagResourceRequest().withKeyId(keyId).withTags(tags));
 
-        // Update key policy
-        String policy = handler.mapInProperties(getPolicy());
         try {
             client.putKeyPolicy(new PutKeyPolicyRequest()
                 .withPolicyName("default")
@@ -152,8 +163,6 @@ public class KmsBroker {
         } else {
             hermanLogger.addLogEntry("... KMS key rotation already enabled");
         }
-
-        return keyId;
     }
 
     public String getExistingKeyArnFromId(AWSKMS client, String keyId) {
@@ -167,65 +176,36 @@ public class KmsBroker {
     }
 
     private String getExistingKeyId(AWSKMS client, String appKeyAlias) {
-        String keyId = null;
-        String listAliasesNextMarker = null;
-        do {
-            ListAliasesResult aliases = client.listAliases(new ListAliasesRequest().withMarker(listAliasesNextMarker));
-            listAliasesNextMarker = aliases.getNextMarker();
-
-            Optional<AliasListEntry> aliasOptional = aliases.getAliases().stream()
-                .filter(alias -> appKeyAlias.equals(alias.getAliasName()))
-                .findAny();
-            if (aliasOptional.isPresent()) {
-                keyId = aliasOptional.get().getTargetKeyId();
-                hermanLogger.addLogEntry("... KMS key found: " + appKeyAlias + ":" + keyId);
-            }
-        } while (Optional.ofNullable(listAliasesNextMarker).isPresent() && !Optional.ofNullable(keyId).isPresent());
+        String keyId = index(client).keyIdForAlias(appKeyAlias);
+        if (Optional.ofNullable(keyId).isPresent()) {
+            hermanLogger.addLogEntry("... KMS key found: " + appKeyAlias + ":" + keyId);
+        }
         return keyId;
     }
 
     private String getExistingDeletedKey(AWSKMS client, KmsAppDefinition definition, String appKeyAlias) {
-        String keyId = null;
-        String listKeysNextMarker = null;
-        do {
-            ListKeysResult listKeysResult = client.listKeys(new ListKeysRequest().withMarker(listKeysNextMarker));
-            listKeysNextMarker = listKeysResult.getNextMarker();
-
-            for (KeyListEntry key : listKeysResult.getKeys()) {
-                List<Tag> tags = Collections.emptyList();
-                try {
-                    ListResourceTagsResult keyTags = client
-                        .listResourceTags(new ListResourceTagsRequest().withKeyId(key.getKeyId()));
-                    tags = keyTags.getTags();
-                } catch (Exception ex) {
-                    LOGGER.debug("Error getting tags for " + key.getKeyId(), ex);
-                }
-                for (Tag t : tags) {
-                    if (this.taskProperties.getAppTagKey().equals(t.getTagKey()) && t.getTagValue()
-                        .equals(definition.getAppName())) {
-                        DescribeKeyResult hiddenKey = client
-                            .describeKey(new DescribeKeyRequest().withKeyId(key.getKeyArn()));
-                        if (hiddenKey.getKeyMetadata().getDeletionDate() != null) {
-                            hermanLogger.addLogEntry(
-                                "... KMS Key found: " + appKeyAlias + ":" + key.getKeyId() + " - Revoking the delete");
-                            client.cancelKeyDeletion(new CancelKeyDeletionRequest().withKeyId(key.getKeyArn()));
-                            client.enableKey(new EnableKeyRequest().withKeyId(key.getKeyArn()));
-                            keyId = key.getKeyId();
-                            CreateAliasRequest aliasReq = new CreateAliasRequest().withAliasName(appKeyAlias)
-                                .withTargetKeyId(keyId);
-                            client.createAlias(aliasReq);
-                        }
-                    }
-                }
-
-                if (Optional.ofNullable(keyId).isPresent()) {
-                    break;
-                }
+        KmsKeyIndex index = index(client);
+        for (String keyArn : index.keysTagged(this.taskProperties.getAppTagKey(), definition.getAppName())) {
+            DescribeKeyResult hiddenKey = client.describeKey(new DescribeKeyRequest().withKeyId(keyArn));
+            if (hiddenKey.getKeyMetadata().getDeletionDate() != null) {
+                String keyId = hiddenKey.getKeyMetadata().getKeyId();
+                hermanLogger.addLogEntry(
+                    "... KMS Key found: " + appKeyAlias + ":" + keyId + " - Revoking the delete");
+                client.cancelKeyDeletion(new CancelKeyDeletionRequest().withKeyId(keyArn));
+                client.enableKey(new EnableKeyRequest().withKeyId(keyArn));
+                CreateAliasRequest aliasReq = new CreateAliasRequest().withAliasName(appKeyAlias)
+                    .withTargetKeyId(keyId);
+                client.createAlias(aliasReq);
+                index.recordAlias(appKeyAlias, keyId);
+                index.forgetTagged(this.taskProperties.getAppTagKey(), definition.getAppName());
+                return keyId;
             }
+        }
+        return null;
+    }
 
-        } while (Optional.ofNullable(listKeysNextMarker).isPresent() && !Optional.ofNullable(keyId).isPresent());
-
-        return keyId;
+    private KmsKeyIndex index(AWSKMS client) {
+        return KmsKeyIndex.forClient(client, AwsClientRegistry.getInstance().resourceTagging(sessionCredentials, region));
     }
 
     private String getKeyName(KmsAppDefinition definition) {
@@ -262,7 +242,9 @@ public class KmsBroker {
         if (Optional.ofNullable(keyId).isPresent()) {
             hermanLogger.addLogEntry("Key exists but yml cleared - deleting: " + appKeyAlias);
             client.deleteAlias(new DeleteAliasRequest().withAliasName(appKeyAlias));
+            index(client).forgetAlias(appKeyAlias);
             client.scheduleKeyDeletion(new ScheduleKeyDeletionRequest().withKeyId(keyId));
+            index(client).forgetTagged(this.taskProperties.getAppTagKey(), definition.getAppName());
         }
     }
 
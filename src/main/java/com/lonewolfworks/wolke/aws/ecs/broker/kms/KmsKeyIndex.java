@@ -0,0 +1,111 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.aws.ecs.broker.kms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.amazonaws.services.kms.AWSKMS;
+import com.amazonaws.services.kms.model.DescribeKeyRequest;
+import com.amazonaws.services.kms.model.NotFoundException;
+import com.amazonaws.services.resourcegroupstaggingapi.AWSResourceGroupsTaggingAPI;
+import com.amazonaws.services.resourcegroupstaggingapi.model.GetResourcesRequest;
+import com.amazonaws.services.resourcegroupstaggingapi.model.GetResourcesResult;
+import com.amazonaws.services.resourcegroupstaggingapi.model.ResourceTagMapping;
+import com.amazonaws.services.resourcegroupstaggingapi.model.TagFilter;
+
+/**
+ * Process-wide lookups of KMS keys by alias and by tag, shared by every broker
+ * using the same client. KMS has no query by tag, so tagged keys are found with
+ * a single Resource Groups Tagging API query per tag.
+ */
+public class KmsKeyIndex {
+
+    private static final Map<AWSKMS, KmsKeyIndex> INDEXES = new ConcurrentHashMap<>();
+
+    private final AWSKMS client;
+    private final AWSResourceGroupsTaggingAPI taggingClient;
+    private final Map<String, Optional<String>> keyIdsByAlias = new ConcurrentHashMap<>();
+    // [tag key, tag value] -> key ARNs
+    private final Map<List<String>, List<String>> keyArnsByTag = new ConcurrentHashMap<>();
+
+    KmsKeyIndex(AWSKMS client, AWSResourceGroupsTaggingAPI taggingClient) {
+        this.client = client;
+        this.taggingClient = taggingClient;
+    }
+
+    public static KmsKeyIndex forClient(AWSKMS client, AWSResourceGroupsTaggingAPI taggingClient) {
+        return INDEXES.computeIfAbsent(client, c -> new KmsKeyIndex(c, taggingClient));
+    }
+
+    /**
+     * @return the id of the key the alias points to, or null if the alias does not exist
+     */
+    public String keyIdForAlias(String alias) {
+        return keyIdsByAlias.computeIfAbsent(alias, this::describeAlias).orElse(null);
+    }
+
+    public void recordAlias(String alias, String keyId) {
+        keyIdsByAlias.put(alias, Optional.of(keyId));
+    }
+
+    public void forgetAlias(String alias) {
+        keyIdsByAlias.put(alias, Optional.empty());
+    }
+
+    /**
+     * @return ARNs of every key carrying the tag, including keys pending deletion
+     */
+    public List<String> keysTagged(String tagKey, String tagValue) {
+        return keyArnsByTag.computeIfAbsent(Arrays.asList(tagKey, tagValue), tag -> queryTagged(tagKey, tagValue));
+    }
+
+    /**
+     * Drops the cached keys for a tag, so the next lookup sees keys created,
+     * restored or scheduled for deletion since.
+     */
+    public void forgetTagged(String tagKey, String tagValue) {
+        keyArnsByTag.remove(Arrays.asList(tagKey, tagValue));
+    }
+
+    private Optional<String> describeAlias(String alias) {
+        try {
+            return Optional.of(client.describeKey(new DescribeKeyRequest().withKeyId(alias)).getKeyMetadata().getKeyId());
+        } catch (NotFoundException ex) {
+            return Optional.empty();
+        }
+    }
+
+    private List<String> queryTagged(String tagKey, String tagValue) {
+        GetResourcesRequest request = new GetResourcesRequest()
+            .withResourceTypeFilters("kms:key")
+            .withTagFilters(new TagFilter().withKey(tagKey).withValues(tagValue));
+        List<String> keyArns = new ArrayList<>();
+        GetResourcesResult page;
+        do {
+            page = taggingClient.getResources(request);
+            for (ResourceTagMapping resource : page.getResourceTagMappingList()) {
+                keyArns.add(resource.getResourceARN());
+            }
+            request.setPaginationToken(page.getPaginationToken());
+        } while (page.getPaginationToken() != null && !page.getPaginationToken().isEmpty());
+        return keyArns;
+    }
+}
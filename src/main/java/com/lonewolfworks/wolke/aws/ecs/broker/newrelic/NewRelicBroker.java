@@ -26,12 +26,12 @@ import com.amazonaws.services.lambda.AWSLambda;
 import com.amazonaws.services.lambda.model.InvocationType;
 import com.amazonaws.services.lambda.model.InvokeRequest;
 import com.amazonaws.services.lambda.model.InvokeResult;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.lonewolfworks.wolke.aws.ecs.PropertyHandler;
 import com.lonewolfworks.wolke.aws.ecs.broker.domain.HermanBrokerStatus;
 import com.lonewolfworks.wolke.aws.ecs.logging.LoggingService;
 import com.lonewolfworks.wolke.logging.HermanLogger;
 import com.lonewolfworks.wolke.util.FileUtil;
+import com.lonewolfworks.wolke.util.MapperUtil;
 
 public class NewRelicBroker {
 
@@ -74,7 +74,7 @@ public class NewRelicBroker {
         try {
             NewRelicBrokerRequest newRelicBrokerRequest = getNewRelicBrokerRequest(newRelicConfigurationDefinition,
                 policyName, newRelicApplicationName, newRelicLicenseKey);
-            payload = new ObjectMapper().writeValueAsString(newRelicBrokerRequest);
+            payload = MapperUtil.jsonWriter().writeValueAsString(newRelicBrokerRequest);
         } catch (Exception ex) {
             throw new RuntimeException("Error getting NR Broker payload", ex);
         }
@@ -94,8 +94,7 @@ public class NewRelicBroker {
 
             NewRelicBrokerResponse response;
             try {
-                response = new ObjectMapper()
-                    .readValue(nrBrokerResponseJson, NewRelicBrokerResponse.class);
+                response = MapperUtil.jsonReader(NewRelicBrokerResponse.class).readValue(nrBrokerResponseJson);
             } catch (Exception e) {
                 throw new RuntimeException("Unable to parse NR broker response from: " + nrBrokerResponseJson, e);
             }
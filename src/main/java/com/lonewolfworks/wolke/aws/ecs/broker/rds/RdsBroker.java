@@ -33,6 +33,7 @@ import com.amazonaws.services.rds.model.OptionGroup;
 import com.amazonaws.services.rds.model.Parameter;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.lonewolfworks.wolke.aws.ecs.EcsPush;
 import com.lonewolfworks.wolke.aws.ecs.EcsPushContext;
 import com.lonewolfworks.wolke.aws.ecs.EcsPushDefinition;
@@ -44,6 +45,7 @@ import com.lonewolfworks.wolke.aws.tags.TagUtil;
 import com.lonewolfworks.wolke.logging.HermanLogger;
 import com.lonewolfworks.wolke.util.DateUtil;
 import com.lonewolfworks.wolke.util.FileUtil;
+import com.lonewolfworks.wolke.util.MapperUtil;
 
 public class RdsBroker {
 
@@ -51,6 +53,10 @@ public class RdsBroker {
     private static final String POSTGRES_ENGINE = "postgres";
     private static final String MYSQL_ENGINE = "mysql";
     private static final int MYSQL_MAXLENGTH = 32;
+    private static final ObjectReader PARAMETER_LIST_READER = new ObjectMapper()
+        .addMixIn(Parameter.class, RdsBrokerMixIns.ParameterMixIn.class)
+        .readerFor(new TypeReference<List<Parameter>>() {
+        });
     static int pollingIntervalMs = 10000;
     private AmazonRDS client;
     private String targetKeyId;
@@ -161,9 +167,7 @@ public class RdsBroker {
         if (rds.getOptionGroupFile() != null) {
             try {
                 String optionGroupJson = fileUtil.findFile(rds.getOptionGroupFile(), false);
-                ObjectMapper objectMapper = new ObjectMapper();
-                OptionGroup optionGroup = objectMapper.readValue(optionGroupJson, new TypeReference<OptionGroup>() {
-                });
+                OptionGroup optionGroup = MapperUtil.jsonReader(OptionGroup.class).readValue(optionGroupJson);
                 rdsClient.setOptionGroup(instanceId, optionGroup);
             } catch (Exception ex) {
                 throw new RuntimeException("Error attempting to set DB Options", ex);
@@ -173,10 +177,7 @@ public class RdsBroker {
         if (rds.getParameterGroupFile() != null) {
             try {
                 String parameterGroupJson = fileUtil.findFile(rds.getParameterGroupFile(), false);
-                ObjectMapper objectMapper = new ObjectMapper();
-                objectMapper.addMixIn(Parameter.class, RdsBrokerMixIns.ParameterMixIn.class);
-                List<Parameter> parameters = objectMapper.readValue(parameterGroupJson, new TypeReference<List<Parameter>>() {
-                });
+                List<Parameter> parameters = PARAMETER_LIST_READER.readValue(parameterGroupJson);
                 rdsClient.setDBParameterGroup(instanceId, parameters);
             } catch (Exception ex) {
                 throw new RuntimeException("Error attempting to set DB Parameter Groups", ex);
@@ -32,13 +32,10 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.services.kms.AWSKMS;
-import com.amazonaws.services.kms.AWSKMSClientBuilder;
 import com.amazonaws.services.kms.model.DescribeKeyRequest;
 import com.amazonaws.services.kms.model.Tag;
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
 import com.amazonaws.services.s3.model.BucketLoggingConfiguration;
 import com.amazonaws.services.s3.model.BucketNotificationConfiguration;
@@ -65,10 +62,8 @@ import com.amazonaws.services.s3.model.SetBucketVersioningConfigurationRequest;
 import com.amazonaws.services.s3.model.TopicConfiguration;
 import com.amazonaws.util.IOUtils;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.lonewolfworks.wolke.aws.AwsClientRegistry;
 import com.lonewolfworks.wolke.aws.AwsExecException;
-import com.lonewolfworks.wolke.aws.credentials.CredentialsHandler;
 import com.lonewolfworks.wolke.aws.ecs.EcsPushDefinition;
 import com.lonewolfworks.wolke.aws.ecs.PropertyHandler;
 import com.lonewolfworks.wolke.aws.ecs.broker.kms.KmsBroker;
@@ -78,6 +73,7 @@ import com.lonewolfworks.wolke.aws.tags.TagUtil;
 import com.lonewolfworks.wolke.logging.HermanLogger;
 import com.lonewolfworks.wolke.task.s3.S3CreateTaskProperties;
 import com.lonewolfworks.wolke.util.FileUtil;
+import com.lonewolfworks.wolke.util.MapperUtil;
 
 public class S3Broker {
 
@@ -125,9 +121,7 @@ public class S3Broker {
             policy = fileUtil.findFile(configuration.getPolicyName(), false);
         }
 
-        AmazonS3 client = AmazonS3ClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(context.getSessionCredentials()))
-                .withClientConfiguration(CredentialsHandler.getConfiguration()).withRegion(context.getRegion()).build();
+        AmazonS3 client = AwsClientRegistry.getInstance().s3(context.getSessionCredentials(), context.getRegion());
         brokerBucket(client, configuration, tags, policy);
         updateNotificationConfiguration(configuration, client);
 
@@ -140,9 +134,7 @@ public class S3Broker {
     }
 
     private String brokerKms(S3InjectConfiguration configuration, Map<String, String> tagMap) {
-        AWSKMS kmsClient = AWSKMSClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(context.getSessionCredentials()))
-                .withClientConfiguration(CredentialsHandler.getConfiguration()).withRegion(context.getRegion()).build();
+        AWSKMS kmsClient = AwsClientRegistry.getInstance().kms(context.getSessionCredentials(), context.getRegion());
 
         KmsBroker kmsBroker = new KmsBroker(this.buildLogger, this.handler, this.context.getFileUtil(), this.taskProperties,
                 this.context.getSessionCredentials(), null, this.context.getRegion());
@@ -244,9 +236,8 @@ public class S3Broker {
             try {
                 if (configuration.getRoutingRules() != null) {
                     FileUtil fileUtil = new FileUtil(context.getRootPath(), buildLogger);
-                    ObjectMapper objectMapper = new ObjectMapper();
-                    List<RoutingRule> routingRules = objectMapper.readValue(handler.mapInProperties(fileUtil.findFile(configuration.getRoutingRules(), false)), new TypeReference<List<RoutingRule>>() {
-                    });
+                    List<RoutingRule> routingRules = MapperUtil.jsonReader(new TypeReference<List<RoutingRule>>() {
+                    }).readValue(handler.mapInProperties(fileUtil.findFile(configuration.getRoutingRules(), false)));
 
                     bucketWebsiteConfiguration.withRoutingRules(routingRules);
                 } else {
@@ -396,8 +387,7 @@ public class S3Broker {
                 throw new AwsExecException("No S3 template provided!");
             }
 
-            ObjectMapper mapper = isJson ? new ObjectMapper() : new ObjectMapper(new YAMLFactory());
-            definition = mapper.readValue(handler.mapInProperties(template), S3InjectConfiguration.class);
+            definition = MapperUtil.reader(S3InjectConfiguration.class, isJson).readValue(handler.mapInProperties(template));
         } catch (FileNotFoundException e1) {
             LOGGER.debug("No template found: " + S3_TEMPLATE_JSON, e1);
             throw new AwsExecException("No template found at " + S3_TEMPLATE_JSON);
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.aws.ecs.broker.secretsmgr;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.amazonaws.services.secretsmanager.AWSSecretsManager;
+
+/**
+ * Secrets brokered during this run, shared by every SecretsManagerBroker on the
+ * same client so a path referenced from several places is looked up once.
+ */
+public class SecretArnCache {
+
+    private static final Map<AWSSecretsManager, SecretArnCache> CACHES = new ConcurrentHashMap<>();
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public static SecretArnCache forClient(AWSSecretsManager client) {
+        return CACHES.computeIfAbsent(client, c -> new SecretArnCache());
+    }
+
+    public Entry get(String path) {
+        return entries.get(path);
+    }
+
+    public void put(String path, String arn, String kmsKeyId, String description) {
+        entries.put(path, new Entry(arn, kmsKeyId, description));
+    }
+
+    public static class Entry {
+        private final String arn;
+        private final String kmsKeyId;
+        private final String description;
+
+        Entry(String arn, String kmsKeyId, String description) {
+            this.arn = arn;
+            this.kmsKeyId = kmsKeyId;
+            this.description = description;
+        }
+
+        public String getArn() {
+            return arn;
+        }
+
+        boolean matches(String kmsKeyId, String description) {
+            return Objects.equals(this.kmsKeyId, kmsKeyId) && Objects.equals(this.description, description);
+        }
+    }
+}
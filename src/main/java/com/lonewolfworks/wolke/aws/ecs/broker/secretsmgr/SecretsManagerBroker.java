@@ -15,52 +15,67 @@
  */
 package com.lonewolfworks.wolke.aws.ecs.broker.secretsmgr;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang3.RandomStringUtils;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.apache.commons.lang3.StringUtils;
 
 import com.amazonaws.services.secretsmanager.AWSSecretsManager;
 import com.amazonaws.services.secretsmanager.model.CreateSecretRequest;
-import com.amazonaws.services.secretsmanager.model.ListSecretsRequest;
-import com.amazonaws.services.secretsmanager.model.SecretListEntry;
+import com.amazonaws.services.secretsmanager.model.DescribeSecretRequest;
+import com.amazonaws.services.secretsmanager.model.DescribeSecretResult;
+import com.amazonaws.services.secretsmanager.model.ResourceNotFoundException;
+import com.amazonaws.services.secretsmanager.model.RestoreSecretRequest;
 import com.amazonaws.services.secretsmanager.model.Tag;
 import com.amazonaws.services.secretsmanager.model.UpdateSecretRequest;
+import com.lonewolfworks.wolke.aws.AwsExecException;
 import com.lonewolfworks.wolke.logging.HermanLogger;
 
 public class SecretsManagerBroker {
 
-	private static final Logger LOGGER = LoggerFactory.getLogger(SecretsManagerBroker.class);
+	private static final int MAX_CONCURRENT_SECRETS = 4;
 
 	private HermanLogger hermanLogger;
 	private AWSSecretsManager client;
 	private String kmsKeyId;
 	private List<Tag> tags;
+	private SecretArnCache arnCache;
 	
 	public SecretsManagerBroker(HermanLogger hermanLogger, AWSSecretsManager client, String kmsKeyId, List<Tag> tags) {
 		this.hermanLogger = hermanLogger;
 		this.client = client;
 		this.kmsKeyId = kmsKeyId;
 		this.tags = tags;
+		this.arnCache = SecretArnCache.forClient(client);
 	}
 
 	public String brokerSecretsManagerShellWithValue(String path, String appName, String value) {
-		hermanLogger.addLogEntry("Brokering SecretsManager shell:"+path);
-		List<SecretListEntry> entries = client.listSecrets(new ListSecretsRequest().withMaxResults(100)).getSecretList();
-		String arn = null;
-		for(SecretListEntry entry : entries) {
-			if(path.equals(entry.getName())) {
-				arn = entry.getARN();
-			}
+		String description = "Secrets container for "+appName;
+		SecretArnCache.Entry cached = arnCache.get(path);
+		if(cached!=null && value==null && cached.matches(kmsKeyId, description)) {
+			hermanLogger.addLogEntry("Brokering SecretsManager shell:"+path+" - already brokered as "+cached.getArn());
+			return cached.getArn();
 		}
+
+		hermanLogger.addLogEntry("Brokering SecretsManager shell:"+path);
+		DescribeSecretResult existing = cached==null ? describeSecret(path) : null;
+		String arn = cached!=null ? cached.getArn() : existing!=null ? existing.getARN() : null;
 		if(arn==null) {
 			//create new
 			hermanLogger.addLogEntry(">> None existing, creating new under "+path);
 			CreateSecretRequest req = new CreateSecretRequest()
 					.withName(path)
 					.withKmsKeyId(kmsKeyId)
-					.withDescription("Secrets container for "+appName)
+					.withDescription(description)
 					.withTags(tags);
 			
 			if(value!=null) {
@@ -70,16 +85,25 @@ public class SecretsManagerBroker {
 			}
 			arn = client.createSecret(req).getARN();
 		} else {
-			hermanLogger.addLogEntry(">> Existing, updating "+ arn + " under "+path);
-			UpdateSecretRequest req = new UpdateSecretRequest()
-					.withSecretId(arn)
-					.withKmsKeyId(kmsKeyId)
-					.withDescription("Secrets container for "+appName);
-			if(value!=null) {
-				req.withSecretString(value);
+			if(existing!=null && existing.getDeletedDate()!=null) {
+				hermanLogger.addLogEntry(">> Existing "+arn+" is scheduled for deletion, restoring");
+				client.restoreSecret(new RestoreSecretRequest().withSecretId(arn));
+			}
+			if(value==null && existing!=null && isSameKey(existing.getKmsKeyId()) && description.equals(existing.getDescription())) {
+				hermanLogger.addLogEntry(">> Existing, unchanged "+ arn + " under "+path);
+			} else {
+				hermanLogger.addLogEntry(">> Existing, updating "+ arn + " under "+path);
+				UpdateSecretRequest req = new UpdateSecretRequest()
+						.withSecretId(arn)
+						.withKmsKeyId(kmsKeyId)
+						.withDescription(description);
+				if(value!=null) {
+					req.withSecretString(value);
+				}
+				client.updateSecret(req);
 			}
-			client.updateSecret(req);
 		}
+		arnCache.put(path, arn, kmsKeyId, description);
 		return arn;
 
 	}
@@ -89,4 +113,64 @@ public class SecretsManagerBroker {
 		
 	}
 
+	/**
+	 * Brokers each distinct path once, several at a time.
+	 *
+	 * @return secret ARNs keyed by path
+	 */
+	public Map<String, String> brokerSecretsManagerShells(Collection<String> paths, String appName) {
+		List<String> distinct = new ArrayList<>(new LinkedHashSet<>(paths));
+		Map<String, String> arns = new LinkedHashMap<>();
+		if(distinct.isEmpty()) {
+			return arns;
+		}
+		if(distinct.size()==1) {
+			arns.put(distinct.get(0), brokerSecretsManagerShell(distinct.get(0), appName));
+			return arns;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(MAX_CONCURRENT_SECRETS, distinct.size()), r -> {
+			Thread thread = new Thread(r, "secrets-broker");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			Map<String, Future<String>> pending = new LinkedHashMap<>();
+			for(String path : distinct) {
+				pending.put(path, executor.submit(() -> brokerSecretsManagerShell(path, appName)));
+			}
+			for(Map.Entry<String, Future<String>> entry : pending.entrySet()) {
+				arns.put(entry.getKey(), entry.getValue().get());
+			}
+			return arns;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AwsExecException(e);
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new AwsExecException("Error brokering secrets", e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private DescribeSecretResult describeSecret(String path) {
+		try {
+			return client.describeSecret(new DescribeSecretRequest().withSecretId(path));
+		} catch (ResourceNotFoundException ex) {
+			return null;
+		}
+	}
+
+	private boolean isSameKey(String existingKmsKeyId) {
+		if(StringUtils.isEmpty(kmsKeyId)) {
+			return existingKmsKeyId==null;
+		}
+		// DescribeSecret reports the key the way it was set, usually as an ARN
+		return existingKmsKeyId!=null
+				&& (existingKmsKeyId.equals(kmsKeyId) || existingKmsKeyId.endsWith("/"+kmsKeyId));
+	}
+
 }
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.aws.ecs.cluster;
+
+import java.io.IOException;
+
+/**
+ * Where introspected cluster metadata is kept between runs.
+ */
+public interface ClusterMetadataStore {
+
+    /**
+     * @return the stored document, or null if there is none or it is older than maxAgeMillis
+     */
+    String read(String key, long maxAgeMillis) throws IOException;
+
+    void write(String key, String document) throws IOException;
+}
@@ -17,6 +17,10 @@ package com.lonewolfworks.wolke.aws.ecs.cluster;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.ec2.AmazonEC2;
@@ -24,8 +28,8 @@ import com.amazonaws.services.ec2.model.DescribeInstancesRequest;
 import com.amazonaws.services.ec2.model.DescribeSecurityGroupsRequest;
 import com.amazonaws.services.ec2.model.Filter;
 import com.amazonaws.services.ec2.model.GroupIdentifier;
+import com.amazonaws.services.ec2.model.Instance;
 import com.amazonaws.services.ec2.model.IpPermission;
-import com.amazonaws.services.ec2.model.Reservation;
 import com.amazonaws.services.ec2.model.SecurityGroup;
 import com.amazonaws.services.ecs.AmazonECS;
 import com.amazonaws.services.ecs.model.Cluster;
@@ -38,10 +42,15 @@ import com.amazonaws.services.ecs.model.ListTagsForResourceResult;
 import com.amazonaws.services.ecs.model.Tag;
 import com.amazonaws.services.rds.AmazonRDS;
 import com.amazonaws.services.rds.model.DBSubnetGroup;
+import com.amazonaws.services.rds.model.DescribeDBSubnetGroupsRequest;
+import com.amazonaws.services.rds.model.DescribeDBSubnetGroupsResult;
 import com.lonewolfworks.wolke.logging.HermanLogger;
 
 public class EcsClusterIntrospector {
 
+    private static final Integer APP_PORT_RANGE_START = 49153;
+    private static final Integer APP_PORT_RANGE_END = 65535;
+
     private AmazonECS ecsClient;
     private AmazonEC2 ec2Client;
     private AmazonRDS rdsClient;
@@ -56,7 +65,35 @@ public class EcsClusterIntrospector {
 
     public EcsClusterMetadata introspect(String name, Regions region) {
         EcsClusterMetadata ecsClusterMetadata = new EcsClusterMetadata();
+        ecsClusterMetadata.setClusterId(name);
 
+        // the cluster tags, the instance network setup and the DB subnet group are independent
+        ExecutorService executor = Executors.newFixedThreadPool(3, r -> {
+            Thread thread = new Thread(r, "cluster-introspection");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            CompletableFuture<Void> tags = CompletableFuture.runAsync(() -> introspectTags(name, ecsClusterMetadata), executor);
+            CompletableFuture<Void> network = CompletableFuture.runAsync(() -> introspectNetwork(name, ecsClusterMetadata), executor);
+            CompletableFuture<String> subnetGroup = CompletableFuture.supplyAsync(() -> findDbSubnetGroup(name), executor);
+            CompletableFuture.allOf(tags, network, subnetGroup).join();
+            ecsClusterMetadata.setDbSubnetGroup(subnetGroup.join());
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        } finally {
+            executor.shutdownNow();
+        }
+
+        logger.addLogEntry("Introspection complete:");
+        logger.addLogEntry(ecsClusterMetadata.toString());
+        return ecsClusterMetadata;
+    }
+
+    private void introspectTags(String name, EcsClusterMetadata ecsClusterMetadata) {
         Cluster cluster = ecsClient.describeClusters(new DescribeClustersRequest().withClusters(name)).getClusters().get(0);
         
         //BUG in 1.* api
@@ -75,23 +112,26 @@ public class EcsClusterIntrospector {
         	} 
         }
         ecsClusterMetadata.setClusterCftStackTags(result);
-        ecsClusterMetadata.setClusterId(name);
-        
-        
-        
-        String instArn = ecsClient.listContainerInstances(new ListContainerInstancesRequest().withCluster(name)).getContainerInstanceArns().get(0);
+    }
+
+    private void introspectNetwork(String name, EcsClusterMetadata ecsClusterMetadata) {
+        String instArn = ecsClient.listContainerInstances(new ListContainerInstancesRequest().withCluster(name).withMaxResults(1)).getContainerInstanceArns().get(0);
         ContainerInstance inst = ecsClient.describeContainerInstances(new DescribeContainerInstancesRequest().withCluster(name).withContainerInstances(instArn)).getContainerInstances().get(0);
 
-        Reservation r = ec2Client.describeInstances(new DescribeInstancesRequest().withInstanceIds(inst.getEc2InstanceId())).getReservations().get(0);
-        
-        ecsClusterMetadata.setClusterEcsRole(r.getInstances().get(0).getIamInstanceProfile().getArn());
+        Instance instance = ec2Client.describeInstances(new DescribeInstancesRequest().withInstanceIds(inst.getEc2InstanceId())).getReservations().get(0).getInstances().get(0);
         
-        for(GroupIdentifier g : r.getInstances().get(0).getSecurityGroups()) {
-            SecurityGroup grp = ec2Client.describeSecurityGroups(new DescribeSecurityGroupsRequest().withGroupIds(g.getGroupId())).getSecurityGroups().get(0);
-            
+        ecsClusterMetadata.setClusterEcsRole(instance.getIamInstanceProfile().getArn());
 
+        List<String> groupIds = new ArrayList<>();
+        for(GroupIdentifier g : instance.getSecurityGroups()) {
+            groupIds.add(g.getGroupId());
+        }
+        // one call for all of the instance's groups, kept in the instance's order
+        List<SecurityGroup> groups = ec2Client.describeSecurityGroups(new DescribeSecurityGroupsRequest().withGroupIds(groupIds)).getSecurityGroups();
+        groups.sort((a, b) -> Integer.compare(groupIds.indexOf(a.getGroupId()), groupIds.indexOf(b.getGroupId())));
+        for(SecurityGroup grp : groups) {
             for(IpPermission perm : grp.getIpPermissions()) {
-                if(perm.getFromPort().equals(49153) && perm.getToPort().equals(65535)) {
+                if(APP_PORT_RANGE_START.equals(perm.getFromPort()) && APP_PORT_RANGE_END.equals(perm.getToPort())) {
                     ecsClusterMetadata.setAppSecurityGroup(grp.getGroupId());
        
                     ecsClusterMetadata.getElbSecurityGroups().add(perm.getUserIdGroupPairs().get(0).getGroupId());
@@ -102,16 +142,25 @@ public class EcsClusterIntrospector {
         Filter f = new Filter("ip-permission.group-id").withValues( ecsClusterMetadata.getAppSecurityGroup());
         SecurityGroup dbgrp = ec2Client.describeSecurityGroups(new DescribeSecurityGroupsRequest().withFilters(f)).getSecurityGroups().get(0);
         ecsClusterMetadata.setRdsSecurityGroup(dbgrp.getGroupId());
-     
-        for(DBSubnetGroup sub : rdsClient.describeDBSubnetGroups().getDBSubnetGroups()) {
-			if (sub.getDBSubnetGroupName().contains(ecsClusterMetadata.getClusterId())) {
-                ecsClusterMetadata.setDbSubnetGroup(sub.getDBSubnetGroupName());
-            }
-        }
+    }
 
-        logger.addLogEntry("Introspection complete:");
-        logger.addLogEntry(ecsClusterMetadata.toString());
-        return ecsClusterMetadata;
+    /**
+     * DescribeDBSubnetGroups only filters by exact name, so every page is read and
+     * the last group whose name contains the cluster name wins, as before.
+     */
+    private String findDbSubnetGroup(String name) {
+        String dbSubnetGroup = null;
+        String marker = null;
+        do {
+            DescribeDBSubnetGroupsResult page = rdsClient.describeDBSubnetGroups(new DescribeDBSubnetGroupsRequest().withMarker(marker));
+            for(DBSubnetGroup sub : page.getDBSubnetGroups()) {
+                if (sub.getDBSubnetGroupName().contains(name)) {
+                    dbSubnetGroup = sub.getDBSubnetGroupName();
+                }
+            }
+            marker = page.getMarker();
+        } while (marker != null);
+        return dbSubnetGroup;
     }
 
     
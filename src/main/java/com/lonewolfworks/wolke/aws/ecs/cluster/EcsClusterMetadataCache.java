@@ -0,0 +1,116 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.aws.ecs.cluster;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import com.amazonaws.regions.Regions;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.lonewolfworks.wolke.logging.HermanLogger;
+import com.lonewolfworks.wolke.util.MapperUtil;
+
+/**
+ * Serves introspected cluster metadata from a store while it is younger than
+ * the TTL. Cluster topology rarely changes, so most pushes skip introspection.
+ * The cache is best effort: a store that can't be read or written only costs
+ * a fresh introspection.
+ */
+public class EcsClusterMetadataCache {
+
+    private static final ObjectReader READER = MapperUtil.jsonReader(EcsClusterMetadata.class)
+        .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private final ClusterMetadataStore store;
+    private final long ttlMillis;
+    private final boolean refresh;
+    private final HermanLogger logger;
+    private Map<String, String> sharedResults;
+
+    /**
+     * @param refresh ignore any stored copy and replace it with a fresh introspection
+     */
+    public EcsClusterMetadataCache(ClusterMetadataStore store, long ttlMillis, boolean refresh, HermanLogger logger) {
+        this.store = store;
+        this.ttlMillis = ttlMillis;
+        this.refresh = refresh;
+        this.logger = logger;
+    }
+
+    /**
+     * Shares results between pushes running in the same process, so each cluster
+     * is resolved once per batch. Concurrent pushes to one cluster wait for the
+     * first to finish.
+     */
+    public EcsClusterMetadataCache withSharedResults(Map<String, String> sharedResults) {
+        this.sharedResults = sharedResults;
+        return this;
+    }
+
+    public static String key(String accountId, Regions region, String cluster) {
+        return accountId + "/" + region.getName() + "/" + cluster + ".json";
+    }
+
+    public EcsClusterMetadata get(String key, Supplier<EcsClusterMetadata> introspect) {
+        if (sharedResults == null) {
+            return load(key, introspect);
+        }
+        // callers adjust the metadata they get, so each one gets its own copy
+        String shared = sharedResults.computeIfAbsent(key, k -> {
+            try {
+                return MapperUtil.jsonWriter().writeValueAsString(load(k, introspect));
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        try {
+            return READER.readValue(shared);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private EcsClusterMetadata load(String key, Supplier<EcsClusterMetadata> introspect) {
+        if (store == null || ttlMillis <= 0) {
+            return introspect.get();
+        }
+
+        if (!refresh) {
+            try {
+                String cached = store.read(key, ttlMillis);
+                if (cached != null) {
+                    EcsClusterMetadata metadata = READER.readValue(cached);
+                    logger.addLogEntry("Using cached cluster metadata for " + key);
+                    logger.addLogEntry(metadata.toString());
+                    return metadata;
+                }
+            } catch (IOException | RuntimeException ex) {
+                logger.addLogEntry("Unable to read cached cluster metadata, introspecting: " + ex.getMessage());
+            }
+        }
+
+        EcsClusterMetadata metadata = introspect.get();
+        try {
+            store.write(key, MapperUtil.jsonWriter().writeValueAsString(metadata));
+        } catch (IOException | RuntimeException ex) {
+            logger.addLogEntry("Unable to cache cluster metadata: " + ex.getMessage());
+        }
+        return metadata;
+    }
+}
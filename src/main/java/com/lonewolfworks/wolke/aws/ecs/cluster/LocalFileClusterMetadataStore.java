@@ -0,0 +1,55 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.aws.ecs.cluster;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Keeps cluster metadata on the local disk, for a single build agent.
+ */
+public class LocalFileClusterMetadataStore implements ClusterMetadataStore {
+
+    private final File directory;
+
+    public LocalFileClusterMetadataStore(File directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public String read(String key, long maxAgeMillis) throws IOException {
+        Path file = Paths.get(directory.getPath(), key);
+        if (!Files.isRegularFile(file)
+            || System.currentTimeMillis() - Files.getLastModifiedTime(file).toMillis() >= maxAgeMillis) {
+            return null;
+        }
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void write(String key, String document) throws IOException {
+        Path file = Paths.get(directory.getPath(), key);
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        Files.write(temp, document.getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.aws.ecs.cluster;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.IOUtils;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.S3Object;
+
+/**
+ * Keeps cluster metadata in an S3 bucket, so CI runners share one copy.
+ */
+public class S3ClusterMetadataStore implements ClusterMetadataStore {
+
+    static final String PREFIX = "wolkezeug/cluster-metadata/";
+    private static final int NOT_FOUND = 404;
+
+    private final AmazonS3 client;
+    private final String bucket;
+
+    public S3ClusterMetadataStore(AmazonS3 client, String bucket) {
+        this.client = client;
+        this.bucket = bucket;
+    }
+
+    @Override
+    public String read(String key, long maxAgeMillis) throws IOException {
+        S3Object object;
+        try {
+            object = client.getObject(bucket, PREFIX + key);
+        } catch (AmazonServiceException ex) {
+            if (ex.getStatusCode() == NOT_FOUND) {
+                return null;
+            }
+            throw ex;
+        }
+        try {
+            long age = System.currentTimeMillis() - object.getObjectMetadata().getLastModified().getTime();
+            if (age >= maxAgeMillis) {
+                return null;
+            }
+            return IOUtils.toString(object.getObjectContent(), StandardCharsets.UTF_8);
+        } finally {
+            object.close();
+        }
+    }
+
+    @Override
+    public void write(String key, String document) {
+        client.putObject(bucket, PREFIX + key, document);
+    }
+}
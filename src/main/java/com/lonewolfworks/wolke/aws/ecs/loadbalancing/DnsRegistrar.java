@@ -20,9 +20,9 @@ import com.amazonaws.services.lambda.model.InvocationType;
 import com.amazonaws.services.lambda.model.InvokeRequest;
 import com.amazonaws.services.lambda.model.InvokeResult;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.lonewolfworks.wolke.aws.AwsExecException;
 import com.lonewolfworks.wolke.logging.HermanLogger;
+import com.lonewolfworks.wolke.util.MapperUtil;
 import org.apache.commons.lang3.StringUtils;
 
 import java.nio.charset.StandardCharsets;
@@ -61,8 +61,8 @@ public class DnsRegistrar {
             String dnsBrokerUpdatesJson = new String(invokeResult.getPayload().array(), StandardCharsets.UTF_8);
             List<String> updates;
             try {
-                updates = new ObjectMapper().readValue(dnsBrokerUpdatesJson, new TypeReference<List<String>>() {
-                });
+                updates = MapperUtil.jsonReader(new TypeReference<List<String>>() {
+                }).readValue(dnsBrokerUpdatesJson);
             } catch (Exception e) {
                 throw new RuntimeException("Unable to parse broker updates from: " + dnsBrokerUpdatesJson, e);
             }
@@ -81,7 +81,7 @@ public class DnsRegistrar {
             dnsBrokerInvokeRequest = new InvokeRequest()
                     .withFunctionName(dnsLambda)
                     .withInvocationType(InvocationType.RequestResponse)
-                    .withPayload(new ObjectMapper().writeValueAsString(dnsBrokerRequest));
+                    .withPayload(MapperUtil.jsonWriter().writeValueAsString(dnsBrokerRequest));
         } catch (Exception ex) {
             throw new AwsExecException("Error building invoke request", ex);
         }
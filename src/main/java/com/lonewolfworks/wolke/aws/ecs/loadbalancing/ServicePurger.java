@@ -19,52 +19,190 @@ import com.amazonaws.services.ecs.AmazonECS;
 import com.amazonaws.services.ecs.model.DeleteServiceRequest;
 import com.amazonaws.services.ecs.model.DescribeServicesRequest;
 import com.amazonaws.services.ecs.model.DescribeServicesResult;
+import com.amazonaws.services.ecs.model.ListClustersRequest;
+import com.amazonaws.services.ecs.model.ListClustersResult;
 import com.amazonaws.services.ecs.model.Service;
 import com.amazonaws.services.ecs.model.ServiceNotActiveException;
 import com.amazonaws.services.ecs.model.UpdateServiceRequest;
 import com.lonewolfworks.wolke.aws.AwsExecException;
+import com.lonewolfworks.wolke.aws.ecs.cluster.ClusterMetadataStore;
 import com.lonewolfworks.wolke.logging.HermanLogger;
+import com.lonewolfworks.wolke.util.AdaptiveBackoff;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 public class ServicePurger {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ServicePurger.class);
     private static final String INTERRUPTED_WHILE_POLLING = "Interrupted while polling";
+    private static final int MAX_CONCURRENT_CLUSTERS = 8;
+    private static final long WAIT_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
     private AmazonECS ecsClient;
     private HermanLogger buildLogger;
+    private ClusterMetadataStore locationStore;
+    private String locationKeyPrefix;
+    private long locationTtlMillis;
 
     public ServicePurger(AmazonECS ecsClient, HermanLogger buildLogger) {
         this.ecsClient = ecsClient;
         this.buildLogger = buildLogger;
     }
 
+    /**
+     * Remembers which cluster each app was last pushed to, so later pushes can
+     * check that cluster first. A hint is only trusted once the hinted cluster
+     * is confirmed to run the app; otherwise, or when it is older than the TTL,
+     * the full scan runs. The store must be shared by every agent that pushes,
+     * or a push made elsewhere leaves a stale hint behind.
+     */
+    public ServicePurger withLocationHints(ClusterMetadataStore store, String keyPrefix, long ttlMillis) {
+        this.locationStore = store;
+        this.locationKeyPrefix = keyPrefix;
+        this.locationTtlMillis = ttlMillis;
+        return this;
+    }
+
+    /**
+     * Runs {@link #purgeOtherClusters} on a background thread so it can overlap
+     * with the deployment to the target cluster.
+     */
+    public CompletableFuture<Void> purgeOtherClustersInBackground(String targetCluster, String serviceName) {
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "service-purge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletableFuture<Void> result = CompletableFuture.runAsync(() -> purgeOtherClusters(targetCluster, serviceName), executor);
+        result.whenComplete((ignored, error) -> executor.shutdown());
+        return result;
+    }
+
     public void purgeOtherClusters(String targetCluster, String serviceName) {
         buildLogger.addLogEntry("Checking other clusters for app");
-        List<String> clusters = ecsClient.listClusters().getClusterArns();
-        for (String clusterArn : clusters) {
-            if (!clusterArn.contains(targetCluster)) {
-                DescribeServicesResult svcsResult = ecsClient
-                    .describeServices(new DescribeServicesRequest().withCluster(clusterArn).withServices(serviceName));
-                if (!svcsResult.getServices().isEmpty()) {
-                    ServicePurger purger = new ServicePurger(ecsClient, buildLogger);
-                    buildLogger.addLogEntry("Moving app to " + targetCluster);
-                    buildLogger.addLogEntry("Clearing service from " + clusterArn);
-                    purger.shutdownAndDeleteService(clusterArn, serviceName);
+        String lastCluster = readLocation(serviceName);
+        if (lastCluster != null) {
+            // a push moves the app in one step, so a confirmed last location is the only other one
+            if (hostsService(lastCluster, serviceName)) {
+                if (isCluster(lastCluster, targetCluster)) {
+                    buildLogger.addLogEntry("... App was last pushed to " + targetCluster + " and runs there, skipping cluster scan");
+                } else {
+                    purge(Collections.singletonList(lastCluster), targetCluster, serviceName);
+                    writeLocation(serviceName, targetCluster);
                 }
+                return;
+            }
+            buildLogger.addLogEntry("... App is not running in " + lastCluster + " where it was last pushed, scanning all clusters");
+        }
+
+        List<String> candidates = listClusters().stream()
+            .filter(cluster -> !isCluster(cluster, targetCluster))
+            .collect(Collectors.toList());
+        List<String> hosting = forEachCluster(candidates, cluster -> () -> hostsService(cluster, serviceName) ? cluster : null)
+            .stream().filter(cluster -> cluster != null).collect(Collectors.toList());
+        purge(hosting, targetCluster, serviceName);
+        writeLocation(serviceName, targetCluster);
+    }
+
+    private void purge(List<String> hosting, String targetCluster, String serviceName) {
+        if (!hosting.isEmpty()) {
+            buildLogger.addLogEntry("Moving app to " + targetCluster);
+            forEachCluster(hosting, cluster -> () -> {
+                buildLogger.addLogEntry("Clearing service from " + cluster);
+                shutdownAndDeleteService(cluster, serviceName);
+                return cluster;
+            });
+        }
+    }
+
+    private boolean hostsService(String cluster, String serviceName) {
+        DescribeServicesResult svcsResult = ecsClient
+            .describeServices(new DescribeServicesRequest().withCluster(cluster).withServices(serviceName));
+        // deleted services stay visible as INACTIVE for a while
+        return svcsResult.getServices().stream().anyMatch(s -> !"INACTIVE".equalsIgnoreCase(s.getStatus()));
+    }
+
+    private static boolean isCluster(String cluster, String name) {
+        return cluster.equals(name) || cluster.endsWith("/" + name);
+    }
+
+    private List<String> listClusters() {
+        List<String> clusters = new ArrayList<>();
+        String nextToken = null;
+        do {
+            ListClustersResult page = ecsClient.listClusters(new ListClustersRequest().withNextToken(nextToken));
+            clusters.addAll(page.getClusterArns());
+            nextToken = page.getNextToken();
+        } while (nextToken != null);
+        return clusters;
+    }
+
+    private <T> List<T> forEachCluster(List<String> clusters, Function<String, Supplier<T>> work) {
+        if (clusters.isEmpty()) {
+            return new ArrayList<>();
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(MAX_CONCURRENT_CLUSTERS, clusters.size()), r -> {
+            Thread thread = new Thread(r, "service-purge-cluster");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<CompletableFuture<T>> results = clusters.stream()
+                .map(cluster -> CompletableFuture.supplyAsync(work.apply(cluster), executor))
+                .collect(Collectors.toList());
+            return results.stream().map(CompletableFuture::join).collect(Collectors.toList());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
             }
+            throw e;
+        } finally {
+            executor.shutdownNow();
         }
     }
 
+    private String readLocation(String serviceName) {
+        if (locationStore == null || locationTtlMillis <= 0) {
+            return null;
+        }
+        try {
+            String cluster = locationStore.read(locationKeyPrefix + serviceName, locationTtlMillis);
+            return cluster == null || cluster.trim().isEmpty() ? null : cluster.trim();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Unable to read last cluster for " + serviceName, e);
+            return null;
+        }
+    }
+
+    private void writeLocation(String serviceName, String targetCluster) {
+        if (locationStore == null || locationTtlMillis <= 0) {
+            return;
+        }
+        try {
+            locationStore.write(locationKeyPrefix + serviceName, targetCluster);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Unable to record cluster for " + serviceName, e);
+        }
+    }
 
     private void shutdownAndDeleteService(String cluster, String service) {
         try {
             ecsClient.updateService(
                 new UpdateServiceRequest().withService(service).withCluster(cluster).withDesiredCount(0));
             waitForShutdown(cluster, service);
-            buildLogger.addLogEntry("... Deleting app");
+            buildLogger.addLogEntry("... Deleting app from " + cluster);
             ecsClient.deleteService(new DeleteServiceRequest().withCluster(cluster).withService(service));
             waitForServiceDelete(cluster, service);
         } catch (ServiceNotActiveException e) {
@@ -75,48 +213,44 @@ public class ServicePurger {
 
 
     private void waitForShutdown(String cluster, String service) {
-        for (int i = 0; i < 60; i++) {
+        long deadline = System.currentTimeMillis() + WAIT_TIMEOUT_MILLIS;
+        AdaptiveBackoff backoff = new AdaptiveBackoff(TimeUnit.SECONDS.toMillis(2), TimeUnit.SECONDS.toMillis(10));
+        while (System.currentTimeMillis() < deadline) {
             Service s = ecsClient
                 .describeServices(new DescribeServicesRequest().withCluster(cluster).withServices(service))
                 .getServices().get(0);
             if (s.getRunningCount() == 0) {
                 return;
-            } else {
-                try {
-                    buildLogger
-                        .addLogEntry("... Waiting for shutdown to convert, still running: " + s.getRunningCount());
-                    Thread.sleep(5000);
-
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    buildLogger.addLogEntry(INTERRUPTED_WHILE_POLLING);
-                    throw new AwsExecException(INTERRUPTED_WHILE_POLLING);
-                }
             }
-
+            buildLogger
+                .addLogEntry("... Waiting for shutdown to convert in " + cluster + ", still running: " + s.getRunningCount());
+            pause(backoff, deadline);
         }
     }
 
     private void waitForServiceDelete(String cluster, String service) {
         buildLogger.addLogEntry("... Waiting for service delete");
-        for (int i = 0; i < 60; i++) {
+        long deadline = System.currentTimeMillis() + WAIT_TIMEOUT_MILLIS;
+        AdaptiveBackoff backoff = new AdaptiveBackoff(TimeUnit.SECONDS.toMillis(2), TimeUnit.SECONDS.toMillis(10));
+        while (System.currentTimeMillis() < deadline) {
             Service s = ecsClient
                 .describeServices(new DescribeServicesRequest().withCluster(cluster).withServices(service))
                 .getServices().get(0);
             buildLogger.addLogEntry("... Service state: " + s.getStatus());
             if (!("DRAINING".equalsIgnoreCase(s.getStatus()) || "ACTIVE".equalsIgnoreCase(s.getStatus()))) {
                 return;
-            } else {
-                try {
-                    Thread.sleep(5000);
-
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    buildLogger.addLogEntry(INTERRUPTED_WHILE_POLLING);
-                    throw new AwsExecException(INTERRUPTED_WHILE_POLLING);
-                }
             }
+            pause(backoff, deadline);
+        }
+    }
 
+    private void pause(AdaptiveBackoff backoff, long deadline) {
+        try {
+            backoff.sleepUntilNext(deadline);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            buildLogger.addLogEntry(INTERRUPTED_WHILE_POLLING);
+            throw new AwsExecException(INTERRUPTED_WHILE_POLLING);
         }
     }
 
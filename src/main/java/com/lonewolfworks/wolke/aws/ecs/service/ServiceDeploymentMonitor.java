@@ -0,0 +1,175 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.aws.ecs.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import com.amazonaws.services.ecs.AmazonECS;
+import com.amazonaws.services.ecs.model.DescribeServicesRequest;
+import com.amazonaws.services.ecs.model.Deployment;
+import com.amazonaws.services.ecs.model.DeploymentRolloutState;
+import com.amazonaws.services.ecs.model.Service;
+import com.amazonaws.services.ecs.model.ServiceEvent;
+import com.lonewolfworks.wolke.aws.AwsExecException;
+import com.lonewolfworks.wolke.logging.HermanLogger;
+import com.lonewolfworks.wolke.util.AdaptiveBackoff;
+
+/**
+ * Follows a single ECS service deployment, identified by the id returned from
+ * CreateService/UpdateService, until its rollout completes or fails.
+ */
+public class ServiceDeploymentMonitor {
+
+    private static final String INTERRUPTED_WHILE_POLLING = "Interrupted while polling";
+    private static final String PRIMARY = "PRIMARY";
+    private static final long INITIAL_POLL_MS = 2000;
+    private static final long MAX_POLL_MS = 15000;
+
+    private final AmazonECS ecsClient;
+    private final HermanLogger logger;
+    private final long initialPollMillis;
+    private final long maxPollMillis;
+
+    public ServiceDeploymentMonitor(AmazonECS ecsClient, HermanLogger logger) {
+        this(ecsClient, logger, INITIAL_POLL_MS, MAX_POLL_MS);
+    }
+
+    ServiceDeploymentMonitor(AmazonECS ecsClient, HermanLogger logger, long initialPollMillis, long maxPollMillis) {
+        this.ecsClient = ecsClient;
+        this.logger = logger;
+        this.initialPollMillis = initialPollMillis;
+        this.maxPollMillis = maxPollMillis;
+    }
+
+    public static String primaryDeploymentId(Service service) {
+        if (service == null) {
+            return null;
+        }
+        for (Deployment deployment : service.getDeployments()) {
+            if (PRIMARY.equals(deployment.getStatus())) {
+                return deployment.getId();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param deploymentId the deployment to follow; when null the service's current PRIMARY deployment is used
+     * @return true once the deployment has rolled out, false if it failed, was superseded or timed out
+     */
+    public boolean waitForDeployment(String cluster, String serviceName, String deploymentId, int timeoutMinutes) {
+        long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(timeoutMinutes);
+        AdaptiveBackoff backoff = new AdaptiveBackoff(initialPollMillis, maxPollMillis);
+        String trackedId = deploymentId;
+        String lastEventId = null;
+
+        while (true) {
+            List<Service> services = ecsClient.describeServices(
+                new DescribeServicesRequest().withCluster(cluster).withServices(serviceName)).getServices();
+            if (services.isEmpty()) {
+                logger.addErrorLogEntry("Service " + serviceName + " not found in " + cluster);
+                return false;
+            }
+            Service service = services.get(0);
+            if (trackedId == null) {
+                trackedId = primaryDeploymentId(service);
+                logger.addLogEntry("Tracking deployment " + trackedId);
+            }
+            Deployment deployment = findDeployment(service, trackedId);
+
+            Date since = null;
+            if (lastEventId == null) {
+                since = deployment != null ? deployment.getCreatedAt() : new Date();
+            }
+            lastEventId = logNewEvents(service.getEvents(), lastEventId, since);
+
+            if (deployment == null) {
+                logger.addErrorLogEntry("Deployment " + trackedId + " is no longer active, it was replaced by another deployment");
+                return false;
+            }
+
+            logger.addLogEntry("Deployment:" + deployment.getId() + "  Status:" + deployment.getStatus()
+                + "  Rollout:" + deployment.getRolloutState() + "  Desired:" + deployment.getDesiredCount()
+                + "  Pending:" + deployment.getPendingCount() + "  Running:" + deployment.getRunningCount()
+                + "  Failed:" + deployment.getFailedTasks());
+
+            if (DeploymentRolloutState.COMPLETED.toString().equals(deployment.getRolloutState())) {
+                logger.addLogEntry("App has stabilized");
+                return true;
+            }
+            if (DeploymentRolloutState.FAILED.toString().equals(deployment.getRolloutState())) {
+                logger.addErrorLogEntry("Deployment failed: " + deployment.getRolloutStateReason());
+                return false;
+            }
+            // Services behind a classic ELB don't report a rollout state
+            if (deployment.getRolloutState() == null && isSteady(service, deployment)) {
+                logger.addLogEntry("App has stabilized");
+                return true;
+            }
+
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            try {
+                backoff.sleepUntilNext(deadline);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AwsExecException(INTERRUPTED_WHILE_POLLING);
+            }
+        }
+    }
+
+    private Deployment findDeployment(Service service, String deploymentId) {
+        for (Deployment deployment : service.getDeployments()) {
+            if (Objects.equals(deployment.getId(), deploymentId)) {
+                return deployment;
+            }
+        }
+        return null;
+    }
+
+    private boolean isSteady(Service service, Deployment deployment) {
+        return PRIMARY.equals(deployment.getStatus())
+            && service.getDeployments().size() == 1
+            && Objects.equals(deployment.getDesiredCount(), deployment.getRunningCount())
+            && Objects.equals(deployment.getPendingCount(), 0);
+    }
+
+    /**
+     * Logs, oldest first, every event newer than the last one seen. On the first
+     * poll, events older than the deployment are skipped.
+     */
+    private String logNewEvents(List<ServiceEvent> events, String lastEventId, Date since) {
+        List<ServiceEvent> fresh = new ArrayList<>();
+        for (ServiceEvent event : events) {
+            if (Objects.equals(event.getId(), lastEventId)
+                || (since != null && event.getCreatedAt() != null && event.getCreatedAt().before(since))) {
+                break;
+            }
+            fresh.add(event);
+        }
+        Collections.reverse(fresh);
+        for (ServiceEvent event : fresh) {
+            logger.addLogEntry(event.getMessage());
+        }
+        return events.isEmpty() ? lastEventId : events.get(0).getId();
+    }
+}
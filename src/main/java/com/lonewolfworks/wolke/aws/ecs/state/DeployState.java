@@ -0,0 +1,61 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.aws.ecs.state;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fingerprints of each broker's input as of an app's last successful push.
+ */
+public class DeployState {
+    private String version;
+    private long lastFullReconcile;
+    private Map<String, String> fingerprints = new HashMap<>();
+
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    public long getLastFullReconcile() {
+        return lastFullReconcile;
+    }
+
+    public void setLastFullReconcile(long lastFullReconcile) {
+        this.lastFullReconcile = lastFullReconcile;
+    }
+
+    public Map<String, String> getFingerprints() {
+        return fingerprints;
+    }
+
+    public void setFingerprints(Map<String, String> fingerprints) {
+        this.fingerprints = fingerprints;
+    }
+
+    @Override
+    public String toString() {
+        return "DeployState{" +
+            "version='" + version + '\'' +
+            ", lastFullReconcile=" + lastFullReconcile +
+            ", fingerprints=" + fingerprints +
+            '}';
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.aws.ecs.state;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.amazonaws.regions.Regions;
+import com.amazonaws.util.BinaryUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.lonewolfworks.wolke.logging.HermanLogger;
+import com.lonewolfworks.wolke.util.MapperUtil;
+
+/**
+ * Skips brokers whose resolved input is unchanged since the app's last
+ * successful push. Every broker runs again when asked to, when the previous
+ * state was written by another version, or once the reconcile interval has
+ * passed, so drift made outside of pushes is still corrected. State is only
+ * saved once the whole push succeeded.
+ */
+public class DeployStateTracker {
+
+    private static final ObjectReader READER = MapperUtil.jsonReader(DeployState.class)
+        .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    private static final ObjectWriter FINGERPRINT_WRITER = MapperUtil.jsonWriter()
+        .with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+
+    private final DeployStateStore store;
+    private final String key;
+    private final HermanLogger logger;
+    private final String version;
+    private final Map<String, String> fingerprints = new ConcurrentHashMap<>();
+    private final DeployState previous;
+    private final boolean reconcile;
+
+    public DeployStateTracker(DeployStateStore store, String key, long reconcileIntervalMillis, boolean fullReconcile,
+                              HermanLogger logger) {
+        this(store, key, reconcileIntervalMillis, fullReconcile, logger,
+            DeployStateTracker.class.getPackage().getImplementationVersion());
+    }
+
+    DeployStateTracker(DeployStateStore store, String key, long reconcileIntervalMillis, boolean fullReconcile,
+                       HermanLogger logger, String version) {
+        this.store = store;
+        this.key = key;
+        this.logger = logger;
+        this.version = version;
+        this.previous = store == null ? null : load();
+        this.reconcile = store == null || isReconcileDue(reconcileIntervalMillis, fullReconcile);
+    }
+
+    public static String key(String accountId, Regions region, String environment, String appName) {
+        return accountId + "/" + region.getName() + "/" + environment + "/" + appName + ".json";
+    }
+
+    /**
+     * Runs the broker unless its inputs fingerprint the same as on the last push.
+     */
+    public void broker(String name, Runnable apply, Object... inputs) {
+        String fingerprint = fingerprint(name, inputs);
+        if (!reconcile && fingerprint != null && fingerprint.equals(previous.getFingerprints().get(name))) {
+            logger.addLogEntry("Skipping " + name + " broker, unchanged since the last push");
+        } else {
+            apply.run();
+        }
+        if (fingerprint != null) {
+            fingerprints.put(name, fingerprint);
+        }
+    }
+
+    /**
+     * Records the brokers of a successful push; failures are logged, not thrown.
+     */
+    public void save() {
+        if (store == null) {
+            return;
+        }
+        DeployState state = new DeployState();
+        state.setVersion(version);
+        state.setLastFullReconcile(reconcile ? System.currentTimeMillis() : previous.getLastFullReconcile());
+        state.getFingerprints().putAll(fingerprints);
+        try {
+            store.write(key, MapperUtil.jsonWriter().writeValueAsString(state));
+        } catch (IOException | RuntimeException ex) {
+            logger.addErrorLogEntry("Unable to save deploy state for " + key, ex);
+        }
+    }
+
+    private DeployState load() {
+        try {
+            String document = store.read(key);
+            return document == null ? null : READER.readValue(document);
+        } catch (IOException | RuntimeException ex) {
+            logger.addErrorLogEntry("Unable to read deploy state for " + key, ex);
+            return null;
+        }
+    }
+
+    private boolean isReconcileDue(long reconcileIntervalMillis, boolean fullReconcile) {
+        if (fullReconcile) {
+            logger.addLogEntry("Full reconcile requested, running every broker");
+            return true;
+        } else if (previous == null) {
+            logger.addLogEntry("No deploy state for " + key + ", running every broker");
+            return true;
+        } else if (!Objects.equals(previous.getVersion(), version)) {
+            logger.addLogEntry("Deploy state was written by version " + previous.getVersion() + ", running every broker");
+            return true;
+        }
+        long sinceReconcile = System.currentTimeMillis() - previous.getLastFullReconcile();
+        if (sinceReconcile >= reconcileIntervalMillis) {
+            logger.addLogEntry("Last full reconcile was " + TimeUnit.MILLISECONDS.toMinutes(sinceReconcile)
+                + " minutes ago, running every broker");
+            return true;
+        }
+        return false;
+    }
+
+    private String fingerprint(String name, Object... inputs) {
+        try {
+            byte[] canonical = FINGERPRINT_WRITER.writeValueAsString(Arrays.asList(inputs)).getBytes(StandardCharsets.UTF_8);
+            return BinaryUtils.toHex(MessageDigest.getInstance("SHA-256").digest(canonical));
+        } catch (JsonProcessingException | NoSuchAlgorithmException ex) {
+            logger.addErrorLogEntry("Unable to fingerprint " + name + " broker input, it will always run", ex);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.aws.ecs.state;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+
+/**
+ * Keeps deploy state as items of a DynamoDB table whose partition key is a
+ * string attribute named {@value #KEY}.
+ */
+public class DynamoDBDeployStateStore implements DeployStateStore {
+
+    static final String KEY = "key";
+    static final String STATE = "state";
+
+    private final AmazonDynamoDB client;
+    private final String table;
+
+    public DynamoDBDeployStateStore(AmazonDynamoDB client, String table) {
+        this.client = client;
+        this.table = table;
+    }
+
+    @Override
+    public String read(String key) {
+        GetItemResult result = client.getItem(new GetItemRequest()
+            .withTableName(table)
+            .withKey(itemKey(key))
+            .withConsistentRead(true));
+        if (result.getItem() == null || !result.getItem().containsKey(STATE)) {
+            return null;
+        }
+        return result.getItem().get(STATE).getS();
+    }
+
+    @Override
+    public void write(String key, String document) {
+        Map<String, AttributeValue> item = itemKey(key);
+        item.put(STATE, new AttributeValue(document));
+        client.putItem(table, item);
+    }
+
+    private static Map<String, AttributeValue> itemKey(String key) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put(KEY, new AttributeValue(key));
+        return item;
+    }
+}
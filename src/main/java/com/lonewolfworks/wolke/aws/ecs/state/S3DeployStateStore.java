@@ -0,0 +1,59 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.aws.ecs.state;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.IOUtils;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.S3Object;
+
+/**
+ * Keeps deploy state in an S3 bucket, so CI runners share one copy.
+ */
+public class S3DeployStateStore implements DeployStateStore {
+
+    static final String PREFIX = "wolkezeug/deploy-state/";
+    private static final int NOT_FOUND = 404;
+
+    private final AmazonS3 client;
+    private final String bucket;
+
+    public S3DeployStateStore(AmazonS3 client, String bucket) {
+        this.client = client;
+        this.bucket = bucket;
+    }
+
+    @Override
+    public String read(String key) throws IOException {
+        try (S3Object object = client.getObject(bucket, PREFIX + key)) {
+            return IOUtils.toString(object.getObjectContent(), StandardCharsets.UTF_8);
+        } catch (AmazonServiceException ex) {
+            if (ex.getStatusCode() == NOT_FOUND) {
+                return null;
+            }
+            throw ex;
+        }
+    }
+
+    @Override
+    public void write(String key, String document) {
+        client.putObject(bucket, PREFIX + key, document);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.aws.lambda;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.services.lambda.AWSLambda;
+import com.amazonaws.services.lambda.model.AliasRoutingConfiguration;
+import com.amazonaws.services.lambda.model.CreateAliasRequest;
+import com.amazonaws.services.lambda.model.DeleteProvisionedConcurrencyConfigRequest;
+import com.amazonaws.services.lambda.model.GetAliasRequest;
+import com.amazonaws.services.lambda.model.GetProvisionedConcurrencyConfigRequest;
+import com.amazonaws.services.lambda.model.GetProvisionedConcurrencyConfigResult;
+import com.amazonaws.services.lambda.model.ProvisionedConcurrencyConfigNotFoundException;
+import com.amazonaws.services.lambda.model.PutProvisionedConcurrencyConfigRequest;
+import com.amazonaws.services.lambda.model.ResourceNotFoundException;
+import com.amazonaws.services.lambda.model.UpdateAliasRequest;
+import com.lonewolfworks.wolke.aws.AwsExecException;
+import com.lonewolfworks.wolke.logging.HermanLogger;
+
+/**
+ * Points a function alias at a newly published version, optionally shifting
+ * traffic over in weighted steps, and keeps provisioned concurrency at the
+ * configured level on the version the alias serves.
+ */
+public class LambdaAliasBroker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LambdaAliasBroker.class);
+    private static final String LATEST = "$LATEST";
+
+    private final AWSLambda lambdaClient;
+    private final LambdaUpdateWaiter waiter;
+    private final HermanLogger buildLogger;
+
+    public LambdaAliasBroker(AWSLambda lambdaClient, LambdaUpdateWaiter waiter, HermanLogger buildLogger) {
+        this.lambdaClient = lambdaClient;
+        this.waiter = waiter;
+        this.buildLogger = buildLogger;
+    }
+
+    /**
+     * Fails fast on settings that only make sense with an alias, before
+     * anything is pushed.
+     */
+    public static void validate(LambdaInjectConfiguration configuration) {
+        if (configuration.getAlias() == null) {
+            if (configuration.getProvisionedConcurrency() != null) {
+                throw new AwsExecException("provisionedConcurrency requires an alias");
+            }
+            if (configuration.getAliasShift() != null) {
+                throw new AwsExecException("aliasShift requires an alias");
+            }
+        }
+        LambdaAliasShift shift = configuration.getAliasShift();
+        if (shift != null && shift.getWeights() != null) {
+            for (Integer weight : shift.getWeights()) {
+                if (weight == null || weight < 1 || weight > 99) {
+                    throw new AwsExecException("aliasShift weights must be between 1 and 99, got " + weight);
+                }
+            }
+        }
+    }
+
+    public void brokerAlias(LambdaInjectConfiguration configuration, String version) {
+        String functionName = configuration.getFunctionName();
+        String alias = configuration.getAlias();
+        Integer requested = configuration.getProvisionedConcurrency();
+        String previousVersion = getAliasVersion(functionName, alias);
+
+        // Provisioned concurrency is kept on the published version rather than the alias (Lambda
+        // will not hold it on both), so the new version is warm before the alias sends it traffic
+        if (requested != null) {
+            removeProvisionedConcurrency(functionName, alias);
+            brokerProvisionedConcurrency(functionName, version, requested);
+        }
+
+        if (previousVersion == null) {
+            buildLogger.addLogEntry("Creating alias " + alias + " for version " + version);
+            lambdaClient.createAlias(new CreateAliasRequest()
+                    .withFunctionName(functionName)
+                    .withName(alias)
+                    .withFunctionVersion(version));
+            return;
+        } else if (version.equals(previousVersion)) {
+            buildLogger.addLogEntry("Alias " + alias + " already points at version " + version);
+            return;
+        }
+
+        LambdaAliasShift shift = configuration.getAliasShift();
+        if (shift != null && shift.getWeights() != null && !LATEST.equals(previousVersion)) {
+            for (Integer weight : shift.getWeights()) {
+                buildLogger.addLogEntry(String.format("Shifting %d%% of %s traffic from version %s to %s",
+                        weight, alias, previousVersion, version));
+                updateAlias(functionName, alias, previousVersion, new AliasRoutingConfiguration()
+                        .withAdditionalVersionWeights(Collections.singletonMap(version, weight / 100.0)));
+                hold(shift.getIntervalSeconds());
+            }
+        }
+
+        buildLogger.addLogEntry("Pointing alias " + alias + " at version " + version);
+        updateAlias(functionName, alias, version, new AliasRoutingConfiguration()
+                .withAdditionalVersionWeights(Collections.emptyMap()));
+
+        // the previous version keeps its concurrency until it stops taking traffic
+        if (requested != null && !LATEST.equals(previousVersion)) {
+            removeProvisionedConcurrency(functionName, previousVersion);
+        }
+    }
+
+    private String getAliasVersion(String functionName, String alias) {
+        try {
+            return lambdaClient.getAlias(new GetAliasRequest().withFunctionName(functionName).withName(alias))
+                    .getFunctionVersion();
+        } catch (ResourceNotFoundException ex) {
+            LOGGER.debug("Alias not found: " + functionName + ":" + alias, ex);
+            return null;
+        }
+    }
+
+    private void updateAlias(String functionName, String alias, String version, AliasRoutingConfiguration routing) {
+        lambdaClient.updateAlias(new UpdateAliasRequest()
+                .withFunctionName(functionName)
+                .withName(alias)
+                .withFunctionVersion(version)
+                .withRoutingConfig(routing));
+    }
+
+    private void brokerProvisionedConcurrency(String functionName, String version, Integer requested) {
+        if (requested == 0) {
+            removeProvisionedConcurrency(functionName, version);
+            return;
+        }
+
+        GetProvisionedConcurrencyConfigResult current = getProvisionedConcurrency(functionName, version);
+        if (current == null || !requested.equals(current.getRequestedProvisionedConcurrentExecutions())) {
+            buildLogger.addLogEntry("Setting provisioned concurrency on version " + version + " to " + requested);
+            lambdaClient.putProvisionedConcurrencyConfig(new PutProvisionedConcurrencyConfigRequest()
+                    .withFunctionName(functionName)
+                    .withQualifier(version)
+                    .withProvisionedConcurrentExecutions(requested));
+        }
+        waiter.awaitProvisionedConcurrency(functionName, version);
+    }
+
+    private void removeProvisionedConcurrency(String functionName, String qualifier) {
+        if (getProvisionedConcurrency(functionName, qualifier) != null) {
+            buildLogger.addLogEntry("Removing provisioned concurrency from " + qualifier);
+            lambdaClient.deleteProvisionedConcurrencyConfig(new DeleteProvisionedConcurrencyConfigRequest()
+                    .withFunctionName(functionName)
+                    .withQualifier(qualifier));
+        }
+    }
+
+    private GetProvisionedConcurrencyConfigResult getProvisionedConcurrency(String functionName, String qualifier) {
+        try {
+            return lambdaClient.getProvisionedConcurrencyConfig(new GetProvisionedConcurrencyConfigRequest()
+                    .withFunctionName(functionName)
+                    .withQualifier(qualifier));
+        } catch (ProvisionedConcurrencyConfigNotFoundException ex) {
+            LOGGER.debug("No provisioned concurrency on " + functionName + ":" + qualifier, ex);
+            return null;
+        }
+    }
+
+    private void hold(Integer intervalSeconds) {
+        try {
+            TimeUnit.SECONDS.sleep(intervalSeconds == null ? 0 : intervalSeconds);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new AwsExecException(ex);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.aws.lambda;
+
+import java.util.List;
+
+/**
+ * Gradual move of an alias to a newly published version. Each weight is the
+ * percentage of traffic sent to the new version, held for the interval before
+ * moving on; the alias points fully at the new version after the last one.
+ */
+public class LambdaAliasShift {
+
+    private List<Integer> weights;
+    private Integer intervalSeconds = 60;
+
+    public List<Integer> getWeights() {
+        return weights;
+    }
+
+    public void setWeights(List<Integer> weights) {
+        this.weights = weights;
+    }
+
+    public Integer getIntervalSeconds() {
+        return intervalSeconds;
+    }
+
+    public void setIntervalSeconds(Integer intervalSeconds) {
+        this.intervalSeconds = intervalSeconds;
+    }
+
+    public LambdaAliasShift withWeights(final List<Integer> weights) {
+        this.weights = weights;
+        return this;
+    }
+
+    public LambdaAliasShift withIntervalSeconds(final Integer intervalSeconds) {
+        this.intervalSeconds = intervalSeconds;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "LambdaAliasShift{" +
+                "weights=" + weights +
+                ", intervalSeconds=" + intervalSeconds +
+                '}';
+    }
+}
@@ -15,13 +15,8 @@
  */
 package com.lonewolfworks.wolke.aws.lambda;
 
-import static java.lang.Math.toIntExact;
-
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -34,20 +29,11 @@ import org.apache.commons.lang3.BooleanUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.cloudwatchevents.AmazonCloudWatchEvents;
-import com.amazonaws.services.cloudwatchevents.AmazonCloudWatchEventsClientBuilder;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
-import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
-import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
-import com.amazonaws.services.dynamodbv2.model.Projection;
-import com.amazonaws.services.dynamodbv2.model.StreamSpecification;
 import com.amazonaws.services.ec2.AmazonEC2;
-import com.amazonaws.services.ec2.AmazonEC2ClientBuilder;
 import com.amazonaws.services.ec2.model.AmazonEC2Exception;
 import com.amazonaws.services.ec2.model.CreateSecurityGroupRequest;
 import com.amazonaws.services.ec2.model.CreateSecurityGroupResult;
@@ -57,56 +43,46 @@ import com.amazonaws.services.ec2.model.DescribeSecurityGroupsResult;
 import com.amazonaws.services.ec2.model.Filter;
 import com.amazonaws.services.ecs.model.KeyValuePair;
 import com.amazonaws.services.identitymanagement.AmazonIdentityManagement;
-import com.amazonaws.services.identitymanagement.AmazonIdentityManagementClientBuilder;
 import com.amazonaws.services.identitymanagement.model.Role;
 import com.amazonaws.services.kinesis.AmazonKinesis;
-import com.amazonaws.services.kinesis.AmazonKinesisClientBuilder;
 import com.amazonaws.services.kms.AWSKMS;
-import com.amazonaws.services.kms.AWSKMSClientBuilder;
 import com.amazonaws.services.kms.model.Tag;
 import com.amazonaws.services.lambda.AWSLambda;
-import com.amazonaws.services.lambda.AWSLambdaClientBuilder;
-import com.amazonaws.services.lambda.model.AddPermissionRequest;
 import com.amazonaws.services.lambda.model.CreateFunctionRequest;
 import com.amazonaws.services.lambda.model.CreateFunctionResult;
 import com.amazonaws.services.lambda.model.Environment;
+import com.amazonaws.services.lambda.model.EphemeralStorage;
 import com.amazonaws.services.lambda.model.FunctionCode;
 import com.amazonaws.services.lambda.model.GetFunctionConfigurationRequest;
 import com.amazonaws.services.lambda.model.GetFunctionConfigurationResult;
 import com.amazonaws.services.lambda.model.GetFunctionRequest;
 import com.amazonaws.services.lambda.model.GetFunctionResult;
-import com.amazonaws.services.lambda.model.GetPolicyRequest;
-import com.amazonaws.services.lambda.model.GetPolicyResult;
 import com.amazonaws.services.lambda.model.PublishVersionRequest;
 import com.amazonaws.services.lambda.model.PublishVersionResult;
-import com.amazonaws.services.lambda.model.RemovePermissionRequest;
+import com.amazonaws.services.lambda.model.PutFunctionConcurrencyRequest;
 import com.amazonaws.services.lambda.model.ResourceNotFoundException;
+import com.amazonaws.services.lambda.model.SnapStart;
+import com.amazonaws.services.lambda.model.SnapStartApplyOn;
 import com.amazonaws.services.lambda.model.TagResourceRequest;
-import com.amazonaws.services.lambda.model.UpdateFunctionCodeRequest;
 import com.amazonaws.services.lambda.model.UpdateFunctionConfigurationRequest;
 import com.amazonaws.services.lambda.model.UpdateFunctionConfigurationResult;
 import com.amazonaws.services.lambda.model.VpcConfig;
+import com.amazonaws.services.resourcegroupstaggingapi.AWSResourceGroupsTaggingAPI;
+import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.secretsmanager.AWSSecretsManager;
-import com.amazonaws.services.secretsmanager.AWSSecretsManagerClientBuilder;
 import com.amazonaws.services.sns.AmazonSNS;
-import com.amazonaws.services.sns.AmazonSNSClientBuilder;
 import com.amazonaws.services.sqs.AmazonSQS;
-import com.amazonaws.services.sqs.AmazonSQSClientBuilder;
 import com.amazonaws.util.IOUtils;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.lonewolfworks.wolke.aws.AwsClientRegistry;
 import com.lonewolfworks.wolke.aws.AwsExecException;
-import com.lonewolfworks.wolke.aws.credentials.CredentialsHandler;
 import com.lonewolfworks.wolke.aws.ecs.PushType;
+import com.lonewolfworks.wolke.aws.ecs.broker.BrokerExecutionGraph;
 import com.lonewolfworks.wolke.aws.ecs.broker.cloudwatch.CloudWatchEventsBroker;
 import com.lonewolfworks.wolke.aws.ecs.broker.dynamodb.DynamoDBBroker;
-import com.lonewolfworks.wolke.aws.ecs.broker.dynamodb.DynamoDBMixIns;
 import com.lonewolfworks.wolke.aws.ecs.broker.iam.IAMBroker;
 import com.lonewolfworks.wolke.aws.ecs.broker.kinesis.KinesisBroker;
-import com.lonewolfworks.wolke.aws.ecs.broker.kinesis.KinesisStream;
 import com.lonewolfworks.wolke.aws.ecs.broker.kms.KmsBroker;
 import com.lonewolfworks.wolke.aws.ecs.broker.secretsmgr.SecretsManagerBroker;
 import com.lonewolfworks.wolke.aws.ecs.broker.sns.SnsBroker;
@@ -118,6 +94,7 @@ import com.lonewolfworks.wolke.aws.tags.TagUtil;
 import com.lonewolfworks.wolke.logging.HermanLogger;
 import com.lonewolfworks.wolke.task.common.CommonTaskProperties;
 import com.lonewolfworks.wolke.util.FileUtil;
+import com.lonewolfworks.wolke.util.MapperUtil;
 
 public class LambdaBroker {
 
@@ -125,6 +102,7 @@ public class LambdaBroker {
     private static final String LAMBDA_TEMPLATE_JSON = "lambda_template.json";
     private static final String LAMBDA_TEMPLATE_YML = "lambda_template.yml";
     private static final String LAMBDA_EXECUTION_PERMISSION = "lambda-execution-permission.json";
+    private static final int BROKER_PARALLELISM = 4;
 
     private LambdaPushContext context;
     private HermanLogger buildLogger;
@@ -140,15 +118,13 @@ public class LambdaBroker {
     private AWSCredentials credentials;
     private Regions region;
     private AmazonKinesis kinesisClient;
+    private AWSResourceGroupsTaggingAPI resourceTaggingClient;
     private AmazonSQS sqsClient;
     private AmazonSNS snsClient;
     private AmazonDynamoDB dynamoDbClient;
     private AmazonCloudWatchEvents cloudWatchEventsClient;
     private AWSSecretsManager secretsManagerClient;
 
-
-    private ObjectMapper mapper = new ObjectMapper();
-
     public LambdaBroker(LambdaPushContext context, HermanLogger buildLogger, Regions region) {
         this.context = context;
         this.buildLogger = buildLogger;
@@ -158,68 +134,26 @@ public class LambdaBroker {
         this.region = region;
 
         credentials = this.context.getSessionCredentials();
-        ClientConfiguration config = CredentialsHandler.getConfiguration();
-
-        this.lambdaClient = AWSLambdaClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(credentials))
-                .withClientConfiguration(config)
-                .withRegion(region)
-                .build();
-
-        this.iamClient = AmazonIdentityManagementClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(credentials))
-                .withClientConfiguration(config)
-                .withRegion(region)
-                .build();
-
-        this.kmsClient = AWSKMSClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(credentials))
-                .withClientConfiguration(config)
-                .withRegion(region)
-                .build();
-
-        this.ec2Client = AmazonEC2ClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(credentials))
-                .withClientConfiguration(config)
-                .withRegion(region)
-                .build();
-
-        this.sqsClient = AmazonSQSClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(context.getSessionCredentials()))
-                .withClientConfiguration(config)
-                .withRegion(region)
-                .build();
-
-        this.snsClient = AmazonSNSClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(context.getSessionCredentials()))
-                .withClientConfiguration(config)
-                .withRegion(region)
-                .build();
-
-        this.dynamoDbClient = AmazonDynamoDBClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(context.getSessionCredentials()))
-                .withClientConfiguration(config)
-                .withRegion(region)
-                .build();
-
-        this.kinesisClient = AmazonKinesisClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(context.getSessionCredentials()))
-                .withClientConfiguration(config)
-                .withRegion(region)
-                .build();
-
-        this.cloudWatchEventsClient = AmazonCloudWatchEventsClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(context.getSessionCredentials()))
-                .withClientConfiguration(config)
-                .withRegion(region)
-                .build();
-
-        this.secretsManagerClient = AWSSecretsManagerClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(context.getSessionCredentials()))
-                .withClientConfiguration(config).withRegion(region).build();
+        AwsClientRegistry clients = AwsClientRegistry.getInstance();
+
+        this.lambdaClient = clients.lambda(credentials, region);
+        this.iamClient = clients.iam(credentials, region);
+        this.kmsClient = clients.kms(credentials, region);
+        this.ec2Client = clients.ec2(credentials, region);
+        this.sqsClient = clients.sqs(credentials, region);
+        this.snsClient = clients.sns(credentials, region);
+        this.dynamoDbClient = clients.dynamoDb(credentials, region);
+        this.kinesisClient = clients.kinesis(credentials, region);
+        this.resourceTaggingClient = clients.resourceTagging(credentials, region);
+        this.cloudWatchEventsClient = clients.cloudWatchEvents(credentials, region);
+        this.secretsManagerClient = clients.secretsManager(credentials, region);
     }
 
     public void brokerLambda() throws IOException {
+        LambdaAliasBroker.validate(this.configuration);
+        LambdaLayerBroker.validate(this.configuration);
+        SnapStart snapStart = getSnapStart();
+
         List<Tag> tags = new ArrayList<>();
         tags.add(new Tag().withTagKey(this.taskProperties.getSbuTagKey()).withTagValue(this.taskProperties.getSbu()));
         tags.add(new Tag().withTagKey(this.taskProperties.getOrgTagKey()).withTagValue(this.taskProperties.getOrg()));
@@ -230,17 +164,23 @@ public class LambdaBroker {
             tagMap.putAll(TagUtil.hermanToMap(this.configuration.getTags()));
         }
         // Create/Update custom security group if needed
-        String customSecurityGroupId = getCustomSecurityGroupId(tagMap);
+        String customSecurityGroupId = getCustomSecurityGroupId();
 
         String functionArn;
+        String currentCodeSha256;
+        List<String> currentArchitectures;
         try {
             GetFunctionConfigurationResult describeResult = lambdaClient.getFunctionConfiguration(
                     new GetFunctionConfigurationRequest().withFunctionName(this.configuration.getFunctionName())
             );
             functionArn = describeResult.getFunctionArn();
+            currentCodeSha256 = describeResult.getCodeSha256();
+            currentArchitectures = describeResult.getArchitectures();
         } catch (ResourceNotFoundException ex) {
             LOGGER.debug("Function not found: " + this.configuration.getFunctionName(), ex);
             functionArn = null;
+            currentCodeSha256 = null;
+            currentArchitectures = null;
         }
 
         this.buildLogger.addLogEntry("Brokering execution role with name: " + this.configuration.getFunctionName());
@@ -259,31 +199,36 @@ public class LambdaBroker {
         Role executionRole = iamBroker.brokerAppRole(this.iamClient, this.configuration, policy, rolePath, "", TagUtil.hermanToIamTags(this.configuration.getTags()), this.context.getBambooPropertyHandler(), credentials, this.configuration.getUseEdge() ? PushType.LAMBDAEDGE : PushType.LAMBDA);
         this.context.getBambooPropertyHandler().addProperty("app.iam", executionRole.getArn());
 
-        FunctionCode functionCode;
+        LambdaCodePackage codePackage;
         try {
-            FileInputStream zipInputStream = fileUtil.findfileAsInputStream(this.configuration.getZipFileName());
-            FileChannel zipInputChannel = zipInputStream.getChannel();
-            ByteBuffer code = ByteBuffer.allocate(toIntExact(zipInputChannel.size()));
-            zipInputChannel.read(code);
-            code.rewind();
-            functionCode = new FunctionCode().withZipFile(code);
-            zipInputChannel.close();
+            codePackage = LambdaCodePackage.of(new File(this.context.getRootPath(), this.configuration.getZipFileName()));
         } catch (IOException ex) {
             buildLogger.addLogEntry("Failed to read zip file: " + this.configuration.getZipFileName());
             throw new AwsExecException(ex);
         }
 
+        List<String> layers = brokerLayers();
+        EphemeralStorage ephemeralStorage = this.configuration.getEphemeralStorage() == null ? null
+                : new EphemeralStorage().withSize(this.configuration.getEphemeralStorage());
+        List<String> architectures = this.configuration.getArchitectures();
         VpcConfig vpcConfig = getVpcConfig(customSecurityGroupId);
         Environment environment = getEnvironment();
+        // the key policy may name a new execution role as a principal
+        if (iamBroker.getPropagationTracker().hasCreatedRoles()) {
+            iamBroker.getPropagationTracker().awaitPropagation(this.iamClient);
+        }
         String kmsKeyArn = brokerKms(tags);
         brokerSecretsManager(this.configuration, kmsKeyArn);
+        iamBroker.getPropagationTracker().awaitPropagation(this.iamClient);
 
-        if (functionArn == null && functionCode != null) {
+        String functionName = this.configuration.getFunctionName();
+        LambdaUpdateWaiter waiter = new LambdaUpdateWaiter(lambdaClient, buildLogger);
+        if (functionArn == null) {
             buildLogger.addLogEntry("Pushing new Lambda");
 
             CreateFunctionRequest createRequest = new CreateFunctionRequest()
-                    .withCode(functionCode)
-                    .withFunctionName(this.configuration.getFunctionName())
+                    .withCode(functionCode(codePackage))
+                    .withFunctionName(functionName)
                     .withHandler(this.configuration.getHandler())
                     .withRole(executionRole.getArn())
                     .withRuntime(this.configuration.getRuntime())
@@ -292,19 +237,20 @@ public class LambdaBroker {
                     .withVpcConfig(vpcConfig)
                     .withMemorySize(this.configuration.getMemorySize())
                     .withEnvironment(environment)
-                    .withKMSKeyArn(kmsKeyArn);
+                    .withKMSKeyArn(kmsKeyArn)
+                    .withSnapStart(snapStart)
+                    .withArchitectures(architectures)
+                    .withEphemeralStorage(ephemeralStorage)
+                    .withLayers(layers);
 
             CreateFunctionResult result = lambdaClient.createFunction(createRequest);
+            waiter.awaitSettled(functionName);
             buildLogger.addLogEntry("Lambda created: " + result.getFunctionName());
-        } else if (functionArn != null && functionCode != null) {
+        } else {
             buildLogger.addLogEntry("Lambda exists, attempting update...");
 
-            UpdateFunctionCodeRequest updateFunctionCode = new UpdateFunctionCodeRequest()
-                    .withFunctionName(this.configuration.getFunctionName())
-                    .withZipFile(functionCode.getZipFile());
-
             UpdateFunctionConfigurationRequest updateFunctionConfiguration = new UpdateFunctionConfigurationRequest()
-                    .withFunctionName(this.configuration.getFunctionName())
+                    .withFunctionName(functionName)
                     .withHandler(this.configuration.getHandler())
                     .withRole(executionRole.getArn())
                     .withRuntime(this.configuration.getRuntime())
@@ -312,74 +258,121 @@ public class LambdaBroker {
                     .withVpcConfig(vpcConfig)
                     .withMemorySize(this.configuration.getMemorySize())
                     .withEnvironment(environment)
-                    .withKMSKeyArn(kmsKeyArn);
+                    .withKMSKeyArn(kmsKeyArn)
+                    .withSnapStart(snapStart)
+                    .withEphemeralStorage(ephemeralStorage)
+                    .withLayers(layers);
 
-            TagResourceRequest tagRequest = new TagResourceRequest()
+            // tagging is not an update, so it does not have to wait for one to settle
+            lambdaClient.tagResource(new TagResourceRequest()
                     .withResource(functionArn)
-                    .withTags(tagMap);
+                    .withTags(tagMap));
 
+            // the architecture can only be changed along with the code
+            boolean architecturesChanged = architectures != null && !architectures.equals(currentArchitectures);
+            if (codePackage.matches(currentCodeSha256) && !architecturesChanged) {
+                buildLogger.addLogEntry("... Code unchanged (" + currentCodeSha256 + "), skipping code update");
+            } else {
+                FunctionCode code = functionCode(codePackage);
+                waiter.update(functionName, () -> lambdaClient.updateFunctionCode(
+                        LambdaCodePackage.updateRequest(functionName, code).withArchitectures(architectures)));
+            }
             buildLogger.addLogEntry("... Updating with configuration: " + updateFunctionConfiguration);
-            lambdaClient.updateFunctionCode(updateFunctionCode);
-            UpdateFunctionConfigurationResult configurationResult = lambdaClient.updateFunctionConfiguration(updateFunctionConfiguration);
-            lambdaClient.tagResource(tagRequest);
+            UpdateFunctionConfigurationResult configurationResult = waiter.update(functionName,
+                    () -> lambdaClient.updateFunctionConfiguration(updateFunctionConfiguration));
 
             buildLogger.addLogEntry("Lambda updated: " + configurationResult.getFunctionName());
         }
 
-        if (BooleanUtils.isTrue(this.configuration.getPublishVersion())) {
-            publishLambda();
-        }
-
-        try {
-            buildLogger.addLogEntry("... Resetting execution permissions");
-            List<String> sidsToRemove = getExistingExecutionPermissionSids();
-            if (!sidsToRemove.isEmpty()) {
-                for (String sid : sidsToRemove) {
-                    RemovePermissionRequest removeExistingPerms = new RemovePermissionRequest()
-                            .withFunctionName(this.configuration.getFunctionName())
-                            .withStatementId(sid);
-                    lambdaClient.removePermission(removeExistingPerms);
-                }
-            }
-        } catch (ResourceNotFoundException ex) {
-            LOGGER.debug("Function not found: " + this.configuration.getFunctionName(), ex);
-            buildLogger.addLogEntry("Unable to reset permissions, skipping...");
+        if (this.configuration.getReservedConcurrency() != null) {
+            buildLogger.addLogEntry("... Setting reserved concurrency to " + this.configuration.getReservedConcurrency());
+            lambdaClient.putFunctionConcurrency(new PutFunctionConcurrencyRequest()
+                    .withFunctionName(functionName)
+                    .withReservedConcurrentExecutions(this.configuration.getReservedConcurrency()));
         }
 
-        List<LambdaPermission> permissions = getExecutionPermission();
-        if (!permissions.isEmpty()) {
-            buildLogger.addLogEntry("Adding new execution permission");
-
-            for (int i = 0; i < permissions.size(); i++) {
-                LambdaPermission permission = permissions.get(i);
-                if (permission != null) {
-                    String sid = Optional.ofNullable(permission.getSid()).orElse(this.configuration.getFunctionName() + "-InvokePermission-" + i);
-                    AddPermissionRequest permissionRequest = new AddPermissionRequest()
-                            .withFunctionName(this.configuration.getFunctionName())
-                            .withAction(permission.getAction())
-                            .withPrincipal(permission.getPrincipal())
-                            .withEventSourceToken(permission.getEventSourceToken())
-                            .withStatementId(sid)
-                            .withQualifier(permission.getQualifier()).withSourceArn(permission.getSourceArn());
-
-                    lambdaClient.addPermission(permissionRequest);
-                }
+        if (BooleanUtils.isTrue(this.configuration.getPublishVersion()) || this.configuration.getAlias() != null) {
+            String version = publishLambda(waiter);
+            if (this.configuration.getAlias() != null) {
+                new LambdaAliasBroker(lambdaClient, waiter, buildLogger).brokerAlias(this.configuration, version);
             }
         }
 
         buildLogger.addLogEntry("Lambda pushed");
-        GetFunctionResult output = lambdaClient.getFunction(new GetFunctionRequest().withFunctionName(this.configuration.getFunctionName()));
+        GetFunctionResult output = lambdaClient.getFunction(new GetFunctionRequest().withFunctionName(functionName));
         if (this.configuration.getUseKms()) {
             buildLogger.addLogEntry("Pushed lambda with kms key " + output.getConfiguration().getKMSKeyArn());
         }
         buildLogger.addLogEntry(output.getConfiguration().toString());
         buildLogger.addLogEntry(context.toString());
 
-        brokerSns(this.configuration);
-        brokerSqs(this.configuration);
-        brokerKinesisStream(this.configuration);
-        brokerDynamoDB(this.configuration);
-        brokerScheduledRule(this.configuration, output);
+        // none of these depend on each other, only on the function existing
+        BrokerExecutionGraph graph = new BrokerExecutionGraph(buildLogger, BROKER_PARALLELISM);
+        graph.addBroker("permissions", upstream -> {
+            new LambdaPermissionReconciler(lambdaClient, buildLogger, functionName).reconcile(getExecutionPermission());
+            return null;
+        });
+        graph.addBroker("security-group-tags", upstream -> {
+            tagCustomSecurityGroup(customSecurityGroupId, tagMap);
+            return null;
+        });
+        graph.addBroker("sns", upstream -> {
+            brokerSns(this.configuration);
+            return null;
+        });
+        graph.addBroker("sqs", upstream -> {
+            brokerSqs(this.configuration);
+            return null;
+        });
+        graph.addBroker("kinesis", upstream -> {
+            brokerKinesisStream(this.configuration);
+            return null;
+        });
+        graph.addBroker("dynamodb", upstream -> {
+            brokerDynamoDB(this.configuration);
+            return null;
+        });
+        graph.addBroker("scheduled-rule", upstream -> {
+            brokerScheduledRule(this.configuration, output);
+            return null;
+        });
+        graph.execute();
+    }
+
+    private FunctionCode functionCode(LambdaCodePackage codePackage) throws IOException {
+        return codePackage.toFunctionCode(codeS3Client(), context.getCodeBucket(), context.getCodeUploadThresholdBytes(),
+                buildLogger);
+    }
+
+    private AmazonS3 codeS3Client() {
+        return context.getCodeBucket() == null ? null : AwsClientRegistry.getInstance().s3(credentials, region);
+    }
+
+    /**
+     * Publishes changed local layers and returns the function's layer ARNs,
+     * local layers first, or null when the template does not manage layers.
+     */
+    private List<String> brokerLayers() throws IOException {
+        if (this.configuration.getLocalLayers() == null && this.configuration.getLayers() == null) {
+            return null;
+        }
+        List<String> layerArns = new ArrayList<>();
+        if (this.configuration.getLocalLayers() != null) {
+            LambdaLayerBroker layerBroker = new LambdaLayerBroker(lambdaClient, codeS3Client(), context.getCodeBucket(),
+                    context.getCodeUploadThresholdBytes(), buildLogger);
+            for (LambdaLayer layer : this.configuration.getLocalLayers()) {
+                LambdaCodePackage layerPackage = LambdaCodePackage.of(new File(this.context.getRootPath(), layer.getZipFileName()));
+                List<String> runtimes = Optional.ofNullable(layer.getCompatibleRuntimes())
+                        .orElse(Collections.singletonList(this.configuration.getRuntime()));
+                List<String> architectures = Optional.ofNullable(layer.getCompatibleArchitectures())
+                        .orElse(this.configuration.getArchitectures());
+                layerArns.add(layerBroker.brokerLayer(layer, layerPackage, runtimes, architectures));
+            }
+        }
+        if (this.configuration.getLayers() != null) {
+            layerArns.addAll(this.configuration.getLayers());
+        }
+        return layerArns;
     }
 
     private Environment getEnvironment() {
@@ -406,7 +399,7 @@ public class LambdaBroker {
         return vpcConfig;
     }
 
-    private String getCustomSecurityGroupId(Map<String, String> tagMap) {
+    private String getCustomSecurityGroupId() {
         // Create a custom security group if needed
         String customSecurityGroupId = null;
         if (this.configuration.getCustomSecurityGroup() != null) {
@@ -434,36 +427,19 @@ public class LambdaBroker {
             } catch (AmazonEC2Exception ex) {
                 throw new AwsExecException("Error getting security group", ex);
             }
+        }
+        return customSecurityGroupId;
+    }
 
-            this.buildLogger.addLogEntry("... Updating tags");
+    private void tagCustomSecurityGroup(String customSecurityGroupId, Map<String, String> tagMap) {
+        if (customSecurityGroupId != null) {
+            this.buildLogger.addLogEntry("... Updating security group tags");
             ec2Client.createTags(new CreateTagsRequest()
                     .withResources(customSecurityGroupId)
                     .withTags(tagMap.entrySet().stream()
                             .map(entry -> new com.amazonaws.services.ec2.model.Tag().withKey(entry.getKey()).withValue(entry.getValue()))
                             .collect(Collectors.toList())));
         }
-        return customSecurityGroupId;
-    }
-
-    private List<String> getExistingExecutionPermissionSids() {
-        final GetPolicyResult executionPolicyResult = lambdaClient
-                .getPolicy(new GetPolicyRequest().withFunctionName(this.configuration.getFunctionName()));
-        if (executionPolicyResult == null) {
-            buildLogger.addLogEntry("Unable to find existing execution policy");
-            return Collections.emptyList();
-        }
-        try {
-            final JsonNode executionStatements = this.mapper.readTree(executionPolicyResult.getPolicy())
-                    .get("Statement");
-            final TypeReference<List<JsonNode>> listRef = new TypeReference<List<JsonNode>>() {
-            };
-            List<JsonNode> statements = mapper.readValue(executionStatements.toString(), listRef);
-            return statements.stream().map(it -> it.get("Sid").textValue()).collect(Collectors.toList());
-        } catch (IOException e) {
-            LOGGER.debug("Unable to parse existing execution policy", e);
-            buildLogger.addLogEntry("Unable to parse existing execution policy");
-            return Collections.emptyList();
-        }
     }
 
     private List<LambdaPermission> getExecutionPermission() {
@@ -475,12 +451,12 @@ public class LambdaBroker {
                 final TypeReference<List<LambdaPermission>> listRef = new TypeReference<List<LambdaPermission>>() {
                 };
                 try {
-                    return this.mapper.readValue(mappedPermissionString, listRef);
+                    return MapperUtil.jsonReader(listRef).readValue(mappedPermissionString);
                 } catch (JsonMappingException jsonEx) {
                     buildLogger.addErrorLogEntry(
                             "DEPRECATION WARNING: Singleton permissions are deprecated, please pass execution permissions as an array.");
-                    LambdaPermission singletonPermission = this.mapper
-                            .readValue(mappedPermissionString, LambdaPermission.class);
+                    LambdaPermission singletonPermission = MapperUtil.jsonReader(LambdaPermission.class)
+                            .readValue(mappedPermissionString);
                     return Collections.singletonList(singletonPermission);
                 } catch (Exception ex) {
                     buildLogger.addErrorLogEntry("Error parsing permissions", ex);
@@ -495,9 +471,25 @@ public class LambdaBroker {
         return Collections.emptyList();
     }
 
-    private void publishLambda() {
-        PublishVersionResult publishVersionResult = lambdaClient.publishVersion(new PublishVersionRequest().withFunctionName(this.configuration.getFunctionName()));
+    private String publishLambda(LambdaUpdateWaiter waiter) {
+        String functionName = this.configuration.getFunctionName();
+        PublishVersionResult publishVersionResult = waiter.update(functionName,
+                () -> lambdaClient.publishVersion(new PublishVersionRequest().withFunctionName(functionName)));
+        // a SnapStart version stays Pending until its snapshot is taken
+        waiter.awaitSettled(functionName + ":" + publishVersionResult.getVersion());
         buildLogger.addLogEntry(String.format("Published Lambda %s", publishVersionResult.getFunctionArn()));
+        return publishVersionResult.getVersion();
+    }
+
+    private SnapStart getSnapStart() {
+        String runtime = this.configuration.getRuntime();
+        boolean java = runtime != null && runtime.startsWith("java");
+        if (this.configuration.getSnapStart() && !java) {
+            throw new AwsExecException("SnapStart is only supported for Java runtimes, not " + runtime);
+        }
+        // leave the setting off requests for runtimes that do not support it
+        return java ? new SnapStart().withApplyOn(this.configuration.getSnapStart()
+                ? SnapStartApplyOn.PublishedVersions : SnapStartApplyOn.None) : null;
     }
 
     private String brokerKms(List<Tag> tags) {
@@ -533,13 +525,8 @@ public class LambdaBroker {
                 throw new AwsExecException("No Lambda template provided!");
             }
 
-            ObjectMapper mapper = isJson ? new ObjectMapper() : new ObjectMapper(new YAMLFactory());
-            mapper.addMixIn(KeySchemaElement.class, DynamoDBMixIns.class);
-            mapper.addMixIn(StreamSpecification.class, DynamoDBMixIns.class);
-            mapper.addMixIn(AttributeDefinition.class, DynamoDBMixIns.class);
-            mapper.addMixIn(Projection.class, DynamoDBMixIns.class);
-
-            definition = mapper.readValue(this.context.getBambooPropertyHandler().mapInProperties(template), LambdaInjectConfiguration.class);
+            definition = MapperUtil.dynamoDBAwareReader(LambdaInjectConfiguration.class, isJson)
+                    .readValue(this.context.getBambooPropertyHandler().mapInProperties(template));
         } catch (IOException e1) {
             throw new AwsExecException(e1);
         }
@@ -579,16 +566,15 @@ public class LambdaBroker {
     }
 
     private void brokerKinesisStream(LambdaInjectConfiguration definition) {
-        KinesisBroker kinesisBroker = new KinesisBroker(this.buildLogger, kinesisClient, definition, taskProperties);
+        KinesisBroker kinesisBroker = new KinesisBroker(this.buildLogger, kinesisClient, resourceTaggingClient, definition,
+            taskProperties);
 
         // delete any streams tied to this app that are no longer specified in the PushDefinition
         kinesisBroker.checkStreamsToBeDeleted();
 
         if (definition.getStreams() != null) {
             this.buildLogger.addLogEntry("Brokering Kinesis streams...");
-            for (KinesisStream stream : definition.getStreams()) {
-                kinesisBroker.brokerStream(stream);
-            }
+            kinesisBroker.brokerStreams(definition.getStreams());
         }
     }
 
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.aws.lambda;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import com.amazonaws.services.lambda.model.FunctionCode;
+import com.amazonaws.services.lambda.model.UpdateFunctionCodeRequest;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.transfer.TransferManager;
+import com.amazonaws.services.s3.transfer.TransferManagerBuilder;
+import com.amazonaws.util.BinaryUtils;
+import com.lonewolfworks.wolke.aws.AwsExecException;
+import com.lonewolfworks.wolke.logging.HermanLogger;
+
+/**
+ * A deployment zip, hashed as a stream so it can be compared with a function's
+ * CodeSha256 without loading it. Packages over the upload threshold are copied
+ * from disk to a content-addressed S3 key and deployed from there, so the same
+ * build pushed to several environments is uploaded once.
+ */
+public class LambdaCodePackage {
+
+    public static final long DEFAULT_UPLOAD_THRESHOLD_BYTES = 10L * 1024 * 1024;
+    static final String PREFIX = "wolkezeug/lambda-code/";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File zip;
+    private final byte[] digest;
+
+    LambdaCodePackage(File zip, byte[] digest) {
+        this.zip = zip;
+        this.digest = digest;
+    }
+
+    public static LambdaCodePackage of(File zip) throws IOException {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new AwsExecException(ex);
+        }
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(zip.toPath())) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                sha256.update(buffer, 0, read);
+            }
+        }
+        return new LambdaCodePackage(zip, sha256.digest());
+    }
+
+    /**
+     * @return the hash in the base64 form Lambda reports as CodeSha256
+     */
+    public String getCodeSha256() {
+        return BinaryUtils.toBase64(digest);
+    }
+
+    public boolean matches(String codeSha256) {
+        return getCodeSha256().equals(codeSha256);
+    }
+
+    String getS3Key() {
+        return PREFIX + BinaryUtils.toHex(digest) + ".zip";
+    }
+
+    /**
+     * @param bucket bucket in the function's region for large packages; packages over the threshold are
+     *               never read into memory, so they can't be deployed without one
+     */
+    public FunctionCode toFunctionCode(AmazonS3 s3Client, String bucket, long uploadThresholdBytes, HermanLogger logger)
+        throws IOException {
+        long size = zip.length();
+        if (size <= uploadThresholdBytes) {
+            return new FunctionCode().withZipFile(ByteBuffer.wrap(Files.readAllBytes(zip.toPath())));
+        } else if (bucket == null) {
+            throw new AwsExecException(String.format("%s is %d bytes, over the %d byte direct upload threshold; "
+                + "set a code bucket to deploy it through S3", zip.getName(), size, uploadThresholdBytes));
+        }
+
+        String key = getS3Key();
+        if (s3Client.doesObjectExist(bucket, key)) {
+            logger.addLogEntry("Package already in s3://" + bucket + "/" + key);
+        } else {
+            logger.addLogEntry("Uploading " + size + " byte package to s3://" + bucket + "/" + key);
+            TransferManager transfers = TransferManagerBuilder.standard().withS3Client(s3Client).build();
+            try {
+                transfers.upload(bucket, key, zip).waitForCompletion();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new AwsExecException(ex);
+            } finally {
+                transfers.shutdownNow(false);
+            }
+        }
+        return new FunctionCode().withS3Bucket(bucket).withS3Key(key);
+    }
+
+    public static UpdateFunctionCodeRequest updateRequest(String functionName, FunctionCode code) {
+        return new UpdateFunctionCodeRequest()
+            .withFunctionName(functionName)
+            .withZipFile(code.getZipFile())
+            .withS3Bucket(code.getS3Bucket())
+            .withS3Key(code.getS3Key());
+    }
+}
@@ -55,6 +55,15 @@ public class LambdaInjectConfiguration implements IamAppDefinition, KmsAppDefini
     private List<DynamoDBTable> dynamoDBTables;
     private List<HermanTag> tags;
     private SecretsManager secrets;
+    private Integer reservedConcurrency;
+    private String snapStart = "false";
+    private String alias;
+    private Integer provisionedConcurrency;
+    private LambdaAliasShift aliasShift;
+    private List<String> architectures;
+    private Integer ephemeralStorage;
+    private List<String> layers;
+    private List<LambdaLayer> localLayers;
     
     public SecretsManager getSecrets() {
 		return secrets;
@@ -243,6 +252,78 @@ public class LambdaInjectConfiguration implements IamAppDefinition, KmsAppDefini
         this.scheduleExpression = scheduleExpression;
     }
 
+    public Integer getReservedConcurrency() {
+        return reservedConcurrency;
+    }
+
+    public void setReservedConcurrency(Integer reservedConcurrency) {
+        this.reservedConcurrency = reservedConcurrency;
+    }
+
+    public Boolean getSnapStart() {
+        return "true".equalsIgnoreCase(snapStart);
+    }
+
+    public void setSnapStart(String snapStart) {
+        this.snapStart = snapStart;
+    }
+
+    public String getAlias() {
+        return alias;
+    }
+
+    public void setAlias(String alias) {
+        this.alias = alias;
+    }
+
+    public Integer getProvisionedConcurrency() {
+        return provisionedConcurrency;
+    }
+
+    public void setProvisionedConcurrency(Integer provisionedConcurrency) {
+        this.provisionedConcurrency = provisionedConcurrency;
+    }
+
+    public LambdaAliasShift getAliasShift() {
+        return aliasShift;
+    }
+
+    public void setAliasShift(LambdaAliasShift aliasShift) {
+        this.aliasShift = aliasShift;
+    }
+
+    public List<String> getArchitectures() {
+        return architectures;
+    }
+
+    public void setArchitectures(List<String> architectures) {
+        this.architectures = architectures;
+    }
+
+    public Integer getEphemeralStorage() {
+        return ephemeralStorage;
+    }
+
+    public void setEphemeralStorage(Integer ephemeralStorage) {
+        this.ephemeralStorage = ephemeralStorage;
+    }
+
+    public List<String> getLayers() {
+        return layers;
+    }
+
+    public void setLayers(List<String> layers) {
+        this.layers = layers;
+    }
+
+    public List<LambdaLayer> getLocalLayers() {
+        return localLayers;
+    }
+
+    public void setLocalLayers(List<LambdaLayer> localLayers) {
+        this.localLayers = localLayers;
+    }
+
     public LambdaInjectConfiguration withFunctionName(final String functionName) {
         this.functionName = functionName;
         return this;
@@ -319,6 +400,51 @@ public class LambdaInjectConfiguration implements IamAppDefinition, KmsAppDefini
         return functionName;
     }
 
+    public LambdaInjectConfiguration withReservedConcurrency(final Integer reservedConcurrency) {
+        this.reservedConcurrency = reservedConcurrency;
+        return this;
+    }
+
+    public LambdaInjectConfiguration withSnapStart(final String snapStart) {
+        this.snapStart = snapStart;
+        return this;
+    }
+
+    public LambdaInjectConfiguration withAlias(final String alias) {
+        this.alias = alias;
+        return this;
+    }
+
+    public LambdaInjectConfiguration withProvisionedConcurrency(final Integer provisionedConcurrency) {
+        this.provisionedConcurrency = provisionedConcurrency;
+        return this;
+    }
+
+    public LambdaInjectConfiguration withAliasShift(final LambdaAliasShift aliasShift) {
+        this.aliasShift = aliasShift;
+        return this;
+    }
+
+    public LambdaInjectConfiguration withArchitectures(final List<String> architectures) {
+        this.architectures = architectures;
+        return this;
+    }
+
+    public LambdaInjectConfiguration withEphemeralStorage(final Integer ephemeralStorage) {
+        this.ephemeralStorage = ephemeralStorage;
+        return this;
+    }
+
+    public LambdaInjectConfiguration withLayers(final List<String> layers) {
+        this.layers = layers;
+        return this;
+    }
+
+    public LambdaInjectConfiguration withLocalLayers(final List<LambdaLayer> localLayers) {
+        this.localLayers = localLayers;
+        return this;
+    }
+
     @Override
     public String toString() {
         return "LambdaInjectConfiguration{" +
@@ -344,6 +470,15 @@ public class LambdaInjectConfiguration implements IamAppDefinition, KmsAppDefini
                 ", dynamoDbTables=" + dynamoDBTables +
                 ", tags=" + tags +
                 ", scheduleExpression=" + scheduleExpression +
+                ", reservedConcurrency=" + reservedConcurrency +
+                ", snapStart='" + snapStart + '\'' +
+                ", alias='" + alias + '\'' +
+                ", provisionedConcurrency=" + provisionedConcurrency +
+                ", aliasShift=" + aliasShift +
+                ", architectures=" + architectures +
+                ", ephemeralStorage=" + ephemeralStorage +
+                ", layers=" + layers +
+                ", localLayers=" + localLayers +
                 '}';
     }
 }
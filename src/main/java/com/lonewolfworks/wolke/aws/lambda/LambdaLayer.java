@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.aws.lambda;
+
+import java.util.List;
+
+/**
+ * A layer published from a zip next to the lambda template. Compatible
+ * runtimes and architectures default to the function's own.
+ */
+public class LambdaLayer {
+
+    private String name;
+    private String zipFileName;
+    private String description;
+    private List<String> compatibleRuntimes;
+    private List<String> compatibleArchitectures;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getZipFileName() {
+        return zipFileName;
+    }
+
+    public void setZipFileName(String zipFileName) {
+        this.zipFileName = zipFileName;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public List<String> getCompatibleRuntimes() {
+        return compatibleRuntimes;
+    }
+
+    public void setCompatibleRuntimes(List<String> compatibleRuntimes) {
+        this.compatibleRuntimes = compatibleRuntimes;
+    }
+
+    public List<String> getCompatibleArchitectures() {
+        return compatibleArchitectures;
+    }
+
+    public void setCompatibleArchitectures(List<String> compatibleArchitectures) {
+        this.compatibleArchitectures = compatibleArchitectures;
+    }
+
+    public LambdaLayer withName(final String name) {
+        this.name = name;
+        return this;
+    }
+
+    public LambdaLayer withZipFileName(final String zipFileName) {
+        this.zipFileName = zipFileName;
+        return this;
+    }
+
+    public LambdaLayer withDescription(final String description) {
+        this.description = description;
+        return this;
+    }
+
+    public LambdaLayer withCompatibleRuntimes(final List<String> compatibleRuntimes) {
+        this.compatibleRuntimes = compatibleRuntimes;
+        return this;
+    }
+
+    public LambdaLayer withCompatibleArchitectures(final List<String> compatibleArchitectures) {
+        this.compatibleArchitectures = compatibleArchitectures;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "LambdaLayer{" +
+                "name='" + name + '\'' +
+                ", zipFileName='" + zipFileName + '\'' +
+                ", description='" + description + '\'' +
+                ", compatibleRuntimes=" + compatibleRuntimes +
+                ", compatibleArchitectures=" + compatibleArchitectures +
+                '}';
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.aws.lambda;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+
+import com.amazonaws.services.lambda.AWSLambda;
+import com.amazonaws.services.lambda.model.FunctionCode;
+import com.amazonaws.services.lambda.model.GetLayerVersionRequest;
+import com.amazonaws.services.lambda.model.LayerVersionContentInput;
+import com.amazonaws.services.lambda.model.LayerVersionsListItem;
+import com.amazonaws.services.lambda.model.ListLayerVersionsRequest;
+import com.amazonaws.services.lambda.model.PublishLayerVersionRequest;
+import com.amazonaws.services.lambda.model.PublishLayerVersionResult;
+import com.amazonaws.services.s3.AmazonS3;
+import com.lonewolfworks.wolke.aws.AwsExecException;
+import com.lonewolfworks.wolke.logging.HermanLogger;
+
+/**
+ * Publishes layers from local zips, deduplicated by content: the latest
+ * published version is reused when its CodeSha256 and compatibility lists
+ * match, so a layer gets a new version only when it changes.
+ */
+public class LambdaLayerBroker {
+
+    static final int MAX_LAYERS = 5;
+
+    private final AWSLambda lambdaClient;
+    private final AmazonS3 s3Client;
+    private final String codeBucket;
+    private final long uploadThresholdBytes;
+    private final HermanLogger buildLogger;
+
+    public LambdaLayerBroker(AWSLambda lambdaClient, AmazonS3 s3Client, String codeBucket, long uploadThresholdBytes,
+                             HermanLogger buildLogger) {
+        this.lambdaClient = lambdaClient;
+        this.s3Client = s3Client;
+        this.codeBucket = codeBucket;
+        this.uploadThresholdBytes = uploadThresholdBytes;
+        this.buildLogger = buildLogger;
+    }
+
+    /**
+     * Fails fast when the function would use more layers than Lambda allows,
+     * before any layer is published.
+     */
+    public static void validate(LambdaInjectConfiguration configuration) {
+        int layers = (configuration.getLocalLayers() == null ? 0 : configuration.getLocalLayers().size())
+                + (configuration.getLayers() == null ? 0 : configuration.getLayers().size());
+        if (layers > MAX_LAYERS) {
+            throw new AwsExecException("A function can use at most " + MAX_LAYERS + " layers, got " + layers);
+        }
+    }
+
+    /**
+     * @return the ARN of the layer version holding this zip
+     */
+    public String brokerLayer(LambdaLayer layer, LambdaCodePackage codePackage, List<String> compatibleRuntimes,
+                              List<String> compatibleArchitectures) throws IOException {
+        List<LayerVersionsListItem> versions = lambdaClient.listLayerVersions(new ListLayerVersionsRequest()
+                .withLayerName(layer.getName())
+                .withMaxItems(1)).getLayerVersions();
+        if (!versions.isEmpty()) {
+            LayerVersionsListItem latest = versions.get(0);
+            String latestCodeSha256 = lambdaClient.getLayerVersion(new GetLayerVersionRequest()
+                    .withLayerName(layer.getName())
+                    .withVersionNumber(latest.getVersion())).getContent().getCodeSha256();
+            if (codePackage.matches(latestCodeSha256)
+                    && sameElements(latest.getCompatibleRuntimes(), compatibleRuntimes)
+                    && sameElements(latest.getCompatibleArchitectures(), compatibleArchitectures)) {
+                buildLogger.addLogEntry("... Layer " + layer.getName() + " unchanged, using version " + latest.getVersion());
+                return latest.getLayerVersionArn();
+            }
+        }
+
+        buildLogger.addLogEntry("Publishing layer " + layer.getName() + " from " + layer.getZipFileName());
+        FunctionCode code = codePackage.toFunctionCode(s3Client, codeBucket, uploadThresholdBytes, buildLogger);
+        PublishLayerVersionResult result = lambdaClient.publishLayerVersion(new PublishLayerVersionRequest()
+                .withLayerName(layer.getName())
+                .withDescription(layer.getDescription())
+                .withContent(new LayerVersionContentInput()
+                        .withZipFile(code.getZipFile())
+                        .withS3Bucket(code.getS3Bucket())
+                        .withS3Key(code.getS3Key()))
+                .withCompatibleRuntimes(compatibleRuntimes)
+                .withCompatibleArchitectures(compatibleArchitectures));
+        buildLogger.addLogEntry("... Published " + result.getLayerVersionArn());
+        return result.getLayerVersionArn();
+    }
+
+    private static boolean sameElements(Collection<String> left, Collection<String> right) {
+        return Objects.equals(new HashSet<>(left == null ? Collections.emptySet() : left),
+                new HashSet<>(right == null ? Collections.emptySet() : right));
+    }
+}
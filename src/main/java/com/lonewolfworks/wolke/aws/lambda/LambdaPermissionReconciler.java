@@ -0,0 +1,187 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.aws.lambda;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.services.lambda.AWSLambda;
+import com.amazonaws.services.lambda.model.AddPermissionRequest;
+import com.amazonaws.services.lambda.model.GetPolicyRequest;
+import com.amazonaws.services.lambda.model.GetPolicyResult;
+import com.amazonaws.services.lambda.model.RemovePermissionRequest;
+import com.amazonaws.services.lambda.model.ResourceNotFoundException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.lonewolfworks.wolke.logging.HermanLogger;
+import com.lonewolfworks.wolke.util.MapperUtil;
+
+/**
+ * Brings a function's resource policy in line with its execution permissions.
+ * Statements are matched by Sid; only stale or changed statements are removed
+ * and only missing or changed ones are added, so an unchanged push makes no
+ * permission calls beyond reading the policy.
+ */
+public class LambdaPermissionReconciler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LambdaPermissionReconciler.class);
+    private static final String SOURCE_ARN = "AWS:SourceArn";
+    private static final String EVENT_SOURCE_TOKEN = "lambda:EventSourceToken";
+
+    private final AWSLambda lambdaClient;
+    private final HermanLogger buildLogger;
+    private final String functionName;
+
+    public LambdaPermissionReconciler(AWSLambda lambdaClient, HermanLogger buildLogger, String functionName) {
+        this.lambdaClient = lambdaClient;
+        this.buildLogger = buildLogger;
+        this.functionName = functionName;
+    }
+
+    public void reconcile(List<LambdaPermission> permissions) {
+        buildLogger.addLogEntry("... Reconciling execution permissions");
+        Map<String, JsonNode> existing = getExistingStatements();
+
+        int unchanged = 0;
+        for (int i = 0; i < permissions.size(); i++) {
+            LambdaPermission permission = permissions.get(i);
+            if (permission == null) {
+                continue;
+            }
+            String sid = Optional.ofNullable(permission.getSid()).orElse(functionName + "-InvokePermission-" + i);
+            JsonNode statement = existing.remove(sid);
+            if (statement != null && matches(statement, permission)) {
+                unchanged++;
+                continue;
+            }
+            if (statement != null) {
+                removePermission(sid);
+            }
+            buildLogger.addLogEntry("... Adding execution permission " + sid);
+            lambdaClient.addPermission(new AddPermissionRequest()
+                    .withFunctionName(functionName)
+                    .withAction(permission.getAction())
+                    .withPrincipal(permission.getPrincipal())
+                    .withEventSourceToken(permission.getEventSourceToken())
+                    .withStatementId(sid)
+                    .withQualifier(permission.getQualifier()).withSourceArn(permission.getSourceArn()));
+        }
+
+        for (String sid : existing.keySet()) {
+            removePermission(sid);
+        }
+        if (unchanged > 0) {
+            buildLogger.addLogEntry("... " + unchanged + " execution permission(s) unchanged");
+        }
+    }
+
+    private void removePermission(String sid) {
+        buildLogger.addLogEntry("... Removing execution permission " + sid);
+        lambdaClient.removePermission(new RemovePermissionRequest()
+                .withFunctionName(functionName)
+                .withStatementId(sid));
+    }
+
+    private Map<String, JsonNode> getExistingStatements() {
+        Map<String, JsonNode> statements = new LinkedHashMap<>();
+        GetPolicyResult executionPolicyResult;
+        try {
+            executionPolicyResult = lambdaClient.getPolicy(new GetPolicyRequest().withFunctionName(functionName));
+        } catch (ResourceNotFoundException ex) {
+            LOGGER.debug("No execution policy found: " + functionName, ex);
+            return statements;
+        }
+        if (executionPolicyResult == null) {
+            buildLogger.addLogEntry("Unable to find existing execution policy");
+            return statements;
+        }
+        try {
+            JsonNode executionStatements = MapperUtil.jsonReader(JsonNode.class)
+                    .readTree(executionPolicyResult.getPolicy()).path("Statement");
+            for (JsonNode statement : executionStatements) {
+                statements.put(statement.path("Sid").asText(), statement);
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Unable to parse existing execution policy", e);
+            buildLogger.addLogEntry("Unable to parse existing execution policy");
+        }
+        return statements;
+    }
+
+    /**
+     * Whether a statement in the function's resource policy is what
+     * AddPermission would write for the given permission.
+     */
+    static boolean matches(JsonNode statement, LambdaPermission permission) {
+        if (!Objects.equals(statement.path("Action").asText(null), permission.getAction())
+                || !Objects.equals(principal(statement.path("Principal")), normalizePrincipal(permission.getPrincipal()))
+                || !Objects.equals(qualifier(statement.path("Resource").asText("")), permission.getQualifier())) {
+            return false;
+        }
+
+        String sourceArn = null;
+        String eventSourceToken = null;
+        for (JsonNode operator : statement.path("Condition")) {
+            Iterator<Map.Entry<String, JsonNode>> conditions = operator.fields();
+            while (conditions.hasNext()) {
+                Map.Entry<String, JsonNode> condition = conditions.next();
+                if (SOURCE_ARN.equals(condition.getKey())) {
+                    sourceArn = condition.getValue().asText();
+                } else if (EVENT_SOURCE_TOKEN.equals(condition.getKey())) {
+                    eventSourceToken = condition.getValue().asText();
+                } else {
+                    // a condition AddPermission would not have written, so replace the statement
+                    return false;
+                }
+            }
+        }
+        return Objects.equals(sourceArn, permission.getSourceArn())
+                && Objects.equals(eventSourceToken, permission.getEventSourceToken());
+    }
+
+    private static String principal(JsonNode principal) {
+        if (principal.isTextual()) {
+            return normalizePrincipal(principal.asText());
+        } else if (principal.has("Service")) {
+            return principal.get("Service").asText();
+        } else if (principal.has("AWS")) {
+            return normalizePrincipal(principal.get("AWS").asText());
+        }
+        return null;
+    }
+
+    private static String normalizePrincipal(String principal) {
+        // an account id principal is stored as the account root ARN
+        if (principal != null && principal.startsWith("arn:") && principal.endsWith(":root")) {
+            String[] parts = principal.split(":");
+            return parts.length == 6 ? parts[4] : principal;
+        }
+        return principal;
+    }
+
+    private static String qualifier(String resource) {
+        // arn:aws:lambda:region:account:function:name[:qualifier]
+        String[] parts = resource.split(":");
+        return parts.length > 7 ? parts[7] : null;
+    }
+}
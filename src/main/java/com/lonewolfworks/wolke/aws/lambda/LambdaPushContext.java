@@ -27,6 +27,8 @@ public class LambdaPushContext {
     private PropertyHandler bambooPropertyHandler;
     private HermanLogger logger;
     private CommonTaskProperties taskProperties;
+    private String codeBucket;
+    private long codeUploadThresholdBytes = LambdaCodePackage.DEFAULT_UPLOAD_THRESHOLD_BYTES;
 
     public AWSCredentials getSessionCredentials() {
         return sessionCredentials;
@@ -68,6 +70,22 @@ public class LambdaPushContext {
         this.taskProperties = taskProperties;
     }
 
+    public String getCodeBucket() {
+        return codeBucket;
+    }
+
+    public void setCodeBucket(String codeBucket) {
+        this.codeBucket = codeBucket;
+    }
+
+    public long getCodeUploadThresholdBytes() {
+        return codeUploadThresholdBytes;
+    }
+
+    public void setCodeUploadThresholdBytes(long codeUploadThresholdBytes) {
+        this.codeUploadThresholdBytes = codeUploadThresholdBytes;
+    }
+
     public LambdaPushContext withSessionCredentials(final AWSCredentials sessionCredentials) {
         this.sessionCredentials = sessionCredentials;
         return this;
@@ -95,6 +113,16 @@ public class LambdaPushContext {
         return this;
     }
 
+    public LambdaPushContext withCodeBucket(final String codeBucket) {
+        this.codeBucket = codeBucket;
+        return this;
+    }
+
+    public LambdaPushContext withCodeUploadThresholdBytes(final long codeUploadThresholdBytes) {
+        this.codeUploadThresholdBytes = codeUploadThresholdBytes;
+        return this;
+    }
+
     @Override
     public String toString() {
         return "LambdaPushContext{" +
@@ -102,6 +130,8 @@ public class LambdaPushContext {
             ", bambooPropertyHandler=" + bambooPropertyHandler +
             ", logger=" + logger +
             ", taskProperties=" + taskProperties +
+            ", codeBucket=" + codeBucket +
+            ", codeUploadThresholdBytes=" + codeUploadThresholdBytes +
             '}';
     }
 }
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.aws.lambda;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import com.amazonaws.services.lambda.AWSLambda;
+import com.amazonaws.services.lambda.model.GetFunctionConfigurationRequest;
+import com.amazonaws.services.lambda.model.GetFunctionConfigurationResult;
+import com.amazonaws.services.lambda.model.GetProvisionedConcurrencyConfigRequest;
+import com.amazonaws.services.lambda.model.GetProvisionedConcurrencyConfigResult;
+import com.amazonaws.services.lambda.model.ResourceConflictException;
+import com.lonewolfworks.wolke.aws.AwsExecException;
+import com.lonewolfworks.wolke.logging.HermanLogger;
+import com.lonewolfworks.wolke.util.AdaptiveBackoff;
+
+/**
+ * Sequences changes to a function. Lambda rejects a change with
+ * ResourceConflictException while the function is Pending or its last update
+ * is InProgress, so each change waits for the previous one to settle. Also
+ * waits for provisioned concurrency to finish allocating.
+ */
+public class LambdaUpdateWaiter {
+
+    private static final long DEFAULT_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final long PROVISIONING_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(15);
+    private static final int MAX_CONFLICT_RETRIES = 5;
+    private static final String PENDING = "Pending";
+    private static final String IN_PROGRESS = "InProgress";
+    private static final String FAILED = "Failed";
+    private static final String IN_PROGRESS_PROVISIONING = "IN_PROGRESS";
+    private static final String FAILED_PROVISIONING = "FAILED";
+
+    private final AWSLambda client;
+    private final HermanLogger logger;
+    private final long timeoutMillis;
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+
+    public LambdaUpdateWaiter(AWSLambda client, HermanLogger logger) {
+        this(client, logger, DEFAULT_TIMEOUT_MILLIS, 1000, 10000);
+    }
+
+    LambdaUpdateWaiter(AWSLambda client, HermanLogger logger, long timeoutMillis, long initialDelayMillis,
+                       long maxDelayMillis) {
+        this.client = client;
+        this.logger = logger;
+        this.timeoutMillis = timeoutMillis;
+        this.initialDelayMillis = initialDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    /**
+     * Applies a change once the function accepts one, then waits for it to settle.
+     *
+     * @throws AwsExecException if the change leaves the function Failed
+     */
+    public <T> T update(String functionName, Supplier<T> change) {
+        T result = null;
+        for (int attempt = 1; result == null; attempt++) {
+            awaitReady(functionName);
+            try {
+                result = change.get();
+            } catch (ResourceConflictException ex) {
+                if (attempt >= MAX_CONFLICT_RETRIES) {
+                    throw ex;
+                }
+                logger.addLogEntry("... " + functionName + " is busy, retrying: " + ex.getErrorMessage());
+            }
+        }
+        awaitSettled(functionName);
+        return result;
+    }
+
+    /**
+     * Waits for a new or changed function to settle.
+     *
+     * @throws AwsExecException if the function or its last update Failed
+     */
+    public GetFunctionConfigurationResult awaitSettled(String functionName) {
+        GetFunctionConfigurationResult configuration = awaitReady(functionName);
+        if (FAILED.equals(configuration.getState())) {
+            throw new AwsExecException(functionName + " failed: " + configuration.getStateReason());
+        } else if (FAILED.equals(configuration.getLastUpdateStatus())) {
+            throw new AwsExecException("Update of " + functionName + " failed: " + configuration.getLastUpdateStatusReason());
+        }
+        return configuration;
+    }
+
+    /**
+     * Waits for provisioned concurrency on an alias or version to become READY.
+     *
+     * @throws AwsExecException if provisioning Failed
+     */
+    public void awaitProvisionedConcurrency(String functionName, String qualifier) {
+        String target = functionName + ":" + qualifier;
+        GetProvisionedConcurrencyConfigResult config = poll(target, PROVISIONING_TIMEOUT_MILLIS,
+            () -> client.getProvisionedConcurrencyConfig(new GetProvisionedConcurrencyConfigRequest()
+                .withFunctionName(functionName)
+                .withQualifier(qualifier)),
+            result -> !IN_PROGRESS_PROVISIONING.equals(result.getStatus()),
+            result -> "provisioned concurrency " + result.getAvailableProvisionedConcurrentExecutions() + " of "
+                + result.getRequestedProvisionedConcurrentExecutions() + " ready");
+        if (FAILED_PROVISIONING.equals(config.getStatus())) {
+            throw new AwsExecException("Provisioned concurrency for " + target + " failed: " + config.getStatusReason());
+        }
+        logger.addLogEntry("... Provisioned concurrency for " + target + " is ready");
+    }
+
+    private GetFunctionConfigurationResult awaitReady(String functionName) {
+        return poll(functionName, timeoutMillis,
+            () -> client.getFunctionConfiguration(new GetFunctionConfigurationRequest().withFunctionName(functionName)),
+            result -> !PENDING.equals(result.getState()) && !IN_PROGRESS.equals(result.getLastUpdateStatus()),
+            result -> "state " + result.getState() + ", last update " + result.getLastUpdateStatus());
+    }
+
+    private <T> T poll(String target, long timeout, Supplier<T> read, Predicate<T> done, Function<T, String> describe) {
+        AdaptiveBackoff backoff = new AdaptiveBackoff(initialDelayMillis, maxDelayMillis);
+        long deadline = System.currentTimeMillis() + timeout;
+        while (true) {
+            T result = read.get();
+            if (done.test(result)) {
+                return result;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                throw new AwsExecException("Timed out waiting for " + target + " (" + describe.apply(result) + ")");
+            }
+            logger.addLogEntry("... Waiting for " + target + " (" + describe.apply(result) + ")");
+            try {
+                backoff.sleepUntilNext(deadline);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new AwsExecException(ex);
+            }
+        }
+    }
+}
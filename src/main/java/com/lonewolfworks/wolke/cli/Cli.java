@@ -15,16 +15,23 @@
  */
 package com.lonewolfworks.wolke.cli;
 
+import java.io.File;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 import com.amazonaws.regions.Regions;
+import com.lonewolfworks.wolke.aws.AwsClientRegistry;
 import com.lonewolfworks.wolke.cli.command.ECRLoginCommand;
 import com.lonewolfworks.wolke.cli.command.ECRRepoCreateCommand;
 import com.lonewolfworks.wolke.cli.command.ECRRepoTrimCommand;
+import com.lonewolfworks.wolke.cli.command.ECSPushBatchCommand;
 import com.lonewolfworks.wolke.cli.command.ECSPushCommand;
+import com.lonewolfworks.wolke.cli.command.ECSTaskDefGcCommand;
 import com.lonewolfworks.wolke.cli.command.LambdaPushCommand;
 import com.lonewolfworks.wolke.cli.command.S3CreateCommand;
 import com.lonewolfworks.wolke.logging.SysoutLogger;
+import com.lonewolfworks.wolke.util.ConfigurationCache;
 
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
@@ -36,6 +43,8 @@ import picocli.CommandLine.RunAll;
 @Command(description = "Runs Herman the AWS Task Helper", name = "herman", mixinStandardHelpOptions = true, versionProvider = Cli.ManifestVersionProvider.class,
     subcommands = {
         ECSPushCommand.class,
+        ECSPushBatchCommand.class,
+        ECSTaskDefGcCommand.class,
         ECRRepoCreateCommand.class,
         ECRLoginCommand.class,
         ECRRepoTrimCommand.class,
@@ -51,23 +60,52 @@ public class Cli implements Callable<Void> {
         return logger;
     }
 
-    @Option(names = {"-r", "--region"}, description = "AWS Region to perform tasks", showDefaultValue = Help.Visibility.ALWAYS, arity = "1")
-    private Regions region = Regions.US_EAST_1;
+    @Option(names = {"-r", "--region"}, description = "AWS Region to perform tasks; ecs-push accepts several, comma separated", showDefaultValue = Help.Visibility.ALWAYS, arity = "1", split = ",", defaultValue = "US_EAST_1")
+    private List<Regions> regions;
 
     @Option(names = {"-c", "--config"}, description = "Configuration S3 bucket name", showDefaultValue = Help.Visibility.ALWAYS)
     private String configurationBucket = CONFIG_BUCKET_TEMPLATE;
 
+    @Option(names = {"--cache-dir"}, description = "Local cache directory for configuration bucket files", showDefaultValue = Help.Visibility.ALWAYS)
+    private String cacheDirectory = ConfigurationCache.DEFAULT_DIRECTORY;
+
+    @Option(names = {"--cache-ttl"}, description = "Seconds a cached configuration file is used without revalidating against S3 (0 always revalidates)", showDefaultValue = Help.Visibility.ALWAYS)
+    private long cacheTtlSeconds = 0;
+
+    @Option(names = {"--no-cache"}, description = "Always download configuration bucket files")
+    private boolean noCache;
+
     public static void main(String[] args) {
         CommandLine cmd = new CommandLine(new Cli());
-        cmd.parseWithHandler(new RunAll(), args);
+        try {
+            cmd.parseWithHandler(new RunAll(), args);
+        } finally {
+            AwsClientRegistry.getInstance().close();
+        }
     }
 
     @Override public Void call() {
+        File directory = noCache ? null : new File(cacheDirectory);
+        ConfigurationCache.configure(new ConfigurationCache(directory, TimeUnit.SECONDS.toMillis(cacheTtlSeconds)));
         return null;
     }
 
     public Regions getRegion() {
-        return this.region;
+        if (regions.size() > 1) {
+            throw new IllegalArgumentException("Only ecs-push deploys to several regions at once, got " + regions);
+        }
+        return regions.get(0);
+    }
+
+    public List<Regions> getRegions() {
+        return regions;
+    }
+
+    /**
+     * @return the local cache directory, or null when caching is disabled
+     */
+    public String getCacheDirectory() {
+        return noCache ? null : cacheDirectory;
     }
 
     public String getCustomConfigurationBucket() {
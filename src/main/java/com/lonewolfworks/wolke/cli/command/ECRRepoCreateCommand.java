@@ -15,10 +15,14 @@
  */
 package com.lonewolfworks.wolke.cli.command;
 
+import com.lonewolfworks.wolke.aws.ecr.EcrLifecyclePolicy;
 import com.lonewolfworks.wolke.cli.Cli;
 import com.lonewolfworks.wolke.task.cli.ecr.ECRRepoCreateTask;
 import com.lonewolfworks.wolke.task.cli.ecr.ECRRepoTaskConfiguration;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import static picocli.CommandLine.Command;
 import static picocli.CommandLine.Help;
 import static picocli.CommandLine.Option;
@@ -32,12 +36,42 @@ public class ECRRepoCreateCommand implements Runnable {
     @Option(names = {"-repo", "--repoName"}, description = "Name of ECR repository to create", showDefaultValue = Help.Visibility.ALWAYS, arity = "1")
     private String repoName;
 
+    @Option(names = {"--keep-images"}, description = "Number of newest images the lifecycle policy keeps (default 750)", arity = "1")
+    private Integer keepImages;
+
+    @Option(names = {"--expire-untagged-days"}, description = "Days after which the lifecycle policy expires untagged images (default 7)", arity = "1")
+    private Integer expireUntaggedDays;
+
+    @Option(names = {"--keep-tag-prefix"}, description = "Tag prefix and the number of its newest images to keep, e.g. release=50; repeatable")
+    private Map<String, Integer> keepTagPrefixes;
+
     @Override public void run() {
         cli.getLogger().addLogEntry("Starting ECR Create Repo...");
         ECRRepoTaskConfiguration config = new ECRRepoTaskConfiguration()
             .withRegion(cli.getRegion())
-            .withRepoName(repoName);
+            .withRepoName(repoName)
+            .withLifecyclePolicy(lifecyclePolicy());
         ECRRepoCreateTask createTask = new ECRRepoCreateTask(cli.getLogger());
         createTask.runTask(config);
     }
+
+    /**
+     * @return the policy given on the command line, or null to use the configuration bucket's
+     */
+    private EcrLifecyclePolicy lifecyclePolicy() {
+        if (keepImages == null && expireUntaggedDays == null && keepTagPrefixes == null) {
+            return null;
+        }
+        EcrLifecyclePolicy policy = new EcrLifecyclePolicy();
+        if (keepImages != null) {
+            policy.setKeepImages(keepImages);
+        }
+        if (expireUntaggedDays != null) {
+            policy.setExpireUntaggedDays(expireUntaggedDays);
+        }
+        if (keepTagPrefixes != null) {
+            policy.setKeepTagPrefixes(new LinkedHashMap<>(keepTagPrefixes));
+        }
+        return policy;
+    }
 }
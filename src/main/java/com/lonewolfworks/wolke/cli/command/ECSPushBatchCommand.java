@@ -0,0 +1,111 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.cli.command;
+
+import com.lonewolfworks.wolke.cli.Cli;
+import com.lonewolfworks.wolke.task.cli.ecs.ECSPushBatchTask;
+import com.lonewolfworks.wolke.task.cli.ecs.ECSPushBatchTaskConfiguration;
+import com.lonewolfworks.wolke.task.cli.ecs.ECSPushTaskConfiguration;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static picocli.CommandLine.Command;
+import static picocli.CommandLine.Help;
+import static picocli.CommandLine.Option;
+import static picocli.CommandLine.Parameters;
+import static picocli.CommandLine.ParentCommand;
+
+@Command(name = "ecs-push-batch", mixinStandardHelpOptions = true)
+public class ECSPushBatchCommand implements Runnable {
+    @ParentCommand
+    private Cli cli;
+
+    @Parameters(arity = "1..*", paramLabel = "DIRECTORY", description = "Configuration directory of each app to push")
+    private List<File> directories = new ArrayList<>();
+
+    @Option(names = {"-e", "-env", "--environment"}, description = "Environment to deploy")
+    private String environmentName;
+
+    @Option(names = {"-t", "--timeout"}, description = "Task timeout per app (in minutes)", showDefaultValue = Help.Visibility.ALWAYS)
+    private int timeout = 5;
+
+    @Option(names = {"-v", "-vars", "--variables"}, description = "Custom build variables to be injected into every app. <KEY>=<VALUE>")
+    private Map<String, String> customVariables = new HashMap<>();
+
+    @Option(names = {"-p", "--parallelism"}, description = "Apps to push at the same time", showDefaultValue = Help.Visibility.ALWAYS)
+    private int parallelism = 4;
+
+    @Option(names = {"--force-new-deployment"}, description = "Register a new task definition revision and roll the service even when nothing changed")
+    private boolean forceNewDeployment;
+
+    @Option(names = {"--retain-revisions"}, description = "Newest task definition revisions to keep, besides the one the service runs", showDefaultValue = Help.Visibility.ALWAYS)
+    private int taskDefinitionRetention = 1;
+
+    @Option(names = {"--cluster-cache-ttl"}, description = "Seconds introspected cluster metadata is reused (0 always introspects)", showDefaultValue = Help.Visibility.ALWAYS)
+    private long clusterCacheTtlSeconds = 3600;
+
+    @Option(names = {"--cluster-cache-bucket"}, description = "S3 bucket to share cached cluster metadata across build agents; defaults to the local cache directory")
+    private String clusterCacheBucket;
+
+    @Option(names = {"--refresh-cluster-cache"}, description = "Introspect each cluster once and replace the cached metadata")
+    private boolean refreshClusterCache;
+
+    @Option(names = {"--deploy-state-bucket"}, description = "S3 bucket to keep deploy state in, shared by build agents; without it or a table every broker runs on each push")
+    private String deployStateBucket;
+
+    @Option(names = {"--deploy-state-table"}, description = "DynamoDB table (string partition key 'key') to keep deploy state in, instead of a bucket")
+    private String deployStateTable;
+
+    @Option(names = {"--reconcile-interval"}, description = "Seconds after which every broker runs again, even if its input is unchanged (0 always runs them)", showDefaultValue = Help.Visibility.ALWAYS)
+    private long reconcileIntervalSeconds = 86400;
+
+    @Option(names = {"--full-reconcile"}, description = "Run every broker, even if its input is unchanged since the last push")
+    private boolean fullReconcile;
+
+    @Override
+    public void run() {
+        cli.getLogger().addLogEntry("Starting ECS Push for " + directories.size() + " apps...");
+        List<ECSPushTaskConfiguration> pushes = new ArrayList<>();
+        for (File directory : directories) {
+            pushes.add(new ECSPushTaskConfiguration()
+                .withRootPath(directory.getAbsolutePath())
+                .withTimeout(timeout)
+                .withEnvironmentName(environmentName)
+                .withRegion(cli.getRegion())
+                .withCustomConfigurationBucket(cli.getCustomConfigurationBucket())
+                .withCustomVariables(new HashMap<>(customVariables))
+                .withForceNewDeployment(forceNewDeployment)
+                .withTaskDefinitionRetention(taskDefinitionRetention)
+                .withClusterCacheDirectory(cli.getCacheDirectory())
+                .withClusterCacheBucket(clusterCacheBucket)
+                .withClusterCacheTtlSeconds(clusterCacheTtlSeconds)
+                .withRefreshClusterCache(refreshClusterCache)
+                .withDeployStateBucket(deployStateBucket)
+                .withDeployStateTable(deployStateTable)
+                .withReconcileIntervalSeconds(reconcileIntervalSeconds)
+                .withFullReconcile(fullReconcile));
+        }
+
+        ECSPushBatchTaskConfiguration config = new ECSPushBatchTaskConfiguration()
+            .withPushes(pushes)
+            .withParallelism(parallelism);
+        new ECSPushBatchTask(cli.getLogger()).runTask(config);
+    }
+}
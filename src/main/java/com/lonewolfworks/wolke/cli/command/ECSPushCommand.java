@@ -18,6 +18,7 @@ package com.lonewolfworks.wolke.cli.command;
 import com.lonewolfworks.wolke.cli.Cli;
 import com.lonewolfworks.wolke.task.cli.ecs.ECSPushTask;
 import com.lonewolfworks.wolke.task.cli.ecs.ECSPushTaskConfiguration;
+import com.lonewolfworks.wolke.task.cli.ecs.RegionFailurePolicy;
 
 import java.io.File;
 import java.util.HashMap;
@@ -45,6 +46,36 @@ public class ECSPushCommand implements Runnable {
     @Option(names = {"-v", "-vars", "--variables"}, description = "Custom build variables to be injected. <KEY>=<VALUE>")
     private Map<String, String> customVariables = new HashMap<>();
 
+    @Option(names = {"--force-new-deployment"}, description = "Register a new task definition revision and roll the service even when nothing changed")
+    private boolean forceNewDeployment;
+
+    @Option(names = {"--retain-revisions"}, description = "Newest task definition revisions to keep, besides the one the service runs", showDefaultValue = Help.Visibility.ALWAYS)
+    private int taskDefinitionRetention = 1;
+
+    @Option(names = {"--cluster-cache-ttl"}, description = "Seconds introspected cluster metadata is reused (0 always introspects)", showDefaultValue = Help.Visibility.ALWAYS)
+    private long clusterCacheTtlSeconds = 3600;
+
+    @Option(names = {"--cluster-cache-bucket"}, description = "S3 bucket to share cached cluster metadata across build agents; defaults to the local cache directory")
+    private String clusterCacheBucket;
+
+    @Option(names = {"--refresh-cluster-cache"}, description = "Introspect the cluster and replace the cached metadata")
+    private boolean refreshClusterCache;
+
+    @Option(names = {"--deploy-state-bucket"}, description = "S3 bucket to keep deploy state in, shared by build agents; without it or a table every broker runs on each push")
+    private String deployStateBucket;
+
+    @Option(names = {"--deploy-state-table"}, description = "DynamoDB table (string partition key 'key') to keep deploy state in, instead of a bucket")
+    private String deployStateTable;
+
+    @Option(names = {"--reconcile-interval"}, description = "Seconds after which every broker runs again, even if its input is unchanged (0 always runs them)", showDefaultValue = Help.Visibility.ALWAYS)
+    private long reconcileIntervalSeconds = 86400;
+
+    @Option(names = {"--full-reconcile"}, description = "Run every broker, even if its input is unchanged since the last push")
+    private boolean fullReconcile;
+
+    @Option(names = {"--on-region-failure"}, description = "When pushing to several regions and one fails: ${COMPLETION-CANDIDATES}", showDefaultValue = Help.Visibility.ALWAYS)
+    private RegionFailurePolicy regionFailurePolicy = RegionFailurePolicy.CONTINUE;
+
     @Override
     public void run() {
         String absPath = new File(this.rootPath).getAbsolutePath();
@@ -53,9 +84,21 @@ public class ECSPushCommand implements Runnable {
             .withRootPath(absPath)
             .withTimeout(timeout)
             .withEnvironmentName(environmentName)
-            .withRegion(cli.getRegion())
+            .withRegion(cli.getRegions().get(0))
+            .withRegions(cli.getRegions())
+            .withRegionFailurePolicy(regionFailurePolicy)
             .withCustomConfigurationBucket(cli.getCustomConfigurationBucket())
-            .withCustomVariables(customVariables);
+            .withCustomVariables(customVariables)
+            .withForceNewDeployment(forceNewDeployment)
+            .withTaskDefinitionRetention(taskDefinitionRetention)
+            .withClusterCacheDirectory(cli.getCacheDirectory())
+            .withClusterCacheBucket(clusterCacheBucket)
+            .withClusterCacheTtlSeconds(clusterCacheTtlSeconds)
+            .withRefreshClusterCache(refreshClusterCache)
+            .withDeployStateBucket(deployStateBucket)
+            .withDeployStateTable(deployStateTable)
+            .withReconcileIntervalSeconds(reconcileIntervalSeconds)
+            .withFullReconcile(fullReconcile);
 
         ECSPushTask ecsPush = new ECSPushTask(cli.getLogger());
         ecsPush.runTask(config);
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.cli.command;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.lonewolfworks.wolke.aws.ecs.TaskDefinitionGarbageCollector;
+import com.lonewolfworks.wolke.cli.Cli;
+import com.lonewolfworks.wolke.task.cli.ecs.ECSTaskDefGcTask;
+import com.lonewolfworks.wolke.task.cli.ecs.ECSTaskDefGcTaskConfiguration;
+
+import static picocli.CommandLine.Command;
+import static picocli.CommandLine.Help;
+import static picocli.CommandLine.Option;
+import static picocli.CommandLine.ParentCommand;
+
+@Command(name = "ecs-taskdef-gc", mixinStandardHelpOptions = true)
+public class ECSTaskDefGcCommand implements Runnable {
+    @ParentCommand
+    private Cli cli;
+
+    @Option(names = {"-f", "--family"}, description = "Task definition family to clean up; repeatable. Defaults to every ACTIVE family in the account")
+    private List<String> families = new ArrayList<>();
+
+    @Option(names = {"--retain"}, description = "Newest revisions to keep per family, besides any revision in use", showDefaultValue = Help.Visibility.ALWAYS)
+    private int retain = 5;
+
+    @Option(names = {"--parallelism"}, description = "Concurrent deregistration calls", showDefaultValue = Help.Visibility.ALWAYS)
+    private int parallelism = TaskDefinitionGarbageCollector.DEFAULT_PARALLELISM;
+
+    @Option(names = {"--dry-run"}, description = "Only log the revisions that would be deregistered")
+    private boolean dryRun;
+
+    @Override public void run() {
+        cli.getLogger().addLogEntry("Starting ECS task definition cleanup...");
+        ECSTaskDefGcTaskConfiguration config = new ECSTaskDefGcTaskConfiguration()
+            .withRegion(cli.getRegion())
+            .withFamilies(families)
+            .withRetain(retain)
+            .withParallelism(parallelism)
+            .withDryRun(dryRun);
+        ECSTaskDefGcTask gcTask = new ECSTaskDefGcTask(cli.getLogger());
+        gcTask.runTask(config);
+    }
+}
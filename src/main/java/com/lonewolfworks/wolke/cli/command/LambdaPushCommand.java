@@ -17,8 +17,6 @@ package com.lonewolfworks.wolke.cli.command;
 
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.regions.Regions;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.lonewolfworks.wolke.aws.AwsExecException;
 import com.lonewolfworks.wolke.aws.credentials.CredentialsHandler;
 import com.lonewolfworks.wolke.aws.ecs.PropertyHandler;
@@ -28,6 +26,7 @@ import com.lonewolfworks.wolke.cli.Cli;
 import com.lonewolfworks.wolke.logging.HermanLogger;
 import com.lonewolfworks.wolke.task.common.CommonTaskProperties;
 import com.lonewolfworks.wolke.util.ConfigurationUtil;
+import com.lonewolfworks.wolke.util.MapperUtil;
 import com.lonewolfworks.wolke.util.PropertyHandlerUtil;
 
 import java.io.File;
@@ -54,6 +53,12 @@ public class LambdaPushCommand implements Runnable {
     @Option(names = {"-v", "-vars", "--variables"}, description = "Custom build variables to be injected. <KEY>=<VALUE>")
     private Map<String, String> customVariables = new HashMap<>();
 
+    @Option(names = {"--code-bucket"}, description = "S3 bucket in the function's region to deploy large packages from, keyed by content hash; required for packages over --code-upload-threshold")
+    private String codeBucket;
+
+    @Option(names = {"--code-upload-threshold"}, description = "Package size (in MB) above which code is deployed through the code bucket", showDefaultValue = Help.Visibility.ALWAYS)
+    private long codeUploadThresholdMb = 10;
+
     @Override
     public void run() {
         String absPath = new File(this.rootPath).getAbsolutePath();
@@ -69,6 +74,8 @@ public class LambdaPushCommand implements Runnable {
                 .withRootPath(absPath)
                 .withBambooPropertyHandler(handler)
                 .withLogger(cli.getLogger())
+                .withCodeBucket(codeBucket)
+                .withCodeUploadThresholdBytes(codeUploadThresholdMb * 1024 * 1024)
                 .withTaskProperties(getTaskProperties(sessionCredentials, cli.getLogger(), region, handler));
 
         LambdaBroker lambdaBroker = new LambdaBroker(context,
@@ -85,8 +92,7 @@ public class LambdaPushCommand implements Runnable {
     private CommonTaskProperties getTaskProperties(AWSCredentials sessionCredentials, HermanLogger hermanLogger, Regions region, PropertyHandler handler) {
         try {
             String lambdaCreateTaskPropertiesYml = ConfigurationUtil.getHermanConfigurationAsString(sessionCredentials, hermanLogger, region);
-            ObjectMapper objectMapper = new ObjectMapper(new YAMLFactory());
-            return objectMapper.readValue(handler.mapInProperties(lambdaCreateTaskPropertiesYml), CommonTaskProperties.class);
+            return MapperUtil.yamlReader(CommonTaskProperties.class).readValue(handler.mapInProperties(lambdaCreateTaskPropertiesYml));
         } catch (Exception ex) {
             throw new RuntimeException("Error getting Lambda Create Task Properties", ex);
         }
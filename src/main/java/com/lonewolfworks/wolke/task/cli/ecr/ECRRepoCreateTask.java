@@ -31,6 +31,6 @@ public class ECRRepoCreateTask {
         final AWSCredentials sessionCredentials = CredentialsHandler.getCredentials();
 
         EcrCreate create = new EcrCreate(logger, sessionCredentials, CredentialsHandler.getConfiguration(), configuration.getRegion());
-        create.createRepo(configuration.getRepoName());
+        create.createRepo(configuration.getRepoName(), configuration.getLifecyclePolicy());
     }
 }
@@ -16,10 +16,12 @@
 package com.lonewolfworks.wolke.task.cli.ecr;
 
 import com.amazonaws.regions.Regions;
+import com.lonewolfworks.wolke.aws.ecr.EcrLifecyclePolicy;
 
 public class ECRRepoTaskConfiguration {
     private Regions region;
     private String repoName;
+    private EcrLifecyclePolicy lifecyclePolicy;
 
     public Regions getRegion() {
         return region;
@@ -37,6 +39,14 @@ public class ECRRepoTaskConfiguration {
         this.repoName = repoName;
     }
 
+    public EcrLifecyclePolicy getLifecyclePolicy() {
+        return lifecyclePolicy;
+    }
+
+    public void setLifecyclePolicy(EcrLifecyclePolicy lifecyclePolicy) {
+        this.lifecyclePolicy = lifecyclePolicy;
+    }
+
     public ECRRepoTaskConfiguration withRegion(final Regions region) {
         this.region = region;
         return this;
@@ -46,4 +56,9 @@ public class ECRRepoTaskConfiguration {
         this.repoName = repoName;
         return this;
     }
+
+    public ECRRepoTaskConfiguration withLifecyclePolicy(final EcrLifecyclePolicy lifecyclePolicy) {
+        this.lifecyclePolicy = lifecyclePolicy;
+        return this;
+    }
 }
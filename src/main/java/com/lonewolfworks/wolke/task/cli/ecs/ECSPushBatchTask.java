@@ -0,0 +1,128 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.task.cli.ecs;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.amazonaws.auth.AWSCredentials;
+import com.lonewolfworks.wolke.aws.AwsExecException;
+import com.lonewolfworks.wolke.aws.credentials.CredentialsHandler;
+import com.lonewolfworks.wolke.logging.HermanLogger;
+import com.lonewolfworks.wolke.logging.PrefixedLogger;
+
+/**
+ * Pushes several apps from one JVM. Pushes share credentials, AWS clients, the
+ * configuration bucket reads and introspected cluster metadata; a failing push is
+ * reported in the summary without stopping the others.
+ */
+public class ECSPushBatchTask {
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private HermanLogger logger;
+
+    public ECSPushBatchTask(HermanLogger logger) {
+        this.logger = logger;
+    }
+
+    public void runTask(ECSPushBatchTaskConfiguration configuration) {
+        List<ECSPushTaskConfiguration> pushes = configuration.getPushes();
+        if (pushes.isEmpty()) {
+            logger.addLogEntry("No apps to push");
+            return;
+        }
+
+        final AWSCredentials sessionCredentials = CredentialsHandler.getCredentials();
+        ConcurrentHashMap<String, String> sharedClusterMetadata = new ConcurrentHashMap<>();
+        int parallelism = Math.max(1, Math.min(configuration.getParallelism(), pushes.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "ecs-push-batch-" + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<PushResult>> futures = new ArrayList<>();
+        try {
+            for (ECSPushTaskConfiguration push : pushes) {
+                push.setSharedClusterMetadata(sharedClusterMetadata);
+                futures.add(executor.submit(() -> push(push, sessionCredentials)));
+            }
+
+            List<PushResult> results = new ArrayList<>();
+            for (Future<PushResult> future : futures) {
+                results.add(future.get());
+            }
+            summarize(results);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AwsExecException(e);
+        } catch (ExecutionException e) {
+            throw new AwsExecException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private PushResult push(ECSPushTaskConfiguration configuration, AWSCredentials sessionCredentials) {
+        String app = new File(configuration.getRootPath()).getName();
+        HermanLogger appLogger = new PrefixedLogger(logger, app);
+        long start = System.nanoTime();
+        try {
+            new ECSPushTask(appLogger).runTask(configuration, sessionCredentials);
+            return new PushResult(app, null, System.nanoTime() - start);
+        } catch (RuntimeException e) {
+            appLogger.addErrorLogEntry("Push failed", e);
+            return new PushResult(app, e, System.nanoTime() - start);
+        }
+    }
+
+    private void summarize(List<PushResult> results) {
+        int failed = 0;
+        logger.addLogEntry("Batch push summary:");
+        for (PushResult result : results) {
+            String status = result.error == null ? "SUCCEEDED" : "FAILED   ";
+            String line = String.format("  %s %-40s %5ds", status, result.app, TimeUnit.NANOSECONDS.toSeconds(result.elapsedNanos));
+            if (result.error == null) {
+                logger.addLogEntry(line);
+            } else {
+                failed++;
+                logger.addErrorLogEntry(line + "  " + result.error.getMessage());
+            }
+        }
+        if (failed > 0) {
+            throw new AwsExecException(failed + " of " + results.size() + " apps failed to push");
+        }
+    }
+
+    private static class PushResult {
+        private final String app;
+        private final RuntimeException error;
+        private final long elapsedNanos;
+
+        PushResult(String app, RuntimeException error, long elapsedNanos) {
+            this.app = app;
+            this.error = error;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
+}
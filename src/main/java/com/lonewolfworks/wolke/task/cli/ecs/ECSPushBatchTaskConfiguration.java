@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.task.cli.ecs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ECSPushBatchTaskConfiguration {
+    private List<ECSPushTaskConfiguration> pushes = new ArrayList<>();
+    private int parallelism;
+
+    public List<ECSPushTaskConfiguration> getPushes() {
+        return pushes;
+    }
+
+    public void setPushes(List<ECSPushTaskConfiguration> pushes) {
+        this.pushes = pushes;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public ECSPushBatchTaskConfiguration withPushes(final List<ECSPushTaskConfiguration> pushes) {
+        this.pushes = pushes;
+        return this;
+    }
+
+    public ECSPushBatchTaskConfiguration withParallelism(final int parallelism) {
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "ECSPushBatchTaskConfiguration{" +
+            "pushes=" + pushes +
+            ", parallelism=" + parallelism +
+            '}';
+    }
+}
@@ -15,8 +15,12 @@
  */
 package com.lonewolfworks.wolke.task.cli.ecs;
 
+import java.util.List;
+
 import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.regions.Regions;
 import com.lonewolfworks.wolke.aws.credentials.CredentialsHandler;
+import com.lonewolfworks.wolke.aws.ecs.CliPropertyHandler;
 import com.lonewolfworks.wolke.aws.ecs.EcsPush;
 import com.lonewolfworks.wolke.aws.ecs.EcsPushContext;
 import com.lonewolfworks.wolke.aws.ecs.PropertyHandler;
@@ -33,35 +37,81 @@ public class ECSPushTask {
     }
 
     public void runTask(ECSPushTaskConfiguration configuration) {
-        final AWSCredentials sessionCredentials = CredentialsHandler.getCredentials();
-        final PropertyHandler propertyHandler = new PropertyHandlerUtil().getCliPropertyHandler(
+        runTask(configuration, CredentialsHandler.getCredentials());
+    }
+
+    public void runTask(ECSPushTaskConfiguration configuration, AWSCredentials sessionCredentials) {
+        final CliPropertyHandler propertyHandler = new PropertyHandlerUtil().getCliPropertyHandler(
             sessionCredentials,
             logger,
             configuration.getEnvironmentName(),
             configuration.getRootPath(),
             configuration.getCustomVariables());
-        final ECSPushTaskProperties taskProperties = ECSPushPropertyFactory.getTaskProperties(sessionCredentials, logger, configuration.getCustomConfigurationBucket(), configuration.getRegion(), propertyHandler);
+
+        List<Regions> regions = configuration.getRegions();
+        if (regions != null && regions.size() > 1) {
+            pushRegions(configuration, sessionCredentials, propertyHandler, regions);
+        } else {
+            createPush(configuration, sessionCredentials, configuration.getRegion(), propertyHandler, logger).push();
+        }
+
+        logger.addLogEntry("Done!");
+    }
+
+    private EcsPush createPush(ECSPushTaskConfiguration configuration, AWSCredentials sessionCredentials, Regions region,
+                               PropertyHandler propertyHandler, HermanLogger pushLogger) {
+        final ECSPushTaskProperties taskProperties = ECSPushPropertyFactory.getTaskProperties(sessionCredentials, pushLogger, configuration.getCustomConfigurationBucket(), region, propertyHandler);
         
         if(taskProperties.getRdsCredentialBrokerImage()!=null) {
         	propertyHandler.addProperty("herman.rdsCredentialBrokerImage", taskProperties.getRdsCredentialBrokerImage());
         }
 
         EcsPushContext context = new EcsPushContext()
-            .withLogger(logger)
+            .withLogger(pushLogger)
             .withPropertyHandler(propertyHandler)
             .withEnvName(configuration.getEnvironmentName())
-            .withSessionCredentials(CredentialsHandler.getCredentials())
-            .withAwsClientConfig(CredentialsHandler.getConfiguration())
-            .withRegion(configuration.getRegion())
+            .withSessionCredentials(sessionCredentials)
+            .withRegion(region)
             .withTimeout(configuration.getTimeout())
             .withRootPath(configuration.getRootPath())
             .withTaskProperties(taskProperties)
-            .withCustomConfigurationBucket(configuration.getCustomConfigurationBucket());
-        EcsPush push = new EcsPush(context);
-        push.push();
-
-        logger.addLogEntry("Done!");
+            .withCustomConfigurationBucket(configuration.getCustomConfigurationBucket())
+            .withForceNewDeployment(configuration.isForceNewDeployment())
+            .withTaskDefinitionRetention(configuration.getTaskDefinitionRetention())
+            .withClusterCacheDirectory(configuration.getClusterCacheDirectory())
+            .withClusterCacheBucket(configuration.getClusterCacheBucket())
+            .withClusterCacheTtlSeconds(configuration.getClusterCacheTtlSeconds())
+            .withRefreshClusterCache(configuration.isRefreshClusterCache())
+            .withSharedClusterMetadata(configuration.getSharedClusterMetadata())
+            .withDeployStateBucket(configuration.getDeployStateBucket())
+            .withDeployStateTable(configuration.getDeployStateTable())
+            .withReconcileIntervalSeconds(configuration.getReconcileIntervalSeconds())
+            .withFullReconcile(configuration.isFullReconcile());
+        return new EcsPush(context);
     }
 
+    /**
+     * Pushes to every region at once, each with its own config bucket, clients and
+     * cluster. The property files and account identity are only loaded once.
+     */
+    private void pushRegions(ECSPushTaskConfiguration configuration, AWSCredentials sessionCredentials,
+                             CliPropertyHandler propertyHandler, List<Regions> regions) {
+        new MultiRegionPush(logger, configuration.getRegionFailurePolicy()).run(regions, (region, regionLogger) -> {
+            PropertyHandler regionProperties = propertyHandler.copy(regionLogger);
+            return new MultiRegionPush.RegionPush() {
+                private EcsPush push;
+
+                @Override
+                public void push() {
+                    push = createPush(configuration, sessionCredentials, region, regionProperties, regionLogger);
+                    push.push();
+                }
 
+                @Override
+                public boolean rollBack() {
+                    return push.rollBack();
+                }
+            };
+        });
+    }
 }
@@ -17,6 +17,7 @@ package com.lonewolfworks.wolke.task.cli.ecs;
 
 import com.amazonaws.regions.Regions;
 
+import java.util.List;
 import java.util.Map;
 
 public class ECSPushTaskConfiguration {
@@ -26,6 +27,19 @@ public class ECSPushTaskConfiguration {
     private Regions region;
     private Map<String, String> customVariables;
     private String customConfigurationBucket;
+    private boolean forceNewDeployment;
+    private int taskDefinitionRetention = 1;
+    private String clusterCacheDirectory;
+    private String clusterCacheBucket;
+    private long clusterCacheTtlSeconds;
+    private boolean refreshClusterCache;
+    private Map<String, String> sharedClusterMetadata;
+    private List<Regions> regions;
+    private RegionFailurePolicy regionFailurePolicy = RegionFailurePolicy.CONTINUE;
+    private String deployStateBucket;
+    private String deployStateTable;
+    private long reconcileIntervalSeconds;
+    private boolean fullReconcile;
 
     public String getRootPath() {
         return rootPath;
@@ -75,6 +89,110 @@ public class ECSPushTaskConfiguration {
         this.customConfigurationBucket = customConfigurationBucket;
     }
 
+    public boolean isForceNewDeployment() {
+        return forceNewDeployment;
+    }
+
+    public void setForceNewDeployment(boolean forceNewDeployment) {
+        this.forceNewDeployment = forceNewDeployment;
+    }
+
+    public int getTaskDefinitionRetention() {
+        return taskDefinitionRetention;
+    }
+
+    public void setTaskDefinitionRetention(int taskDefinitionRetention) {
+        this.taskDefinitionRetention = taskDefinitionRetention;
+    }
+
+    public String getClusterCacheDirectory() {
+        return clusterCacheDirectory;
+    }
+
+    public void setClusterCacheDirectory(String clusterCacheDirectory) {
+        this.clusterCacheDirectory = clusterCacheDirectory;
+    }
+
+    public String getClusterCacheBucket() {
+        return clusterCacheBucket;
+    }
+
+    public void setClusterCacheBucket(String clusterCacheBucket) {
+        this.clusterCacheBucket = clusterCacheBucket;
+    }
+
+    public long getClusterCacheTtlSeconds() {
+        return clusterCacheTtlSeconds;
+    }
+
+    public void setClusterCacheTtlSeconds(long clusterCacheTtlSeconds) {
+        this.clusterCacheTtlSeconds = clusterCacheTtlSeconds;
+    }
+
+    public boolean isRefreshClusterCache() {
+        return refreshClusterCache;
+    }
+
+    public void setRefreshClusterCache(boolean refreshClusterCache) {
+        this.refreshClusterCache = refreshClusterCache;
+    }
+
+    public Map<String, String> getSharedClusterMetadata() {
+        return sharedClusterMetadata;
+    }
+
+    public void setSharedClusterMetadata(Map<String, String> sharedClusterMetadata) {
+        this.sharedClusterMetadata = sharedClusterMetadata;
+    }
+
+    public List<Regions> getRegions() {
+        return regions;
+    }
+
+    public void setRegions(List<Regions> regions) {
+        this.regions = regions;
+    }
+
+    public RegionFailurePolicy getRegionFailurePolicy() {
+        return regionFailurePolicy;
+    }
+
+    public void setRegionFailurePolicy(RegionFailurePolicy regionFailurePolicy) {
+        this.regionFailurePolicy = regionFailurePolicy;
+    }
+
+    public String getDeployStateBucket() {
+        return deployStateBucket;
+    }
+
+    public void setDeployStateBucket(String deployStateBucket) {
+        this.deployStateBucket = deployStateBucket;
+    }
+
+    public String getDeployStateTable() {
+        return deployStateTable;
+    }
+
+    public void setDeployStateTable(String deployStateTable) {
+        this.deployStateTable = deployStateTable;
+    }
+
+    public long getReconcileIntervalSeconds() {
+        return reconcileIntervalSeconds;
+    }
+
+    public void setReconcileIntervalSeconds(long reconcileIntervalSeconds) {
+        this.reconcileIntervalSeconds = reconcileIntervalSeconds;
+    }
+
+    public boolean isFullReconcile() {
+        return fullReconcile;
+    }
+
+    public void setFullReconcile(boolean fullReconcile) {
+        this.fullReconcile = fullReconcile;
+    }
+
     public ECSPushTaskConfiguration withRootPath(final String rootPath) {
         this.rootPath = rootPath;
         return this;
@@ -105,6 +223,71 @@ public class ECSPushTaskConfiguration {
         return this;
     }
 
+    public ECSPushTaskConfiguration withForceNewDeployment(final boolean forceNewDeployment) {
+        this.forceNewDeployment = forceNewDeployment;
+        return this;
+    }
+
+    public ECSPushTaskConfiguration withTaskDefinitionRetention(final int taskDefinitionRetention) {
+        this.taskDefinitionRetention = taskDefinitionRetention;
+        return this;
+    }
+
+    public ECSPushTaskConfiguration withClusterCacheDirectory(final String clusterCacheDirectory) {
+        this.clusterCacheDirectory = clusterCacheDirectory;
+        return this;
+    }
+
+    public ECSPushTaskConfiguration withClusterCacheBucket(final String clusterCacheBucket) {
+        this.clusterCacheBucket = clusterCacheBucket;
+        return this;
+    }
+
+    public ECSPushTaskConfiguration withClusterCacheTtlSeconds(final long clusterCacheTtlSeconds) {
+        this.clusterCacheTtlSeconds = clusterCacheTtlSeconds;
+        return this;
+    }
+
+    public ECSPushTaskConfiguration withRefreshClusterCache(final boolean refreshClusterCache) {
+        this.refreshClusterCache = refreshClusterCache;
+        return this;
+    }
+
+    public ECSPushTaskConfiguration withSharedClusterMetadata(final Map<String, String> sharedClusterMetadata) {
+        this.sharedClusterMetadata = sharedClusterMetadata;
+        return this;
+    }
+
+    public ECSPushTaskConfiguration withRegions(final List<Regions> regions) {
+        this.regions = regions;
+        return this;
+    }
+
+    public ECSPushTaskConfiguration withRegionFailurePolicy(final RegionFailurePolicy regionFailurePolicy) {
+        this.regionFailurePolicy = regionFailurePolicy;
+        return this;
+    }
+
+    public ECSPushTaskConfiguration withDeployStateBucket(final String deployStateBucket) {
+        this.deployStateBucket = deployStateBucket;
+        return this;
+    }
+
+    public ECSPushTaskConfiguration withDeployStateTable(final String deployStateTable) {
+        this.deployStateTable = deployStateTable;
+        return this;
+    }
+
+    public ECSPushTaskConfiguration withReconcileIntervalSeconds(final long reconcileIntervalSeconds) {
+        this.reconcileIntervalSeconds = reconcileIntervalSeconds;
+        return this;
+    }
+
+    public ECSPushTaskConfiguration withFullReconcile(final boolean fullReconcile) {
+        this.fullReconcile = fullReconcile;
+        return this;
+    }
+
     @Override
     public String toString() {
         return "ECSPushTaskConfiguration{" +
@@ -114,6 +297,18 @@ public class ECSPushTaskConfiguration {
             ", region=" + region +
             ", customVariables=" + customVariables +
             ", customConfigurationBucket='" + customConfigurationBucket + '\'' +
+            ", forceNewDeployment=" + forceNewDeployment +
+            ", taskDefinitionRetention=" + taskDefinitionRetention +
+            ", clusterCacheDirectory=" + clusterCacheDirectory +
+            ", clusterCacheBucket=" + clusterCacheBucket +
+            ", clusterCacheTtlSeconds=" + clusterCacheTtlSeconds +
+            ", refreshClusterCache=" + refreshClusterCache +
+            ", regions=" + regions +
+            ", regionFailurePolicy=" + regionFailurePolicy +
+            ", deployStateBucket=" + deployStateBucket +
+            ", deployStateTable=" + deployStateTable +
+            ", reconcileIntervalSeconds=" + reconcileIntervalSeconds +
+            ", fullReconcile=" + fullReconcile +
             '}';
     }
 }
\ No newline at end of file
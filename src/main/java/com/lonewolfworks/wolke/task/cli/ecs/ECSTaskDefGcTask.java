@@ -0,0 +1,38 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.task.cli.ecs;
+
+import com.amazonaws.services.ecs.AmazonECS;
+import com.lonewolfworks.wolke.aws.AwsClientRegistry;
+import com.lonewolfworks.wolke.aws.credentials.CredentialsHandler;
+import com.lonewolfworks.wolke.aws.ecs.TaskDefinitionGarbageCollector;
+import com.lonewolfworks.wolke.logging.HermanLogger;
+
+public class ECSTaskDefGcTask {
+    private HermanLogger logger;
+
+    public ECSTaskDefGcTask(HermanLogger logger) {
+        this.logger = logger;
+    }
+
+    public void runTask(ECSTaskDefGcTaskConfiguration configuration) {
+        AmazonECS ecsClient = AwsClientRegistry.getInstance().ecs(CredentialsHandler.getCredentials(), configuration.getRegion());
+        TaskDefinitionGarbageCollector collector = new TaskDefinitionGarbageCollector(ecsClient, logger,
+            configuration.getRetain(), configuration.getParallelism())
+            .withDryRun(configuration.isDryRun());
+        collector.sweep(configuration.getFamilies());
+    }
+}
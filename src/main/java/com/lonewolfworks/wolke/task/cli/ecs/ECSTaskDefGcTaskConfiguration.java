@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.task.cli.ecs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.amazonaws.regions.Regions;
+
+public class ECSTaskDefGcTaskConfiguration {
+    private Regions region;
+    private List<String> families = new ArrayList<>();
+    private int retain;
+    private int parallelism;
+    private boolean dryRun;
+
+    public Regions getRegion() {
+        return region;
+    }
+
+    public void setRegion(Regions region) {
+        this.region = region;
+    }
+
+    public List<String> getFamilies() {
+        return families;
+    }
+
+    public void setFamilies(List<String> families) {
+        this.families = families;
+    }
+
+    public int getRetain() {
+        return retain;
+    }
+
+    public void setRetain(int retain) {
+        this.retain = retain;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    public ECSTaskDefGcTaskConfiguration withRegion(final Regions region) {
+        this.region = region;
+        return this;
+    }
+
+    public ECSTaskDefGcTaskConfiguration withFamilies(final List<String> families) {
+        this.families = families;
+        return this;
+    }
+
+    public ECSTaskDefGcTaskConfiguration withRetain(final int retain) {
+        this.retain = retain;
+        return this;
+    }
+
+    public ECSTaskDefGcTaskConfiguration withParallelism(final int parallelism) {
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    public ECSTaskDefGcTaskConfiguration withDryRun(final boolean dryRun) {
+        this.dryRun = dryRun;
+        return this;
+    }
+}
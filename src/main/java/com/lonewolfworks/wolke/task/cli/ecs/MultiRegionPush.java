@@ -0,0 +1,166 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.task.cli.ecs;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+import com.amazonaws.regions.Regions;
+import com.lonewolfworks.wolke.aws.AwsExecException;
+import com.lonewolfworks.wolke.logging.HermanLogger;
+import com.lonewolfworks.wolke.logging.PrefixedLogger;
+
+/**
+ * Runs one push per region at once and applies the {@link RegionFailurePolicy} when one of them fails.
+ */
+class MultiRegionPush {
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    /**
+     * A push to a single region. {@link #push()} runs on its own thread; {@link #rollBack()} is only
+     * called after a successful push and returns false when there was nothing to roll back to.
+     */
+    interface RegionPush {
+        void push();
+
+        boolean rollBack();
+    }
+
+    private final HermanLogger logger;
+    private final RegionFailurePolicy policy;
+
+    MultiRegionPush(HermanLogger logger, RegionFailurePolicy policy) {
+        this.logger = logger;
+        this.policy = policy;
+    }
+
+    /**
+     * Creates a push for each region with a logger prefixed by the region name, runs them all and
+     * logs a summary line per region.
+     *
+     * @throws AwsExecException if any region failed, was stopped or was rolled back
+     */
+    void run(List<Regions> regions, BiFunction<Regions, HermanLogger, RegionPush> pushFactory) {
+        logger.addLogEntry("Pushing to " + regions + ", on failure: " + policy);
+
+        Map<Regions, RegionPush> pushes = new HashMap<>();
+        Map<Future<Regions>, Regions> submitted = new LinkedHashMap<>();
+        List<Regions> succeeded = new ArrayList<>();
+        Map<Regions, String> failed = new LinkedHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(regions.size(), r -> {
+            Thread thread = new Thread(r, "ecs-push-region-" + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            CompletionService<Regions> completion = new ExecutorCompletionService<>(executor);
+            for (Regions region : regions) {
+                RegionPush push = pushFactory.apply(region, new PrefixedLogger(logger, region.getName()));
+                pushes.put(region, push);
+                submitted.put(completion.submit(() -> {
+                    push.push();
+                    return region;
+                }), region);
+            }
+
+            for (int i = 0; i < submitted.size(); i++) {
+                Future<Regions> done = completion.take();
+                Regions region = submitted.get(done);
+                try {
+                    succeeded.add(done.get());
+                } catch (CancellationException e) {
+                    failed.put(region, "stopped after another region failed");
+                } catch (ExecutionException e) {
+                    new PrefixedLogger(logger, region.getName()).addErrorLogEntry("Push failed", e.getCause());
+                    failed.put(region, e.getCause().getMessage());
+                    if (policy == RegionFailurePolicy.STOP) {
+                        stop(submitted, region);
+                    }
+                }
+            }
+
+            if (!failed.isEmpty() && policy == RegionFailurePolicy.ROLLBACK) {
+                rollBack(completion, succeeded, pushes, failed);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AwsExecException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (Regions region : regions) {
+            String failure = failed.get(region);
+            if (failure == null) {
+                logger.addLogEntry("  SUCCEEDED " + region.getName());
+            } else {
+                logger.addErrorLogEntry("  FAILED    " + region.getName() + "  " + failure);
+            }
+        }
+        if (!failed.isEmpty()) {
+            throw new AwsExecException("Push failed in " + failed.size() + " of " + regions.size() + " regions");
+        }
+    }
+
+    /**
+     * Interrupts every push still running. They stop wherever they are, which may be part way through
+     * a deploy, so the regions are named for whoever has to look at them afterwards.
+     */
+    private void stop(Map<Future<Regions>, Regions> submitted, Regions failedRegion) {
+        List<Regions> interrupted = submitted.entrySet().stream()
+            .filter(entry -> entry.getKey().cancel(true))
+            .map(Map.Entry::getValue)
+            .collect(Collectors.toList());
+        if (!interrupted.isEmpty()) {
+            logger.addErrorLogEntry("Stopping pushes still running in " + interrupted.stream().map(Regions::getName)
+                .collect(Collectors.joining(", ")) + " after " + failedRegion.getName()
+                + " failed; they may be left part way through a deploy");
+        }
+    }
+
+    private void rollBack(CompletionService<Regions> completion, List<Regions> succeeded, Map<Regions, RegionPush> pushes,
+                          Map<Regions, String> failed) throws InterruptedException {
+        Map<Future<Regions>, Regions> rollbacks = new HashMap<>();
+        for (Regions region : succeeded) {
+            RegionPush push = pushes.get(region);
+            rollbacks.put(completion.submit(() -> push.rollBack() ? region : null), region);
+        }
+        for (int i = 0; i < rollbacks.size(); i++) {
+            Future<Regions> done = completion.take();
+            Regions region = rollbacks.get(done);
+            try {
+                failed.put(region, done.get() != null ? "rolled back after another region failed"
+                    : "nothing to roll back after another region failed");
+            } catch (ExecutionException e) {
+                new PrefixedLogger(logger, region.getName()).addErrorLogEntry("Rollback failed", e.getCause());
+                failed.put(region, "rollback failed: " + e.getCause().getMessage());
+            }
+        }
+    }
+}
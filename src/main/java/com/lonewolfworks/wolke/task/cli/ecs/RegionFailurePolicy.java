@@ -0,0 +1,28 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.task.cli.ecs;
+
+/**
+ * What a multi-region push does with the other regions once one of them fails.
+ */
+public enum RegionFailurePolicy {
+    /** Let the other regions finish, then fail. */
+    CONTINUE,
+    /** Let the other regions finish, then roll back the ones that succeeded. */
+    ROLLBACK,
+    /** Stop the other regions where they are. */
+    STOP
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Polling delay that starts short and grows geometrically up to a ceiling, with
+ * random jitter so concurrent pollers don't fall into lockstep.
+ */
+public class AdaptiveBackoff {
+
+    private static final double DEFAULT_MULTIPLIER = 1.5;
+    private static final double DEFAULT_JITTER = 0.2;
+
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final double multiplier;
+    private final double jitter;
+    private long currentDelayMillis;
+
+    public AdaptiveBackoff(long initialDelayMillis, long maxDelayMillis) {
+        this(initialDelayMillis, maxDelayMillis, DEFAULT_MULTIPLIER, DEFAULT_JITTER);
+    }
+
+    public AdaptiveBackoff(long initialDelayMillis, long maxDelayMillis, double multiplier, double jitter) {
+        this.initialDelayMillis = initialDelayMillis;
+        this.maxDelayMillis = Math.max(initialDelayMillis, maxDelayMillis);
+        this.multiplier = multiplier;
+        this.jitter = jitter;
+        this.currentDelayMillis = initialDelayMillis;
+    }
+
+    public long nextDelayMillis() {
+        long base = currentDelayMillis;
+        currentDelayMillis = Math.min(maxDelayMillis, (long) Math.ceil(currentDelayMillis * multiplier));
+        if (base <= 0 || jitter <= 0) {
+            return Math.max(0, base);
+        }
+        long spread = (long) (base * jitter);
+        return base + ThreadLocalRandom.current().nextLong(-spread, spread + 1);
+    }
+
+    /**
+     * Sleeps for the next delay, but never past the given deadline.
+     */
+    public void sleepUntilNext(long deadlineMillis) throws InterruptedException {
+        long remaining = deadlineMillis - System.currentTimeMillis();
+        long delay = Math.min(nextDelayMillis(), remaining);
+        if (delay > 0) {
+            Thread.sleep(delay);
+        }
+    }
+
+    public void reset() {
+        currentDelayMillis = initialDelayMillis;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.IOUtils;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.lonewolfworks.wolke.logging.HermanLogger;
+
+/**
+ * On-disk cache for configuration bucket objects. Each object is stored next
+ * to its ETag and revalidated with a conditional GET, so an unchanged object
+ * costs a 304 instead of a download. With a TTL, objects validated within the
+ * TTL are served without contacting S3 at all.
+ */
+public class ConfigurationCache {
+
+    public static final String DEFAULT_DIRECTORY = System.getProperty("user.home") + File.separator + ".wolkezeug"
+        + File.separator + "cache";
+
+    private static final String ETAG_SUFFIX = ".etag";
+
+    private static volatile ConfigurationCache instance = new ConfigurationCache(new File(DEFAULT_DIRECTORY), 0);
+
+    private final File directory;
+    private final long ttlMillis;
+
+    private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<>();
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+    /**
+     * @param directory root of the cache, created on first write; null disables caching
+     * @param ttlMillis how long a validated object is trusted without revalidation; 0 always revalidates
+     */
+    public ConfigurationCache(File directory, long ttlMillis) {
+        this.directory = directory;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public static ConfigurationCache getInstance() {
+        return instance;
+    }
+
+    public static void configure(ConfigurationCache cache) {
+        instance = cache;
+    }
+
+    /**
+     * Callers asking for the same object wait for each other, so it is fetched
+     * and written once; other objects load in parallel.
+     */
+    public String getObjectAsString(AmazonS3 client, String bucket, String key, HermanLogger logger)
+        throws IOException {
+        synchronized (locks.computeIfAbsent(bucket + "/" + key, k -> new Object())) {
+            return load(client, bucket, key, logger);
+        }
+    }
+
+    private String load(AmazonS3 client, String bucket, String key, HermanLogger logger) throws IOException {
+        if (directory == null) {
+            try (S3Object object = client.getObject(new GetObjectRequest(bucket, key))) {
+                return IOUtils.toString(object.getObjectContent(), StandardCharsets.UTF_8);
+            }
+        }
+
+        Path content = Paths.get(directory.getPath(), bucket, key);
+        Path etagFile = Paths.get(directory.getPath(), bucket, key + ETAG_SUFFIX);
+        boolean cached = Files.isRegularFile(content) && Files.isRegularFile(etagFile);
+
+        if (cached && ttlMillis > 0
+            && System.currentTimeMillis() - Files.getLastModifiedTime(etagFile).toMillis() < ttlMillis) {
+            return hit(content, key, "within TTL", logger);
+        }
+
+        GetObjectRequest request = new GetObjectRequest(bucket, key);
+        if (cached) {
+            request.withNonmatchingETagConstraint(new String(Files.readAllBytes(etagFile), StandardCharsets.UTF_8));
+        }
+
+        // The SDK answers a satisfied If-None-Match (304) with a null object
+        S3Object object = client.getObject(request);
+        if (object == null) {
+            Files.setLastModifiedTime(etagFile, FileTime.fromMillis(System.currentTimeMillis()));
+            return hit(content, key, "not modified", logger);
+        }
+
+        byte[] body;
+        try {
+            body = IOUtils.toByteArray(object.getObjectContent());
+        } finally {
+            object.close();
+        }
+        store(content, body);
+        store(etagFile, object.getObjectMetadata().getETag().getBytes(StandardCharsets.UTF_8));
+
+        misses.incrementAndGet();
+        logStats(key, "downloaded", logger);
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    private String hit(Path content, String key, String reason, HermanLogger logger) throws IOException {
+        byte[] body = Files.readAllBytes(content);
+        hits.incrementAndGet();
+        bytesSaved.addAndGet(body.length);
+        logStats(key, reason, logger);
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    private void logStats(String key, String outcome, HermanLogger logger) {
+        logger.addLogEntry(String.format("... Config cache %s: %s (hits=%d, misses=%d, bytes saved=%d)",
+            outcome, key, hits.get(), misses.get(), bytesSaved.get()));
+    }
+
+    private static void store(Path target, byte[] data) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        Files.write(temp, data);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
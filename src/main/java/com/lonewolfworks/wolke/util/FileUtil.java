@@ -26,6 +26,9 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -33,8 +36,12 @@ public class FileUtil {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(FileUtil.class);
 
+    static final long MAX_CACHED_ENTRY_BYTES = 1024 * 1024;
+
     private String rootPath;
     private HermanLogger buildLogger;
+    private ConfigBundle bundle;
+    private boolean bundleIndexed;
 
     public FileUtil(String rootPath, HermanLogger buildLogger) {
         this.rootPath = rootPath;
@@ -92,29 +99,36 @@ public class FileUtil {
         return null;
     }
 
+    /**
+     * Reads the named files from the config bundle in a single pass so later
+     * lookups are served from memory. Names not in the bundle are ignored.
+     */
+    public void prefetch(String... filenames) {
+        ConfigBundle bundle = getBundle();
+        if (bundle != null) {
+            bundle.prefetch(filenames);
+        }
+    }
+
     private String findFileInZip(String filename) {
-        File zip = findZip();
-        String result;
-        if (zip != null) {
-            try (ZipFile zipFile = new ZipFile(zip)) {
-                Enumeration<? extends ZipEntry> entries = zipFile.entries();
-                while (entries.hasMoreElements()) {
-                    ZipEntry entry = entries.nextElement();
-                    if (entry.getName().contentEquals(filename)) {
-                        InputStream stream = zipFile.getInputStream(entry);
-                        result = IOUtils.toString(stream);
-                        return result;
-                    }
-                }
-            } catch (IOException e) {
-                LOGGER.debug("Error finding file: " + filename, e);
-                buildLogger
-                    .addLogEntry(String.format("Error reading file in zip %s: %s", filename, e.getMessage()));
+        ConfigBundle bundle = getBundle();
+        return bundle == null ? null : bundle.read(filename);
+    }
 
+    private synchronized ConfigBundle getBundle() {
+        if (!bundleIndexed) {
+            bundleIndexed = true;
+            File zip = findZip();
+            if (zip != null) {
+                try {
+                    bundle = new ConfigBundle(zip);
+                } catch (IOException e) {
+                    LOGGER.debug("Error opening config zip: " + zip, e);
+                    buildLogger.addLogEntry(String.format("Error opening config zip %s: %s", zip.getName(), e.getMessage()));
+                }
             }
         }
-        return null;
-
+        return bundle;
     }
 
     private File findZip() {
@@ -128,4 +142,83 @@ public class FileUtil {
         }
         return null;
     }
+
+    /**
+     * The *-config.zip with its central directory indexed by entry name. Small
+     * entries stay in memory once read; larger ones are read again on demand.
+     * The archive is only open while entries are being read, and an entry that
+     * can't be read doesn't affect the others.
+     */
+    private class ConfigBundle {
+        private final File zip;
+        private final Map<String, ZipEntry> entries = new HashMap<>();
+        private final Map<String, String> contents = new ConcurrentHashMap<>();
+
+        ConfigBundle(File zip) throws IOException {
+            this.zip = zip;
+            try (ZipFile zipFile = new ZipFile(zip)) {
+                Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+                while (zipEntries.hasMoreElements()) {
+                    ZipEntry entry = zipEntries.nextElement();
+                    if (!entry.isDirectory()) {
+                        entries.putIfAbsent(entry.getName(), entry);
+                    }
+                }
+            }
+        }
+
+        String read(String filename) {
+            ZipEntry entry = entries.get(filename);
+            if (entry == null) {
+                return null;
+            }
+            String cached = contents.get(filename);
+            if (cached != null) {
+                return cached;
+            }
+            try (ZipFile zipFile = new ZipFile(zip)) {
+                return read(zipFile, entry);
+            } catch (IOException e) {
+                logReadError(filename, e);
+            }
+            return null;
+        }
+
+        void prefetch(String... filenames) {
+            try (ZipFile zipFile = new ZipFile(zip)) {
+                for (String filename : filenames) {
+                    ZipEntry entry = filename == null ? null : entries.get(filename);
+                    if (entry != null && isCacheable(entry) && !contents.containsKey(filename)) {
+                        try {
+                            read(zipFile, entry);
+                        } catch (IOException e) {
+                            logReadError(filename, e);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.debug("Error opening config zip: " + zip, e);
+                buildLogger.addLogEntry(String.format("Error opening config zip %s: %s", zip.getName(), e.getMessage()));
+            }
+        }
+
+        private String read(ZipFile zipFile, ZipEntry entry) throws IOException {
+            try (InputStream stream = zipFile.getInputStream(entry)) {
+                String result = IOUtils.toString(stream);
+                if (isCacheable(entry)) {
+                    contents.put(entry.getName(), result);
+                }
+                return result;
+            }
+        }
+
+        private boolean isCacheable(ZipEntry entry) {
+            return entry.getSize() >= 0 && entry.getSize() <= MAX_CACHED_ENTRY_BYTES;
+        }
+
+        private void logReadError(String filename, IOException e) {
+            LOGGER.debug("Error finding file: " + filename, e);
+            buildLogger.addLogEntry(String.format("Error reading file in zip %s: %s", filename, e.getMessage()));
+        }
+    }
 }
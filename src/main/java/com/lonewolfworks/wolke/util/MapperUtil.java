@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lonewolfworks.wolke.util;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.Projection;
+import com.amazonaws.services.dynamodbv2.model.StreamSpecification;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.lonewolfworks.wolke.aws.ecs.broker.dynamodb.DynamoDBMixIns;
+
+/**
+ * Shared, fully configured Jackson mappers. Mappers are expensive to build and
+ * slow on first use of each type; readers and writers derived from them are
+ * immutable and thread-safe, so they are created once per target type.
+ */
+public class MapperUtil {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final ObjectMapper YAML = new ObjectMapper(new YAMLFactory());
+    private static final ObjectMapper DYNAMODB_JSON = withDynamoDBMixIns(new ObjectMapper());
+    private static final ObjectMapper DYNAMODB_YAML = withDynamoDBMixIns(new ObjectMapper(new YAMLFactory()));
+    private static final ObjectWriter JSON_WRITER = JSON.writer();
+
+    private static final Map<Type, ObjectReader> JSON_READERS = new ConcurrentHashMap<>();
+    private static final Map<Type, ObjectReader> YAML_READERS = new ConcurrentHashMap<>();
+    private static final Map<Type, ObjectReader> DYNAMODB_JSON_READERS = new ConcurrentHashMap<>();
+    private static final Map<Type, ObjectReader> DYNAMODB_YAML_READERS = new ConcurrentHashMap<>();
+
+    private MapperUtil() {
+        throw new IllegalAccessError("Utility class");
+    }
+
+    public static ObjectReader jsonReader(Class<?> type) {
+        return JSON_READERS.computeIfAbsent(type, t -> JSON.readerFor(type));
+    }
+
+    public static ObjectReader jsonReader(TypeReference<?> type) {
+        return JSON_READERS.computeIfAbsent(type.getType(), t -> JSON.readerFor(type));
+    }
+
+    public static ObjectReader yamlReader(Class<?> type) {
+        return YAML_READERS.computeIfAbsent(type, t -> YAML.readerFor(type));
+    }
+
+    public static ObjectReader reader(Class<?> type, boolean isJson) {
+        return isJson ? jsonReader(type) : yamlReader(type);
+    }
+
+    /**
+     * Reader for manifests that embed DynamoDB table definitions, whose SDK
+     * model setters are overloaded and need {@link DynamoDBMixIns}.
+     */
+    public static ObjectReader dynamoDBAwareReader(Class<?> type, boolean isJson) {
+        return isJson
+            ? DYNAMODB_JSON_READERS.computeIfAbsent(type, t -> DYNAMODB_JSON.readerFor(type))
+            : DYNAMODB_YAML_READERS.computeIfAbsent(type, t -> DYNAMODB_YAML.readerFor(type));
+    }
+
+    public static ObjectWriter jsonWriter() {
+        return JSON_WRITER;
+    }
+
+    public static ObjectMapper withDynamoDBMixIns(ObjectMapper mapper) {
+        return mapper.addMixIn(KeySchemaElement.class, DynamoDBMixIns.class)
+            .addMixIn(StreamSpecification.class, DynamoDBMixIns.class)
+            .addMixIn(AttributeDefinition.class, DynamoDBMixIns.class)
+            .addMixIn(Projection.class, DynamoDBMixIns.class);
+    }
+}
@@ -2,12 +2,8 @@ package com.lonewolfworks.wolke.util;
 
 import java.util.Map;
 
-import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
-import com.amazonaws.services.securitytoken.AWSSecurityTokenService;
-import com.amazonaws.services.securitytoken.AWSSecurityTokenServiceClientBuilder;
-import com.amazonaws.services.securitytoken.model.GetCallerIdentityRequest;
+import com.lonewolfworks.wolke.aws.AccountIdentity;
 import com.lonewolfworks.wolke.aws.ecs.CliPropertyHandler;
 import com.lonewolfworks.wolke.aws.ecs.PropertyHandler;
 import com.lonewolfworks.wolke.logging.HermanLogger;
@@ -15,9 +11,9 @@ import com.lonewolfworks.wolke.logging.HermanLogger;
 public class PropertyHandlerUtil {
 
   
-    public PropertyHandler getCliPropertyHandler(AWSCredentials sessionCredentials, HermanLogger logger,
+    public CliPropertyHandler getCliPropertyHandler(AWSCredentials sessionCredentials, HermanLogger logger,
             String environmentName, String rootDirectory, Map<String, String> customVariables) {
-        final PropertyHandler handler = new CliPropertyHandler(logger, environmentName, rootDirectory, customVariables);
+        final CliPropertyHandler handler = new CliPropertyHandler(logger, environmentName, rootDirectory, customVariables);
         PropertyHandlerUtil.addStandardProperties(sessionCredentials, handler);
         return handler;
     }
@@ -28,9 +24,6 @@ public class PropertyHandlerUtil {
     }
 
     private static String getAccountId(AWSCredentials sessionCredentials){
-        AWSSecurityTokenService stsClient = AWSSecurityTokenServiceClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(sessionCredentials))
-                .withClientConfiguration(new ClientConfiguration().withMaxErrorRetry(10)).build();
-        return stsClient.getCallerIdentity(new GetCallerIdentityRequest()).getAccount();
+        return AccountIdentity.getInstance().getAccountId(sessionCredentials);
     }
 }
@@ -0,0 +1,151 @@
+package com.lonewolfworks.wolke.aws.ecr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.amazonaws.services.ecr.AbstractAmazonECR;
+import com.amazonaws.services.ecr.model.BatchDeleteImageRequest;
+import com.amazonaws.services.ecr.model.BatchDeleteImageResult;
+import com.amazonaws.services.ecr.model.DescribeImagesRequest;
+import com.amazonaws.services.ecr.model.DescribeImagesResult;
+import com.amazonaws.services.ecr.model.GetLifecyclePolicyRequest;
+import com.amazonaws.services.ecr.model.GetLifecyclePolicyResult;
+import com.amazonaws.services.ecr.model.ImageDetail;
+import com.amazonaws.services.ecr.model.ImageIdentifier;
+import com.amazonaws.services.ecr.model.LifecyclePolicyNotFoundException;
+import com.amazonaws.services.ecr.model.PutLifecyclePolicyRequest;
+import com.amazonaws.services.ecr.model.PutLifecyclePolicyResult;
+import com.lonewolfworks.wolke.logging.SysoutLogger;
+
+public class EcrTrimTest {
+
+    FakeEcr ecr = new FakeEcr();
+
+    @Test
+    public void newestImagesAreKeptAcrossPages() {
+        for (int i = 0; i < 450; i++) {
+            ecr.images.add(new ImageDetail().withImageDigest("sha256:" + i).withImagePushedAt(new Date(i * 1000L)));
+        }
+        Collections.shuffle(ecr.images);
+
+        new EcrTrim(new SysoutLogger(), ecr, 100).trimRepo("billing");
+
+        assertEquals(350, ecr.deleted.size());
+        assertTrue(ecr.deleted.contains("sha256:0"));
+        assertTrue(ecr.deleted.contains("sha256:349"));
+        assertFalse(ecr.deleted.contains("sha256:350"));
+        assertEquals(4, ecr.batches.size());
+        for (int size : ecr.batches) {
+            assertTrue(size <= 100);
+        }
+    }
+
+    @Test
+    public void untaggedImagesAreDeletedByDigest() {
+        ecr.images.add(new ImageDetail().withImageDigest("sha256:old").withImagePushedAt(new Date(1000L)));
+        ecr.images.add(new ImageDetail().withImageDigest("sha256:new").withImageTags("1.0.1")
+            .withImagePushedAt(new Date(2000L)));
+
+        new EcrTrim(new SysoutLogger(), ecr, 1).trimRepo("billing");
+
+        assertEquals(Collections.singleton("sha256:old"), ecr.deleted);
+    }
+
+    @Test
+    public void lifecyclePolicyOrdersAnyRuleLast() {
+        String policy = new EcrLifecyclePolicy()
+            .withKeepTagPrefixes(Collections.singletonMap("release", 50))
+            .toPolicyText();
+
+        assertTrue(policy.indexOf("\"untagged\"") < policy.indexOf("\"release\""));
+        assertTrue(policy.indexOf("\"release\"") < policy.indexOf("\"any\""));
+        assertTrue(EcrLifecyclePolicyBroker.samePolicy(policy, new EcrLifecyclePolicy()
+            .withKeepTagPrefixes(Collections.singletonMap("release", 50)).toPolicyText()));
+        assertFalse(EcrLifecyclePolicyBroker.samePolicy(policy, new EcrLifecyclePolicy().toPolicyText()));
+    }
+
+    @Test
+    public void defaultLifecyclePolicyIsWrittenToRepositoriesWithoutOne() {
+        String policy = new EcrLifecyclePolicy().toPolicyText();
+
+        new EcrLifecyclePolicyBroker(ecr, new SysoutLogger()).brokerDefaultPolicy("123456789012", "billing", policy);
+
+        assertEquals(policy, ecr.lifecyclePolicy);
+        assertEquals(1, ecr.lifecyclePolicyWrites);
+    }
+
+    @Test
+    public void defaultLifecyclePolicyLeavesExistingPoliciesAlone() {
+        String handManaged = new EcrLifecyclePolicy().withKeepImages(20).toPolicyText();
+        ecr.lifecyclePolicy = handManaged;
+
+        new EcrLifecyclePolicyBroker(ecr, new SysoutLogger())
+            .brokerDefaultPolicy("123456789012", "billing", new EcrLifecyclePolicy().toPolicyText());
+
+        assertEquals(handManaged, ecr.lifecyclePolicy);
+        assertEquals(0, ecr.lifecyclePolicyWrites);
+    }
+
+    @Test
+    public void configuredLifecyclePolicyReplacesExistingPolicy() {
+        ecr.lifecyclePolicy = new EcrLifecyclePolicy().withKeepImages(20).toPolicyText();
+        String configured = new EcrLifecyclePolicy().withKeepImages(100).toPolicyText();
+        EcrLifecyclePolicyBroker broker = new EcrLifecyclePolicyBroker(ecr, new SysoutLogger());
+
+        broker.brokerPolicy("123456789012", "billing", configured);
+        broker.brokerPolicy("123456789012", "billing", configured);
+
+        assertEquals(configured, ecr.lifecyclePolicy);
+        assertEquals(1, ecr.lifecyclePolicyWrites);
+    }
+
+    static class FakeEcr extends AbstractAmazonECR {
+        List<ImageDetail> images = new ArrayList<>();
+        Set<String> deleted = Collections.synchronizedSet(new HashSet<>());
+        List<Integer> batches = Collections.synchronizedList(new ArrayList<>());
+        String lifecyclePolicy;
+        int lifecyclePolicyWrites;
+
+        @Override
+        public DescribeImagesResult describeImages(DescribeImagesRequest request) {
+            int start = request.getNextToken() == null ? 0 : Integer.parseInt(request.getNextToken());
+            int end = Math.min(start + 100, images.size());
+            return new DescribeImagesResult().withImageDetails(images.subList(start, end))
+                .withNextToken(end < images.size() ? String.valueOf(end) : null);
+        }
+
+        @Override
+        public BatchDeleteImageResult batchDeleteImage(BatchDeleteImageRequest request) {
+            batches.add(request.getImageIds().size());
+            for (ImageIdentifier id : request.getImageIds()) {
+                deleted.add(id.getImageDigest());
+            }
+            return new BatchDeleteImageResult();
+        }
+
+        @Override
+        public GetLifecyclePolicyResult getLifecyclePolicy(GetLifecyclePolicyRequest request) {
+            if (lifecyclePolicy == null) {
+                throw new LifecyclePolicyNotFoundException("Lifecycle policy does not exist");
+            }
+            return new GetLifecyclePolicyResult().withLifecyclePolicyText(lifecyclePolicy);
+        }
+
+        @Override
+        public PutLifecyclePolicyResult putLifecyclePolicy(PutLifecyclePolicyRequest request) {
+            lifecyclePolicy = request.getLifecyclePolicyText();
+            lifecyclePolicyWrites++;
+            return new PutLifecyclePolicyResult();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.lonewolfworks.wolke.aws.ecs;
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+
+/**
+ * Parses a ~3,000 line multi-container YAML definition with the shared reader and
+ * with a mapper built per call, as EcsDefinitionParser used to. Run from the IDE or with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.lonewolfworks.wolke.aws.ecs.EcsDefinitionParserBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EcsDefinitionParserBenchmark {
+
+    private static final int CONTAINERS = 40;
+    private static final int ENVIRONMENT_PER_CONTAINER = 30;
+
+    private String template;
+    private EcsDefinitionParser parser;
+
+    @Setup
+    public void setup() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("cluster: my-cluster\n")
+            .append("appName: my-app-dev\n")
+            .append("service:\n")
+            .append("  instanceCount: 2\n")
+            .append("  healthCheck:\n")
+            .append("    target: \"/health\"\n")
+            .append("containerDefinitions:\n");
+        for (int i = 0; i < CONTAINERS; i++) {
+            builder.append("- name: container-").append(i).append('\n')
+                .append("  memory: 512\n")
+                .append("  image: 123456789012.dkr.ecr.us-east-1.amazonaws.com/my-app-").append(i).append(":BUILD1\n")
+                .append("  portMappings:\n")
+                .append("  - hostPort: 0\n")
+                .append("    containerPort: ").append(8080 + i).append('\n')
+                .append("  ulimits:\n")
+                .append("  - name: nofile\n")
+                .append("    softLimit: 65536\n")
+                .append("    hardLimit: 65536\n")
+                .append("  logConfiguration:\n")
+                .append("    logDriver: json-file\n")
+                .append("  environment:\n");
+            for (int j = 0; j < ENVIRONMENT_PER_CONTAINER; j++) {
+                builder.append("  - name: SETTING_").append(j).append('\n')
+                    .append("    value: value-").append(i).append('-').append(j).append('\n');
+            }
+            builder.append("  mountPoints:\n")
+                .append("  - sourceVolume: data\n")
+                .append("    containerPath: /data/").append(i).append('\n');
+        }
+        builder.append("volumes:\n")
+            .append("- name: data\n")
+            .append("  host:\n")
+            .append("    sourcePath: /data\n");
+        template = builder.toString();
+        parser = new EcsDefinitionParser(new PassThroughPropertyHandler());
+    }
+
+    @Benchmark
+    public EcsPushDefinition sharedReader() {
+        return parser.parse(template, false);
+    }
+
+    @Benchmark
+    public EcsPushDefinition mapperPerCall() throws IOException {
+        ObjectMapper mapper = EcsDefinitionParser.definitionMapper(new ObjectMapper(new YAMLFactory()));
+        return mapper.readValue(template, EcsPushDefinition.class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(EcsDefinitionParserBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    static class PassThroughPropertyHandler implements PropertyHandler {
+
+        @Override
+        public void addProperty(String key, String value) {
+        }
+
+        @Override
+        public String mapInProperties(String template) {
+            return template;
+        }
+
+        @Override
+        public Properties lookupProperties(String... propList) {
+            return new Properties();
+        }
+
+        @Override
+        public String lookupVariable(String inputKey) {
+            return null;
+        }
+    }
+}
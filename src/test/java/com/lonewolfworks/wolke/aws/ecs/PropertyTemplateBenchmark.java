@@ -0,0 +1,73 @@
+package com.lonewolfworks.wolke.aws.ecs;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the legacy per-property regex substitution with PropertyTemplate on a
+ * ~200 KB template holding 500 placeholders. Run from the IDE or with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.lonewolfworks.wolke.aws.ecs.PropertyTemplateBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PropertyTemplateBenchmark {
+
+    private static final int TEMPLATE_SIZE = 200 * 1024;
+    private static final int PLACEHOLDERS = 500;
+    private static final int DISTINCT_PROPERTIES = 100;
+
+    private String template;
+    private Map<String, String> props;
+
+    @Setup
+    public void setup() {
+        props = new HashMap<>();
+        for (int i = 0; i < DISTINCT_PROPERTIES; i++) {
+            props.put("app.property." + i, "value-" + i);
+        }
+
+        int fillerPerPlaceholder = TEMPLATE_SIZE / PLACEHOLDERS;
+        StringBuilder builder = new StringBuilder(TEMPLATE_SIZE + PLACEHOLDERS * 20);
+        for (int i = 0; i < PLACEHOLDERS; i++) {
+            while (builder.length() < (i + 1) * fillerPerPlaceholder) {
+                builder.append("      \"Effect\": \"Allow\",\n");
+            }
+            builder.append("${app.property.").append(i % DISTINCT_PROPERTIES).append('}');
+        }
+        template = builder.toString();
+    }
+
+    @Benchmark
+    public String legacyRegexReplace() {
+        return PropertyTemplateTest.legacyRender(template, props);
+    }
+
+    @Benchmark
+    public String compiledTemplate() {
+        return PropertyTemplate.compile(template).render(props::get);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PropertyTemplateBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,97 @@
+package com.lonewolfworks.wolke.aws.ecs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import com.lonewolfworks.wolke.aws.AwsExecException;
+
+public class PropertyTemplateTest {
+
+    @Test
+    public void rendersRepeatedAndAdjacentPlaceholders() {
+        Map<String, String> props = new HashMap<>();
+        props.put("app.name", "billing");
+        props.put("account.id", "123456789012");
+
+        assertRendersLikeLegacy("arn:aws:iam::${account.id}:role/${app.name}-${app.name}${account.id} tail", props);
+    }
+
+    @Test
+    public void appliesLegacyReplacementEscapes() {
+        Map<String, String> props = new HashMap<>();
+        props.put("regex", "^a\\.b\\\\c$1$0$01$10");
+
+        assertRendersLikeLegacy("pattern: ${regex}", props);
+    }
+
+    @Test
+    public void leavesUnmatchedSyntaxAlone() {
+        Map<String, String> props = new HashMap<>();
+        props.put("ok", "yes");
+
+        assertRendersLikeLegacy("${ok} ${not valid} $ {x} ${} ${ok", props);
+    }
+
+    @Test
+    public void templateWithoutPlaceholdersIsReturnedAsIs() {
+        String template = "no placeholders here";
+        assertSame(template, PropertyTemplate.compile(template).render(key -> null));
+    }
+
+    @Test
+    public void compiledTemplatesAreCached() {
+        String template = "cached ${a}";
+        assertSame(PropertyTemplate.compile(template), PropertyTemplate.compile(new String(template)));
+    }
+
+    @Test
+    public void missingPropertyFailsWithPropertyName() {
+        try {
+            PropertyTemplate.compile("${present} ${absent}").render(key -> {
+                if ("present".equals(key)) {
+                    return "value";
+                }
+                throw new AwsExecException("Missing property set for " + key);
+            });
+            fail("Expected missing property to fail");
+        } catch (AwsExecException e) {
+            assertEquals("Missing property set for absent", e.getMessage());
+        }
+    }
+
+    private static void assertRendersLikeLegacy(String template, Map<String, String> props) {
+        assertEquals(legacyRender(template, props), PropertyTemplate.compile(template).render(props::get));
+    }
+
+    /**
+     * The per-property regex substitution CliPropertyHandler used before PropertyTemplate.
+     */
+    static String legacyRender(String template, Map<String, String> props) {
+        Set<String> propertiesToMatch = new HashSet<>();
+        Matcher propMatcher = CliPropertyHandler.PROPERTY_PATTERN.matcher(template);
+        while (propMatcher.find()) {
+            propertiesToMatch.add(propMatcher.group());
+        }
+        String result = template;
+        for (String prop : propertiesToMatch) {
+            String token = prop.replace("${", "").replace("}", "");
+            Matcher matcher = Pattern.compile("\\$\\{(" + token + ")\\}").matcher(result);
+            String value = props.get(token);
+            if (value == null) {
+                throw new AwsExecException("Missing property set for " + token);
+            }
+            result = matcher.replaceAll(value);
+        }
+        return result;
+    }
+}
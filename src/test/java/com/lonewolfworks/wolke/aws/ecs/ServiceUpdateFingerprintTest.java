@@ -0,0 +1,73 @@
+package com.lonewolfworks.wolke.aws.ecs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Test;
+
+import com.amazonaws.services.ecs.model.AssignPublicIp;
+import com.amazonaws.services.ecs.model.AwsVpcConfiguration;
+import com.amazonaws.services.ecs.model.DeploymentConfiguration;
+import com.amazonaws.services.ecs.model.NetworkConfiguration;
+import com.amazonaws.services.ecs.model.Service;
+import com.amazonaws.services.ecs.model.UpdateServiceRequest;
+
+public class ServiceUpdateFingerprintTest {
+
+    private static final String TASK_DEF = "arn:aws:ecs:us-east-1:123456789012:task-definition/my-app:7";
+
+    @Test
+    public void serviceRunningEverySentSettingMatches() {
+        UpdateServiceRequest request = request(network("subnet-b", "subnet-a"));
+
+        Service service = service(network("subnet-a", "subnet-b"))
+            .withPlatformVersion("LATEST")
+            .withDeploymentConfiguration(new DeploymentConfiguration().withMaximumPercent(200).withMinimumHealthyPercent(100));
+
+        assertEquals(ServiceUpdateFingerprint.of(request), ServiceUpdateFingerprint.of(service, request));
+    }
+
+    @Test
+    public void changedNetworkConfigurationChangesFingerprint() {
+        UpdateServiceRequest request = request(network("subnet-a", "subnet-c"));
+
+        assertNotEquals(ServiceUpdateFingerprint.of(request),
+            ServiceUpdateFingerprint.of(service(network("subnet-a", "subnet-b")), request));
+    }
+
+    @Test
+    public void changedGracePeriodChangesFingerprint() {
+        UpdateServiceRequest request = request(network("subnet-a")).withHealthCheckGracePeriodSeconds(120);
+
+        assertNotEquals(ServiceUpdateFingerprint.of(request),
+            ServiceUpdateFingerprint.of(service(network("subnet-a")), request));
+    }
+
+    @Test
+    public void changedDeploymentConfigurationChangesFingerprint() {
+        UpdateServiceRequest request = request(network("subnet-a"))
+            .withDeploymentConfiguration(new DeploymentConfiguration().withMinimumHealthyPercent(50));
+
+        Service service = service(network("subnet-a"))
+            .withDeploymentConfiguration(new DeploymentConfiguration().withMaximumPercent(200).withMinimumHealthyPercent(100));
+
+        assertNotEquals(ServiceUpdateFingerprint.of(request), ServiceUpdateFingerprint.of(service, request));
+    }
+
+    private static UpdateServiceRequest request(NetworkConfiguration network) {
+        return new UpdateServiceRequest().withCluster("my-cluster").withService("my-app")
+            .withTaskDefinition(TASK_DEF).withDesiredCount(2).withHealthCheckGracePeriodSeconds(60)
+            .withNetworkConfiguration(network);
+    }
+
+    private static Service service(NetworkConfiguration network) {
+        return new Service().withServiceName("my-app").withStatus("ACTIVE")
+            .withTaskDefinition(TASK_DEF).withDesiredCount(2).withHealthCheckGracePeriodSeconds(60)
+            .withNetworkConfiguration(network);
+    }
+
+    private static NetworkConfiguration network(String... subnets) {
+        return new NetworkConfiguration().withAwsvpcConfiguration(new AwsVpcConfiguration()
+            .withAssignPublicIp(AssignPublicIp.DISABLED).withSecurityGroups("sg-1").withSubnets(subnets));
+    }
+}
@@ -0,0 +1,48 @@
+package com.lonewolfworks.wolke.aws.ecs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Test;
+
+import com.amazonaws.services.ecs.model.ContainerDefinition;
+import com.amazonaws.services.ecs.model.KeyValuePair;
+import com.amazonaws.services.ecs.model.PortMapping;
+import com.amazonaws.services.ecs.model.RegisterTaskDefinitionRequest;
+import com.amazonaws.services.ecs.model.TaskDefinition;
+
+public class TaskDefinitionFingerprintTest {
+
+    @Test
+    public void registeredRevisionWithEcsDefaultsMatchesRequest() {
+        RegisterTaskDefinitionRequest request = new RegisterTaskDefinitionRequest()
+            .withFamily("my-app")
+            .withNetworkMode("awsvpc")
+            .withTaskRoleArn("arn:aws:iam::123456789012:role/my-app")
+            .withContainerDefinitions(new ContainerDefinition().withName("app").withImage("my-app:1").withMemory(512)
+                .withPortMappings(new PortMapping().withContainerPort(8080))
+                .withEnvironment(new KeyValuePair().withName("B").withValue("2"), new KeyValuePair().withName("A").withValue("1")));
+
+        TaskDefinition registered = new TaskDefinition()
+            .withTaskDefinitionArn("arn:aws:ecs:us-east-1:123456789012:task-definition/my-app:7")
+            .withFamily("my-app")
+            .withNetworkMode("awsvpc")
+            .withTaskRoleArn("arn:aws:iam::123456789012:role/my-app")
+            .withContainerDefinitions(new ContainerDefinition().withName("app").withImage("my-app:1").withMemory(512)
+                .withCpu(0).withEssential(true)
+                .withPortMappings(new PortMapping().withContainerPort(8080).withHostPort(8080).withProtocol("tcp"))
+                .withEnvironment(new KeyValuePair().withName("A").withValue("1"), new KeyValuePair().withName("B").withValue("2")));
+
+        assertEquals(TaskDefinitionFingerprint.of(request), TaskDefinitionFingerprint.of(registered));
+    }
+
+    @Test
+    public void changedImageChangesFingerprint() {
+        RegisterTaskDefinitionRequest request = new RegisterTaskDefinitionRequest().withFamily("my-app")
+            .withContainerDefinitions(new ContainerDefinition().withName("app").withImage("my-app:2"));
+        TaskDefinition registered = new TaskDefinition().withFamily("my-app")
+            .withContainerDefinitions(new ContainerDefinition().withName("app").withImage("my-app:1"));
+
+        assertNotEquals(TaskDefinitionFingerprint.of(request), TaskDefinitionFingerprint.of(registered));
+    }
+}
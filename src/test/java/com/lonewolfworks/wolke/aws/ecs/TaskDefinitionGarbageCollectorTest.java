@@ -0,0 +1,67 @@
+package com.lonewolfworks.wolke.aws.ecs;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.amazonaws.services.ecs.AmazonECS;
+import com.amazonaws.services.ecs.model.DeregisterTaskDefinitionRequest;
+import com.amazonaws.services.ecs.model.ListTaskDefinitionsRequest;
+import com.amazonaws.services.ecs.model.ListTaskDefinitionsResult;
+import com.lonewolfworks.wolke.logging.SysoutLogger;
+
+public class TaskDefinitionGarbageCollectorTest {
+
+    private static final String PREFIX = "arn:aws:ecs:us-east-1:123456789012:task-definition/";
+
+    @Mock
+    AmazonECS ecsClient;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        when(ecsClient.listTaskDefinitions(any(ListTaskDefinitionsRequest.class))).thenAnswer(invocation -> {
+            ListTaskDefinitionsRequest request = invocation.getArgument(0);
+            if (request.getNextToken() == null) {
+                return new ListTaskDefinitionsResult()
+                    .withTaskDefinitionArns(PREFIX + "billing:9", PREFIX + "billing-worker:4", PREFIX + "billing:8")
+                    .withNextToken("page-2");
+            }
+            return new ListTaskDefinitionsResult()
+                .withTaskDefinitionArns(PREFIX + "billing:7", PREFIX + "billing:6", PREFIX + "billing:5");
+        });
+    }
+
+    @Test
+    public void familyOfStripsArnAndRevision() {
+        assertEquals("billing-worker", TaskDefinitionGarbageCollector.familyOf(PREFIX + "billing-worker:12"));
+        assertEquals("billing", TaskDefinitionGarbageCollector.familyOf("billing:3"));
+    }
+
+    @Test
+    public void keepsRetainedAndInUseRevisionsAcrossPages() {
+        TaskDefinitionGarbageCollector collector = new TaskDefinitionGarbageCollector(ecsClient, new SysoutLogger(), 2);
+
+        assertEquals(Arrays.asList(PREFIX + "billing:7", PREFIX + "billing:5"),
+            collector.staleRevisions("billing", Collections.singleton(PREFIX + "billing:6")));
+    }
+
+    @Test
+    public void dryRunDoesNotDeregister() {
+        TaskDefinitionGarbageCollector collector = new TaskDefinitionGarbageCollector(ecsClient, new SysoutLogger(), 1)
+            .withDryRun(true);
+
+        assertEquals(0, collector.collect("billing", Collections.emptySet()));
+        verify(ecsClient, never()).deregisterTaskDefinition(any(DeregisterTaskDefinitionRequest.class));
+    }
+}
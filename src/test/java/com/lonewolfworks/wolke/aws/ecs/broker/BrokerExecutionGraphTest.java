@@ -0,0 +1,120 @@
+package com.lonewolfworks.wolke.aws.ecs.broker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import com.lonewolfworks.wolke.aws.AwsExecException;
+import com.lonewolfworks.wolke.logging.HermanLogger;
+import com.lonewolfworks.wolke.logging.SysoutLogger;
+
+public class BrokerExecutionGraphTest {
+
+    HermanLogger logger = new SysoutLogger();
+
+    @Test(timeout = 5000)
+    public void independentBrokersRunConcurrently() {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        BrokerExecutionGraph graph = new BrokerExecutionGraph(logger, 2);
+        graph.addBroker("sqs", upstream -> awaitPeer(bothStarted));
+        graph.addBroker("sns", upstream -> awaitPeer(bothStarted));
+
+        Map<String, Object> results = graph.execute();
+
+        assertEquals(true, results.get("sqs"));
+        assertEquals(true, results.get("sns"));
+    }
+
+    @Test
+    public void dependentBrokerReceivesUpstreamResult() {
+        BrokerExecutionGraph graph = new BrokerExecutionGraph(logger, 4);
+        graph.addBroker("kms", upstream -> "key-123");
+        graph.addBroker("s3", upstream -> "bucket encrypted with " + upstream.get("kms"), "kms");
+        graph.addBroker("rds", upstream -> upstream.get("s3") + " and db", "kms", "s3");
+
+        Map<String, Object> results = graph.execute();
+
+        assertEquals("bucket encrypted with key-123 and db", results.get("rds"));
+    }
+
+    @Test(timeout = 5000)
+    public void firstFailureCancelsSiblingsAndIsRethrown() {
+        AtomicBoolean siblingInterrupted = new AtomicBoolean();
+        AtomicBoolean dependentRan = new AtomicBoolean();
+        BrokerExecutionGraph graph = new BrokerExecutionGraph(logger, 2);
+        graph.addBroker("kinesis", upstream -> {
+            try {
+                Thread.sleep(60000);
+            } catch (InterruptedException e) {
+                siblingInterrupted.set(true);
+            }
+            return null;
+        });
+        graph.addBroker("kms", upstream -> {
+            throw new AwsExecException("kms exploded");
+        });
+        graph.addBroker("s3", upstream -> {
+            dependentRan.set(true);
+            return null;
+        }, "kms");
+
+        try {
+            graph.execute();
+            fail("Expected the KMS failure to surface");
+        } catch (AwsExecException e) {
+            assertEquals("kms exploded", e.getMessage());
+        }
+        assertTrue(!dependentRan.get());
+        waitFor(siblingInterrupted);
+    }
+
+    @Test
+    public void checkedExceptionsAreWrapped() {
+        BrokerExecutionGraph graph = new BrokerExecutionGraph(logger, 1);
+        graph.addBroker("sqs", upstream -> {
+            throw new java.io.IOException("policy missing");
+        });
+
+        try {
+            graph.execute();
+            fail("Expected the failure to surface");
+        } catch (AwsExecException e) {
+            assertEquals("policy missing", e.getCause().getMessage());
+        }
+    }
+
+    @Test(expected = AwsExecException.class)
+    public void unknownDependencyIsRejected() {
+        new BrokerExecutionGraph(logger, 1)
+            .addBroker("s3", upstream -> null, "kms")
+            .execute();
+    }
+
+    @Test(expected = AwsExecException.class)
+    public void cycleIsRejected() {
+        new BrokerExecutionGraph(logger, 2)
+            .addBroker("a", upstream -> null, "b")
+            .addBroker("b", upstream -> null, "a")
+            .execute();
+    }
+
+    private static Object awaitPeer(CountDownLatch latch) throws InterruptedException {
+        latch.countDown();
+        return latch.await(2, TimeUnit.SECONDS);
+    }
+
+    private static void waitFor(AtomicBoolean flag) {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!flag.get() && System.currentTimeMillis() < deadline) {
+            Thread.yield();
+        }
+        assertTrue(flag.get());
+    }
+}
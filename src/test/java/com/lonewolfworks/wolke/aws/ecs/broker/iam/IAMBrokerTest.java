@@ -0,0 +1,48 @@
+package com.lonewolfworks.wolke.aws.ecs.broker.iam;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.amazonaws.services.identitymanagement.model.Tag;
+
+public class IAMBrokerTest {
+
+    @Test
+    public void samePolicyIgnoresEncodingFormattingAndOrdering() {
+        String current = "%7B%22Version%22%3A%222012-10-17%22%2C%22Statement%22%3A%5B%7B%22Effect%22%3A%22Allow%22%2C"
+            + "%22Action%22%3A%5B%22sqs%3ASendMessage%22%2C%22s3%3AGetObject%22%5D%2C%22Resource%22%3A%5B%22*%22%5D%7D%5D%7D";
+        String desired = "{\n  \"Statement\": {\n    \"Resource\": \"*\",\n    \"Action\": [\"s3:GetObject\", \"sqs:SendMessage\"],\n"
+            + "    \"Effect\": \"Allow\"\n  },\n  \"Version\": \"2012-10-17\"\n}";
+
+        assertTrue(IAMBroker.samePolicy(current, desired));
+    }
+
+    @Test
+    public void samePolicyDetectsChanges() {
+        String current = "%7B%22Statement%22%3A%5B%7B%22Effect%22%3A%22Allow%22%2C%22Action%22%3A%22s3%3AGetObject%22%7D%5D%7D";
+        String desired = "{\"Statement\":[{\"Effect\":\"Allow\",\"Action\":\"s3:PutObject\"}]}";
+
+        assertFalse(IAMBroker.samePolicy(current, desired));
+        assertFalse(IAMBroker.samePolicy(null, desired));
+    }
+
+    @Test
+    public void changedTagsOnlyReturnsMissingOrDifferentValues() {
+        List<Tag> current = Arrays.asList(new Tag().withKey("app").withValue("billing"),
+            new Tag().withKey("org").withValue("platform"), new Tag().withKey("extra").withValue("kept"));
+        List<Tag> desired = Arrays.asList(new Tag().withKey("app").withValue("billing"),
+            new Tag().withKey("org").withValue("payments"), new Tag().withKey("cluster").withValue("dev"));
+
+        List<Tag> changed = IAMBroker.changedTags(current, desired);
+
+        assertEquals(2, changed.size());
+        assertEquals("org", changed.get(0).getKey());
+        assertEquals("cluster", changed.get(1).getKey());
+    }
+}
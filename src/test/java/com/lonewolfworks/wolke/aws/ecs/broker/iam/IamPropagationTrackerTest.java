@@ -0,0 +1,141 @@
+package com.lonewolfworks.wolke.aws.ecs.broker.iam;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.identitymanagement.AbstractAmazonIdentityManagement;
+import com.amazonaws.services.identitymanagement.model.GetRoleRequest;
+import com.amazonaws.services.identitymanagement.model.GetRoleResult;
+import com.amazonaws.services.identitymanagement.model.Role;
+import com.lonewolfworks.wolke.aws.AwsExecException;
+import com.lonewolfworks.wolke.logging.SysoutLogger;
+
+public class IamPropagationTrackerTest {
+
+    FakeIam iam = new FakeIam();
+
+    @Test
+    public void nothingRecordedMeansNoWait() {
+        FakeClockTracker tracker = new FakeClockTracker(10000);
+
+        tracker.awaitPropagation(iam);
+
+        assertEquals(0, iam.probes);
+        assertTrue(tracker.sleeps.isEmpty());
+    }
+
+    @Test
+    public void rolesAreProbedWithBackoffUntilVisible() {
+        FakeClockTracker tracker = new FakeClockTracker(0);
+        tracker.recordCreated("billing-role");
+        iam.invisibleProbes.put("billing-role", 4);
+
+        tracker.awaitPropagation(iam);
+
+        assertEquals(5, iam.probes);
+        assertEquals(4, tracker.sleeps.size());
+        long first = tracker.sleeps.get(0);
+        assertTrue("first probe delay " + first, first >= 400 && first <= 600);
+        assertTrue("delays should grow: " + tracker.sleeps, tracker.sleeps.get(3) > first);
+        tracker.sleeps.forEach(delay -> assertTrue("delay over the ceiling: " + delay, delay <= 4800));
+        assertFalse(tracker.hasPendingChanges());
+        assertFalse(tracker.hasCreatedRoles());
+    }
+
+    @Test
+    public void settleWindowIsMeasuredFromTheLastChange() {
+        FakeClockTracker tracker = new FakeClockTracker(10000);
+        tracker.recordChanged("billing-role");
+        tracker.time += 4000;
+        tracker.recordChanged("billing-worker-role");
+        // time spent brokering everything else counts towards the window
+        tracker.time += 1000;
+
+        tracker.awaitPropagation(iam);
+
+        assertEquals(2, iam.probes);
+        assertEquals(1, tracker.sleeps.size());
+        assertEquals(9000L, (long) tracker.sleeps.get(0));
+
+        tracker.awaitPropagation(iam);
+        assertEquals(1, tracker.sleeps.size());
+    }
+
+    @Test
+    public void noSettleWaitOnceTheWindowHasPassed() {
+        FakeClockTracker tracker = new FakeClockTracker(10000);
+        tracker.recordChanged("billing-role");
+        tracker.time += 15000;
+
+        tracker.awaitPropagation(iam);
+
+        assertTrue(tracker.sleeps.isEmpty());
+    }
+
+    @Test
+    public void waitStopsAtTheCap() {
+        FakeClockTracker tracker = new FakeClockTracker(10000);
+        tracker.recordCreated("billing-role");
+        iam.invisibleProbes.put("billing-role", Integer.MAX_VALUE);
+        long start = tracker.time;
+
+        try {
+            tracker.awaitPropagation(iam);
+            fail("expected the wait to give up");
+        } catch (AwsExecException e) {
+            assertEquals("IAM roles never became visible: [billing-role]", e.getMessage());
+        }
+
+        assertEquals(60000L, tracker.time - start);
+    }
+
+    static class FakeClockTracker extends IamPropagationTracker {
+        long time = 1000000L;
+        List<Long> sleeps = new ArrayList<>();
+
+        FakeClockTracker(long settleMillis) {
+            super(new SysoutLogger(), settleMillis);
+        }
+
+        @Override
+        long now() {
+            return time;
+        }
+
+        @Override
+        void sleep(long millis) {
+            if (millis > 0) {
+                sleeps.add(millis);
+                time += millis;
+            }
+        }
+    }
+
+    static class FakeIam extends AbstractAmazonIdentityManagement {
+        Map<String, Integer> invisibleProbes = new HashMap<>();
+        int probes;
+
+        @Override
+        public GetRoleResult getRole(GetRoleRequest request) {
+            probes++;
+            int remaining = invisibleProbes.getOrDefault(request.getRoleName(), 0);
+            if (remaining > 0) {
+                invisibleProbes.put(request.getRoleName(), remaining - 1);
+                AmazonServiceException notFound = new AmazonServiceException("Role not found");
+                notFound.setErrorCode("NoSuchEntity");
+                throw notFound;
+            }
+            return new GetRoleResult().withRole(new Role().withRoleName(request.getRoleName()));
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.lonewolfworks.wolke.aws.ecs.broker.kinesis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+
+import com.amazonaws.services.kinesis.AbstractAmazonKinesis;
+import com.amazonaws.services.kinesis.model.DeleteStreamRequest;
+import com.amazonaws.services.kinesis.model.DeleteStreamResult;
+import com.amazonaws.services.kinesis.model.ResourceNotFoundException;
+import com.amazonaws.services.resourcegroupstaggingapi.AbstractAWSResourceGroupsTaggingAPI;
+import com.amazonaws.services.resourcegroupstaggingapi.model.GetResourcesRequest;
+import com.amazonaws.services.resourcegroupstaggingapi.model.GetResourcesResult;
+import com.amazonaws.services.resourcegroupstaggingapi.model.ResourceTagMapping;
+import com.amazonaws.services.resourcegroupstaggingapi.model.TagFilter;
+import com.lonewolfworks.wolke.aws.tags.HermanTag;
+import com.lonewolfworks.wolke.logging.SysoutLogger;
+import com.lonewolfworks.wolke.task.common.CommonTaskProperties;
+
+public class KinesisBrokerTest {
+
+    private static final String ARN = "arn:aws:kinesis:us-east-1:123456789012:stream/";
+
+    FakeKinesis kinesis = new FakeKinesis();
+    FakeTagging tagging = new FakeTagging();
+    CommonTaskProperties properties = new CommonTaskProperties().withCompany("acme");
+
+    @Test
+    public void deletesOnlyUndeclaredAppStreams() {
+        tagging.tagged.put("billing-events", "billing");
+        tagging.tagged.put("billing-old", "billing");
+        tagging.tagged.put("billing-older", "billing");
+        tagging.tagged.put("payroll-events", "payroll");
+
+        new KinesisBroker(new SysoutLogger(), kinesis, tagging, new Definition("billing", stream("billing-events")), properties)
+            .checkStreamsToBeDeleted();
+
+        assertEquals(2, kinesis.deleted.size());
+        assertTrue(kinesis.deleted.contains("billing-old") && kinesis.deleted.contains("billing-older"));
+    }
+
+    @Test
+    public void pagesThroughTaggedStreams() {
+        for (int i = 0; i < 25; i++) {
+            tagging.tagged.put("billing-" + i, "billing");
+        }
+
+        new KinesisBroker(new SysoutLogger(), kinesis, tagging, new Definition("billing", stream("billing-3")), properties)
+            .checkStreamsToBeDeleted();
+
+        assertEquals(24, kinesis.deleted.size());
+        assertEquals(3, tagging.calls);
+    }
+
+    @Test
+    public void streamAlreadyDeletedIsIgnored() {
+        tagging.tagged.put("billing-gone", "billing");
+        kinesis.missing.add("billing-gone");
+
+        new KinesisBroker(new SysoutLogger(), kinesis, tagging, new Definition("billing"), properties)
+            .checkStreamsToBeDeleted();
+
+        assertTrue(kinesis.deleted.isEmpty());
+    }
+
+    private static KinesisStream stream(String name) {
+        KinesisStream stream = new KinesisStream();
+        stream.setName(name);
+        return stream;
+    }
+
+    static class Definition implements KinesisAppDefinition {
+        private final String appName;
+        private final List<KinesisStream> streams;
+
+        Definition(String appName, KinesisStream... streams) {
+            this.appName = appName;
+            this.streams = Arrays.asList(streams);
+        }
+
+        @Override
+        public String getAppName() {
+            return appName;
+        }
+
+        @Override
+        public List<KinesisStream> getStreams() {
+            return streams;
+        }
+
+        @Override
+        public List<HermanTag> getTags() {
+            return new ArrayList<>();
+        }
+    }
+
+    static class FakeTagging extends AbstractAWSResourceGroupsTaggingAPI {
+        Map<String, String> tagged = new TreeMap<>();
+        int calls;
+
+        @Override
+        public GetResourcesResult getResources(GetResourcesRequest request) {
+            calls++;
+            assertEquals(Arrays.asList("kinesis:stream"), request.getResourceTypeFilters());
+            TagFilter filter = request.getTagFilters().get(0);
+            assertEquals("acme_app", filter.getKey());
+            List<ResourceTagMapping> matches = new ArrayList<>();
+            tagged.forEach((stream, app) -> {
+                if (filter.getValues().contains(app)) {
+                    matches.add(new ResourceTagMapping().withResourceARN(ARN + stream));
+                }
+            });
+            int start = request.getPaginationToken() == null || request.getPaginationToken().isEmpty()
+                ? 0 : Integer.parseInt(request.getPaginationToken());
+            int end = Math.min(start + 10, matches.size());
+            return new GetResourcesResult().withResourceTagMappingList(matches.subList(start, end))
+                .withPaginationToken(end < matches.size() ? String.valueOf(end) : "");
+        }
+    }
+
+    static class FakeKinesis extends AbstractAmazonKinesis {
+        Set<String> deleted = ConcurrentHashMap.newKeySet();
+        Set<String> missing = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public DeleteStreamResult deleteStream(DeleteStreamRequest request) {
+            if (missing.contains(request.getStreamName())) {
+                throw new ResourceNotFoundException("Stream " + request.getStreamName() + " not found");
+            }
+            deleted.add(request.getStreamName());
+            return new DeleteStreamResult();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.lonewolfworks.wolke.aws.ecs.broker.kms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.amazonaws.services.kms.AbstractAWSKMS;
+import com.amazonaws.services.kms.model.DescribeKeyRequest;
+import com.amazonaws.services.kms.model.DescribeKeyResult;
+import com.amazonaws.services.kms.model.KeyMetadata;
+import com.amazonaws.services.kms.model.NotFoundException;
+import com.amazonaws.services.resourcegroupstaggingapi.AbstractAWSResourceGroupsTaggingAPI;
+import com.amazonaws.services.resourcegroupstaggingapi.model.GetResourcesRequest;
+import com.amazonaws.services.resourcegroupstaggingapi.model.GetResourcesResult;
+import com.amazonaws.services.resourcegroupstaggingapi.model.ResourceTagMapping;
+import com.amazonaws.services.resourcegroupstaggingapi.model.TagFilter;
+
+public class KmsKeyIndexTest {
+
+    FakeKms kms = new FakeKms();
+    FakeTagging tagging = new FakeTagging();
+    KmsKeyIndex index = new KmsKeyIndex(kms, tagging);
+
+    @Test
+    public void aliasLookupsAreCached() {
+        kms.aliases.put("alias/wolke/billing", "key-1");
+
+        assertEquals("key-1", index.keyIdForAlias("alias/wolke/billing"));
+        assertEquals("key-1", index.keyIdForAlias("alias/wolke/billing"));
+        assertNull(index.keyIdForAlias("alias/wolke/missing"));
+        assertNull(index.keyIdForAlias("alias/wolke/missing"));
+
+        assertEquals(2, kms.describeCalls.get());
+    }
+
+    @Test
+    public void recordedAliasesSkipLookup() {
+        index.recordAlias("alias/wolke/billing", "key-2");
+        assertEquals("key-2", index.keyIdForAlias("alias/wolke/billing"));
+
+        index.forgetAlias("alias/wolke/billing");
+        assertNull(index.keyIdForAlias("alias/wolke/billing"));
+        assertEquals(0, kms.describeCalls.get());
+    }
+
+    @Test
+    public void taggedKeysAreQueriedOnceAcrossPages() {
+        for (int i = 0; i < 250; i++) {
+            tagging.addKey("arn:key-" + i, i % 100 == 7 ? "billing" : "other-" + i);
+        }
+
+        assertEquals(Arrays.asList("arn:key-7", "arn:key-107", "arn:key-207"), index.keysTagged("app", "billing"));
+        assertEquals(Arrays.asList("arn:key-7", "arn:key-107", "arn:key-207"), index.keysTagged("app", "billing"));
+        assertEquals(Collections.singletonList("arn:key-8"), index.keysTagged("app", "other-8"));
+        assertEquals(4, tagging.calls.get());
+        assertEquals(Collections.singletonList("kms:key"), tagging.resourceTypes);
+    }
+
+    @Test
+    public void forgottenTagsAreQueriedAgain() {
+        tagging.addKey("arn:key-1", "billing");
+        assertEquals(Collections.singletonList("arn:key-1"), index.keysTagged("app", "billing"));
+
+        tagging.addKey("arn:key-2", "billing");
+        assertEquals(Collections.singletonList("arn:key-1"), index.keysTagged("app", "billing"));
+
+        index.forgetTagged("app", "billing");
+        assertEquals(Arrays.asList("arn:key-1", "arn:key-2"), index.keysTagged("app", "billing"));
+    }
+
+    static class FakeTagging extends AbstractAWSResourceGroupsTaggingAPI {
+        Map<String, String> appTags = new LinkedHashMap<>();
+        List<String> resourceTypes;
+        AtomicInteger calls = new AtomicInteger();
+
+        void addKey(String keyArn, String app) {
+            appTags.put(keyArn, app);
+        }
+
+        @Override
+        public GetResourcesResult getResources(GetResourcesRequest request) {
+            calls.incrementAndGet();
+            resourceTypes = request.getResourceTypeFilters();
+            TagFilter filter = request.getTagFilters().get(0);
+            List<ResourceTagMapping> matches = new ArrayList<>();
+            appTags.forEach((arn, app) -> {
+                if ("app".equals(filter.getKey()) && filter.getValues().contains(app)) {
+                    matches.add(new ResourceTagMapping().withResourceARN(arn));
+                }
+            });
+            // one match per page, to exercise paging
+            int start = request.getPaginationToken() == null ? 0 : Integer.parseInt(request.getPaginationToken());
+            int end = Math.min(start + 1, matches.size());
+            return new GetResourcesResult().withResourceTagMappingList(matches.subList(start, end))
+                .withPaginationToken(end < matches.size() ? String.valueOf(end) : "");
+        }
+    }
+
+    static class FakeKms extends AbstractAWSKMS {
+        Map<String, String> aliases = new HashMap<>();
+        AtomicInteger describeCalls = new AtomicInteger();
+
+        @Override
+        public DescribeKeyResult describeKey(DescribeKeyRequest request) {
+            describeCalls.incrementAndGet();
+            String keyId = aliases.get(request.getKeyId());
+            if (keyId == null) {
+                throw new NotFoundException("Alias not found");
+            }
+            return new DescribeKeyResult().withKeyMetadata(new KeyMetadata().withKeyId(keyId));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.lonewolfworks.wolke.aws.ecs.broker.secretsmgr;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.amazonaws.services.secretsmanager.AWSSecretsManager;
+import com.amazonaws.services.secretsmanager.model.CreateSecretRequest;
+import com.amazonaws.services.secretsmanager.model.CreateSecretResult;
+import com.amazonaws.services.secretsmanager.model.DescribeSecretRequest;
+import com.amazonaws.services.secretsmanager.model.DescribeSecretResult;
+import com.amazonaws.services.secretsmanager.model.ResourceNotFoundException;
+import com.amazonaws.services.secretsmanager.model.UpdateSecretRequest;
+import com.lonewolfworks.wolke.logging.SysoutLogger;
+
+public class SecretsManagerBrokerTest {
+
+    @Mock
+    AWSSecretsManager client;
+    SecretsManagerBroker broker;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        broker = new SecretsManagerBroker(new SysoutLogger(), client, "key-1", Collections.emptyList());
+        when(client.describeSecret(any(DescribeSecretRequest.class))).thenAnswer(invocation -> {
+            DescribeSecretRequest request = invocation.getArgument(0);
+            if (request.getSecretId().startsWith("missing")) {
+                throw new ResourceNotFoundException("not found");
+            }
+            return new DescribeSecretResult()
+                .withARN("arn:" + request.getSecretId())
+                .withKmsKeyId("arn:aws:kms:us-east-1:123456789012:key/key-1")
+                .withDescription("Secrets container for billing");
+        });
+        when(client.createSecret(any(CreateSecretRequest.class))).thenAnswer(invocation ->
+            new CreateSecretResult().withARN("arn:" + ((CreateSecretRequest) invocation.getArgument(0)).getName()));
+    }
+
+    @Test
+    public void unchangedSecretIsLookedUpOnceAndNotUpdated() {
+        assertEquals("arn:billing/api", broker.brokerSecretsManagerShell("billing/api", "billing"));
+        assertEquals("arn:billing/api", broker.brokerSecretsManagerShell("billing/api", "billing"));
+
+        verify(client, times(1)).describeSecret(any(DescribeSecretRequest.class));
+        verify(client, never()).updateSecret(any(UpdateSecretRequest.class));
+    }
+
+    @Test
+    public void brokersDistinctPathsAndCreatesMissingOnes() {
+        Map<String, String> arns = broker.brokerSecretsManagerShells(
+            Arrays.asList("billing/a", "missing/b", "billing/a", "billing/c"), "billing");
+
+        assertEquals(3, arns.size());
+        assertEquals("arn:missing/b", arns.get("missing/b"));
+        verify(client, times(3)).describeSecret(any(DescribeSecretRequest.class));
+        verify(client, times(1)).createSecret(any(CreateSecretRequest.class));
+    }
+}
@@ -0,0 +1,95 @@
+package com.lonewolfworks.wolke.aws.ecs.cluster;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.regions.Regions;
+import com.amazonaws.services.ecs.model.Tag;
+import com.lonewolfworks.wolke.logging.SysoutLogger;
+
+public class EcsClusterMetadataCacheTest {
+
+    private static final String KEY = EcsClusterMetadataCache.key("123456789012", Regions.US_EAST_1, "shared-cluster");
+
+    File directory;
+    AtomicInteger introspections = new AtomicInteger();
+
+    @Before
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("cluster-cache").toFile();
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Test
+    public void reusesMetadataWithinTtl() {
+        EcsClusterMetadataCache cache = cache(60000, false);
+
+        cache.get(KEY, this::introspect);
+        EcsClusterMetadata cached = cache.get(KEY, this::introspect);
+
+        assertEquals(1, introspections.get());
+        assertEquals("sg-app", cached.getAppSecurityGroup());
+        assertEquals(Collections.singletonList("sg-elb"), cached.getElbSecurityGroups());
+        assertEquals("cost-center", cached.getClusterCftStackTags().get(0).getKey());
+    }
+
+    @Test
+    public void refreshReplacesCachedMetadata() {
+        cache(60000, false).get(KEY, this::introspect);
+        cache(60000, true).get(KEY, this::introspect);
+        cache(60000, false).get(KEY, this::introspect);
+
+        assertEquals(2, introspections.get());
+    }
+
+    @Test
+    public void zeroTtlAlwaysIntrospects() {
+        cache(0, false).get(KEY, this::introspect);
+        cache(0, false).get(KEY, this::introspect);
+
+        assertEquals(2, introspections.get());
+    }
+
+    @Test
+    public void sharedResultsIntrospectOncePerProcess() {
+        Map<String, String> shared = new ConcurrentHashMap<>();
+        EcsClusterMetadata first = cache(0, true).withSharedResults(shared).get(KEY, this::introspect);
+        first.setAppSecurityGroup("changed-by-first-push");
+        EcsClusterMetadata second = cache(0, true).withSharedResults(shared).get(KEY, this::introspect);
+
+        assertEquals(1, introspections.get());
+        assertNotSame(first, second);
+        assertEquals("sg-app", second.getAppSecurityGroup());
+    }
+
+    private EcsClusterMetadataCache cache(long ttlMillis, boolean refresh) {
+        return new EcsClusterMetadataCache(new LocalFileClusterMetadataStore(directory), ttlMillis, refresh, new SysoutLogger());
+    }
+
+    private EcsClusterMetadata introspect() {
+        introspections.incrementAndGet();
+        EcsClusterMetadata metadata = new EcsClusterMetadata();
+        metadata.setClusterId("shared-cluster");
+        metadata.setAppSecurityGroup("sg-app");
+        metadata.getElbSecurityGroups().add("sg-elb");
+        metadata.setClusterCftStackTags(Collections.singletonList(new Tag().withKey("cost-center").withValue("42")));
+        return metadata;
+    }
+}
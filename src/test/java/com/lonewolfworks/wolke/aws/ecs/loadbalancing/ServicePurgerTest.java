@@ -0,0 +1,153 @@
+package com.lonewolfworks.wolke.aws.ecs.loadbalancing;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.amazonaws.services.ecs.AmazonECS;
+import com.amazonaws.services.ecs.model.DeleteServiceRequest;
+import com.amazonaws.services.ecs.model.DescribeServicesRequest;
+import com.amazonaws.services.ecs.model.DescribeServicesResult;
+import com.amazonaws.services.ecs.model.ListClustersRequest;
+import com.amazonaws.services.ecs.model.ListClustersResult;
+import com.amazonaws.services.ecs.model.Service;
+import com.amazonaws.services.ecs.model.UpdateServiceRequest;
+import com.lonewolfworks.wolke.aws.ecs.cluster.ClusterMetadataStore;
+import com.lonewolfworks.wolke.logging.SysoutLogger;
+
+public class ServicePurgerTest {
+
+    private static final String ARN = "arn:aws:ecs:us-east-1:123456789012:cluster/";
+
+    @Mock
+    AmazonECS ecsClient;
+    MemoryStore store = new MemoryStore();
+    Map<String, Service> running = new HashMap<>();
+    ServicePurger purger;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        purger = new ServicePurger(ecsClient, new SysoutLogger()).withLocationHints(store, "apps/", 60000);
+        when(ecsClient.listClusters(any(ListClustersRequest.class))).thenAnswer(invocation -> {
+            ListClustersRequest request = invocation.getArgument(0);
+            if (request.getNextToken() == null) {
+                return new ListClustersResult().withClusterArns(ARN + "blue", ARN + "green").withNextToken("page-2");
+            }
+            return new ListClustersResult().withClusterArns(ARN + "green-2", ARN + "legacy");
+        });
+        when(ecsClient.describeServices(any(DescribeServicesRequest.class))).thenAnswer(invocation -> {
+            DescribeServicesRequest request = invocation.getArgument(0);
+            DescribeServicesResult result = new DescribeServicesResult();
+            if (request.getCluster().endsWith("/legacy")) {
+                result.withServices(new Service().withStatus("INACTIVE").withRunningCount(0));
+            }
+            Service service = running.get(clusterName(request.getCluster()));
+            if (service != null) {
+                result.withServices(service);
+            }
+            return result;
+        });
+        when(ecsClient.updateService(any(UpdateServiceRequest.class))).thenAnswer(invocation -> {
+            UpdateServiceRequest request = invocation.getArgument(0);
+            running.get(clusterName(request.getCluster())).setRunningCount(0);
+            return null;
+        });
+        when(ecsClient.deleteService(any(DeleteServiceRequest.class))).thenAnswer(invocation -> {
+            DeleteServiceRequest request = invocation.getArgument(0);
+            running.get(clusterName(request.getCluster())).setStatus("INACTIVE");
+            return null;
+        });
+    }
+
+    @Test
+    public void scansEveryPageExceptTargetAndRecordsLocation() {
+        purger.purgeOtherClusters("green", "billing");
+
+        verify(ecsClient, times(3)).describeServices(any(DescribeServicesRequest.class));
+        verify(ecsClient, never()).updateService(any(UpdateServiceRequest.class));
+        verify(ecsClient, never()).deleteService(any(DeleteServiceRequest.class));
+        assertEquals("green", store.documents.get("apps/billing"));
+    }
+
+    @Test
+    public void confirmedHintForTargetSkipsScan() {
+        store.documents.put("apps/billing", "green");
+        running.put("green", activeService());
+
+        purger.purgeOtherClusters("green", "billing");
+
+        verify(ecsClient, never()).listClusters(any(ListClustersRequest.class));
+        verify(ecsClient, times(1)).describeServices(any(DescribeServicesRequest.class));
+    }
+
+    @Test
+    public void staleHintForTargetFallsBackToFullScan() {
+        store.documents.put("apps/billing", "green");
+        running.put("blue", activeService());
+
+        purger.purgeOtherClusters("green", "billing");
+
+        verify(ecsClient, times(2)).listClusters(any(ListClustersRequest.class));
+        verify(ecsClient).deleteService(any(DeleteServiceRequest.class));
+        assertEquals("INACTIVE", running.get("blue").getStatus());
+    }
+
+    @Test
+    public void confirmedHintForOtherClusterPurgesOnlyThatCluster() {
+        store.documents.put("apps/billing", ARN + "blue");
+        running.put("blue", activeService());
+
+        purger.purgeOtherClusters("green", "billing");
+
+        verify(ecsClient, never()).listClusters(any(ListClustersRequest.class));
+        verify(ecsClient).deleteService(any(DeleteServiceRequest.class));
+        assertEquals("INACTIVE", running.get("blue").getStatus());
+        assertEquals("green", store.documents.get("apps/billing"));
+    }
+
+    @Test
+    public void staleHintForOtherClusterFallsBackToFullScan() {
+        store.documents.put("apps/billing", ARN + "blue");
+        running.put("green-2", activeService());
+
+        purger.purgeOtherClusters("green", "billing");
+
+        verify(ecsClient, times(2)).listClusters(any(ListClustersRequest.class));
+        assertEquals("INACTIVE", running.get("green-2").getStatus());
+        assertEquals("green", store.documents.get("apps/billing"));
+    }
+
+    private static Service activeService() {
+        return new Service().withStatus("ACTIVE").withRunningCount(2);
+    }
+
+    private static String clusterName(String cluster) {
+        return cluster.substring(cluster.lastIndexOf('/') + 1);
+    }
+
+    static class MemoryStore implements ClusterMetadataStore {
+        Map<String, String> documents = new HashMap<>();
+
+        @Override
+        public String read(String key, long maxAgeMillis) {
+            return documents.get(key);
+        }
+
+        @Override
+        public void write(String key, String document) {
+            documents.put(key, document);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.lonewolfworks.wolke.aws.ecs.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.amazonaws.services.ecs.AmazonECS;
+import com.amazonaws.services.ecs.model.Deployment;
+import com.amazonaws.services.ecs.model.DescribeServicesRequest;
+import com.amazonaws.services.ecs.model.DescribeServicesResult;
+import com.amazonaws.services.ecs.model.Service;
+import com.amazonaws.services.ecs.model.ServiceEvent;
+import com.lonewolfworks.wolke.logging.SysoutLogger;
+
+public class ServiceDeploymentMonitorTest {
+
+    @Mock
+    AmazonECS ecsClient;
+    RecordingLogger logger = new RecordingLogger();
+    ServiceDeploymentMonitor monitor;
+    Date deployedAt = new Date(System.currentTimeMillis() - 60000);
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        monitor = new ServiceDeploymentMonitor(ecsClient, logger, 0, 0);
+    }
+
+    @Test
+    public void succeedsWhenTrackedDeploymentCompletes() {
+        when(ecsClient.describeServices(any(DescribeServicesRequest.class))).thenReturn(
+            describe(deployment("ecs-svc/2", "PRIMARY", "IN_PROGRESS"), deployment("ecs-svc/1", "ACTIVE", "COMPLETED")),
+            describe(deployment("ecs-svc/2", "PRIMARY", "COMPLETED")));
+
+        assertTrue(monitor.waitForDeployment("cluster", "app", "ecs-svc/2", 1));
+        verify(ecsClient, times(2)).describeServices(any(DescribeServicesRequest.class));
+    }
+
+    @Test
+    public void failsWhenRolloutFails() {
+        when(ecsClient.describeServices(any(DescribeServicesRequest.class))).thenReturn(
+            describe(deployment("ecs-svc/2", "PRIMARY", "FAILED")));
+
+        assertFalse(monitor.waitForDeployment("cluster", "app", "ecs-svc/2", 1));
+    }
+
+    @Test
+    public void failsWhenDeploymentIsSuperseded() {
+        when(ecsClient.describeServices(any(DescribeServicesRequest.class))).thenReturn(
+            describe(deployment("ecs-svc/3", "PRIMARY", "IN_PROGRESS")));
+
+        assertFalse(monitor.waitForDeployment("cluster", "app", "ecs-svc/2", 1));
+    }
+
+    @Test
+    public void logsEveryNewEventOnce() {
+        Service first = describe(deployment("ecs-svc/2", "PRIMARY", "IN_PROGRESS")).getServices().get(0)
+            .withEvents(event("e2", "started 1 tasks"), event("e1", "registered 1 targets"),
+                new ServiceEvent().withId("e0").withMessage("before deploy").withCreatedAt(new Date(0)));
+        Service second = describe(deployment("ecs-svc/2", "PRIMARY", "COMPLETED")).getServices().get(0)
+            .withEvents(event("e4", "has reached a steady state"), event("e3", "drained 1 tasks"),
+                event("e2", "started 1 tasks"), event("e1", "registered 1 targets"));
+        when(ecsClient.describeServices(any(DescribeServicesRequest.class))).thenReturn(
+            new DescribeServicesResult().withServices(first), new DescribeServicesResult().withServices(second));
+
+        assertTrue(monitor.waitForDeployment("cluster", "app", "ecs-svc/2", 1));
+
+        List<String> events = new ArrayList<>(logger.entries);
+        events.removeIf(entry -> entry.startsWith("Deployment:") || entry.equals("App has stabilized"));
+        assertEquals(4, events.size());
+        assertEquals("registered 1 targets", events.get(0));
+        assertEquals("started 1 tasks", events.get(1));
+        assertEquals("drained 1 tasks", events.get(2));
+        assertEquals("has reached a steady state", events.get(3));
+    }
+
+    private DescribeServicesResult describe(Deployment... deployments) {
+        return new DescribeServicesResult().withServices(new Service().withServiceName("app").withDeployments(deployments));
+    }
+
+    private Deployment deployment(String id, String status, String rolloutState) {
+        return new Deployment().withId(id).withStatus(status).withRolloutState(rolloutState)
+            .withCreatedAt(deployedAt).withDesiredCount(1).withRunningCount(1).withPendingCount(0).withFailedTasks(0);
+    }
+
+    private ServiceEvent event(String id, String message) {
+        return new ServiceEvent().withId(id).withMessage(message).withCreatedAt(new Date());
+    }
+
+    static class RecordingLogger extends SysoutLogger {
+        List<String> entries = new ArrayList<>();
+
+        @Override
+        public void addLogEntry(String logEntry) {
+            entries.add(logEntry);
+            super.addLogEntry(logEntry);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.lonewolfworks.wolke.aws.ecs.state;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.lonewolfworks.wolke.logging.SysoutLogger;
+
+public class DeployStateTrackerTest {
+
+    private static final String KEY = "123456789012/us-east-1/dev/billing.json";
+    private static final long DAY = 86400000L;
+
+    InMemoryStore store = new InMemoryStore();
+    AtomicInteger applied = new AtomicInteger();
+
+    @Test
+    public void unchangedInputIsSkippedAfterFirstPush() {
+        push(DAY, false, "v1", "queue-a");
+        push(DAY, false, "v1", "queue-a");
+
+        assertEquals(1, applied.get());
+    }
+
+    @Test
+    public void changedInputRuns() {
+        push(DAY, false, "v1", "queue-a");
+        push(DAY, false, "v1", "queue-b");
+
+        assertEquals(2, applied.get());
+    }
+
+    @Test
+    public void fullReconcileRunsEveryBroker() {
+        push(DAY, false, "v1", "queue-a");
+        push(DAY, true, "v1", "queue-a");
+
+        assertEquals(2, applied.get());
+    }
+
+    @Test
+    public void expiredReconcileIntervalRunsEveryBroker() {
+        push(DAY, false, "v1", "queue-a");
+        push(0, false, "v1", "queue-a");
+
+        assertEquals(2, applied.get());
+    }
+
+    @Test
+    public void newVersionRunsEveryBroker() {
+        push(DAY, false, "v1", "queue-a");
+        push(DAY, false, "v2", "queue-a");
+
+        assertEquals(2, applied.get());
+    }
+
+    @Test
+    public void failedPushIsNotRecorded() {
+        new DeployStateTracker(store, KEY, DAY, false, new SysoutLogger(), "v1")
+            .broker("sqs", applied::incrementAndGet, Arrays.asList("queue-a"));
+        push(DAY, false, "v1", "queue-a");
+
+        assertEquals(2, applied.get());
+    }
+
+    @Test
+    public void withoutStoreEveryBrokerRuns() {
+        for (int i = 0; i < 2; i++) {
+            DeployStateTracker tracker = new DeployStateTracker(null, KEY, DAY, false, new SysoutLogger(), "v1");
+            tracker.broker("sqs", applied::incrementAndGet, Arrays.asList("queue-a"));
+            tracker.save();
+        }
+
+        assertEquals(2, applied.get());
+    }
+
+    private void push(long reconcileIntervalMillis, boolean fullReconcile, String version, String queue) {
+        DeployStateTracker tracker = new DeployStateTracker(store, KEY, reconcileIntervalMillis, fullReconcile,
+            new SysoutLogger(), version);
+        Map<String, String> attributes = new HashMap<>();
+        attributes.put("VisibilityTimeout", "30");
+        tracker.broker("sqs", applied::incrementAndGet, Arrays.asList(queue), attributes);
+        tracker.save();
+    }
+
+    static class InMemoryStore implements DeployStateStore {
+        Map<String, String> documents = new HashMap<>();
+
+        @Override
+        public String read(String key) {
+            return documents.get(key);
+        }
+
+        @Override
+        public void write(String key, String document) {
+            documents.put(key, document);
+        }
+    }
+}
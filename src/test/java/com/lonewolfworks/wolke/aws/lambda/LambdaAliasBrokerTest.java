@@ -0,0 +1,244 @@
+package com.lonewolfworks.wolke.aws.lambda;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.Test;
+
+import com.amazonaws.services.lambda.AbstractAWSLambda;
+import com.amazonaws.services.lambda.model.CreateAliasRequest;
+import com.amazonaws.services.lambda.model.CreateAliasResult;
+import com.amazonaws.services.lambda.model.DeleteProvisionedConcurrencyConfigRequest;
+import com.amazonaws.services.lambda.model.DeleteProvisionedConcurrencyConfigResult;
+import com.amazonaws.services.lambda.model.GetAliasRequest;
+import com.amazonaws.services.lambda.model.GetAliasResult;
+import com.amazonaws.services.lambda.model.GetProvisionedConcurrencyConfigRequest;
+import com.amazonaws.services.lambda.model.GetProvisionedConcurrencyConfigResult;
+import com.amazonaws.services.lambda.model.ProvisionedConcurrencyConfigNotFoundException;
+import com.amazonaws.services.lambda.model.PutProvisionedConcurrencyConfigRequest;
+import com.amazonaws.services.lambda.model.PutProvisionedConcurrencyConfigResult;
+import com.amazonaws.services.lambda.model.ResourceNotFoundException;
+import com.amazonaws.services.lambda.model.UpdateAliasRequest;
+import com.amazonaws.services.lambda.model.UpdateAliasResult;
+import com.lonewolfworks.wolke.aws.AwsExecException;
+import com.lonewolfworks.wolke.logging.SysoutLogger;
+
+public class LambdaAliasBrokerTest {
+
+    FakeLambda lambda = new FakeLambda();
+
+    @Test
+    public void missingAliasIsCreated() {
+        broker().brokerAlias(configuration(), "4");
+
+        assertEquals(1, lambda.created.size());
+        assertEquals("live", lambda.created.get(0).getName());
+        assertEquals("4", lambda.created.get(0).getFunctionVersion());
+        assertTrue(lambda.updated.isEmpty());
+    }
+
+    @Test
+    public void existingAliasIsPointedAtNewVersion() {
+        lambda.aliasVersion = "3";
+
+        broker().brokerAlias(configuration(), "4");
+
+        assertTrue(lambda.created.isEmpty());
+        assertEquals(1, lambda.updated.size());
+        assertEquals("4", lambda.updated.get(0).getFunctionVersion());
+        assertTrue(lambda.updated.get(0).getRoutingConfig().getAdditionalVersionWeights().isEmpty());
+    }
+
+    @Test
+    public void aliasOnSameVersionIsLeftAlone() {
+        lambda.aliasVersion = "4";
+
+        broker().brokerAlias(configuration(), "4");
+
+        assertTrue(lambda.created.isEmpty());
+        assertTrue(lambda.updated.isEmpty());
+    }
+
+    @Test
+    public void trafficShiftsThroughEachWeight() {
+        lambda.aliasVersion = "3";
+        LambdaInjectConfiguration configuration = configuration()
+            .withAliasShift(new LambdaAliasShift().withWeights(Arrays.asList(10, 50)).withIntervalSeconds(0));
+
+        broker().brokerAlias(configuration, "4");
+
+        assertEquals(3, lambda.updated.size());
+        assertEquals("3", lambda.updated.get(0).getFunctionVersion());
+        assertEquals(Collections.singletonMap("4", 0.1), lambda.updated.get(0).getRoutingConfig().getAdditionalVersionWeights());
+        assertEquals(Collections.singletonMap("4", 0.5), lambda.updated.get(1).getRoutingConfig().getAdditionalVersionWeights());
+        assertEquals("4", lambda.updated.get(2).getFunctionVersion());
+    }
+
+    @Test
+    public void weightsOutsideOneToNinetyNineAreRejected() {
+        for (Integer weight : Arrays.asList(0, 100, null)) {
+            LambdaInjectConfiguration configuration = configuration()
+                .withAliasShift(new LambdaAliasShift().withWeights(Collections.singletonList(weight)));
+            try {
+                LambdaAliasBroker.validate(configuration);
+                fail("Accepted weight " + weight);
+            } catch (AwsExecException ex) {
+                assertTrue(ex.getMessage().contains("between 1 and 99"));
+            }
+        }
+    }
+
+    @Test(expected = AwsExecException.class)
+    public void provisionedConcurrencyWithoutAliasIsRejected() {
+        LambdaAliasBroker.validate(new LambdaInjectConfiguration().withFunctionName("billing").withProvisionedConcurrency(5));
+    }
+
+    @Test
+    public void provisionedConcurrencyIsSetAndAwaited() {
+        lambda.provisioningStatuses.addAll(Arrays.asList("IN_PROGRESS", "IN_PROGRESS", "READY"));
+
+        broker().brokerAlias(configuration().withProvisionedConcurrency(5), "4");
+
+        assertEquals(Collections.singletonMap("4", 5), lambda.provisioned);
+        assertEquals(3, lambda.provisioningReads);
+    }
+
+    @Test
+    public void newVersionIsProvisionedBeforeTheAliasMoves() {
+        lambda.aliasVersion = "3";
+        lambda.provisioned.put("3", 5);
+        lambda.provisioningStatuses.addAll(Arrays.asList("IN_PROGRESS", "READY"));
+
+        broker().brokerAlias(configuration().withProvisionedConcurrency(5), "4");
+
+        assertEquals(Arrays.asList("put 4", "ready 4", "alias 4", "delete 3"), lambda.events);
+        assertEquals(Collections.singletonMap("4", 5), lambda.provisioned);
+    }
+
+    @Test
+    public void previousVersionKeepsItsConcurrencyWhileTrafficShifts() {
+        lambda.aliasVersion = "3";
+        lambda.provisioned.put("3", 5);
+        LambdaInjectConfiguration configuration = configuration().withProvisionedConcurrency(5)
+            .withAliasShift(new LambdaAliasShift().withWeights(Collections.singletonList(10)).withIntervalSeconds(0));
+
+        broker().brokerAlias(configuration, "4");
+
+        assertEquals(Arrays.asList("put 4", "ready 4", "alias 3", "alias 4", "delete 3"), lambda.events);
+    }
+
+    @Test
+    public void concurrencyLeftOnTheAliasIsMovedToTheVersion() {
+        lambda.aliasVersion = "3";
+        lambda.provisioned.put("live", 5);
+
+        broker().brokerAlias(configuration().withProvisionedConcurrency(5), "4");
+
+        assertEquals(Arrays.asList("delete live", "put 4", "ready 4", "alias 4"), lambda.events);
+    }
+
+    @Test
+    public void unchangedProvisionedConcurrencyIsNotSetAgain() {
+        lambda.aliasVersion = "4";
+        lambda.provisioned.put("4", 5);
+
+        broker().brokerAlias(configuration().withProvisionedConcurrency(5), "4");
+
+        assertEquals(0, lambda.provisioningWrites);
+    }
+
+    @Test
+    public void zeroProvisionedConcurrencyRemovesIt() {
+        lambda.aliasVersion = "3";
+        lambda.provisioned.put("3", 5);
+
+        broker().brokerAlias(configuration().withProvisionedConcurrency(0), "4");
+
+        assertTrue(lambda.provisioned.isEmpty());
+        assertEquals(0, lambda.provisioningWrites);
+    }
+
+    private LambdaAliasBroker broker() {
+        return new LambdaAliasBroker(lambda, new LambdaUpdateWaiter(lambda, new SysoutLogger(), 1000, 1, 1),
+            new SysoutLogger());
+    }
+
+    private static LambdaInjectConfiguration configuration() {
+        return new LambdaInjectConfiguration().withFunctionName("billing").withAlias("live");
+    }
+
+    static class FakeLambda extends AbstractAWSLambda {
+        String aliasVersion;
+        Map<String, Integer> provisioned = new HashMap<>();
+        List<String> events = new ArrayList<>();
+        Deque<String> provisioningStatuses = new ArrayDeque<>();
+        int provisioningReads;
+        int provisioningWrites;
+        List<CreateAliasRequest> created = new ArrayList<>();
+        List<UpdateAliasRequest> updated = new ArrayList<>();
+
+        @Override
+        public GetAliasResult getAlias(GetAliasRequest request) {
+            if (aliasVersion == null) {
+                throw new ResourceNotFoundException("Alias not found");
+            }
+            return new GetAliasResult().withFunctionVersion(aliasVersion);
+        }
+
+        @Override
+        public CreateAliasResult createAlias(CreateAliasRequest request) {
+            created.add(request);
+            aliasVersion = request.getFunctionVersion();
+            return new CreateAliasResult();
+        }
+
+        @Override
+        public UpdateAliasResult updateAlias(UpdateAliasRequest request) {
+            updated.add(request);
+            events.add("alias " + request.getFunctionVersion());
+            return new UpdateAliasResult();
+        }
+
+        @Override
+        public GetProvisionedConcurrencyConfigResult getProvisionedConcurrencyConfig(GetProvisionedConcurrencyConfigRequest request) {
+            Integer level = provisioned.get(request.getQualifier());
+            if (level == null) {
+                throw new ProvisionedConcurrencyConfigNotFoundException("No provisioned concurrency");
+            }
+            provisioningReads++;
+            String status = provisioningStatuses.size() > 1 ? provisioningStatuses.poll()
+                : Optional.ofNullable(provisioningStatuses.peek()).orElse("READY");
+            if ("READY".equals(status) && events.contains("put " + request.getQualifier())) {
+                events.add("ready " + request.getQualifier());
+            }
+            return new GetProvisionedConcurrencyConfigResult().withStatus(status).withStatusReason("capacity")
+                .withRequestedProvisionedConcurrentExecutions(level);
+        }
+
+        @Override
+        public PutProvisionedConcurrencyConfigResult putProvisionedConcurrencyConfig(PutProvisionedConcurrencyConfigRequest request) {
+            provisioningWrites++;
+            events.add("put " + request.getQualifier());
+            provisioned.put(request.getQualifier(), request.getProvisionedConcurrentExecutions());
+            return new PutProvisionedConcurrencyConfigResult();
+        }
+
+        @Override
+        public DeleteProvisionedConcurrencyConfigResult deleteProvisionedConcurrencyConfig(DeleteProvisionedConcurrencyConfigRequest request) {
+            events.add("delete " + request.getQualifier());
+            provisioned.remove(request.getQualifier());
+            return new DeleteProvisionedConcurrencyConfigResult();
+        }
+    }
+}
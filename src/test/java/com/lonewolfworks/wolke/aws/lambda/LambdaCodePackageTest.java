@@ -0,0 +1,69 @@
+package com.lonewolfworks.wolke.aws.lambda;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.services.lambda.model.FunctionCode;
+import com.lonewolfworks.wolke.aws.AwsExecException;
+import com.lonewolfworks.wolke.logging.SysoutLogger;
+
+public class LambdaCodePackageTest {
+
+    File zip;
+
+    @Before
+    public void setup() throws IOException {
+        zip = File.createTempFile("function", ".zip");
+        Files.write(zip.toPath(), "hello lambda".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void cleanup() {
+        zip.delete();
+    }
+
+    @Test
+    public void hashMatchesLambdaCodeSha256Format() throws Exception {
+        LambdaCodePackage codePackage = LambdaCodePackage.of(zip);
+        String expected = Base64.getEncoder().encodeToString(
+            MessageDigest.getInstance("SHA-256").digest("hello lambda".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(expected, codePackage.getCodeSha256());
+        assertTrue(codePackage.matches(expected));
+        assertFalse(codePackage.matches(null));
+        assertTrue(codePackage.getS3Key().startsWith(LambdaCodePackage.PREFIX));
+        assertTrue(codePackage.getS3Key().endsWith(".zip"));
+    }
+
+    @Test
+    public void smallPackagesAreUploadedDirectly() throws IOException {
+        FunctionCode code = LambdaCodePackage.of(zip).toFunctionCode(null, "code-bucket", 1024, new SysoutLogger());
+
+        assertEquals(12, code.getZipFile().remaining());
+        assertNull(code.getS3Key());
+    }
+
+    @Test
+    public void largePackagesNeedACodeBucket() throws IOException {
+        try {
+            LambdaCodePackage.of(zip).toFunctionCode(null, null, 4, new SysoutLogger());
+            fail("expected a package over the threshold to need a code bucket");
+        } catch (AwsExecException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("is 12 bytes, over the 4 byte direct upload threshold"));
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.lonewolfworks.wolke.aws.lambda;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.services.lambda.AbstractAWSLambda;
+import com.amazonaws.services.lambda.model.GetLayerVersionRequest;
+import com.amazonaws.services.lambda.model.GetLayerVersionResult;
+import com.amazonaws.services.lambda.model.LayerVersionContentOutput;
+import com.amazonaws.services.lambda.model.LayerVersionsListItem;
+import com.amazonaws.services.lambda.model.ListLayerVersionsRequest;
+import com.amazonaws.services.lambda.model.ListLayerVersionsResult;
+import com.amazonaws.services.lambda.model.PublishLayerVersionRequest;
+import com.amazonaws.services.lambda.model.PublishLayerVersionResult;
+import com.lonewolfworks.wolke.aws.AwsExecException;
+import com.lonewolfworks.wolke.logging.SysoutLogger;
+
+public class LambdaLayerBrokerTest {
+
+    private static final String LAYER_ARN = "arn:aws:lambda:us-east-1:123456789012:layer:shared-libs:";
+    private static final List<String> RUNTIMES = Collections.singletonList("java11");
+    private static final List<String> ARCHITECTURES = Collections.singletonList("arm64");
+
+    File zip;
+    LambdaCodePackage codePackage;
+    FakeLambda lambda = new FakeLambda();
+    LambdaLayer layer = new LambdaLayer().withName("shared-libs").withZipFileName("shared-libs.zip");
+
+    @Before
+    public void setup() throws IOException {
+        zip = File.createTempFile("layer", ".zip");
+        Files.write(zip.toPath(), "shared libs".getBytes(StandardCharsets.UTF_8));
+        codePackage = LambdaCodePackage.of(zip);
+    }
+
+    @After
+    public void cleanup() {
+        zip.delete();
+    }
+
+    @Test
+    public void unchangedLayerReusesLatestVersion() throws IOException {
+        lambda.latest(codePackage.getCodeSha256(), RUNTIMES, ARCHITECTURES);
+
+        assertEquals(LAYER_ARN + 3, broker().brokerLayer(layer, codePackage, RUNTIMES, ARCHITECTURES));
+        assertTrue(lambda.published.isEmpty());
+    }
+
+    @Test
+    public void changedHashPublishesNewVersion() throws IOException {
+        lambda.latest("c29tZXRoaW5nIGVsc2U=", RUNTIMES, ARCHITECTURES);
+
+        assertEquals(LAYER_ARN + 4, broker().brokerLayer(layer, codePackage, RUNTIMES, ARCHITECTURES));
+        assertEquals(1, lambda.published.size());
+    }
+
+    @Test
+    public void changedCompatibilityPublishesNewVersion() throws IOException {
+        lambda.latest(codePackage.getCodeSha256(), RUNTIMES, Collections.singletonList("x86_64"));
+
+        assertEquals(LAYER_ARN + 4, broker().brokerLayer(layer, codePackage, RUNTIMES, ARCHITECTURES));
+        assertEquals(ARCHITECTURES, lambda.published.get(0).getCompatibleArchitectures());
+    }
+
+    @Test
+    public void firstVersionIsPublished() throws IOException {
+        assertEquals(LAYER_ARN + 1, broker().brokerLayer(layer, codePackage, RUNTIMES, ARCHITECTURES));
+        assertEquals(1, lambda.published.size());
+    }
+
+    @Test
+    public void fiveLayersAreAllowed() {
+        LambdaLayerBroker.validate(new LambdaInjectConfiguration()
+            .withLocalLayers(Arrays.asList(layer, layer))
+            .withLayers(Arrays.asList(LAYER_ARN + 1, LAYER_ARN + 2, LAYER_ARN + 3)));
+    }
+
+    @Test(expected = AwsExecException.class)
+    public void moreThanFiveLayersAreRejected() {
+        LambdaLayerBroker.validate(new LambdaInjectConfiguration()
+            .withLocalLayers(Arrays.asList(layer, layer))
+            .withLayers(Arrays.asList(LAYER_ARN + 1, LAYER_ARN + 2, LAYER_ARN + 3, LAYER_ARN + 4)));
+    }
+
+    private LambdaLayerBroker broker() {
+        return new LambdaLayerBroker(lambda, null, null, LambdaCodePackage.DEFAULT_UPLOAD_THRESHOLD_BYTES,
+            new SysoutLogger());
+    }
+
+    static class FakeLambda extends AbstractAWSLambda {
+        LayerVersionsListItem latest;
+        String latestCodeSha256;
+        List<PublishLayerVersionRequest> published = new ArrayList<>();
+
+        void latest(String codeSha256, List<String> runtimes, List<String> architectures) {
+            latest = new LayerVersionsListItem().withVersion(3L).withLayerVersionArn(LAYER_ARN + 3)
+                .withCompatibleRuntimes(runtimes).withCompatibleArchitectures(architectures);
+            latestCodeSha256 = codeSha256;
+        }
+
+        @Override
+        public ListLayerVersionsResult listLayerVersions(ListLayerVersionsRequest request) {
+            return new ListLayerVersionsResult().withLayerVersions(
+                latest == null ? Collections.emptyList() : Collections.singletonList(latest));
+        }
+
+        @Override
+        public GetLayerVersionResult getLayerVersion(GetLayerVersionRequest request) {
+            assertEquals(latest.getVersion(), request.getVersionNumber());
+            return new GetLayerVersionResult().withContent(new LayerVersionContentOutput().withCodeSha256(latestCodeSha256));
+        }
+
+        @Override
+        public PublishLayerVersionResult publishLayerVersion(PublishLayerVersionRequest request) {
+            published.add(request);
+            long version = latest == null ? 1 : latest.getVersion() + 1;
+            return new PublishLayerVersionResult().withLayerVersionArn(LAYER_ARN + version);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.lonewolfworks.wolke.aws.lambda;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.amazonaws.services.lambda.AbstractAWSLambda;
+import com.amazonaws.services.lambda.model.AddPermissionRequest;
+import com.amazonaws.services.lambda.model.AddPermissionResult;
+import com.amazonaws.services.lambda.model.GetPolicyRequest;
+import com.amazonaws.services.lambda.model.GetPolicyResult;
+import com.amazonaws.services.lambda.model.RemovePermissionRequest;
+import com.amazonaws.services.lambda.model.RemovePermissionResult;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.lonewolfworks.wolke.logging.SysoutLogger;
+import com.lonewolfworks.wolke.util.MapperUtil;
+
+public class LambdaPermissionReconcilerTest {
+
+    private static final String FUNCTION_ARN = "arn:aws:lambda:us-east-1:123456789012:function:billing";
+    private static final String BUCKET_ARN = "arn:aws:s3:::billing-uploads";
+
+    FakeLambda lambda = new FakeLambda();
+
+    @Test
+    public void serviceStatementMatchesPermission() throws IOException {
+        JsonNode statement = statement("billing-InvokePermission-0", "{\"Service\":\"s3.amazonaws.com\"}",
+            FUNCTION_ARN, "{\"ArnLike\":{\"AWS:SourceArn\":\"" + BUCKET_ARN + "\"}}");
+
+        assertTrue(LambdaPermissionReconciler.matches(statement, permission(null, "s3.amazonaws.com", BUCKET_ARN)));
+        assertFalse(LambdaPermissionReconciler.matches(statement, permission(null, "s3.amazonaws.com", null)));
+        assertFalse(LambdaPermissionReconciler.matches(statement, permission(null, "sns.amazonaws.com", BUCKET_ARN)));
+    }
+
+    @Test
+    public void accountPrincipalAndQualifierAreNormalized() throws IOException {
+        JsonNode statement = statement("cross-account", "{\"AWS\":\"arn:aws:iam::210987654321:root\"}",
+            FUNCTION_ARN + ":live", null);
+        LambdaPermission permission = permission("cross-account", "210987654321", null);
+        permission.setQualifier("live");
+
+        assertTrue(LambdaPermissionReconciler.matches(statement, permission));
+    }
+
+    @Test
+    public void unchangedPermissionsMakeNoCalls() {
+        lambda.policy = policy(statementJson("billing-InvokePermission-0", "{\"Service\":\"s3.amazonaws.com\"}",
+            FUNCTION_ARN, "{\"ArnLike\":{\"AWS:SourceArn\":\"" + BUCKET_ARN + "\"}}"));
+
+        reconcile(permission(null, "s3.amazonaws.com", BUCKET_ARN));
+
+        assertEquals(0, lambda.added.size());
+        assertEquals(0, lambda.removed.size());
+    }
+
+    @Test
+    public void onlyChangedAndStaleStatementsAreReplaced() {
+        lambda.policy = policy(
+            statementJson("billing-InvokePermission-0", "{\"Service\":\"s3.amazonaws.com\"}", FUNCTION_ARN, null),
+            statementJson("billing-InvokePermission-1", "{\"Service\":\"sns.amazonaws.com\"}", FUNCTION_ARN, null),
+            statementJson("stale", "{\"Service\":\"events.amazonaws.com\"}", FUNCTION_ARN, null));
+
+        reconcile(permission(null, "s3.amazonaws.com", BUCKET_ARN), permission(null, "sns.amazonaws.com", null),
+            permission(null, "sqs.amazonaws.com", null));
+
+        assertEquals(Arrays.asList("billing-InvokePermission-0", "billing-InvokePermission-2"), lambda.added);
+        assertEquals(Arrays.asList("billing-InvokePermission-0", "stale"), lambda.removed);
+    }
+
+    private void reconcile(LambdaPermission... permissions) {
+        new LambdaPermissionReconciler(lambda, new SysoutLogger(), "billing").reconcile(Arrays.asList(permissions));
+    }
+
+    private static LambdaPermission permission(String sid, String principal, String sourceArn) {
+        LambdaPermission permission = new LambdaPermission();
+        permission.setSid(sid);
+        permission.setAction("lambda:InvokeFunction");
+        permission.setPrincipal(principal);
+        permission.setSourceArn(sourceArn);
+        return permission;
+    }
+
+    private static JsonNode statement(String sid, String principal, String resource, String condition)
+        throws IOException {
+        return MapperUtil.jsonReader(JsonNode.class).readTree(statementJson(sid, principal, resource, condition));
+    }
+
+    private static String statementJson(String sid, String principal, String resource, String condition) {
+        return "{\"Sid\":\"" + sid + "\",\"Effect\":\"Allow\",\"Principal\":" + principal
+            + ",\"Action\":\"lambda:InvokeFunction\",\"Resource\":\"" + resource + "\""
+            + (condition == null ? "" : ",\"Condition\":" + condition) + "}";
+    }
+
+    private static String policy(String... statements) {
+        return "{\"Version\":\"2012-10-17\",\"Statement\":[" + String.join(",", statements) + "]}";
+    }
+
+    static class FakeLambda extends AbstractAWSLambda {
+        String policy;
+        List<String> added = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+
+        @Override
+        public GetPolicyResult getPolicy(GetPolicyRequest request) {
+            return new GetPolicyResult().withPolicy(policy);
+        }
+
+        @Override
+        public AddPermissionResult addPermission(AddPermissionRequest request) {
+            added.add(request.getStatementId());
+            return new AddPermissionResult();
+        }
+
+        @Override
+        public RemovePermissionResult removePermission(RemovePermissionRequest request) {
+            removed.add(request.getStatementId());
+            return new RemovePermissionResult();
+        }
+    }
+}
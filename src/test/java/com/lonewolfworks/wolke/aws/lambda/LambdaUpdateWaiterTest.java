@@ -0,0 +1,43 @@
+package com.lonewolfworks.wolke.aws.lambda;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.lonewolfworks.wolke.aws.AwsExecException;
+import com.lonewolfworks.wolke.aws.lambda.LambdaAliasBrokerTest.FakeLambda;
+import com.lonewolfworks.wolke.logging.SysoutLogger;
+
+public class LambdaUpdateWaiterTest {
+
+    FakeLambda lambda = new FakeLambda();
+    LambdaUpdateWaiter waiter = new LambdaUpdateWaiter(lambda, new SysoutLogger(), 1000, 1, 1);
+
+    @Test
+    public void provisionedConcurrencyWaitsUntilReady() {
+        lambda.provisioned.put("live", 5);
+        lambda.provisioningStatuses.addAll(Arrays.asList("IN_PROGRESS", "IN_PROGRESS", "READY"));
+
+        waiter.awaitProvisionedConcurrency("billing", "live");
+
+        assertEquals(3, lambda.provisioningReads);
+    }
+
+    @Test
+    public void failedProvisionedConcurrencyIsReported() {
+        lambda.provisioned.put("live", 5);
+        lambda.provisioningStatuses.addAll(Arrays.asList("IN_PROGRESS", "FAILED"));
+
+        try {
+            waiter.awaitProvisionedConcurrency("billing", "live");
+            fail("Expected provisioning failure");
+        } catch (AwsExecException ex) {
+            assertTrue(ex.getMessage().contains("billing:live failed: capacity"));
+        }
+        assertEquals(2, lambda.provisioningReads);
+    }
+}
@@ -0,0 +1,231 @@
+package com.lonewolfworks.wolke.task.cli.ecs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.amazonaws.regions.Regions;
+import com.lonewolfworks.wolke.aws.AwsExecException;
+import com.lonewolfworks.wolke.logging.HermanLogger;
+
+public class MultiRegionPushTest {
+
+    private static final List<Regions> REGIONS = Arrays.asList(Regions.US_EAST_1, Regions.US_WEST_2, Regions.EU_WEST_1);
+
+    RecordingLogger logger = new RecordingLogger();
+    Map<Regions, StubPush> pushes = new HashMap<>();
+
+    @Test
+    public void allRegionsSucceed() {
+        REGIONS.forEach(region -> pushes.put(region, new StubPush()));
+
+        new MultiRegionPush(logger, RegionFailurePolicy.ROLLBACK).run(REGIONS, (region, regionLogger) -> pushes.get(region));
+
+        pushes.values().forEach(push -> {
+            assertTrue(push.pushed);
+            assertFalse(push.rolledBack);
+        });
+        assertTrue(logger.entries.contains("  SUCCEEDED us-west-2"));
+    }
+
+    @Test
+    public void continueLetsTheOtherRegionsFinish() throws Exception {
+        CountDownLatch failed = new CountDownLatch(1);
+        pushes.put(Regions.US_EAST_1, new StubPush() {
+            @Override
+            void doPush() {
+                failed.countDown();
+                throw new IllegalStateException("service did not stabilize");
+            }
+        });
+        pushes.put(Regions.US_WEST_2, new StubPush() {
+            @Override
+            void doPush() throws InterruptedException {
+                failed.await();
+            }
+        });
+        pushes.put(Regions.EU_WEST_1, new StubPush());
+
+        AwsExecException thrown = run(RegionFailurePolicy.CONTINUE);
+
+        assertEquals("Push failed in 1 of 3 regions", thrown.getMessage());
+        assertTrue(pushes.get(Regions.US_WEST_2).pushed);
+        assertTrue(pushes.get(Regions.EU_WEST_1).pushed);
+        pushes.values().forEach(push -> assertFalse(push.rolledBack));
+        assertTrue(logger.errors.contains("  FAILED    us-east-1  service did not stabilize"));
+        assertTrue(logger.entries.contains("  SUCCEEDED us-west-2"));
+        assertTrue(logger.entries.contains("  SUCCEEDED eu-west-1"));
+    }
+
+    @Test
+    public void stopInterruptsRunningPushesAndNamesThem() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        pushes.put(Regions.US_EAST_1, new StubPush() {
+            @Override
+            void doPush() throws InterruptedException {
+                started.await();
+                throw new IllegalStateException("service did not stabilize");
+            }
+        });
+        pushes.put(Regions.US_WEST_2, new StubPush() {
+            @Override
+            void doPush() throws InterruptedException {
+                started.countDown();
+                try {
+                    new CountDownLatch(1).await();
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+            }
+        });
+
+        AwsExecException thrown = run(RegionFailurePolicy.STOP, Regions.US_EAST_1, Regions.US_WEST_2);
+
+        assertEquals("Push failed in 2 of 2 regions", thrown.getMessage());
+        assertTrue("us-west-2 was not interrupted", interrupted.await(5, TimeUnit.SECONDS));
+        assertTrue(logger.errors.contains("Stopping pushes still running in us-west-2 after us-east-1 failed; "
+            + "they may be left part way through a deploy"));
+        assertTrue(logger.errors.contains("  FAILED    us-west-2  stopped after another region failed"));
+        assertFalse(pushes.get(Regions.US_WEST_2).rolledBack);
+    }
+
+    @Test
+    public void rollbackRevertsTheRegionsThatSucceeded() {
+        CountDownLatch succeeded = new CountDownLatch(2);
+        pushes.put(Regions.US_EAST_1, new StubPush() {
+            @Override
+            void doPush() throws InterruptedException {
+                succeeded.await();
+                throw new IllegalStateException("service did not stabilize");
+            }
+        });
+        pushes.put(Regions.US_WEST_2, new StubPush() {
+            @Override
+            void doPush() {
+                succeeded.countDown();
+            }
+        });
+        pushes.put(Regions.EU_WEST_1, new StubPush() {
+            @Override
+            void doPush() {
+                succeeded.countDown();
+            }
+
+            @Override
+            boolean doRollBack() {
+                return false;
+            }
+        });
+
+        AwsExecException thrown = run(RegionFailurePolicy.ROLLBACK);
+
+        assertEquals("Push failed in 3 of 3 regions", thrown.getMessage());
+        assertFalse(pushes.get(Regions.US_EAST_1).rolledBack);
+        assertTrue(pushes.get(Regions.US_WEST_2).rolledBack);
+        assertTrue(pushes.get(Regions.EU_WEST_1).rolledBack);
+        assertTrue(logger.errors.contains("  FAILED    us-west-2  rolled back after another region failed"));
+        assertTrue(logger.errors.contains("  FAILED    eu-west-1  nothing to roll back after another region failed"));
+    }
+
+    @Test
+    public void failedRollbackIsReported() {
+        CountDownLatch succeeded = new CountDownLatch(1);
+        pushes.put(Regions.US_EAST_1, new StubPush() {
+            @Override
+            void doPush() throws InterruptedException {
+                succeeded.await();
+                throw new IllegalStateException("service did not stabilize");
+            }
+        });
+        pushes.put(Regions.US_WEST_2, new StubPush() {
+            @Override
+            void doPush() {
+                succeeded.countDown();
+            }
+
+            @Override
+            boolean doRollBack() {
+                throw new IllegalStateException("previous task definition is gone");
+            }
+        });
+
+        run(RegionFailurePolicy.ROLLBACK, Regions.US_EAST_1, Regions.US_WEST_2);
+
+        assertTrue(logger.errors.contains("[us-west-2] Rollback failed"));
+        assertTrue(logger.errors.contains("  FAILED    us-west-2  rollback failed: previous task definition is gone"));
+    }
+
+    private AwsExecException run(RegionFailurePolicy policy, Regions... regions) {
+        List<Regions> toPush = regions.length == 0 ? REGIONS : Arrays.asList(regions);
+        try {
+            new MultiRegionPush(logger, policy).run(toPush, (region, regionLogger) -> pushes.get(region));
+        } catch (AwsExecException e) {
+            return e;
+        }
+        fail("expected the push to fail");
+        return null;
+    }
+
+    static class StubPush implements MultiRegionPush.RegionPush {
+        volatile boolean pushed;
+        volatile boolean rolledBack;
+
+        @Override
+        public void push() {
+            try {
+                doPush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted", e);
+            }
+            pushed = true;
+        }
+
+        @Override
+        public boolean rollBack() {
+            rolledBack = true;
+            return doRollBack();
+        }
+
+        void doPush() throws InterruptedException {
+        }
+
+        boolean doRollBack() {
+            return true;
+        }
+    }
+
+    static class RecordingLogger implements HermanLogger {
+        final List<String> entries = Collections.synchronizedList(new ArrayList<>());
+        final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void addLogEntry(String logEntry) {
+            entries.add(logEntry);
+        }
+
+        @Override
+        public void addErrorLogEntry(String errorLogEntry) {
+            errors.add(errorLogEntry);
+        }
+
+        @Override
+        public void addErrorLogEntry(String errorLogEntry, Throwable exception) {
+            errors.add(errorLogEntry);
+        }
+    }
+}
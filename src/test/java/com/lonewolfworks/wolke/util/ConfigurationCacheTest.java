@@ -0,0 +1,151 @@
+package com.lonewolfworks.wolke.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.services.s3.AbstractAmazonS3;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.lonewolfworks.wolke.logging.HermanLogger;
+import com.lonewolfworks.wolke.logging.SysoutLogger;
+
+public class ConfigurationCacheTest {
+
+    HermanLogger logger = new SysoutLogger();
+    FakeS3 s3 = new FakeS3();
+    File directory;
+
+    @Before
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("config-cache").toFile();
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Test
+    public void revalidatesWithStoredEtag() throws IOException {
+        ConfigurationCache cache = new ConfigurationCache(directory, 0);
+        s3.put("policy-v1", "\"etag-1\"");
+
+        assertEquals("policy-v1", cache.getObjectAsString(s3, "bucket", "kms-policy.json", logger));
+        assertEquals("policy-v1", cache.getObjectAsString(s3, "bucket", "kms-policy.json", logger));
+
+        assertEquals(2, s3.requests.size());
+        assertTrue(s3.requests.get(0).getNonmatchingETagConstraints().isEmpty());
+        assertEquals("\"etag-1\"", s3.requests.get(1).getNonmatchingETagConstraints().get(0));
+    }
+
+    @Test
+    public void downloadsChangedObject() throws IOException {
+        ConfigurationCache cache = new ConfigurationCache(directory, 0);
+        s3.put("policy-v1", "\"etag-1\"");
+        cache.getObjectAsString(s3, "bucket", "kms-policy.json", logger);
+
+        s3.put("policy-v2", "\"etag-2\"");
+
+        assertEquals("policy-v2", cache.getObjectAsString(s3, "bucket", "kms-policy.json", logger));
+        assertEquals("\"etag-2\"", new String(Files.readAllBytes(
+            new File(directory, "bucket/kms-policy.json.etag").toPath()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void ttlSkipsRevalidation() throws IOException {
+        ConfigurationCache cache = new ConfigurationCache(directory, 60000);
+        s3.put("properties", "\"etag-1\"");
+
+        cache.getObjectAsString(s3, "bucket", "properties.yml", logger);
+        assertEquals("properties", cache.getObjectAsString(s3, "bucket", "properties.yml", logger));
+
+        assertEquals(1, s3.requests.size());
+    }
+
+    @Test
+    public void disabledCacheAlwaysDownloads() throws IOException {
+        ConfigurationCache cache = new ConfigurationCache(null, 0);
+        s3.put("properties", "\"etag-1\"");
+
+        cache.getObjectAsString(s3, "bucket", "properties.yml", logger);
+        cache.getObjectAsString(s3, "bucket", "properties.yml", logger);
+
+        assertEquals(2, s3.requests.size());
+        assertEquals(0, directory.list().length);
+    }
+
+    @Test
+    public void differentObjectsLoadConcurrently() throws Exception {
+        ConfigurationCache cache = new ConfigurationCache(directory, 0);
+        CountDownLatch bothRequested = new CountDownLatch(2);
+        FakeS3 s3 = new FakeS3() {
+            @Override
+            public S3Object getObject(GetObjectRequest request) {
+                bothRequested.countDown();
+                try {
+                    if (!bothRequested.await(5, TimeUnit.SECONDS)) {
+                        throw new IllegalStateException("objects were loaded one at a time");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+                return super.getObject(request);
+            }
+        };
+        s3.put("policy-v1", "\"etag-1\"");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> kms = executor.submit(() -> cache.getObjectAsString(s3, "bucket", "kms-policy.json", logger));
+            Future<String> ecr = executor.submit(() -> cache.getObjectAsString(s3, "bucket", "ecr-policy.json", logger));
+
+            assertEquals("policy-v1", kms.get());
+            assertEquals("policy-v1", ecr.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    static class FakeS3 extends AbstractAmazonS3 {
+        List<GetObjectRequest> requests = Collections.synchronizedList(new ArrayList<>());
+        String body;
+        String etag;
+
+        void put(String body, String etag) {
+            this.body = body;
+            this.etag = etag;
+        }
+
+        @Override
+        public S3Object getObject(GetObjectRequest request) {
+            requests.add(request);
+            if (request.getNonmatchingETagConstraints().contains(etag)) {
+                return null;
+            }
+            S3Object object = new S3Object();
+            object.setObjectContent(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+            object.getObjectMetadata().setHeader(Headers.ETAG, etag);
+            return object;
+        }
+    }
+}
@@ -4,22 +4,33 @@ import com.lonewolfworks.wolke.aws.AwsExecException;
 import com.lonewolfworks.wolke.logging.HermanLogger;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Properties;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 public class FileUtilTest {
 
     @Mock
     HermanLogger logger;
 
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
     FileUtil util;
 
     @Before
@@ -59,6 +70,58 @@ public class FileUtilTest {
         util.findFile("template.json", false);
     }
 
+    @Test
+    public void prefetchedEntriesAreServedFromTheBundle() throws IOException {
+        util.prefetch("template.yml", "template.json", null);
+        String first = util.findFile("template.yml", false);
+        Assert.assertSame(first, util.findFile("template.yml", false));
+        Assert.assertNull(util.findFile("template.json", true));
+    }
+
+    @Test
+    public void unreadableEntryDoesNotAffectTheOthers() throws IOException {
+        File dir = temp.newFolder();
+        File zip = new File(dir, "app-config.zip");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip))) {
+            writeEntry(out, "broken.json", "{\"broken\": true}");
+            writeEntry(out, "template.yml", "ok");
+        }
+        // The first entry's deflate data starts right after its 30 byte header and name
+        try (RandomAccessFile file = new RandomAccessFile(zip, "rw")) {
+            file.seek(30 + "broken.json".length());
+            file.write(0xFF);
+        }
+        FileUtil bundleUtil = new FileUtil(dir.getPath(), logger);
+
+        bundleUtil.prefetch("broken.json", "template.yml");
+
+        Assert.assertNull(bundleUtil.findFile("broken.json", true));
+        Assert.assertEquals("ok", bundleUtil.findFile("template.yml", false));
+    }
+
+    @Test
+    public void largeEntriesAreReadOnDemand() throws IOException {
+        File dir = temp.newFolder();
+        char[] large = new char[(int) FileUtil.MAX_CACHED_ENTRY_BYTES + 1];
+        Arrays.fill(large, 'x');
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(new File(dir, "app-config.zip")))) {
+            writeEntry(out, "large.json", new String(large));
+        }
+        FileUtil bundleUtil = new FileUtil(dir.getPath(), logger);
+
+        String first = bundleUtil.findFile("large.json", false);
+        String second = bundleUtil.findFile("large.json", false);
+
+        Assert.assertEquals(first, second);
+        Assert.assertNotSame(first, second);
+    }
+
+    private static void writeEntry(ZipOutputStream out, String name, String content) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        out.write(content.getBytes(StandardCharsets.UTF_8));
+        out.closeEntry();
+    }
+
     @Test
     public void nullOnNotExistsAndOptionalInZip() throws IOException {
         String yml = util.findFile("template.json", true);